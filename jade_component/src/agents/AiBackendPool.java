@@ -0,0 +1,167 @@
+package agents;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool de backend-uri pentru serviciul AI (mai multe procese uvicorn locale).
+ * Alege backend-ul cu cele mai puține cereri în curs (least-in-flight) și ține
+ * câte un circuit breaker pentru fiecare backend, ca un serviciu căzut să fie
+ * ocolit imediat în loc să blocheze căutările.
+ */
+class AiBackendPool {
+
+	/** Numărul de eșecuri consecutive după care se deschide circuitul */
+	static final int FAILURE_THRESHOLD = 3;
+
+	/** Cât timp stă circuitul deschis înainte de o încercare (half-open) */
+	static final long OPEN_MS = 10_000;
+
+	/** Stările circuit breaker-ului */
+	enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	/** Un backend (un proces uvicorn) împreună cu starea lui */
+	static class Backend {
+		final URI base;
+		final AtomicInteger inFlight = new AtomicInteger();
+
+		private State state = State.CLOSED;
+		private int consecutiveFailures = 0;
+		private long openedAt = 0;
+
+		/** true dacă în HALF_OPEN a fost deja lăsată să treacă o cerere de probă */
+		private boolean trialInFlight = false;
+
+		Backend(URI base) {
+			this.base = base;
+		}
+
+		URI solveUri() {
+			return base.resolve("/agent/solve");
+		}
+
+		URI healthUri() {
+			return base.resolve("/health");
+		}
+
+		synchronized State state() {
+			return state;
+		}
+
+		@Override
+		public String toString() {
+			return base + " [" + state + ", inFlight=" + inFlight.get() + "]";
+		}
+	}
+
+	private final List<Backend> backends;
+
+	AiBackendPool(List<String> urls) {
+		List<Backend> list = new ArrayList<>();
+		for (String u : urls) {
+			String s = u.trim();
+			if (s.isEmpty())
+				continue;
+			if (s.endsWith("/"))
+				s = s.substring(0, s.length() - 1);
+			list.add(new Backend(URI.create(s)));
+		}
+		this.backends = Collections.unmodifiableList(list);
+	}
+
+	/**
+	 * Parsează lista de endpoint-uri separate prin virgulă (ex.
+	 * "http://127.0.0.1:8000,http://127.0.0.1:8001").
+	 */
+	static AiBackendPool fromSpec(String spec) {
+		List<String> urls = new ArrayList<>();
+		if (spec != null)
+			Collections.addAll(urls, spec.split(","));
+		return new AiBackendPool(urls);
+	}
+
+	List<Backend> all() {
+		return backends;
+	}
+
+	/**
+	 * Alege backend-ul disponibil cu cele mai puține cereri în curs și îi
+	 * incrementează contorul. Întoarce null dacă toate circuitele sunt deschise.
+	 */
+	Backend acquire() {
+		long now = System.currentTimeMillis();
+		Backend best = null;
+		int bestLoad = Integer.MAX_VALUE;
+
+		for (Backend b : backends) {
+			synchronized (b) {
+				if (b.state == State.OPEN && now - b.openedAt >= OPEN_MS) {
+					b.state = State.HALF_OPEN;
+					b.trialInFlight = false;
+				}
+				if (b.state == State.OPEN)
+					continue;
+				if (b.state == State.HALF_OPEN && b.trialInFlight)
+					continue;
+			}
+			int load = b.inFlight.get();
+			if (load < bestLoad) {
+				best = b;
+				bestLoad = load;
+			}
+		}
+
+		if (best == null)
+			return null;
+
+		synchronized (best) {
+			if (best.state == State.HALF_OPEN)
+				best.trialInFlight = true;
+		}
+		best.inFlight.incrementAndGet();
+		return best;
+	}
+
+	/** Eliberează backend-ul după o cerere și actualizează circuitul */
+	void release(Backend b, boolean success) {
+		b.inFlight.decrementAndGet();
+		if (success)
+			recordSuccess(b);
+		else
+			recordFailure(b);
+	}
+
+	/** Un răspuns reușit (cerere sau health check) închide circuitul */
+	void recordSuccess(Backend b) {
+		synchronized (b) {
+			b.consecutiveFailures = 0;
+			b.trialInFlight = false;
+			b.state = State.CLOSED;
+		}
+	}
+
+	/** Un eșec; după FAILURE_THRESHOLD eșecuri (sau în HALF_OPEN) se deschide */
+	void recordFailure(Backend b) {
+		synchronized (b) {
+			b.consecutiveFailures++;
+			b.trialInFlight = false;
+			if (b.state == State.HALF_OPEN || b.consecutiveFailures >= FAILURE_THRESHOLD) {
+				if (b.state != State.OPEN)
+					System.out.println("[AI] Circuit deschis pentru " + b.base);
+				b.state = State.OPEN;
+				b.openedAt = System.currentTimeMillis();
+			}
+		}
+	}
+
+	/** Rezumat pentru log */
+	@Override
+	public String toString() {
+		return backends.toString();
+	}
+}
@@ -0,0 +1,91 @@
+package agents;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generează un arbore sintetic de directoare și fișiere pentru benchmark-uri:
+ * depth niveluri, fanout subdirectoare pe nivel și filesPerDir fișiere mici
+ * în fiecare director. Numele sunt deterministe pentru un seed dat, deci
+ * rulările pot fi comparate între versiuni.
+ *
+ * Rulare: java -cp bin agents.BenchTreeGenerator &lt;root&gt; [depth] [fanout]
+ * [filesPerDir] [seed]
+ */
+public final class BenchTreeGenerator {
+
+	/** Extensiile folosite pentru fișierele generate */
+	private static final String[] EXT = { "txt", "log", "java", "json", "png", "dat", "md", "csv" };
+
+	/** Câte căi de fișiere sunt reținute ca eșantion pentru interogări */
+	private static final int SAMPLE_SIZE = 2_000;
+
+	private final Random rnd;
+	private final List<Path> sample = new ArrayList<>();
+	private long files = 0;
+	private long dirs = 0;
+
+	private BenchTreeGenerator(long seed) {
+		this.rnd = new Random(seed);
+	}
+
+	/**
+	 * Generează arborele sub root și întoarce un eșantion (reservoir) de fișiere
+	 * create, folosit ca ținte pentru interogări.
+	 */
+	static List<Path> generate(Path root, int depth, int fanout, int filesPerDir, long seed) throws IOException {
+		BenchTreeGenerator g = new BenchTreeGenerator(seed);
+		Files.createDirectories(root);
+		g.fill(root, depth, fanout, filesPerDir, "");
+		System.out.println("Arbore generat în " + root + ": " + g.dirs + " directoare, " + g.files + " fișiere");
+		return g.sample;
+	}
+
+	private void fill(Path dir, int depth, int fanout, int filesPerDir, String prefix) throws IOException {
+		dirs++;
+		for (int i = 0; i < filesPerDir; i++) {
+			String name = "f" + prefix + "_" + i + "_" + Integer.toHexString(rnd.nextInt(1 << 20)) + "."
+					+ EXT[rnd.nextInt(EXT.length)];
+			Path f = dir.resolve(name);
+			if (!Files.exists(f))
+				Files.write(f, new byte[rnd.nextInt(4096)]);
+			files++;
+
+			/** Reservoir sampling */
+			if (sample.size() < SAMPLE_SIZE) {
+				sample.add(f);
+			} else {
+				long j = (long) (rnd.nextDouble() * files);
+				if (j < SAMPLE_SIZE)
+					sample.set((int) j, f);
+			}
+		}
+
+		if (depth == 0)
+			return;
+
+		for (int i = 0; i < fanout; i++) {
+			Path sub = dir.resolve("d" + prefix + "_" + i);
+			Files.createDirectories(sub);
+			fill(sub, depth - 1, fanout, filesPerDir, prefix + "_" + i);
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Utilizare: BenchTreeGenerator <root> [depth] [fanout] [filesPerDir] [seed]");
+			return;
+		}
+		Path root = Paths.get(args[0]);
+		int depth = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		int fanout = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+		int filesPerDir = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : 42L;
+		generate(root, depth, fanout, filesPerDir, seed);
+	}
+}
@@ -0,0 +1,93 @@
+package agents;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Anularea căutărilor la nivel de JVM (container), pe convId. Finderii din
+ * același proces cu SearcherAgent se înregistrează la pornirea căutării și
+ * sunt opriți direct, fără să aștepte mesajul STOP_SEARCH din coadă; finderii
+ * din alte containere primesc în continuare doar mesajul. Anularea ajunge și
+ * înainte de înregistrare: o căutare deja anulată nu mai pornește.
+ */
+final class CancellationRegistry {
+
+	/** O anulare e ținută minte atât cât poate întârzia o cerere în cozi */
+	private static final long RETAIN_NANOS = TimeUnit.MINUTES.toNanos(2);
+
+	/** convId -> momentul anulării (System.nanoTime) */
+	private static final Map<String, Long> CANCELLED = new ConcurrentHashMap<>();
+
+	/** convId -> acțiunile de oprire ale căutărilor în curs */
+	private static final Map<String, List<Runnable>> LISTENERS = new ConcurrentHashMap<>();
+
+	/** Înregistrarea unei căutări; close() o scoate din registru */
+	static final class Registration implements AutoCloseable {
+		private final String convId;
+		private final Runnable onCancel;
+
+		private Registration(String convId, Runnable onCancel) {
+			this.convId = convId;
+			this.onCancel = onCancel;
+		}
+
+		@Override
+		public void close() {
+			List<Runnable> l = LISTENERS.get(convId);
+			if (l != null) {
+				l.remove(onCancel);
+				if (l.isEmpty())
+					LISTENERS.remove(convId, l);
+			}
+		}
+	}
+
+	private CancellationRegistry() {
+	}
+
+	/**
+	 * Înregistrează o căutare. onCancel rulează pe thread-ul care anulează, deci
+	 * trebuie să fie scurt (flag-uri, interrupt); rulează imediat dacă convId-ul
+	 * e deja anulat.
+	 */
+	static Registration register(String convId, Runnable onCancel) {
+		LISTENERS.computeIfAbsent(convId, k -> new CopyOnWriteArrayList<>()).add(onCancel);
+		Registration r = new Registration(convId, onCancel);
+		if (CANCELLED.containsKey(convId))
+			onCancel.run();
+		return r;
+	}
+
+	/** Anulează toate căutările cu acest convId; false dacă era deja anulat */
+	static boolean cancel(String convId) {
+		if (convId == null)
+			return false;
+		long now = System.nanoTime();
+		if (CANCELLED.putIfAbsent(convId, now) != null)
+			return false;
+
+		List<Runnable> l = LISTENERS.get(convId);
+		if (l != null) {
+			for (Runnable r : l)
+				r.run();
+		}
+		expire(now);
+		return true;
+	}
+
+	static boolean isCancelled(String convId) {
+		return convId != null && CANCELLED.containsKey(convId);
+	}
+
+	/** Uită anulările vechi (harta rămâne mică) */
+	private static void expire(long now) {
+		for (Iterator<Long> it = CANCELLED.values().iterator(); it.hasNext();) {
+			if (now - it.next() > RETAIN_NANOS)
+				it.remove();
+		}
+	}
+}
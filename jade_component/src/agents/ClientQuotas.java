@@ -0,0 +1,103 @@
+package agents;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Clienții finderilor la nivel de JVM (container): un client e un
+ * SearcherAgent (fereastra, un client fără GUI, un job batch), identificat
+ * după numele local. Pentru fiecare se știu ponderea (folosită de FairQueue
+ * la fiecare finder) și plafonul de căutări care rulează simultan la toți
+ * finderii din acest JVM (0 = fără plafon); un client ajuns la plafon
+ * așteaptă în cozile finderilor, iar finderii lăsați liberi servesc ceilalți
+ * clienți. Finderii din alte containere își aplică propriul plafon.
+ *
+ * Metrici pe client: client.&lt;nume&gt;.searches, .queue.micros (așteptarea
+ * în coada finderului), .service.micros (rularea), .queue.maxMicros și
+ * .throttled (de câte ori a fost amânat din cauza plafonului).
+ */
+final class ClientQuotas {
+
+	/** Un client, cu ponderea și plafonul din ultima lui cerere */
+	static final class Client {
+		final String name;
+		volatile int weight = 1;
+		volatile int quota = 0;
+
+		/** Căutările lui care rulează acum, la toți finderii din JVM */
+		private final AtomicInteger running = new AtomicInteger();
+
+		private Client(String name) {
+			this.name = name;
+		}
+
+		int running() {
+			return running.get();
+		}
+	}
+
+	private static final Map<String, Client> CLIENTS = new ConcurrentHashMap<>();
+
+	/** Finderii cu cereri amânate de plafon; fiecare e trezit când se eliberează un loc */
+	private static final Set<Runnable> WAITERS = ConcurrentHashMap.newKeySet();
+
+	private ClientQuotas() {
+	}
+
+	/** Clientul cu acest nume, cu ponderea și plafonul actualizate */
+	static Client client(String name, int weight, int quota) {
+		Client c = CLIENTS.computeIfAbsent(name, Client::new);
+		c.weight = Math.max(1, weight);
+		c.quota = Math.max(0, quota);
+		return c;
+	}
+
+	/** Clientul cu acest nume (creat cu valorile implicite dacă nu e cunoscut) */
+	static Client get(String name) {
+		return CLIENTS.computeIfAbsent(name, Client::new);
+	}
+
+	/** Ocupă un loc din plafonul clientului; false dacă plafonul e atins */
+	static boolean tryAcquire(Client c) {
+		for (;;) {
+			int n = c.running.get();
+			int q = c.quota;
+			if (q > 0 && n >= q) {
+				Metrics.inc("client." + c.name + ".throttled");
+				return false;
+			}
+			if (c.running.compareAndSet(n, n + 1))
+				return true;
+		}
+	}
+
+	/**
+	 * Eliberează locul unei căutări terminate, înregistrează timpii ei și
+	 * trezește finderii care așteptau după un plafon.
+	 */
+	static void release(Client c, long queueNanos, long serviceNanos) {
+		c.running.decrementAndGet();
+		Metrics.inc("client." + c.name + ".searches");
+		Metrics.add("client." + c.name + ".queue.micros", queueNanos / 1_000);
+		Metrics.add("client." + c.name + ".service.micros", serviceNanos / 1_000);
+		Metrics.max("client." + c.name + ".queue.maxMicros", queueNanos / 1_000);
+		if (!WAITERS.isEmpty()) {
+			for (Runnable w : WAITERS.toArray(new Runnable[0])) {
+				if (WAITERS.remove(w))
+					w.run();
+			}
+		}
+	}
+
+	/** Un finder cu cereri amânate; wakeup rulează (o dată) la următoarea eliberare */
+	static void await(Runnable wakeup) {
+		WAITERS.add(wakeup);
+	}
+
+	/** Finderul nu mai așteaptă (s-a oprit) */
+	static void cancelAwait(Runnable wakeup) {
+		WAITERS.remove(wakeup);
+	}
+}
@@ -1,7 +1,10 @@
 package agents;
 
+import jade.core.AID;
 import jade.core.Agent;
 import jade.core.behaviours.CyclicBehaviour;
+import jade.core.behaviours.TickerBehaviour;
+import jade.domain.AMSService;
 import jade.domain.DFService;
 import jade.domain.FIPAException;
 import jade.domain.FIPAAgentManagement.*;
@@ -10,10 +13,33 @@ import jade.wrapper.AgentController;
 import jade.wrapper.ContainerController;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * Agentul Controller coordonează pornirea și oprirea agenților Finder din
- * sistem.
+ * sistem. Finderii pot fi folosiți de mai mulți clienți (SearcherAgent) odată:
+ * un START pentru folderul deja servit îl adaugă pe client la finderii
+ * existenți, iar SHUTDOWN îl scoate; finderii sunt opriți abia când pleacă
+ * ultimul client. Un START pentru alt folder, cât timp alți clienți folosesc
+ * finderii, primește REFUSE (IN_USE|folder|clienți).
+ *
+ * Finderii porniți sunt supravegheați prin heartbeat-uri (SUPERVISE). Un
+ * finder fără heartbeat de -Dcontroller.deadMs (sau oprit neașteptat) e
+ * considerat căzut: rădăcinile lui sunt preluate (ADOPT) de finderul viu cel
+ * mai puțin încărcat, iar căutarea pe care o rula e reluată (RESUME) de acolo
+ * din cursorul ultimului heartbeat. Un finder care trimite heartbeat-uri dar
+ * al cărui cursor nu avansează de -Dcontroller.hangMs e considerat blocat:
+ * căutarea lui e reluată de alt finder, dar el nu e oprit. Clienții află prin
+ * FINDER_FAILED. Metrici: recovery.failures, recovery.hangs,
+ * recovery.detect.ms/maxMs, recovery.reassigned (timpul total de recuperare
+ * îl măsoară finderul care reia, vezi recovery.total.ms).
  */
 public class ControllerAgent extends Agent {
 	private static final long serialVersionUID = 1L;
@@ -27,6 +53,79 @@ public class ControllerAgent extends Agent {
 	/** Comandă de oprire a agenților Finder */
 	public static final String CMD_SHUTDOWN = "SHUTDOWN_FINDERS";
 
+	/** Răspuns (REFUSE) la START: finderii servesc alt folder pentru alți clienți */
+	public static final String MSG_IN_USE = "IN_USE";
+
+	/**
+	 * Notificare (INFORM) către clienți: un finder a căzut sau s-a blocat.
+	 * Conținut: FINDER_FAILED|nume local|dead sau hung|convId-ul reluat (gol
+	 * dacă nicio căutare nu a fost reluată)
+	 */
+	public static final String MSG_FINDER_FAILED = "FINDER_FAILED";
+
+	/** Intervalul heartbeat-urilor cerut finderilor (ms) */
+	private static final long HEARTBEAT_MS = Long.getLong("finder.heartbeatMs", 1_000L);
+
+	/** Fără heartbeat atâta timp (ms), finderul e considerat căzut */
+	private static final long DEAD_MS = Long.getLong("controller.deadMs", 5 * HEARTBEAT_MS);
+
+	/** O căutare al cărei cursor nu avansează atâta timp (ms) e considerată blocată */
+	private static final long HANG_MS = Long.getLong("controller.hangMs", 15_000L);
+
+	/** Până la primul heartbeat (agentul abia pornește) se așteaptă mai mult */
+	private static final long STARTUP_GRACE_MS = Math.max(DEAD_MS, 10_000L);
+
+	/** Starea unui finder supravegheat, din ultimul lui heartbeat */
+	private static final class Health {
+		final AID aid;
+
+		/** Momentul (System.nanoTime) după care finderul e considerat căzut */
+		long deadline;
+
+		/** Ultimul semn de viață (ms), pentru timpul de recuperare */
+		long lastSeenMs = System.currentTimeMillis();
+
+		/** Rădăcinile finderului (parametrul owned, separate prin '\n') */
+		String owned;
+
+		/** Ultimul heartbeat "busy" (checkpoint-ul căutării) și cel al progresului ei */
+		ACLMessage checkpoint;
+		String convId;
+		long visited;
+		String cursor;
+		long progressAt;
+		long progressMs;
+
+		/** Căutarea deja reluată de altcineva (finder blocat) */
+		String resumedConv;
+
+		Health(AID aid, long now) {
+			this.aid = aid;
+			this.deadline = now + STARTUP_GRACE_MS * 1_000_000L;
+		}
+
+		boolean busy() {
+			return checkpoint != null;
+		}
+
+		int ownedCount() {
+			return owned == null || owned.isEmpty() ? 0 : owned.split("\n").length;
+		}
+	}
+
+	/** Finderii supravegheați (doar thread-ul agentului) */
+	private final Map<AID, Health> supervised = new LinkedHashMap<>();
+
+	/**
+	 * Clienții care folosesc finderii porniți (doar thread-ul agentului).
+	 * Ponderea lor nu contează aici: o aplică finderii, în cozile lor.
+	 */
+	private final Set<AID> clients = new LinkedHashSet<>();
+
+	/** Folderul servit de finderii porniți (null = niciun finder) și câți sunt */
+	private String runningFolder = null;
+	private int runningCount = 0;
+
 	protected void setup() {
 		System.out.println("Controller pornit: " + getLocalName());
 
@@ -46,6 +145,16 @@ public class ControllerAgent extends Agent {
 		}
 
 		addBehaviour(new ControlBehaviour());
+
+		/** Verifică periodic heartbeat-urile finderilor */
+		addBehaviour(new TickerBehaviour(this, HEARTBEAT_MS) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void onTick() {
+				checkFinders();
+			}
+		});
 	}
 
 	/** Comportament ciclic care primește și procesează comenzile de control. */
@@ -66,23 +175,65 @@ public class ControllerAgent extends Agent {
 
 			String c = msg.getContent() == null ? "" : msg.getContent().trim();
 
+			/** Heartbeat-urile nu apar în trace (sosesc la fiecare secundă) */
+			if (c.startsWith(FinderAgent.MSG_HEARTBEAT + "|")) {
+				onHeartbeat(msg, c);
+				return;
+			}
+			Trace.delivered(ControllerAgent.this, msg, msg.getConversationId());
+
 			/** Comandă de pornire a agenților Finder */
 			if (c.startsWith(CMD_START)) {
 				String[] parts = c.split("\\|", 2);
 				String folder = (parts.length == 2) ? parts[1] : "";
-
-				int started = startFinders(folder);
+				String root = rootOf(folder).getAbsolutePath();
+				AID client = msg.getSender();
 
 				ACLMessage reply = msg.createReply();
-				reply.setPerformative(ACLMessage.INFORM);
 				reply.setOntology(ONT_CONTROL);
-				reply.setContent("STARTED|" + started);
+				Trace.Stage span = Trace.begin(msg.getConversationId(), ControllerAgent.this, "controller.start");
+
+				/** Ceilalți clienți care folosesc acum finderii */
+				boolean shared = hasOtherClients(client);
+				if (shared && root.equals(runningFolder)) {
+					/** Același folder: clientul se alătură finderilor existenți */
+					clients.add(client);
+					Metrics.inc("controller.start.joined");
+					Trace.end(span, "alăturat, " + runningCount + " finderi");
+					reply.setPerformative(ACLMessage.INFORM);
+					reply.setContent("STARTED|" + runningCount);
+				} else if (shared) {
+					Metrics.inc("controller.start.refused");
+					Trace.end(span, "refuzat");
+					reply.setPerformative(ACLMessage.REFUSE);
+					reply.setContent(MSG_IN_USE + "|" + runningFolder + "|" + clients.size());
+				} else {
+					int started = startFinders(folder);
+					if (started > 0) {
+						clients.clear();
+						clients.add(client);
+						runningFolder = root;
+						runningCount = started;
+					}
+					Trace.end(span, started + " finderi");
+					reply.setPerformative(ACLMessage.INFORM);
+					reply.setContent("STARTED|" + started);
+				}
+				Metrics.max("controller.clients", clients.size());
 				send(reply);
 			}
 
-			/** Comandă de oprire a agenților Finder */
+			/** Comandă de oprire: clientul pleacă; finderii se opresc odată cu ultimul client */
 			if (CMD_SHUTDOWN.equals(c)) {
-				shutdownAllFinders();
+				Trace.Stage span = Trace.begin(msg.getConversationId(), ControllerAgent.this, "controller.shutdown");
+				clients.remove(msg.getSender());
+				if (hasOtherClients(msg.getSender())) {
+					System.out.println("Finderii rămân porniți pentru " + clients.size() + " client(i).");
+					Trace.end(span, "rămân " + clients.size() + " clienți");
+				} else {
+					shutdownAllFinders();
+					Trace.end(span, null);
+				}
 
 				ACLMessage reply = msg.createReply();
 				reply.setPerformative(ACLMessage.INFORM);
@@ -95,10 +246,12 @@ public class ControllerAgent extends Agent {
 
 	/**
 	 * Pornește agenți Finder pentru directorul dat și pentru fiecare subdirector.
+	 * Cu -Dfinder.consolidate=N (N &gt; 0) subdirectoarele sunt împărțite
+	 * round-robin între cel mult N finderi cu mai multe rădăcini, în loc de câte
+	 * un agent (thread, mailbox, înregistrare DF) pentru fiecare.
 	 */
 	private int startFinders(String folderPath) {
-		File root = (folderPath == null || folderPath.trim().isEmpty()) ? new File(System.getProperty("user.home"))
-				: new File(folderPath);
+		File root = rootOf(folderPath);
 
 		/** Verifică dacă folderul este valid */
 		if (!root.exists() || !root.isDirectory()) {
@@ -119,14 +272,33 @@ public class ControllerAgent extends Agent {
 			AgentController acRoot = cc.createNewAgent("finder_root_" + t, "agents.FinderAgent",
 					new Object[] { root.getAbsolutePath() });
 			acRoot.start();
+			supervise(acRoot.getName());
 			count++;
 
-			/** Finder pentru fiecare subdirector */
-			if (dirs != null) {
+			int groups = Integer.getInteger("finder.consolidate", 0);
+			if (dirs != null && groups > 0) {
+				/** Subdirectoarele împărțite între câțiva finderi consolidați */
+				groups = Math.min(groups, dirs.length);
+				List<List<Object>> parts = new ArrayList<>();
+				for (int g = 0; g < groups; g++)
+					parts.add(new ArrayList<>());
+				for (int i = 0; i < dirs.length; i++)
+					parts.get(i % groups).add(dirs[i].getAbsolutePath());
+
+				for (int g = 0; g < groups; g++) {
+					AgentController ac = cc.createNewAgent("finder_g" + g + "_" + t, "agents.FinderAgent",
+							parts.get(g).toArray());
+					ac.start();
+					supervise(ac.getName());
+					count++;
+				}
+			} else if (dirs != null) {
+				/** Finder pentru fiecare subdirector */
 				for (int i = 0; i < dirs.length; i++) {
 					AgentController ac = cc.createNewAgent("finder_" + i + "_" + t, "agents.FinderAgent",
 							new Object[] { dirs[i].getAbsolutePath() });
 					ac.start();
+					supervise(ac.getName());
 					count++;
 				}
 			}
@@ -138,15 +310,65 @@ public class ControllerAgent extends Agent {
 		return count;
 	}
 
+	/** Folderul cerut la START (home-ul utilizatorului dacă lipsește) */
+	private static File rootOf(String folderPath) {
+		return (folderPath == null || folderPath.trim().isEmpty()) ? new File(System.getProperty("user.home"))
+				: new File(folderPath);
+	}
+
+	/**
+	 * true dacă finderii sunt folosiți și de alți clienți decât client. Clienții
+	 * care nu mai există în AMS (închiși fără SHUTDOWN) sunt scoși din listă.
+	 */
+	private boolean hasOtherClients(AID client) {
+		for (Iterator<AID> it = clients.iterator(); it.hasNext();) {
+			AID other = it.next();
+			if (other.equals(client))
+				continue;
+			if (!isAlive(other)) {
+				it.remove();
+				System.out.println("Client dispărut: " + other.getLocalName());
+			}
+		}
+		for (AID other : clients) {
+			if (!other.equals(client))
+				return true;
+		}
+		return false;
+	}
+
+	/** true dacă agentul e încă înregistrat în AMS (sau AMS-ul nu răspunde) */
+	private boolean isAlive(AID aid) {
+		/** Doar numele: adresele din AID-ul expeditorului nu apar neapărat în AMS */
+		AMSAgentDescription template = new AMSAgentDescription();
+		template.setName(new AID(aid.getName(), AID.ISGUID));
+		SearchConstraints one = new SearchConstraints();
+		one.setMaxResults(1L);
+		try {
+			return AMSService.search(this, template, one).length > 0;
+		} catch (FIPAException e) {
+			return true;
+		}
+	}
+
 	/** Oprește toți agenții Finder înregistrați în DF. */
 	private void shutdownAllFinders() {
+		runningFolder = null;
+		runningCount = 0;
+		supervised.clear();
 		DFAgentDescription template = new DFAgentDescription();
 		ServiceDescription sd = new ServiceDescription();
 		sd.setType("file-search");
 		template.addServices(sd);
 
+		/** Implicit DF-ul întoarce cel mult 100 de rezultate; îi oprim pe toți (vezi Main) */
+		SearchConstraints all = new SearchConstraints();
+		all.setMaxResults(10_000L);
+
+		Trace.Stage df = Trace.begin(null, this, "df.finders");
 		try {
-			DFAgentDescription[] result = DFService.search(this, template);
+			DFAgentDescription[] result = DFService.search(this, template, all);
+			Trace.end(df, Integer.toString(result.length));
 			for (DFAgentDescription dfd : result) {
 				ACLMessage kill = new ACLMessage(ACLMessage.REQUEST);
 				kill.addReceiver(dfd.getName());
@@ -160,8 +382,188 @@ public class ControllerAgent extends Agent {
 		}
 	}
 
+	/** Cere finderului nou creat heartbeat-uri și începe să-l supravegheze */
+	private void supervise(String finderName) {
+		AID aid = new AID(finderName, AID.ISGUID);
+		supervised.put(aid, new Health(aid, System.nanoTime()));
+
+		ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
+		msg.addReceiver(aid);
+		msg.setOntology(FinderAgent.ONT_SEARCH);
+		msg.setContent(FinderAgent.CMD_SUPERVISE + "|" + HEARTBEAT_MS);
+		send(msg);
+	}
+
+	/** Actualizează starea finderului din heartbeat (HEARTBEAT|stare[|convId|intrări]) */
+	private void onHeartbeat(ACLMessage msg, String c) {
+		Health h = supervised.get(msg.getSender());
+		if (h == null)
+			return;
+		long now = System.nanoTime();
+		String[] p = c.split("\\|", 4);
+		h.deadline = now + DEAD_MS * 1_000_000L;
+		h.lastSeenMs = System.currentTimeMillis();
+		h.owned = msg.getUserDefinedParameter(FinderAgent.PARAM_OWNED);
+
+		if (p.length == 4) {
+			long visited;
+			try {
+				visited = Long.parseLong(p[3]);
+			} catch (NumberFormatException e) {
+				visited = h.visited;
+			}
+			String cursor = msg.getUserDefinedParameter(FinderAgent.PARAM_CURSOR);
+			/** În index (reconciliere) intrările nu avansează: nu e considerată blocată */
+			if (!"busy".equals(p[1]) || !p[2].equals(h.convId) || visited != h.visited
+					|| !Objects.equals(cursor, h.cursor)) {
+				h.progressAt = now;
+				h.progressMs = h.lastSeenMs;
+			}
+			h.checkpoint = msg;
+			h.convId = p[2];
+			h.visited = visited;
+			h.cursor = cursor;
+		} else {
+			h.checkpoint = null;
+			h.convId = null;
+			h.resumedConv = null;
+		}
+
+		if (p.length > 1 && "stopped".equals(p[1]))
+			failed(h, "oprit neașteptat", true);
+	}
+
+	/** Caută finderii fără heartbeat și căutările care nu mai avansează */
+	private void checkFinders() {
+		long now = System.nanoTime();
+		for (Health h : new ArrayList<>(supervised.values())) {
+			if (now - h.deadline > 0)
+				failed(h, "fără heartbeat de " + (System.currentTimeMillis() - h.lastSeenMs) + " ms", false);
+			else if (h.busy() && !h.convId.equals(h.resumedConv) && now - h.progressAt > HANG_MS * 1_000_000L)
+				hung(h);
+		}
+	}
+
+	/**
+	 * Finder căzut: rădăcinile lui trec la finderul viu cel mai puțin încărcat,
+	 * căutarea lui (dacă rula una) e reluată acolo din cursor, iar clienții
+	 * sunt anunțați
+	 */
+	private void failed(Health h, String reason, boolean stopped) {
+		supervised.remove(h.aid);
+		runningCount = Math.max(0, runningCount - 1);
+		long detectMs = System.currentTimeMillis() - h.lastSeenMs;
+		Metrics.inc("recovery.failures");
+		Metrics.add("recovery.detect.ms", detectMs);
+		Metrics.max("recovery.detect.maxMs", detectMs);
+		System.out.println("Finder căzut: " + h.aid.getLocalName() + " (" + reason + ")");
+
+		/** Nu mai trebuie găsit în DF de clienți (unul oprit s-a scos singur) */
+		if (!stopped) {
+			DFAgentDescription dfd = new DFAgentDescription();
+			dfd.setName(h.aid);
+			try {
+				DFService.deregister(this, dfd);
+			} catch (FIPAException ignored) {
+			}
+		}
+
+		Health heir = pickLive(null);
+		if (heir != null && h.ownedCount() > 0) {
+			ACLMessage adopt = new ACLMessage(ACLMessage.REQUEST);
+			adopt.addReceiver(heir.aid);
+			adopt.setOntology(FinderAgent.ONT_SEARCH);
+			adopt.setContent(FinderAgent.CMD_ADOPT);
+			adopt.addUserDefinedParameter(FinderAgent.PARAM_ROOTS, h.owned);
+			send(adopt);
+			/** Până la heartbeat-ul următor, ca alegerea următoare să țină cont */
+			heir.owned = heir.owned == null || heir.owned.isEmpty() ? h.owned : heir.owned + "\n" + h.owned;
+			System.out.println("Rădăcinile lui " + h.aid.getLocalName() + " preluate de " + heir.aid.getLocalName());
+		}
+
+		String resumed = null;
+		if (h.busy() && !h.convId.equals(h.resumedConv) && heir != null)
+			resumed = resume(h, heir, h.lastSeenMs);
+		notifyClients(h, "dead", resumed);
+	}
+
+	/**
+	 * Finder blocat (heartbeat-uri fără progres): căutarea lui e reluată de alt
+	 * finder; el rămâne pornit, iar răspunsul lui întârziat e ignorat de client
+	 */
+	private void hung(Health h) {
+		h.resumedConv = h.convId;
+		long detectMs = System.currentTimeMillis() - h.progressMs;
+		Metrics.inc("recovery.hangs");
+		Metrics.add("recovery.detect.ms", detectMs);
+		Metrics.max("recovery.detect.maxMs", detectMs);
+		System.out.println("Finder blocat: " + h.aid.getLocalName() + " (fără progres de " + detectMs + " ms)");
+
+		Health other = pickLive(h);
+		String resumed = other != null ? resume(h, other, h.progressMs) : null;
+		notifyClients(h, "hung", resumed);
+	}
+
+	/**
+	 * Finderul viu care preia o căutare sau rădăcini: întâi cei fără căutare în
+	 * curs, apoi cei cu mai puține rădăcini (null dacă nu e niciunul)
+	 */
+	private Health pickLive(Health exclude) {
+		long now = System.nanoTime();
+		Health best = null;
+		for (Health h : supervised.values()) {
+			if (h == exclude || now - h.deadline > 0 || h.owned == null)
+				continue;
+			if (best == null || (best.busy() && !h.busy())
+					|| (best.busy() == h.busy() && h.ownedCount() < best.ownedCount()))
+				best = h;
+		}
+		return best;
+	}
+
+	/**
+	 * Trimite RESUME cu checkpoint-ul ultimului heartbeat al lui h; failedAt e
+	 * ultimul semn de viață (sau de progres) al lui. Întoarce convId-ul reluat.
+	 */
+	private String resume(Health h, Health target, long failedAt) {
+		ACLMessage cp = h.checkpoint;
+		ACLMessage r = new ACLMessage(ACLMessage.REQUEST);
+		r.addReceiver(target.aid);
+		r.setOntology(FinderAgent.ONT_SEARCH);
+		r.setConversationId(h.convId);
+		r.setContent(cp.getUserDefinedParameter(FinderAgent.PARAM_REQUEST));
+		for (String param : new String[] { FinderAgent.PARAM_CLIENT, FinderAgent.PARAM_FOR, FinderAgent.PARAM_ROOTS,
+				FinderAgent.PARAM_CURSOR, FinderAgent.PARAM_FILTER }) {
+			String v = cp.getUserDefinedParameter(param);
+			if (v != null)
+				r.addUserDefinedParameter(param, v);
+		}
+		r.addUserDefinedParameter(FinderAgent.PARAM_FAILED_AT, Long.toString(failedAt));
+		send(r);
+		Metrics.inc("recovery.reassigned");
+		System.out.println("Căutarea " + h.convId + " a lui " + h.aid.getLocalName() + " reluată de "
+				+ target.aid.getLocalName() + (h.cursor != null ? " după " + h.cursor : " de la început"));
+		return h.convId;
+	}
+
+	/** Anunță clienții că finderul h a căzut (dead) sau s-a blocat (hung) */
+	private void notifyClients(Health h, String kind, String resumedConv) {
+		if (clients.isEmpty())
+			return;
+		ACLMessage note = new ACLMessage(ACLMessage.INFORM);
+		for (AID client : clients)
+			note.addReceiver(client);
+		note.setOntology(ONT_CONTROL);
+		note.setContent(MSG_FINDER_FAILED + "|" + h.aid.getLocalName() + "|" + kind + "|"
+				+ (resumedConv == null ? "" : resumedConv));
+		send(note);
+	}
+
 	@Override
 	protected void takeDown() {
+		/** Fără Controller nu are cine relua căutările finderilor opriți după el */
+		FinderAgent.platformClosing();
+
 		/** Scoate agentul din DF la închidere */
 		try {
 			DFService.deregister(this);
@@ -0,0 +1,144 @@
+package agents;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Coadă împărțită între clienți prin weighted fair queuing (la finder: mesajele
+ * primite și căutările care așteaptă să ruleze). Un element primește la intrare
+ * eticheta de start S = max(V, F-ul anterior al clientului) și eticheta de
+ * final F = S + 1 / pondere; la ieșire câștigă cel mai mic F. V (timpul
+ * virtual) urcă la S-ul elementului servit. Când doi clienți așteaptă
+ * amândoi, unul cu ponderea 4 e servit de 4 ori mai des decât unul cu
+ * ponderea 1, iar un client care a stat inactiv nu strânge credit pe care
+ * să-l consume apoi în rafală. Folosită doar de pe thread-ul agentului.
+ */
+final class FairQueue<T> implements Iterable<T> {
+
+	/** Un element în așteptare, cu clientul și etichetele lui */
+	static final class Entry<T> {
+		final String client;
+		final T item;
+		final double start;
+		final double finish;
+
+		/** Momentul intrării în coadă (System.nanoTime) */
+		final long enqueuedNanos;
+
+		private Entry(String client, T item, double start, double finish) {
+			this.client = client;
+			this.item = item;
+			this.start = start;
+			this.finish = finish;
+			this.enqueuedNanos = System.nanoTime();
+		}
+	}
+
+	/** În ordinea sosirii (la etichete egale câștigă primul venit) */
+	private final List<Entry<T>> entries = new ArrayList<>();
+
+	/** Ultima etichetă de final a fiecărui client cu elemente recente */
+	private final Map<String, Double> lastFinish = new HashMap<>();
+
+	private double virtualTime = 0;
+
+	void add(String client, int weight, T item) {
+		double start = Math.max(virtualTime, lastFinish.getOrDefault(client, 0.0));
+		double finish = start + 1.0 / Math.max(1, weight);
+		lastFinish.put(client, finish);
+		entries.add(new Entry<>(client, item, start, finish));
+	}
+
+	/** Scoate elementul cu cea mai mică etichetă de final (null dacă e goală) */
+	Entry<T> poll() {
+		Entry<T> best = null;
+		for (Entry<T> e : entries) {
+			if (best == null || e.finish < best.finish)
+				best = e;
+		}
+		if (best != null)
+			take(best);
+		return best;
+	}
+
+	/**
+	 * Scoate elementul cu cea mai mică etichetă de final dintre cele acceptate de
+	 * eligible. Clienții sunt încercați în ordinea etichetelor, deci eligible
+	 * poate rezerva (ex. un loc din plafonul clientului): primul acceptat e scos.
+	 * Întoarce null dacă niciun client nu e eligibil.
+	 */
+	Entry<T> poll(Predicate<String> eligible) {
+		List<Entry<T>> byFinish = new ArrayList<>(entries);
+		byFinish.sort((a, b) -> Double.compare(a.finish, b.finish));
+		for (Entry<T> e : byFinish) {
+			if (!eligible.test(e.client))
+				continue;
+			take(e);
+			return e;
+		}
+		return null;
+	}
+
+	private void take(Entry<T> e) {
+		entries.remove(e);
+		virtualTime = Math.max(virtualTime, e.start);
+		/** Clienții rămași în urma timpului virtual nu mai au nimic de păstrat */
+		lastFinish.values().removeIf(f -> f <= virtualTime);
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	/** Câte elemente are clientul în coadă */
+	int count(String client) {
+		int n = 0;
+		for (Entry<T> e : entries) {
+			if (e.client.equals(client))
+				n++;
+		}
+		return n;
+	}
+
+	/** Scoate cel mai vechi element al clientului (null dacă nu are) */
+	Entry<T> removeOldest(String client) {
+		for (Iterator<Entry<T>> it = entries.iterator(); it.hasNext();) {
+			Entry<T> e = it.next();
+			if (e.client.equals(client)) {
+				it.remove();
+				return e;
+			}
+		}
+		return null;
+	}
+
+	boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	/** Elementele în ordinea sosirii; remove() e permis */
+	@Override
+	public Iterator<T> iterator() {
+		Iterator<Entry<T>> it = entries.iterator();
+		return new Iterator<T>() {
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			@Override
+			public T next() {
+				return it.next().item;
+			}
+
+			@Override
+			public void remove() {
+				it.remove();
+			}
+		};
+	}
+}
@@ -1,21 +1,33 @@
 package agents;
 
+import jade.core.AID;
 import jade.core.Agent;
 import jade.core.behaviours.CyclicBehaviour;
-import jade.core.behaviours.OneShotBehaviour;
-import jade.core.behaviours.ThreadedBehaviourFactory;
+import jade.core.behaviours.TickerBehaviour;
 import jade.domain.DFService;
 import jade.domain.FIPAAgentManagement.*;
 import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
 import java.nio.file.StandardCopyOption;
 
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Agent Finder: caută un fișier într-un director (baseDir) și raportează
- * rezultatul. Poate opri căutarea la cerere (STOP/TERMINATE) și poate copia
- * fișierul găsit într-un folder de extragere.
+ * Agent Finder: caută un fișier într-un director (baseDir; în modul consolidat,
+ * în mai multe - vezi FinderRoot) și raportează rezultatul. Poate opri
+ * căutarea la cerere (STOP/TERMINATE) și poate copia fișierul găsit într-un
+ * folder de extragere. Ține un index al subarborelui (FinderIndex), salvat pe
+ * disc și redeschis prin mmap la repornire, din care publică un filtru Bloom
+ * (NameSketch) pe care SearcherAgent îl folosește ca să nu trimită SEARCH
+ * finderilor irelevanți.
  */
 public class FinderAgent extends Agent {
 	private static final long serialVersionUID = 1L;
@@ -32,8 +44,209 @@ public class FinderAgent extends Agent {
 	/** Comandă: pornește căutarea unui fișier */
 	public static final String CMD_REQ = "SEARCH"; // SEARCH|<convId>|<filename>
 
-	/** Directorul în care agentul caută fișiere */
-	private Path baseDir;
+	/** Comandă: abonare la sketch-ul de nume (răspuns: SKETCH|version|sketch) */
+	public static final String CMD_SKETCH_SUB = "SKETCH_SUBSCRIBE";
+
+	/** Răspuns/notificare cu sketch-ul curent */
+	public static final String MSG_SKETCH = "SKETCH";
+
+	/** Comandă: căutare fuzzy în indexul de trigrame */
+	public static final String CMD_FUZZY = "FUZZY"; // FUZZY|<convId>|<k>|<filename>
+
+	/**
+	 * Răspuns fuzzy: FUZZY_RESULT|convId|baseDir|n, urmat de n linii
+	 * score|distance|size|mtime|path
+	 */
+	public static final String MSG_FUZZY = "FUZZY_RESULT";
+
+	/** Comandă: interogare pe atribute (textul vine în parametrul "query") */
+	public static final String CMD_QUERY = "QUERY"; // QUERY|<convId>
+
+	/**
+	 * Răspuns la QUERY: QUERY_RESULT|convId|baseDir|n|potriviri, urmat de n linii
+	 * size|mtime|path
+	 */
+	public static final String MSG_QUERY = "QUERY_RESULT";
+
+	/**
+	 * Comandă: căutare ordonată după scor (vezi MatchRanker), din index;
+	 * rădăcina căutării vine în parametrul "root", now = momentul cererii (ms)
+	 */
+	public static final String CMD_RANK = "RANK"; // RANK|<convId>|<k>|<now>|<filename>
+
+	/**
+	 * Răspuns la RANK: RANK_RESULT|convId|baseDir|n, urmat de n linii
+	 * score|exact|size|mtime|path, de la cel mai bun scor
+	 */
+	public static final String MSG_RANK = "RANK_RESULT";
+
+	/** Comandă: sugestii după prefixul numelui (din index, pe măsură ce se tastează) */
+	public static final String CMD_PREFIX = "PREFIX"; // PREFIX|<convId>|<k>|<prefix>
+
+	/**
+	 * Răspuns la PREFIX: PREFIX_RESULT|convId|baseDir|n, urmat de n linii
+	 * size|mtime|path (un fișier pentru fiecare nume distinct), în ordinea
+	 * alfabetică a numelor
+	 */
+	public static final String MSG_PREFIX = "PREFIX_RESULT";
+
+	/**
+	 * Comandă: agregate de spațiu (octeți pe extensie, cele mai mari n fișiere)
+	 * din index; rădăcina căutării vine în parametrul "root" (vezi StatsAggregate)
+	 */
+	public static final String CMD_STATS = "STATS"; // STATS|<convId>|<n>
+
+	/**
+	 * Răspuns la STATS: STATS_RESULT|convId|baseDir|subarbori|n, urmat de liniile
+	 * T/E/L ale agregatului parțial
+	 */
+	public static final String MSG_STATS = "STATS_RESULT";
+
+	/**
+	 * Comandă de la Controller: de acum finderul îi trimite expeditorului câte un
+	 * HEARTBEAT la fiecare interval (ms)
+	 */
+	public static final String CMD_SUPERVISE = "SUPERVISE"; // SUPERVISE|<ms>
+
+	/**
+	 * Heartbeat către Controller (ontologia CONTROL): HEARTBEAT|idle, sau
+	 * HEARTBEAT|busy|convId|intrări cât rulează o căutare, cu checkpoint-ul ei
+	 * în parametrii client, for, request, roots și cursor. Cât căutarea e încă
+	 * în index (inclusiv reconcilierea) starea e "index": intrările nu avansează,
+	 * dar căutarea nu e blocată. La oprirea neașteptată a agentului starea e
+	 * "stopped".
+	 */
+	public static final String MSG_HEARTBEAT = "HEARTBEAT";
+
+	/**
+	 * Comandă de la Controller: reia căutarea unui finder căzut, din
+	 * rădăcinile rămase ("roots") și după cursorul lui ("cursor"). Răspunsul
+	 * (FOUND/NOT_FOUND/...) pleacă direct la client, cu parametrul "for".
+	 */
+	public static final String CMD_RESUME = "RESUME"; // RESUME|<convId>|<filename>|[outDir]
+
+	/** Comandă de la Controller: preia rădăcinile unui finder căzut (parametrul "roots") */
+	public static final String CMD_ADOPT = "ADOPT";
+
+	/**
+	 * Parametri ACL ai supravegherii: numele complet al clientului, finderul în
+	 * numele căruia se răspunde, cererea (în forma RESUME), rădăcinile rămase
+	 * (separate prin '\n'), ultimul director terminat, rădăcinile finderului și
+	 * momentul (ms) ultimului semn de viață al finderului căzut
+	 */
+	public static final String PARAM_CLIENT = "client";
+	public static final String PARAM_FOR = "for";
+	public static final String PARAM_REQUEST = "request";
+	public static final String PARAM_ROOTS = "roots";
+	public static final String PARAM_CURSOR = "cursor";
+	public static final String PARAM_OWNED = "owned";
+	public static final String PARAM_FAILED_AT = "failedAt";
+
+	/** Parametru ACL: rădăcina căutării (adâncimile din scor sunt relative la ea) */
+	public static final String PARAM_ROOT = "root";
+
+	/**
+	 * Parametri ACL pe SKETCH: directorul finderului, cel mai nou mtime și cea
+	 * mai mare dimensiune din index, din care SearcherAgent calculează limita
+	 * superioară a scorului
+	 */
+	public static final String PARAM_BASEDIR = "baseDir";
+	public static final String PARAM_NEWEST = "newest";
+	public static final String PARAM_LARGEST = "largest";
+
+	/** Parametru ACL: interogarea pe atribute (vezi MetadataQuery) */
+	public static final String PARAM_QUERY = "query";
+
+	/**
+	 * Parametri ACL pe cereri: ponderea clientului în cozile finderului și
+	 * plafonul lui de căutări simultane (vezi FairQueue, ClientQuotas)
+	 */
+	public static final String PARAM_WEIGHT = "weight";
+	public static final String PARAM_QUOTA = "quota";
+
+	/** Intervalul de reconciliere a indexului și de reîmprospătare a sketch-ului (ms) */
+	private static final long REFRESH_MS = Long.getLong("finder.refreshMs", 120_000L);
+
+	/** Parametru ACL: regulile de pruning/filtrare ale cererii (vezi SearchFilter) */
+	public static final String PARAM_FILTER = "filter";
+
+	/** Parametru ACL în răspuns: câte intrări au fost tăiate de filtre */
+	public static final String PARAM_PRUNED = "pruned";
+
+	/** Răspuns (REFUSE): coada de căutări e plină; BUSY|convId|baseDir|adâncime */
+	public static final String MSG_BUSY = "BUSY";
+
+	/** Răspuns (REFUSE): cererea a fost abandonată fără să ruleze; REJECTED|convId|baseDir|motiv */
+	public static final String MSG_REJECTED = "REJECTED";
+
+	/** Mesaj intern, trimis de finder lui însuși la finalul unei căutări */
+	private static final String CMD_NEXT = "NEXT_SEARCH";
+
+	/**
+	 * Câte căutări pot aștepta după cea în curs; peste atât se răspunde BUSY.
+	 * Un client are cel mult una în coadă (cea nouă o înlocuiește pe cea veche),
+	 * deci limita e practic numărul de clienți serviți simultan.
+	 */
+	private static final int MAX_PENDING = Integer.getInteger("finder.maxPending", 8);
+
+	/**
+	 * Plafonul cozii de mesaje JADE. Peste el platforma aruncă mesajele cele mai
+	 * vechi fără să anunțe pe nimeni, deci e doar o plasă de siguranță: finderul
+	 * golește mailbox-ul în inbox la fiecare pas, iar limitele reale sunt
+	 * INBOX_PER_CLIENT și MAX_PENDING.
+	 */
+	static final int MAILBOX_LIMIT = 1_000;
+
+	/** Câte mesaje netratate poate avea un client în inbox; peste atât pleacă cel mai vechi */
+	private static final int INBOX_PER_CLIENT = Integer.getInteger("finder.inboxPerClient", 64);
+
+	/** Câte convId-uri oprite sunt ținute minte (pentru STOP-uri duplicate / întârziate) */
+	private static final int STOPPED_MEMORY = 64;
+
+	/** TERMINATE și STOP_SEARCH sunt scoase din coadă înaintea oricărui SEARCH */
+	private static final MessageTemplate CONTROL = new MessageTemplate((MessageTemplate.MatchExpression) m -> {
+		String c = m.getContent();
+		return c != null && ONT_SEARCH.equals(m.getOntology())
+				&& (CMD_TERMINATE.equals(c.trim()) || c.startsWith(CMD_STOP + "|"));
+	});
+
+	/**
+	 * Directoarele în care agentul caută fișiere (de obicei unul singur; mai
+	 * multe în modul consolidat), în ordinea argumentelor
+	 */
+	private final List<FinderRoot> roots = new CopyOnWriteArrayList<>();
+
+	/** Numele rădăcinilor în răspunsuri (câmpul baseDir din protocol) */
+	private volatile String baseDir;
+
+	/** Controller-ul care supraveghează finderul (null până la SUPERVISE) și ticker-ul heartbeat-urilor */
+	private volatile AID supervisor = null;
+	private TickerBehaviour heartbeat = null;
+
+	/** Checkpoint-ul căutării în curs (null dacă nu rulează niciuna) */
+	private volatile Checkpoint checkpoint = null;
+
+	/**
+	 * Checkpoint-ul căutării care așteaptă dispozitivul: nu apare în heartbeat-uri
+	 * (nu rulează încă), e trimis doar cu "stopped", ca să fie reluată
+	 */
+	private volatile Checkpoint queuedCheckpoint = null;
+
+	/**
+	 * Platforma se închide (cerut de SearcherAgent sau Controller-ul s-a oprit):
+	 * finderii opriți odată cu ea nu mai anunță "stopped"
+	 */
+	private static volatile boolean platformClosing = false;
+
+	/**
+	 * true dacă agentul s-a oprit în timpul unei căutări fără să i se ceară
+	 * (nu TERMINATE): căutarea nu mai răspunde, Controller-ul o reia din
+	 * checkpoint la alt finder
+	 */
+	private volatile boolean abandoned = false;
+
+	/** Rădăcini preluate (ADOPT) cât rula o reîmprospătare: mai trebuie una */
+	private final AtomicBoolean refreshAgain = new AtomicBoolean(false);
 
 	/** convId-ul căutării curente */
 	private volatile String activeConvId = null;
@@ -41,15 +254,121 @@ public class FinderAgent extends Agent {
 	/** Flag pentru anularea căutării curente */
 	private volatile boolean cancelSearch = false;
 
+	/** Momentul (System.nanoTime) în care s-a cerut anularea căutării curente; 0 = nu s-a cerut */
+	private volatile long cancelRequestedAt = 0;
+
+	/** Thread-ul care rulează căutarea curentă (întrerupt la anulare, doar în timpul parcurgerii) */
+	private volatile Thread searchThread = null;
+
+	/** true cât timp searchThread e în OrderedTreeWalker (protejat de walkLock) */
+	private boolean walking = false;
+	private final Object walkLock = new Object();
+
 	/** Flag simplu: nu pornește o a doua căutare cât timp una e în desfășurare */
 	private volatile boolean searching = false;
 
-	/** Rulează job-ul de căutare într-un thread separat */
-	private final ThreadedBehaviourFactory tbf = new ThreadedBehaviourFactory();
+	/** Expeditorul căutării în curs (o cerere nouă de la el o face inutilă) */
+	private volatile AID activeSender = null;
+
+	/** Mesajele primite, încă netratate, împărțite corect între clienți (doar thread-ul agentului) */
+	private final FairQueue<ACLMessage> inbox = new FairQueue<>();
+
+	/** Căutările care așteaptă, împărțite corect între clienți (doar thread-ul agentului) */
+	private final FairQueue<ACLMessage> pendingSearches = new FairQueue<>();
+
+	/** Trezește finderul când un client amânat de plafon are din nou loc */
+	private final Runnable quotaWakeup = this::sendNext;
+
+	/** convId-urile oprite recent, în ordinea opririi (doar thread-ul agentului) */
+	private final Map<String, Boolean> stoppedConvIds = new LinkedHashMap<String, Boolean>(16, 0.75f, false) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+			return size() > STOPPED_MEMORY;
+		}
+	};
+
+	/** Sketch-ul curent al numelor (null până la prima construire) */
+	private volatile NameSketch sketch = null;
+
+	/** Nu rulăm două reîmprospătări (ale tuturor rădăcinilor) în paralel */
+	private final AtomicBoolean sketchBuilding = new AtomicBoolean(false);
+
+	/** true după prima reconciliere a tuturor rădăcinilor (numărată o dată în finder.ready) */
+	private boolean readyReported = false;
+
+	/** Versiunea sketch-ului; crește la fiecare modificare publicată */
+	private volatile int sketchVersion = 0;
+
+	/** Cel mai nou mtime și cea mai mare dimensiune din index, publicate cu sketch-ul (-1 = necunoscut) */
+	private volatile long newestMtime = -1;
+	private volatile long largestSize = -1;
+
+	/** Serializează publicările (reîmprospătarea și RANK rulează pe thread-uri de I/O diferite) */
+	private final Object publishLock = new Object();
+
+	/**
+	 * Starea unei căutări în curs, trimisă Controller-ului cu fiecare heartbeat:
+	 * rădăcinile încă neparcurse și cursorul din prima (ultimul director ale
+	 * cărui fișiere au fost vizitate, în ordinea din OrderedTreeWalker)
+	 */
+	private static final class Checkpoint {
+		final String convId;
+
+		/** Cererea în forma RESUME|convId|filename|[outDir] */
+		final String request;
+
+		/** Clientul (nume complet) și finderul în numele căruia se răspunde */
+		final String client;
+		final String forFinder;
+		final String filter;
+
+		final List<Path> remaining = new CopyOnWriteArrayList<>();
+		volatile Path cursor;
+		volatile long visited;
+
+		/** false cât căutarea e încă în index (heartbeat "index") */
+		volatile boolean walkStarted;
+
+		Checkpoint(String convId, String filename, String outDir, String client, String forFinder, String filter,
+				List<Path> roots, Path cursor) {
+			this.convId = convId;
+			this.request = CMD_RESUME + "|" + convId + "|" + filename + (outDir != null ? "|" + outDir : "");
+			this.client = client;
+			this.forFinder = forFinder;
+			this.filter = filter;
+			this.remaining.addAll(roots);
+			this.cursor = cursor;
+		}
+	}
+
+	/** O intrare dintr-una din rădăcini, cu scorul ei (fuzzy sau ordonat) */
+	private static final class RootHit {
+		final FinderRoot root;
+		final int id;
+		final double score;
+		final int distance;
+
+		RootHit(FinderRoot root, int id, double score, int distance) {
+			this.root = root;
+			this.id = id;
+			this.score = score;
+			this.distance = distance;
+		}
+	}
+
+	/** Agenții (Searcher) abonați la sketch */
+	private final CopyOnWriteArrayList<AID> sketchSubscribers = new CopyOnWriteArrayList<>();
+
+	/** Setat la TERMINATE; oprește și reîmprospătarea sketch-ului */
+	private volatile boolean terminating = false;
 
 	protected void setup() {
-		/** Ia directorul de bază din argumentele agentului */
-		baseDir = Paths.get((String) getArguments()[0]);
+		/** Ia directoarele de bază din argumentele agentului (unul sau mai multe) */
+		for (Object arg : getArguments())
+			roots.add(new FinderRoot(Paths.get((String) arg)));
+		baseDir = describeRoots();
 
 		/** Înregistrează serviciul în DF ca "file-search" */
 		DFAgentDescription dfd = new DFAgentDescription();
@@ -65,134 +384,617 @@ public class FinderAgent extends Agent {
 		} catch (Exception ignored) {
 		}
 
-		System.out.println(getLocalName() + " pornit pentru: " + baseDir);
+		if (roots.size() == 1)
+			System.out.println(getLocalName() + " pornit pentru: " + roots);
+		else
+			System.out.println(getLocalName() + " pornit pentru " + roots.size() + " rădăcini: " + baseDir);
+
+		/** Încarcă/construiește indexul și sketch-ul acum și le reîmprospătează periodic */
+		scheduleSketchRefresh();
+		addBehaviour(new TickerBehaviour(this, REFRESH_MS) {
+			@Override
+			protected void onTick() {
+				scheduleSketchRefresh();
+			}
+		});
+
+		/** Coada JADE nu crește la nesfârșit; admiterea căutărilor e limitată separat */
+		setQueueSize(MAILBOX_LIMIT);
 
-		/** Bucla principală: primește comenzi (SEARCH / STOP_SEARCH / TERMINATE) */
+		/**
+		 * Bucla principală: întâi comenzile de control (TERMINATE, STOP_SEARCH),
+		 * oricât de în spate ar fi; restul mailbox-ului trece în inbox, de unde e
+		 * tratat câte un mesaj, ales corect între clienți (FairQueue).
+		 */
 		addBehaviour(new CyclicBehaviour() {
 			public void action() {
-				ACLMessage msg = receive();
-				if (msg == null) {
+				Metrics.max("finder.mailbox.maxDepth", getCurQueueSize());
+
+				ACLMessage ctl;
+				while ((ctl = receive(CONTROL)) != null) {
+					handleControl(ctl);
+					if (terminating)
+						return;
+				}
+
+				for (ACLMessage m = receive(); m != null; m = receive()) {
+					if (CONTROL.match(m)) {
+						handleControl(m);
+						if (terminating)
+							return;
+					} else {
+						accept(m);
+					}
+				}
+
+				FairQueue.Entry<ACLMessage> next = inbox.poll();
+				if (next == null) {
 					block();
 					return;
 				}
+				handleRequest(next.item);
+			}
+		});
+	}
 
-				/** Acceptă doar mesajele cu ontologia de căutare */
-				if (!ONT_SEARCH.equals(msg.getOntology()))
-					return;
+	/**
+	 * Un mesaj din mailbox: NEXT_SEARCH e tratat imediat, restul intră în inbox
+	 * cu ponderea clientului. Un PREFIX nou de la același client îl face inutil
+	 * pe cel vechi (s-a tastat între timp), iar peste INBOX_PER_CLIENT mesaje
+	 * ale unui client cel mai vechi e abandonat (o căutare primește BUSY).
+	 */
+	private void accept(ACLMessage msg) {
+		/** Acceptă doar mesajele cu ontologia de căutare */
+		if (!ONT_SEARCH.equals(msg.getOntology()))
+			return;
 
-				String c = msg.getContent() == null ? "" : msg.getContent().trim();
+		String c = msg.getContent() == null ? "" : msg.getContent().trim();
 
-				/** Termină agentul și oprește căutarea dacă rulează */
-				if (CMD_TERMINATE.equals(c)) {
-					// dacă e în căutare, cere oprirea; apoi închide
-					cancelSearch = true;
-					doDelete();
-					return;
-				}
+		/** Căutarea anterioară s-a terminat: pornește următoarea din coadă */
+		if (CMD_NEXT.equals(c) && getAID().equals(msg.getSender())) {
+			startNextSearch();
+			return;
+		}
 
-				/** Oprește căutarea curentă dacă convId-ul corespunde */
-				if (c.startsWith(CMD_STOP + "|")) {
-					String convId = c.split("\\|", 2)[1];
-					if (convId != null && convId.equals(activeConvId)) {
-						cancelSearch = true;
-					}
-					return;
+		String name = clientName(msg);
+		if (c.startsWith(CMD_PREFIX + "|")) {
+			for (Iterator<ACLMessage> it = inbox.iterator(); it.hasNext();) {
+				ACLMessage queued = it.next();
+				String q = queued.getContent();
+				if (q != null && q.startsWith(CMD_PREFIX + "|") && name.equals(clientName(queued))) {
+					it.remove();
+					Metrics.inc("prefix.skipped");
 				}
+			}
+		}
 
-				/** Pornește o căutare nouă: SEARCH|convId|filename|[outDir] */
-				if (c.startsWith(CMD_REQ + "|")) {
-					String[] parts = c.split("\\|", 4);
-					if (parts.length < 3)
-						return;
+		if (inbox.count(name) >= INBOX_PER_CLIENT) {
+			ACLMessage dropped = inbox.removeOldest(name).item;
+			Metrics.inc("client." + name + ".dropped");
+			if (dropped.getContent() != null && dropped.getContent().startsWith(CMD_REQ + "|"))
+				refuse(dropped, MSG_BUSY, Trace.convId(dropped), Integer.toString(INBOX_PER_CLIENT));
+		}
 
-					String convId = parts[1];
-					String filename = parts[2];
-					String outDir = (parts.length == 4) ? parts[3] : null;
+		ClientQuotas.Client client = msg.getUserDefinedParameter(PARAM_WEIGHT) == null ? ClientQuotas.get(name)
+				: ClientQuotas.client(name, param(msg, PARAM_WEIGHT, 1), param(msg, PARAM_QUOTA, 0));
+		inbox.add(name, client.weight, msg);
+		Metrics.max("finder.inbox.maxDepth", inbox.size());
+	}
 
-					/** Dacă e deja în căutare, ignoră cererea nouă */
-					if (searching)
-						return;
+	/** Tratează un mesaj ales din inbox */
+	private void handleRequest(ACLMessage msg) {
+		String c = msg.getContent() == null ? "" : msg.getContent().trim();
+		Trace.delivered(this, msg, Trace.convId(msg));
 
-					activeConvId = convId;
-					cancelSearch = false;
-					searching = true;
+		/** Supravegherea de către Controller: heartbeat-uri la intervalul cerut */
+		if (c.startsWith(CMD_SUPERVISE + "|")) {
+			supervise(msg.getSender(), c.substring(CMD_SUPERVISE.length() + 1));
+			return;
+		}
 
-					/** Rulează căutarea în thread separat și trimite răspuns */
-					addBehaviour(tbf.wrap(new OneShotBehaviour() {
-						@Override
-						public void action() {
-							try {
-								searchAndReply(msg, filename, convId, outDir);
-							} finally {
-								searching = false;
-							}
-						}
-					}));
+		/** Rădăcinile unui finder căzut trec la acesta */
+		if (CMD_ADOPT.equals(c)) {
+			adopt(msg.getUserDefinedParameter(PARAM_ROOTS));
+			return;
+		}
 
-					return;
-				}
+		/** Abonare la sketch: răspunde imediat dacă e deja construit */
+		if (CMD_SKETCH_SUB.equals(c)) {
+			sketchSubscribers.addIfAbsent(msg.getSender());
+			if (sketch != null)
+				sendSketch(msg.getSender());
+			return;
+		}
+
+		/** Căutare fuzzy: rapidă (doar indexul), rulează direct pe thread-ul agentului */
+		if (c.startsWith(CMD_FUZZY + "|")) {
+			String[] parts = c.split("\\|", 4);
+			if (parts.length == 4)
+				fuzzyAndReply(msg, parts[1], parts[2], parts[3]);
+			return;
+		}
+
+		/** Sugestii după prefix: doar indexul, pe thread-ul agentului */
+		if (c.startsWith(CMD_PREFIX + "|")) {
+			String[] parts = c.split("\\|", 4);
+			if (parts.length == 4)
+				prefixAndReply(msg, parts[1], parts[2], parts[3]);
+			return;
+		}
+
+		/** Căutare ordonată: doar indexul, tot pe thread-ul agentului */
+		if (c.startsWith(CMD_RANK + "|")) {
+			String[] parts = c.split("\\|", 5);
+			if (parts.length == 5)
+				rankAndReply(msg, parts[1], parts[2], parts[3], parts[4]);
+			return;
+		}
+
+		/** Interogare pe atribute: scanare pe coloanele indexului, tot pe thread-ul agentului */
+		if (c.startsWith(CMD_QUERY + "|")) {
+			queryAndReply(msg, c.split("\\|", 2)[1]);
+			return;
+		}
+
+		/** Agregate de spațiu: o trecere peste coloanele indexului, tot pe thread-ul agentului */
+		if (c.startsWith(CMD_STATS + "|")) {
+			String[] parts = c.split("\\|", 3);
+			if (parts.length == 3)
+				statsAndReply(msg, parts[1], parts[2]);
+			return;
+		}
+
+		/** Căutare nouă: SEARCH|convId|filename|[outDir]; RESUME are aceeași formă */
+		if (c.startsWith(CMD_REQ + "|") || c.startsWith(CMD_RESUME + "|"))
+			admitSearch(msg);
+	}
+
+	/** TERMINATE sau STOP_SEARCH, procesate înaintea căutărilor din coadă */
+	private void handleControl(ACLMessage msg) {
+		String c = msg.getContent().trim();
+		Trace.delivered(this, msg, Trace.convId(msg));
 
+		/** Termină agentul și oprește căutarea dacă rulează */
+		if (CMD_TERMINATE.equals(c)) {
+			requestCancel();
+			terminating = true;
+			doDelete();
+			return;
+		}
+
+		/** STOP-urile repetate pentru același convId nu mai fac nimic */
+		String convId = c.substring(CMD_STOP.length() + 1);
+		if (stoppedConvIds.put(convId, Boolean.TRUE) != null) {
+			Metrics.inc("finder.stop.coalesced");
+			return;
+		}
+
+		/** Oprește căutarea curentă dacă convId-ul corespunde */
+		if (convId.equals(activeConvId))
+			requestCancel();
+
+		/** O căutare oprită care încă așteaptă nu mai pornește deloc */
+		for (Iterator<ACLMessage> it = pendingSearches.iterator(); it.hasNext();) {
+			ACLMessage queued = it.next();
+			if (convId.equals(Trace.convId(queued))) {
+				it.remove();
+				Metrics.inc("finder.search.dropped");
+				refuse(queued, MSG_REJECTED, convId, "căutare oprită");
 			}
-		});
+		}
+	}
+
+	/**
+	 * Admiterea unei căutări: intră în coada corectă (cel mult MAX_PENDING) sau
+	 * primește BUSY, apoi pornește dacă finderul e liber și clientul e sub plafon.
+	 * O cerere nouă de la același expeditor face inutile căutarea lui în curs și
+	 * pe cele din coadă (SearcherAgent rulează o singură căutare odată).
+	 */
+	private void admitSearch(ACLMessage msg) {
+		String convId = Trace.convId(msg);
+		if (terminating) {
+			refuse(msg, MSG_REJECTED, convId, "finderul se închide");
+			return;
+		}
+		if (stoppedConvIds.containsKey(convId) || CancellationRegistry.isCancelled(convId)) {
+			refuse(msg, MSG_REJECTED, convId, "căutare deja oprită");
+			return;
+		}
+
+		/** O căutare reluată (de la Controller) nu înlocuiește nimic și nu primește BUSY */
+		boolean resume = msg.getContent().startsWith(CMD_RESUME + "|");
+		AID sender = resume ? null : msg.getSender();
+		for (Iterator<ACLMessage> it = pendingSearches.iterator(); it.hasNext();) {
+			ACLMessage queued = it.next();
+			if (sender != null && sender.equals(queued.getSender())) {
+				it.remove();
+				Metrics.inc("finder.search.superseded");
+				refuse(queued, MSG_REJECTED, Trace.convId(queued), "înlocuită de " + convId);
+			}
+		}
+		if (searching && sender != null && sender.equals(activeSender) && !convId.equals(activeConvId)) {
+			requestCancel();
+			Metrics.inc("finder.search.superseded");
+		}
+
+		ClientQuotas.Client client = ClientQuotas.client(clientName(msg), param(msg, PARAM_WEIGHT, 1),
+				param(msg, PARAM_QUOTA, 0));
+		if (!resume && pendingSearches.size() >= MAX_PENDING) {
+			Metrics.inc("finder.search.busy");
+			Metrics.inc("client." + client.name + ".busy");
+			refuse(msg, MSG_BUSY, convId, Integer.toString(pendingSearches.size() + getCurQueueSize()));
+			return;
+		}
+		pendingSearches.add(client.name, client.weight, msg);
+		Metrics.max("finder.pending.maxDepth", pendingSearches.size());
+		startNextSearch();
+	}
+
+	/**
+	 * Pornește, dacă finderul e liber, căutarea din coadă cu cea mai mică
+	 * etichetă (FairQueue) al cărei client e sub plafon. Dacă toți clienții din
+	 * coadă sunt la plafon, finderul așteaptă o eliberare (ClientQuotas).
+	 */
+	private void startNextSearch() {
+		if (searching || terminating || pendingSearches.isEmpty())
+			return;
+		FairQueue.Entry<ACLMessage> next = pollEligible();
+		if (next == null) {
+			ClientQuotas.await(quotaWakeup);
+			/** O eliberare venită între încercare și await nu trebuie pierdută */
+			next = pollEligible();
+			if (next == null)
+				return;
+			ClientQuotas.cancelAwait(quotaWakeup);
+		}
+		startSearch(next.item, ClientQuotas.get(next.client), next.enqueuedNanos);
+	}
+
+	private FairQueue.Entry<ACLMessage> pollEligible() {
+		return pendingSearches.poll(name -> ClientQuotas.tryAcquire(ClientQuotas.get(name)));
+	}
+
+	/** Clientul unei cereri: expeditorul (un SearcherAgent) */
+	private static String clientName(ACLMessage msg) {
+		return msg.getSender() == null ? "?" : msg.getSender().getLocalName();
+	}
+
+	/** Un parametru ACL întreg; implicit dacă lipsește sau e invalid */
+	private static int param(ACLMessage msg, String name, int def) {
+		try {
+			String v = msg.getUserDefinedParameter(name);
+			return v == null ? def : Integer.parseInt(v.trim());
+		} catch (NumberFormatException e) {
+			return def;
+		}
+	}
+
+	/** Finderul își trimite NEXT_SEARCH (din orice thread): pornește următoarea căutare */
+	private void sendNext() {
+		ACLMessage next = new ACLMessage(ACLMessage.INFORM);
+		next.setOntology(ONT_SEARCH);
+		next.addReceiver(getAID());
+		next.setContent(CMD_NEXT);
+		send(next);
+	}
+
+	/**
+	 * Rulează căutarea pe pool-ul comun de I/O (IoScheduler), când dispozitivul
+	 * are loc; la final își trimite NEXT_SEARCH. Căutările care pot fi servite
+	 * din indexul reconciliat trec în fața cozii dispozitivului. Locul clientului
+	 * din ClientQuotas e deja ocupat și e eliberat la final.
+	 */
+	private void startSearch(ACLMessage msg, ClientQuotas.Client client, long enqueuedNanos) {
+		long startNanos = System.nanoTime();
+		String[] parts = msg.getContent().trim().split("\\|", 4);
+		if (parts.length < 3) {
+			ClientQuotas.release(client, startNanos - enqueuedNanos, 0);
+			startNextSearch();
+			return;
+		}
+
+		String convId = parts[1];
+		String filename = parts[2];
+		String outDir = (parts.length == 4) ? parts[3] : null;
+
+		/** Regulile de filtrare vin cu cererea */
+		final SearchFilter filter;
+		try {
+			filter = SearchFilter.parse(msg.getUserDefinedParameter(PARAM_FILTER));
+		} catch (IllegalArgumentException e) {
+			ACLMessage err = msg.createReply();
+			err.setOntology(ONT_SEARCH);
+			err.setPerformative(ACLMessage.FAILURE);
+			err.setContent("ERROR|" + convId + "|Filtru invalid: " + e.getMessage());
+			send(err);
+			ClientQuotas.release(client, startNanos - enqueuedNanos, 0);
+			startNextSearch();
+			return;
+		}
+
+		activeConvId = convId;
+		activeSender = msg.getSender();
+		cancelSearch = false;
+		cancelRequestedAt = 0;
+		searching = true;
+
+		/** O căutare care așteaptă dispozitivul poate fi reluată doar dacă agentul se oprește */
+		boolean resume = msg.getContent().startsWith(CMD_RESUME + "|");
+		String cursor = resume ? msg.getUserDefinedParameter(PARAM_CURSOR) : null;
+		final Checkpoint cp = new Checkpoint(convId, filename, outDir,
+				resume ? msg.getUserDefinedParameter(PARAM_CLIENT) : msg.getSender().getName(),
+				resume ? msg.getUserDefinedParameter(PARAM_FOR) : getLocalName(), msg.getUserDefinedParameter(PARAM_FILTER),
+				resume ? splitPaths(msg.getUserDefinedParameter(PARAM_ROOTS)) : rootDirs(),
+				cursor == null || cursor.isEmpty() ? null : Paths.get(cursor));
+		queuedCheckpoint = cp;
+
+		IoScheduler.get().submit(roots.get(0).dir, () -> {
+			/** Publicat abia acum: o căutare din coadă nu e verificată de Controller */
+			checkpoint = cp;
+			queuedCheckpoint = null;
+			/** Agentul s-a oprit cât căutarea aștepta în coada dispozitivului */
+			if (terminating) {
+				checkpoint = null;
+				searching = false;
+				ClientQuotas.release(client, startNanos - enqueuedNanos, 0);
+				return;
+			}
+			long runNanos = System.nanoTime();
+			searchThread = Thread.currentThread();
+			/** Anularea din același JVM (SearcherAgent local) ajunge direct, fără coada de mesaje */
+			CancellationRegistry.Registration reg = CancellationRegistry.register(convId, () -> {
+				if (convId.equals(activeConvId))
+					requestCancel();
+			});
+			try {
+				searchAndReply(msg, filename, convId, outDir, filter, cp);
+			} finally {
+				reg.close();
+				searchThread = null;
+				searching = false;
+				activeSender = null;
+				ClientQuotas.release(client, runNanos - enqueuedNanos, System.nanoTime() - runNanos);
+				sendNext();
+			}
+		}, allReady());
+	}
+
+	/** true dacă toate rădăcinile pot răspunde din index */
+	private boolean allReady() {
+		for (FinderRoot r : roots) {
+			if (!r.ready())
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Cere oprirea căutării în curs. Pe lângă flag, întrerupe thread-ul de
+	 * căutare dacă e în parcurgere, ca listările de directoare să se oprească
+	 * între intrări. Poate fi apelat din orice thread.
+	 */
+	private void requestCancel() {
+		if (cancelRequestedAt == 0)
+			cancelRequestedAt = System.nanoTime();
+		cancelSearch = true;
+		synchronized (walkLock) {
+			Thread t = searchThread;
+			if (walking && t != null)
+				t.interrupt();
+		}
+	}
+
+	/** Răspuns REFUSE pentru o cerere care nu va rula: BUSY sau REJECTED */
+	private void refuse(ACLMessage msg, String kind, String convId, String detail) {
+		ACLMessage reply = msg.createReply();
+		reply.setOntology(ONT_SEARCH);
+		reply.setPerformative(ACLMessage.REFUSE);
+		reply.setContent(kind + "|" + convId + "|" + baseDir + "|" + detail);
+		send(reply);
 	}
 
 	/**
 	 * Caută fișierul în baseDir (recursiv) și răspunde cu: -
-	 * FOUND|convId|original|extracted - NOT_FOUND|convId|baseDir -
-	 * CANCELLED|convId|baseDir - ERROR|convId|mesaj
+	 * FOUND|convId|original|extracted|size|mtime - NOT_FOUND|convId|baseDir -
+	 * CANCELLED|convId|baseDir|ms|intrări (ms de la cererea de anulare până la
+	 * oprire, intrări vizitate de căutare) - ERROR|convId|mesaj. Fiecare
+	 * răspuns are parametrul "pruned" cu numărul de intrări tăiate de filtre.
+	 *
+	 * Un RESUME parcurge rădăcinile rămase ale unui finder căzut, fără index,
+	 * de după cursorul lui, și răspunde clientului în numele acelui finder.
+	 * Progresul (rădăcinile rămase, cursorul) e ținut în checkpoint.
 	 */
-	private void searchAndReply(ACLMessage msg, final String filename, final String convId, final String outDir) {
-		final ACLMessage reply = msg.createReply();
+	private void searchAndReply(ACLMessage msg, final String filename, final String convId, final String outDir,
+			final SearchFilter filter, final Checkpoint cp) {
+		final boolean resume = msg.getContent().startsWith(CMD_RESUME + "|");
+		final ACLMessage reply = resume ? resumeReply(msg, convId) : msg.createReply();
 		reply.setOntology(ONT_SEARCH);
 
+		final long[] pruned = { 0 };
+		final long[] visited = { 0 };
+
+		final List<FinderRoot> searchRoots = resume ? resumeRoots(cp.remaining) : roots;
+		try {
+			searchRoots(reply, searchRoots, resume, cp, filename, convId, outDir, filter, pruned, visited);
+		} finally {
+			checkpoint = null;
+			if (resume)
+				recordRecovery(msg, visited[0]);
+		}
+	}
+
+	/** Corpul lui searchAndReply: indexul, apoi parcurgerea rădăcinilor rămase, și răspunsul */
+	private void searchRoots(final ACLMessage reply, List<FinderRoot> searchRoots, boolean resume, Checkpoint cp,
+			final String filename, final String convId, final String outDir, final SearchFilter filter,
+			final long[] pruned, final long[] visited) {
+
+		/** Ținta e pregătită o singură dată; comparația din buclă nu alocă */
+		final NameMatcher matcher = new NameMatcher(filename);
+		final boolean fileCriteria = filter.hasFileCriteria();
+
 		try {
 			final Path[] foundPath = { null };
+			final BasicFileAttributes[] foundAttrs = { null };
 
-			/** Parcurge recursiv directorul și oprește dacă găsește fișierul */
-			Files.walkFileTree(baseDir, new SimpleFileVisitor<Path>() {
-				@Override
-				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-					if (cancelSearch)
-						return FileVisitResult.TERMINATE;
+			/**
+			 * Întâi indexurile tuturor rădăcinilor (cele încărcate): fără parcurgere
+			 * când numele e cunoscut. Rădăcinile fără index complet rămân pentru
+			 * parcurgere, în ordine.
+			 */
+			FinderRoot foundRoot = null;
+			List<FinderRoot> toWalk = new ArrayList<>();
+			if (resume)
+				toWalk.addAll(searchRoots);
+			Trace.Stage indexSpan = Trace.begin(convId, this, "finder.index");
+			for (FinderRoot root : resume ? new ArrayList<FinderRoot>() : searchRoots) {
+				if (foundRoot != null || cancelSearch)
+					break;
+				FinderIndex idx = root.index;
+				boolean answered = false;
+				if (idx != null) {
+					answered = searchIndex(idx, matcher, filter, pruned, foundPath, foundAttrs);
 
-					if (file.getFileName().toString().equalsIgnoreCase(filename)) {
-						foundPath[0] = file;
-						return FileVisitResult.TERMINATE;
+					/**
+					 * Indexul complet nu știe numele: reconciliere rapidă (mtime) și încă
+					 * o dată, doar dacă reîmprospătarea periodică n-a rulat de un
+					 * REFRESH_MS; altfel ratarea rămâne în seama ei
+					 */
+					if (!answered && root.indexFresh) {
+						if (!root.reconciledWithin(REFRESH_MS)) {
+							root.reconcile(() -> cancelSearch || terminating);
+							searchIndex(idx, matcher, filter, pruned, foundPath, foundAttrs);
+						}
+						answered = !cancelSearch;
 					}
-					return FileVisitResult.CONTINUE;
 				}
+				if (foundPath[0] != null)
+					foundRoot = root;
+				else if (!answered)
+					toWalk.add(root);
+				else
+					cp.remaining.remove(root.dir);
+			}
+			Trace.end(indexSpan, foundRoot != null ? "hit" : toWalk.isEmpty() ? "miss" : "fallback " + toWalk.size());
 
-				@Override
-				public FileVisitResult visitFileFailed(Path file, java.io.IOException exc) {
-					return cancelSearch ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+			Trace.Stage walkSpan = foundRoot != null || toWalk.isEmpty() ? null
+					: Trace.begin(convId, this, "finder.walk");
+			for (FinderRoot root : toWalk) {
+				if (foundRoot != null || cancelSearch)
+					break;
+				/** Din acest moment anularea poate întrerupe thread-ul */
+				synchronized (walkLock) {
+					walking = true;
 				}
-			});
+				cp.walkStarted = true;
+				try {
+					/** Parcurge recursiv directorul (întâi subarborii cu hit-uri) și oprește la găsire */
+					Path resumeAfter = root.dir.equals(cp.remaining.isEmpty() ? null : cp.remaining.get(0)) ? cp.cursor
+							: null;
+					OrderedTreeWalker.walk(root.dir, root.hitHistory, new SimpleFileVisitor<Path>() {
+						/** Adâncimea directorului curent față de rădăcină */
+						private int depth = -1;
+
+						@Override
+						public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+							cp.visited = ++visited[0];
+							if (cancelSearch)
+								return FileVisitResult.TERMINATE;
+
+							/** Subarborii excluși nu sunt deschiși deloc */
+							if (filter.pruneDirectory(dir, depth + 1, attrs)) {
+								pruned[0]++;
+								return FileVisitResult.SKIP_SUBTREE;
+							}
+							depth++;
+							return FileVisitResult.CONTINUE;
+						}
+
+						@Override
+						public FileVisitResult postVisitDirectory(Path dir, java.io.IOException exc) {
+							depth--;
+							return cancelSearch ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+						}
+
+						@Override
+						public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+							cp.visited = ++visited[0];
+							if (cancelSearch)
+								return FileVisitResult.TERMINATE;
+
+							if (fileCriteria && !filter.acceptFile(file, attrs)) {
+								pruned[0]++;
+								return FileVisitResult.CONTINUE;
+							}
+
+							if (matcher.matches(file)) {
+								foundPath[0] = file;
+								foundAttrs[0] = attrs;
+								return FileVisitResult.TERMINATE;
+							}
+							return FileVisitResult.CONTINUE;
+						}
+
+						@Override
+						public FileVisitResult visitFileFailed(Path file, java.io.IOException exc) {
+							return cancelSearch ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+						}
+					}, root.device::record, resumeAfter, dir -> cp.cursor = dir);
+				} finally {
+					/** Un interrupt rămas nu trebuie să strice I/O-ul de după (copiere, istoric) */
+					synchronized (walkLock) {
+						walking = false;
+						Thread.interrupted();
+					}
+				}
+				if (foundPath[0] != null)
+					foundRoot = root;
+				else if (!cancelSearch) {
+					/** Rădăcina e parcursă complet: următoarea începe de la zero */
+					cp.remaining.remove(root.dir);
+					cp.cursor = null;
+				}
+			}
+
+			Trace.end(walkSpan, foundPath[0] != null ? "hit" : cancelSearch ? "cancelled" : "miss");
+			reply.addUserDefinedParameter(PARAM_PRUNED, Long.toString(pruned[0]));
+
+			/** Agentul s-a oprit neașteptat: nu răspunde, căutarea e reluată din checkpoint */
+			if (abandoned)
+				return;
 
 			/** Dacă s-a cerut anularea, raportează CANCELLED */
 			if (cancelSearch) {
+				long at = cancelRequestedAt;
+				double idleMs = at == 0 ? 0 : (System.nanoTime() - at) / 1e6;
 				reply.setPerformative(ACLMessage.FAILURE);
-				reply.setContent("CANCELLED|" + convId + "|" + baseDir.toString());
+				reply.setContent("CANCELLED|" + convId + "|" + baseDir.toString() + "|"
+						+ String.format(java.util.Locale.ROOT, "%.3f", idleMs) + "|" + visited[0]);
 				send(reply);
 				return;
 			}
 
 			/** Dacă s-a găsit fișierul, raportează FOUND (cu opțională extragere/copie) */
 			if (foundPath[0] != null) {
+				foundRoot.hitHistory.recordHit(foundPath[0].getParent());
+				String meta = "|" + foundAttrs[0].size() + "|" + foundAttrs[0].lastModifiedTime().toMillis();
+
 				if (outDir != null && !"NO_EXTRACT".equals(outDir)) {
 					Path out = (outDir == null || outDir.trim().isEmpty()) ? Paths.get("extracted") // fallback
 							: Paths.get(outDir);
 					Files.createDirectories(out);
 
 					Path outFile = out.resolve(foundPath[0].getFileName().toString());
+					Trace.Stage span = Trace.begin(convId, this, "finder.extract");
 					Files.copy(foundPath[0], outFile, StandardCopyOption.REPLACE_EXISTING);
+					Trace.end(span, foundAttrs[0].size() + " B");
 
 					reply.setPerformative(ACLMessage.INFORM);
-					reply.setContent("FOUND|" + convId + "|" + foundPath[0] + "|" + outFile.toAbsolutePath());
+					reply.setContent("FOUND|" + convId + "|" + foundPath[0] + "|" + outFile.toAbsolutePath() + meta);
 
 				} else {
 					/** FĂRĂ EXTRAGERE */
 					reply.setPerformative(ACLMessage.INFORM);
-					reply.setContent("FOUND|" + convId + "|" + foundPath[0] + "|");
+					reply.setContent("FOUND|" + convId + "|" + foundPath[0] + "|" + meta);
 				}
 
 				send(reply);
@@ -207,13 +1009,782 @@ public class FinderAgent extends Agent {
 			/** Orice eroare de I/O */
 			reply.setPerformative(ACLMessage.FAILURE);
 			reply.setContent("ERROR|" + convId + "|" + e.getMessage());
+			reply.addUserDefinedParameter(PARAM_PRUNED, Long.toString(pruned[0]));
+		}
+
+		send(reply);
+	}
+
+	/** Răspunsul unei căutări reluate: direct clientului, în numele finderului căzut */
+	private ACLMessage resumeReply(ACLMessage msg, String convId) {
+		ACLMessage reply = new ACLMessage(ACLMessage.FAILURE);
+		reply.addReceiver(new AID(msg.getUserDefinedParameter(PARAM_CLIENT), AID.ISGUID));
+		reply.setConversationId(convId);
+		reply.addUserDefinedParameter(PARAM_FOR, msg.getUserDefinedParameter(PARAM_FOR));
+		return reply;
+	}
+
+	/**
+	 * Rădăcinile unei căutări reluate; cele preluate deja (ADOPT) sunt folosite
+	 * cu istoricul lor, restul sunt deschise doar pentru această căutare
+	 */
+	private List<FinderRoot> resumeRoots(List<Path> dirs) {
+		List<FinderRoot> out = new ArrayList<>();
+		for (Path dir : dirs) {
+			FinderRoot found = null;
+			for (FinderRoot r : roots) {
+				if (r.dir.equals(dir))
+					found = r;
+			}
+			out.add(found != null ? found : new FinderRoot(dir));
+		}
+		return out;
+	}
+
+	/**
+	 * Timpul de recuperare al unei căutări reluate: de la ultimul semn de viață
+	 * al finderului căzut până la răspunsul trimis în locul lui
+	 */
+	private void recordRecovery(ACLMessage msg, long visited) {
+		Metrics.inc("recovery.resumed");
+		Metrics.add("recovery.resume.entries", visited);
+		try {
+			long ms = System.currentTimeMillis() - Long.parseLong(msg.getUserDefinedParameter(PARAM_FAILED_AT));
+			Metrics.add("recovery.total.ms", ms);
+			Metrics.max("recovery.total.maxMs", ms);
+			System.out.println(getLocalName() + ": căutarea lui " + msg.getUserDefinedParameter(PARAM_FOR)
+					+ " reluată și terminată, recuperare în " + ms + " ms (" + visited + " intrări)");
+		} catch (NumberFormatException e) {
+		}
+	}
+
+	/** Directoarele dintr-un parametru (separate prin '\n') */
+	private static List<Path> splitPaths(String list) {
+		List<Path> out = new ArrayList<>();
+		if (list == null)
+			return out;
+		for (String p : list.split("\n")) {
+			if (!p.trim().isEmpty())
+				out.add(Paths.get(p.trim()));
+		}
+		return out;
+	}
+
+	/** Directoarele într-un parametru, separate prin '\n' */
+	private static String joinPaths(List<Path> dirs) {
+		StringBuilder sb = new StringBuilder();
+		for (Path d : dirs) {
+			if (sb.length() > 0)
+				sb.append('\n');
+			sb.append(d);
+		}
+		return sb.toString();
+	}
+
+	/** Directoarele rădăcinilor finderului */
+	private List<Path> rootDirs() {
+		List<Path> out = new ArrayList<>();
+		for (FinderRoot r : roots)
+			out.add(r.dir);
+		return out;
+	}
+
+	/** Numele rădăcinilor (câmpul baseDir din răspunsuri) */
+	private String describeRoots() {
+		return roots.size() == 1 ? roots.get(0).toString() : roots.get(0) + " (+" + (roots.size() - 1) + " rădăcini)";
+	}
+
+	/** Pornește (sau repornește, cu alt interval) heartbeat-urile către Controller */
+	private void supervise(AID controller, String intervalText) {
+		long ms;
+		try {
+			ms = Math.max(50, Long.parseLong(intervalText.trim()));
+		} catch (NumberFormatException e) {
+			return;
+		}
+		supervisor = controller;
+		if (heartbeat != null)
+			removeBehaviour(heartbeat);
+		heartbeat = new TickerBehaviour(this, ms) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void onTick() {
+				sendHeartbeat("idle", checkpoint);
+			}
+		};
+		addBehaviour(heartbeat);
+		sendHeartbeat("idle", checkpoint);
+	}
+
+	/**
+	 * Trimite un heartbeat Controller-ului: rădăcinile finderului și, dacă cp
+	 * nu e null, checkpoint-ul căutării (starea "idle" devine "busy", sau
+	 * "index" înainte de parcurgere). state e "idle" sau "stopped".
+	 */
+	private void sendHeartbeat(String state, Checkpoint cp) {
+		AID to = supervisor;
+		if (to == null)
+			return;
+
+		ACLMessage hb = new ACLMessage(ACLMessage.INFORM);
+		hb.addReceiver(to);
+		hb.setOntology(ControllerAgent.ONT_CONTROL);
+		hb.addUserDefinedParameter(PARAM_OWNED, joinPaths(rootDirs()));
+
+		if (cp == null) {
+			hb.setContent(MSG_HEARTBEAT + "|" + state);
+		} else {
+			String busy = cp.walkStarted ? "busy" : "index";
+			hb.setContent(MSG_HEARTBEAT + "|" + ("idle".equals(state) ? busy : state) + "|" + cp.convId + "|"
+					+ cp.visited);
+			hb.addUserDefinedParameter(PARAM_REQUEST, cp.request);
+			hb.addUserDefinedParameter(PARAM_CLIENT, cp.client);
+			hb.addUserDefinedParameter(PARAM_FOR, cp.forFinder);
+			hb.addUserDefinedParameter(PARAM_ROOTS, joinPaths(cp.remaining));
+			Path cursor = cp.cursor;
+			if (cursor != null)
+				hb.addUserDefinedParameter(PARAM_CURSOR, cursor.toString());
+			if (cp.filter != null)
+				hb.addUserDefinedParameter(PARAM_FILTER, cp.filter);
+		}
+		send(hb);
+	}
+
+	/**
+	 * Preia rădăcinile unui finder căzut: indexul lor e deschis din snapshot
+	 * (mmap), iar reîmprospătarea următoare îl reconciliază și adaugă numele în
+	 * sketch, deci căutările următoare ajung și aici
+	 */
+	private void adopt(String list) {
+		int added = 0;
+		for (Path dir : splitPaths(list)) {
+			boolean known = false;
+			for (FinderRoot r : roots)
+				known |= r.dir.equals(dir);
+			if (known)
+				continue;
+			FinderRoot root = new FinderRoot(dir);
+			FinderIndex loaded = FinderIndex.load(dir);
+			root.index = loaded != null ? loaded : FinderIndex.empty(dir);
+			roots.add(root);
+			added++;
+		}
+		if (added == 0)
+			return;
+		baseDir = describeRoots();
+		Metrics.add("finder.adopted", added);
+		System.out.println(getLocalName() + ": a preluat " + added + " rădăcini, acum " + baseDir);
+		refreshAgain.set(true);
+		scheduleSketchRefresh();
+	}
+
+	/**
+	 * Răspunde la FUZZY cu cele mai apropiate k nume din indexurile de trigrame
+	 * ale rădăcinilor. Rezultatele sunt trecute prin filtrele de directoare și
+	 * verificate pe disc; nu se face nicio parcurgere.
+	 */
+	private void fuzzyAndReply(ACLMessage msg, String convId, String kText, String filename) {
+		ACLMessage reply = msg.createReply();
+		reply.setOntology(ONT_SEARCH);
+
+		for (FinderRoot root : roots) {
+			if (root.trigrams == null || root.index == null) {
+				reply.setPerformative(ACLMessage.FAILURE);
+				reply.setContent("ERROR|" + convId + "|Indexul fuzzy nu este încă gata (" + root + ")");
+				send(reply);
+				return;
+			}
+		}
+
+		try {
+			int k = Math.max(1, Integer.parseInt(kText.trim()));
+			SearchFilter filter = SearchFilter.parse(msg.getUserDefinedParameter(PARAM_FILTER));
+
+			long t0 = System.nanoTime();
+			Trace.Stage span = Trace.begin(convId, this, "finder.fuzzy");
+			StringBuilder lines = new StringBuilder();
+			int n = 0;
+			long pruned = 0;
+			int names = 0;
+
+			/**
+			 * Cerem mai mulți candidați: o parte pot fi tăiați de filtre sau șterși.
+			 * Cu mai multe rădăcini, candidații sunt ordonați împreună (distanță, apoi
+			 * scor).
+			 */
+			List<RootHit> candidates = new ArrayList<>();
+			for (FinderRoot root : roots) {
+				names += root.trigrams.size();
+				for (TrigramIndex.Match m : root.trigrams.search(filename, 2 * k))
+					candidates.add(new RootHit(root, m.id, m.score, m.distance));
+			}
+			if (roots.size() > 1) {
+				candidates.sort((a, b) -> a.distance != b.distance ? Integer.compare(a.distance, b.distance)
+						: Double.compare(b.score, a.score));
+			}
+			for (RootHit c : candidates) {
+				if (n == k)
+					break;
+				FinderIndex idx = c.root.index;
+				if (idx.prunedBy(filter, c.id)) {
+					pruned++;
+					continue;
+				}
+				Path p = idx.path(c.id);
+				if (!Files.isRegularFile(p, LinkOption.NOFOLLOW_LINKS))
+					continue;
+				lines.append('\n').append(String.format(java.util.Locale.ROOT, "%.3f", c.score)).append('|')
+						.append(c.distance).append('|').append(idx.fileSize(c.id)).append('|')
+						.append(idx.fileMtime(c.id)).append('|').append(p);
+				n++;
+			}
+
+			Trace.end(span, n + " rezultate");
+			System.out.println(getLocalName() + ": fuzzy '" + filename + "' -> " + n + " rezultate în "
+					+ (System.nanoTime() - t0) / 1_000 + " µs (" + names + " nume)");
+
+			reply.setPerformative(ACLMessage.INFORM);
+			reply.addUserDefinedParameter(PARAM_PRUNED, Long.toString(pruned));
+			reply.setContent(MSG_FUZZY + "|" + convId + "|" + baseDir + "|" + n + lines);
+		} catch (IllegalArgumentException e) {
+			reply.setPerformative(ACLMessage.FAILURE);
+			reply.setContent("ERROR|" + convId + "|Cerere fuzzy invalidă: " + e.getMessage());
+		}
+		send(reply);
+	}
+
+	/**
+	 * Răspunde la PREFIX cu primele k nume distincte (alfabetic) care încep cu
+	 * prefixul, din ordinea sortată a indexurilor de trigrame. Pentru fiecare nume
+	 * trimite primul fișier netăiat de filtre; fără verificare pe disc (răspunsul
+	 * trebuie să vină cât se tastează). Rădăcinile încă neindexate sunt sărite.
+	 */
+	private void prefixAndReply(ACLMessage msg, String convId, String kText, String prefix) {
+		ACLMessage reply = msg.createReply();
+		reply.setOntology(ONT_SEARCH);
+
+		try {
+			int k = Math.max(1, Integer.parseInt(kText.trim()));
+			SearchFilter filter = SearchFilter.parse(msg.getUserDefinedParameter(PARAM_FILTER));
+
+			Trace.Stage span = Trace.begin(convId, this, "finder.prefix");
+			long pruned = 0;
+
+			/** Numele împăturit -> linia lui, îmbinate alfabetic din toate rădăcinile */
+			java.util.TreeMap<String, String> best = new java.util.TreeMap<>();
+			for (FinderRoot root : roots) {
+				TrigramIndex tri = root.trigrams;
+				FinderIndex idx = root.index;
+				if (tri == null || idx == null)
+					continue;
+				for (TrigramIndex.NameGroup g : tri.prefix(prefix, k)) {
+					if (best.containsKey(g.folded))
+						continue;
+					for (int id : g.ids) {
+						if (idx.prunedBy(filter, id)) {
+							pruned++;
+							continue;
+						}
+						best.put(g.folded, idx.fileSize(id) + "|" + idx.fileMtime(id) + "|" + idx.path(id));
+						break;
+					}
+				}
+			}
+
+			StringBuilder lines = new StringBuilder();
+			int n = 0;
+			for (String line : best.values()) {
+				if (n == k)
+					break;
+				lines.append('\n').append(line);
+				n++;
+			}
+			Trace.end(span, n + " nume");
+
+			reply.setPerformative(ACLMessage.INFORM);
+			reply.addUserDefinedParameter(PARAM_PRUNED, Long.toString(pruned));
+			reply.setContent(MSG_PREFIX + "|" + convId + "|" + baseDir + "|" + n + lines);
+		} catch (IllegalArgumentException e) {
+			reply.setPerformative(ACLMessage.FAILURE);
+			reply.setContent("ERROR|" + convId + "|Cerere de sugestii invalidă: " + e.getMessage());
+		}
+		send(reply);
+	}
+
+	/**
+	 * Răspunde la RANK cu cele mai bune k fișiere din index care au numele căutat
+	 * (și fără diferența de litere mari/mici), ordonate după scorul MatchRanker.
+	 * Adâncimile sunt relative la rădăcina căutării, ca scorurile de la finderi
+	 * diferiți să fie comparabile. Rularea are loc în coada de I/O: indexul e
+	 * întâi reconciliat (ca la căutarea simplă), apoi clasamentul și atributele
+	 * cerute de filtru sunt citite fără să blocheze firul agentului.
+	 */
+	private void rankAndReply(ACLMessage msg, String convId, String kText, String nowText, String filename) {
+		ACLMessage reply = msg.createReply();
+		reply.setOntology(ONT_SEARCH);
+
+		for (FinderRoot root : roots) {
+			if (!root.ready()) {
+				reply.setPerformative(ACLMessage.FAILURE);
+				reply.setContent("ERROR|" + convId + "|Indexul nu este încă gata (" + root + ")");
+				send(reply);
+				return;
+			}
+		}
+
+		IoScheduler.get().submit(roots.get(0).dir, () -> {
+			if (terminating)
+				return;
+			int relisted = 0;
+			for (FinderRoot root : roots) {
+				if (!root.indexFresh)
+					continue;
+				try {
+					relisted += root.reconcile(() -> terminating);
+				} catch (Exception e) {
+					System.out.println(getLocalName() + ": eroare la reconcilierea " + root + ": " + e.getMessage());
+				}
+			}
+			/** Statisticile noi pleacă înaintea răspunsului: limita din SearcherAgent crește la timp */
+			if (relisted > 0 && updateRankStats())
+				publishSketch();
+			rank(msg, reply, convId, kText, nowText, filename);
+			send(reply);
+		}, false);
+	}
+
+	/** Calculează top-k pentru RANK și completează răspunsul (rulează în coada de I/O) */
+	private void rank(ACLMessage msg, ACLMessage reply, String convId, String kText, String nowText,
+			String filename) {
+		try {
+			int k = Math.max(1, Integer.parseInt(kText.trim()));
+			MatchRanker ranker = new MatchRanker(filename, Long.parseLong(nowText.trim()));
+			SearchFilter filter = SearchFilter.parse(msg.getUserDefinedParameter(PARAM_FILTER));
+			String searchRoot = msg.getUserDefinedParameter(PARAM_ROOT);
+			NameMatcher matcher = new NameMatcher(filename);
+
+			long t0 = System.nanoTime();
+			Trace.Stage span = Trace.begin(convId, this, "finder.rank");
+			long pruned = 0;
+
+			/** Top-k local peste toate rădăcinile: min-heap pe scor (vârful = cel mai slab) */
+			java.util.PriorityQueue<RootHit> top = new java.util.PriorityQueue<>(
+					(a, b) -> Double.compare(a.score, b.score));
+			for (FinderRoot root : roots) {
+				FinderIndex idx = root.index;
+				/** Adâncimea rădăcinii sub rădăcina căutării */
+				int offset = root.depthUnder(searchRoot);
+				for (int id : idx.findByName(matcher)) {
+					if (idx.isDirectory(id))
+						continue;
+					if (idx.prunedBy(filter, id)) {
+						pruned++;
+						continue;
+					}
+					Path p = idx.path(id);
+					if (filter.hasFileCriteria()) {
+						try {
+							if (!filter.acceptFile(p, Files.readAttributes(p, BasicFileAttributes.class))) {
+								pruned++;
+								continue;
+							}
+						} catch (java.io.IOException e) {
+							continue;
+						}
+					}
+					double score = ranker.score(ranker.isExact(idx.name(id)), offset + idx.depth(id),
+							idx.fileMtime(id), idx.fileSize(id));
+					if (top.size() < k) {
+						top.add(new RootHit(root, id, score, 0));
+					} else if (score > top.peek().score) {
+						top.poll();
+						top.add(new RootHit(root, id, score, 0));
+					}
+				}
+			}
+
+			List<RootHit> best = new ArrayList<>(top);
+			best.sort((a, b) -> Double.compare(b.score, a.score));
+			StringBuilder lines = new StringBuilder();
+			for (RootHit e : best) {
+				FinderIndex idx = e.root.index;
+				lines.append('\n').append(String.format(java.util.Locale.ROOT, "%.6f", e.score)).append('|')
+						.append(ranker.isExact(idx.name(e.id)) ? 1 : 0).append('|').append(idx.fileSize(e.id))
+						.append('|').append(idx.fileMtime(e.id)).append('|').append(idx.path(e.id));
+			}
+
+			Trace.end(span, best.size() + " rezultate");
+			System.out.println(getLocalName() + ": rank '" + filename + "' -> " + best.size() + " rezultate în "
+					+ (System.nanoTime() - t0) / 1_000 + " µs");
+
+			reply.setPerformative(ACLMessage.INFORM);
+			reply.addUserDefinedParameter(PARAM_PRUNED, Long.toString(pruned));
+			reply.setContent(MSG_RANK + "|" + convId + "|" + baseDir + "|" + best.size() + lines);
+		} catch (IllegalArgumentException e) {
+			reply.setPerformative(ACLMessage.FAILURE);
+			reply.setContent("ERROR|" + convId + "|Cerere ordonată invalidă: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Răspunde la QUERY cu primele q.limit fișiere din index care satisfac
+	 * predicatele, în ordinea cerută. Indexul poate fi în urmă cu cel mult o
+	 * reconciliere (REFRESH_MS).
+	 */
+	private void queryAndReply(ACLMessage msg, String convId) {
+		ACLMessage reply = msg.createReply();
+		reply.setOntology(ONT_SEARCH);
+
+		for (FinderRoot root : roots) {
+			if (!root.ready()) {
+				reply.setPerformative(ACLMessage.FAILURE);
+				reply.setContent("ERROR|" + convId + "|Indexul nu este încă gata (" + root + ")");
+				send(reply);
+				return;
+			}
 		}
 
+		try {
+			MetadataQuery q = MetadataQuery.parse(msg.getUserDefinedParameter(PARAM_QUERY));
+			SearchFilter filter = SearchFilter.parse(msg.getUserDefinedParameter(PARAM_FILTER));
+
+			long t0 = System.nanoTime();
+			Trace.Stage span = Trace.begin(convId, this, "finder.query");
+			long[] stats = new long[2];
+			long entries = 0;
+			StringBuilder lines = new StringBuilder();
+			List<MetadataQuery.Row> rows = new ArrayList<>();
+			for (FinderRoot root : roots) {
+				long[] st = new long[2];
+				rows.addAll(root.index.query(q, filter, st));
+				stats[0] += st[0];
+				stats[1] += st[1];
+				entries += root.index.liveEntries();
+			}
+			/** Fiecare rădăcină întoarce primele q.limit; din toate se păstrează tot q.limit */
+			if (roots.size() > 1) {
+				rows.sort(q.order());
+				if (rows.size() > q.limit)
+					rows = new ArrayList<>(rows.subList(0, q.limit));
+			}
+			for (MetadataQuery.Row r : rows)
+				lines.append('\n').append(r.size).append('|').append(r.mtime).append('|').append(r.path);
+
+			Trace.end(span, rows.size() + "/" + stats[0]);
+			System.out.println(getLocalName() + ": query '" + q + "' -> " + rows.size() + "/" + stats[0] + " în "
+					+ (System.nanoTime() - t0) / 1_000 + " µs (" + entries + " intrări)");
+
+			reply.setPerformative(ACLMessage.INFORM);
+			reply.addUserDefinedParameter(PARAM_PRUNED, Long.toString(stats[1]));
+			reply.setContent(MSG_QUERY + "|" + convId + "|" + baseDir + "|" + rows.size() + "|" + stats[0] + lines);
+		} catch (IllegalArgumentException e) {
+			reply.setPerformative(ACLMessage.FAILURE);
+			reply.setContent("ERROR|" + convId + "|Interogare invalidă: " + e.getMessage());
+		}
+		send(reply);
+	}
+
+	/**
+	 * Răspunde la STATS cu agregatul parțial al rădăcinilor acestui finder,
+	 * calculat din index (vezi FinderIndex.stats). Ca la QUERY, un index care nu
+	 * e gata dă eroare: SearcherAgent raportează totalurile ca incomplete, iar
+	 * subarborii lui pot sosi oricum de la finder_root.
+	 */
+	private void statsAndReply(ACLMessage msg, String convId, String n) {
+		ACLMessage reply = msg.createReply();
+		reply.setOntology(ONT_SEARCH);
+
+		for (FinderRoot root : roots) {
+			if (!root.ready()) {
+				reply.setPerformative(ACLMessage.FAILURE);
+				reply.setContent("ERROR|" + convId + "|Indexul nu este încă gata (" + root + ")");
+				send(reply);
+				return;
+			}
+		}
+
+		int top;
+		try {
+			top = Integer.parseInt(n.trim());
+		} catch (NumberFormatException e) {
+			top = StatsAggregate.DEFAULT_TOP;
+		}
+		String r = msg.getUserDefinedParameter(PARAM_ROOT);
+		Path searchRoot = r == null ? null : Paths.get(r).toAbsolutePath().normalize();
+		SearchFilter filter;
+		try {
+			filter = SearchFilter.parse(msg.getUserDefinedParameter(PARAM_FILTER));
+		} catch (IllegalArgumentException e) {
+			reply.setPerformative(ACLMessage.FAILURE);
+			reply.setContent("ERROR|" + convId + "|Filtru invalid: " + e.getMessage());
+			send(reply);
+			return;
+		}
+
+		long t0 = System.nanoTime();
+		Trace.Stage span = Trace.begin(convId, this, "finder.stats");
+		StatsAggregate agg = new StatsAggregate(top);
+		long entries = 0;
+		for (FinderRoot root : roots) {
+			root.index.stats(searchRoot, filter, agg);
+			entries += root.index.liveEntries();
+		}
+		Trace.end(span, agg.files() + " fișiere");
+		System.out.println(getLocalName() + ": stats -> " + agg.files() + " fișiere, "
+				+ StatsAggregate.formatBytes(agg.bytes()) + " în " + (System.nanoTime() - t0) / 1_000 + " µs ("
+				+ entries + " intrări)");
+
+		reply.setPerformative(ACLMessage.INFORM);
+		reply.setContent(MSG_STATS + "|" + convId + "|" + baseDir + "|" + agg.subtreeCount() + "|"
+				+ agg.largest().size() + agg.encode());
 		send(reply);
 	}
 
+	/** Marchează închiderea platformei (vezi platformClosing) */
+	static void platformClosing() {
+		platformClosing = true;
+	}
+
+	/** Pune o reîmprospătare a sketch-ului în coada de I/O (după căutările urgente) */
+	private void scheduleSketchRefresh() {
+		if (sketchBuilding.get())
+			return;
+		IoScheduler.get().submit(roots.get(0).dir, () -> {
+			if (!terminating)
+				refreshSketch();
+		}, false);
+	}
+
+	/**
+	 * La prima rulare deschide snapshot-urile indexurilor (mmap) și publică
+	 * imediat sketch-ul din ele; apoi reconciliază fiecare index cu disc-ul (doar
+	 * directoarele cu mtime schimbat sunt relistate), adaugă numele noi în sketch
+	 * (incremental) și salvează snapshot-urile modificate. Rădăcinile sunt tratate
+	 * pe rând, iar sketch-ul (comun tuturor) e publicat o singură dată pe etapă;
+	 * abonații sunt notificați doar când se modifică.
+	 */
+	private void refreshSketch() {
+		if (!sketchBuilding.compareAndSet(false, true))
+			return;
+
+		try {
+			long t0 = System.nanoTime();
+			long loadedEntries = 0;
+			boolean loadedAny = false;
+			for (FinderRoot root : roots) {
+				if (root.index != null)
+					continue;
+				FinderIndex loaded = FinderIndex.load(root.dir);
+				if (loaded != null) {
+					root.index = loaded;
+					rebuildTrigrams(root);
+					loadedEntries += loaded.liveEntries();
+					loadedAny = true;
+				} else {
+					root.index = FinderIndex.empty(root.dir);
+				}
+			}
+			if (loadedAny) {
+				updateSketch();
+				System.out.println(getLocalName() + ": index încărcat în " + (System.nanoTime() - t0) / 1_000_000
+						+ " ms (" + loadedEntries + " intrări)");
+			}
+
+			t0 = System.nanoTime();
+			int relisted = 0;
+			for (FinderRoot root : roots) {
+				if (terminating)
+					return;
+				try {
+					int r = root.reconcile(() -> terminating);
+					if (terminating)
+						return;
+					root.indexFresh = true;
+					relisted += r;
+					if (r > 0 || root.trigrams == null)
+						rebuildTrigrams(root);
+
+					if (root.index.isDirty())
+						root.index.save();
+					if (root.hitHistory.isDirty())
+						root.hitHistory.save(HitHistory.historyFile(root.dir));
+				} catch (Exception e) {
+					System.out.println(getLocalName() + ": eroare la actualizarea indexului " + root + ": "
+							+ e.getMessage());
+				}
+			}
+			System.out.println(getLocalName() + ": index reconciliat în " + (System.nanoTime() - t0) / 1_000_000
+					+ " ms (" + relisted + " directoare relistate)");
+
+			updateSketch();
+			if (!readyReported) {
+				readyReported = true;
+				Metrics.inc("finder.ready");
+			}
+		} catch (Exception e) {
+			System.out.println(getLocalName() + ": eroare la actualizarea indexului: " + e.getMessage());
+		} finally {
+			sketchBuilding.set(false);
+			if (refreshAgain.getAndSet(false) && !terminating)
+				scheduleSketchRefresh();
+		}
+	}
+
+	/** Reconstruiește indexul de trigrame al rădăcinii din numele curente ale indexului ei */
+	private void rebuildTrigrams(FinderRoot root) {
+		long t0 = System.nanoTime();
+		TrigramIndex tri = TrigramIndex.build(root.index);
+		root.trigrams = tri;
+		if (roots.size() == 1)
+			System.out.println(getLocalName() + ": index de trigrame construit în "
+					+ (System.nanoTime() - t0) / 1_000_000 + " ms (" + tri.size() + " nume)");
+	}
+
+	/**
+	 * Adaugă numele din indexurile rădăcinilor în sketch-ul existent; îl
+	 * reconstruiește doar la prima rulare sau când rata estimată de fals pozitive
+	 * s-a dublat.
+	 */
+	private void updateSketch() {
+		NameSketch current = sketch;
+		boolean changed = false;
+
+		if (current != null)
+			changed = addAll(current);
+
+		if (current == null || current.estimatedFpp() > 2 * NameSketch.TARGET_FPP) {
+			int n = 0;
+			for (FinderRoot root : roots)
+				n += root.index.liveFiles();
+			NameSketch fresh = NameSketch.forCapacity(n + n / 2);
+			for (FinderRoot root : roots)
+				root.index.addNamesTo(fresh);
+			sketch = fresh;
+			changed = true;
+		}
+
+		/** Un fișier modificat schimbă limita superioară a scorului chiar dacă numele rămân */
+		if (updateRankStats() || changed)
+			publishSketch();
+	}
+
+	/**
+	 * Recalculează cel mai nou mtime și cea mai mare dimensiune din indexuri;
+	 * true dacă s-au schimbat (sketch-ul trebuie republicat)
+	 */
+	private boolean updateRankStats() {
+		long newest = -1;
+		long largest = -1;
+		for (FinderRoot root : roots) {
+			newest = Math.max(newest, root.index.newestFileMtime());
+			largest = Math.max(largest, root.index.largestFileSize());
+		}
+		synchronized (publishLock) {
+			if (newest == newestMtime && largest == largestSize)
+				return false;
+			newestMtime = newest;
+			largestSize = largest;
+			return true;
+		}
+	}
+
+	/** Trimite abonaților o versiune nouă a sketch-ului (și a statisticilor) */
+	private void publishSketch() {
+		synchronized (publishLock) {
+			sketchVersion++;
+			for (AID sub : sketchSubscribers)
+				sendSketch(sub);
+		}
+	}
+
+	/** true dacă sketch-ul s-a modificat după adăugarea numelor din index */
+	private boolean addAll(NameSketch sk) {
+		long before = sk.count();
+		for (FinderRoot root : roots)
+			root.index.addNamesTo(sk);
+		return sk.count() != before;
+	}
+
+	/**
+	 * Caută numele în index. Candidații sunt verificați pe disc (pot fi șterși
+	 * între timp) și trecuți prin aceleași filtre ca la parcurgere. true dacă s-a
+	 * găsit (foundPath/foundAttrs completate).
+	 */
+	private boolean searchIndex(FinderIndex idx, NameMatcher matcher, SearchFilter filter, long[] pruned,
+			Path[] foundPath, BasicFileAttributes[] foundAttrs) {
+		for (int id : idx.findByName(matcher)) {
+			if (cancelSearch)
+				return false;
+			if (idx.prunedBy(filter, id)) {
+				pruned[0]++;
+				continue;
+			}
+			Path p = idx.path(id);
+			BasicFileAttributes attrs;
+			try {
+				attrs = Files.readAttributes(p, BasicFileAttributes.class);
+			} catch (java.io.IOException e) {
+				continue;
+			}
+			if (!attrs.isRegularFile())
+				continue;
+			if (filter.hasFileCriteria() && !filter.acceptFile(p, attrs)) {
+				pruned[0]++;
+				continue;
+			}
+			foundPath[0] = p;
+			foundAttrs[0] = attrs;
+			return true;
+		}
+		return false;
+	}
+
+	/** Rădăcina cea mai apropiată de rădăcina sistemului de fișiere (limita superioară a scorului) */
+	private Path shallowestRoot() {
+		Path best = roots.get(0).dir;
+		for (FinderRoot root : roots) {
+			if (root.dir.getNameCount() < best.getNameCount())
+				best = root.dir;
+		}
+		return best;
+	}
+
+	/** Trimite sketch-ul curent: SKETCH|version|m|k|count|base64 */
+	private void sendSketch(AID to) {
+		NameSketch sk = sketch;
+		if (sk == null)
+			return;
+		ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+		msg.addReceiver(to);
+		msg.setOntology(ONT_SEARCH);
+		msg.setContent(MSG_SKETCH + "|" + sketchVersion + "|" + sk.encode());
+		msg.addUserDefinedParameter(PARAM_BASEDIR, shallowestRoot().toString());
+		msg.addUserDefinedParameter(PARAM_NEWEST, Long.toString(newestMtime));
+		msg.addUserDefinedParameter(PARAM_LARGEST, Long.toString(largestSize));
+		send(msg);
+	}
+
 	@Override
 	protected void takeDown() {
+		/**
+		 * Oprire fără TERMINATE: Controller-ul află imediat și reia căutarea în
+		 * curs (sau cea din coadă) din checkpoint, iar aceasta nu mai răspunde.
+		 * La închiderea platformei nu are cine s-o reia.
+		 */
+		if (!terminating) {
+			Checkpoint queued = queuedCheckpoint;
+			Checkpoint running = checkpoint;
+			Checkpoint cp = running != null ? running : queued;
+			abandoned = true;
+			if (!platformClosing)
+				sendHeartbeat("stopped", cp);
+			if (cp != null)
+				requestCancel();
+		}
+		terminating = true;
+		ClientQuotas.cancelAwait(quotaWakeup);
+
 		/** Scoate agentul din DF la închidere */
 		try {
 			DFService.deregister(this);
@@ -0,0 +1,987 @@
+package agents;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Starea unui Finder despre subarborele lui: o intrare pentru fiecare fișier
+ * sau director (părinte, nume, dimensiune, mtime, hash-ul numelui, extensie),
+ * ținută pe coloane în array-uri primitive. Numele sunt UTF-8 în afara heap-ului
+ * (snapshot-ul mapat plus buffere directe pentru intrările adăugate), nu
+ * obiecte String/Path: colectorul nu are ce parcurge, iar căile complete sunt
+ * reconstruite din lanțul de părinți doar pentru rezultatele trimise.
+ * Interogările pe atribute (MetadataQuery) scanează direct coloanele.
+ *
+ * Indexul se salvează într-un fișier versionat și se deschide prin mmap la
+ * pornire, astfel încât un Finder repornit e gata în câteva milisecunde.
+ * Reconcilierea cu disc-ul se face leneș, pe baza mtime-ului directoarelor: un
+ * director al cărui mtime nu s-a schimbat nu este relistat.
+ *
+ * Costul în heap este ~53 octeți pe intrare: parent 4, flags 1, size 8,
+ * mtime 8, hash 8, nameOff 8, nameLen 4, firstChild 4, nextSibling 4, extId 4
+ * (firstChild/nextSibling sunt refăcute la încărcare, nu stau în snapshot).
+ * După load capacitatea are 25% rezervă pentru intrări noi, iar după o creștere
+ * prin dublare array-urile pot avea până la de două ori mai multe sloturi decât
+ * intrări vii.
+ */
+final class FinderIndex {
+
+	/** "FIDX" */
+	private static final int MAGIC = 0x46494458;
+
+	/** Versiunea formatului de pe disc (2: offset-uri de nume pe 64 de biți) */
+	static final int FORMAT_VERSION = 2;
+
+	/**
+	 * Numele sunt ținute în segmente de câte 64 MiB (un ByteBuffer e indexat cu
+	 * int): offset-ul global al unui nume, pe long, dă segmentul și poziția.
+	 */
+	private static final int NAME_SEGMENT_SHIFT = 26;
+	private static final int NAME_SEGMENT = 1 << NAME_SEGMENT_SHIFT;
+	private static final long NAME_SEGMENT_MASK = NAME_SEGMENT - 1;
+
+	/** Cel mai mare număr de intrări (limita array-urilor Java) */
+	private static final int MAX_ENTRIES = Integer.MAX_VALUE - 8;
+
+	/** Octeții pe intrare ai coloanelor din snapshot (parent, flags, size, mtime, hash, nameOff, nameLen) */
+	private static final int COLUMN_BYTES = 4 + 1 + 8 + 8 + 8 + 8 + 4;
+
+	/** Cât din începutul fișierului e mapat pentru antet (baseDir are cel mult câțiva KiB) */
+	private static final long HEADER_MAX = 1 << 20;
+
+	static final byte FLAG_DIR = 1;
+	static final byte FLAG_DELETED = 2;
+
+	/** Dimensiunea blocurilor pentru scanarea pe coloane */
+	private static final int BLOCK = 4096;
+
+	/** Directorul rădăcină (intrarea 0) */
+	private final Path baseDir;
+
+	/** Coloanele */
+	private int[] parent;
+	private byte[] flags;
+	private long[] size;
+	private long[] mtime;
+	private long[] hash;
+	private long[] nameOff;
+	private int[] nameLen;
+	private int count;
+
+	/** Legături copil/frate (reconstruite la încărcare, nu se salvează) */
+	private int[] firstChild;
+	private int[] nextSibling;
+
+	/**
+	 * Numele: partea din snapshot (mmap, read-only) + partea adăugată ulterior
+	 * (buffere directe, tot în afara heap-ului). Segmentele mapate se suprapun
+	 * cu câte un segment, ca un nume să nu fie tăiat la granița lor; în partea
+	 * adăugată un nume care nu mai încape în segment începe unul nou.
+	 */
+	private ByteBuffer[] baseNames = new ByteBuffer[0];
+	private long baseNamesLen;
+	private final List<ByteBuffer> extraNames = new ArrayList<>(List.of(ByteBuffer.allocateDirect(4096)));
+	private long extraNamesLen;
+
+	/**
+	 * Coloana de extensii (id în dicționarul extNames; 0 = fără extensie).
+	 * Nu se salvează: e calculată din blob la prima interogare pe atribute.
+	 */
+	private int[] extId;
+	private final List<String> extNames = new ArrayList<>(List.of(""));
+	private final Map<String, Integer> extIds = new HashMap<>(Map.of("", 0));
+
+	/** Numărul de intrări șterse logic (pentru compactare la salvare) */
+	private int deleted;
+
+	/** true dacă s-a modificat de la ultima salvare */
+	private boolean dirty;
+
+	/** Generația snapshot-ului (crește la fiecare salvare) */
+	private long generation;
+
+	/**
+	 * Slotul (0/1) din care s-a încărcat snapshot-ul și care rămâne mapat.
+	 * Salvările merg în celălalt slot: pe Windows un fișier mapat nu poate fi
+	 * înlocuit.
+	 */
+	private int mappedSlot = -1;
+
+	private FinderIndex(Path baseDir, int capacity) {
+		this.baseDir = baseDir;
+		int cap = Math.max(capacity, 16);
+		parent = new int[cap];
+		flags = new byte[cap];
+		size = new long[cap];
+		mtime = new long[cap];
+		hash = new long[cap];
+		nameOff = new long[cap];
+		nameLen = new int[cap];
+		firstChild = new int[cap];
+		nextSibling = new int[cap];
+	}
+
+	/** Index gol: doar rădăcina, cu mtime necunoscut (prima reconciliere listează tot) */
+	static FinderIndex empty(Path baseDir) {
+		FinderIndex idx = new FinderIndex(baseDir, 1024);
+		idx.append(-1, new byte[0], FLAG_DIR, 0, Long.MIN_VALUE, 0);
+		idx.dirty = true;
+		return idx;
+	}
+
+	/**
+	 * Fișierul de snapshot pentru baseDir și slot (în -Dfinder.indexDir sau
+	 * ~/.jade-finder-index).
+	 */
+	static Path snapshotFile(Path baseDir, int slot) {
+		String dir = System.getProperty("finder.indexDir",
+				Paths.get(System.getProperty("user.home"), ".jade-finder-index").toString());
+		String abs = baseDir.toAbsolutePath().normalize().toString();
+		long h = NameMatcher.hash(abs, 0, abs.length());
+		return Paths.get(dir, Long.toHexString(h) + "." + slot + ".fidx");
+	}
+
+	// ---------------------------------------------------------------- acces
+
+	synchronized int size() {
+		return count;
+	}
+
+	/** Numărul de intrări vii (fără cele șterse) */
+	synchronized int liveEntries() {
+		return count - deleted;
+	}
+
+	Path baseDir() {
+		return baseDir;
+	}
+
+	/** Numele intrării (decodat din UTF-8; alocă, se folosește doar pentru rezultate) */
+	synchronized String name(int id) {
+		return decodeName(id);
+	}
+
+	/**
+	 * Adaugă o intrare sub par fără să citească disc-ul (PathStorageBench);
+	 * întoarce id-ul ei.
+	 */
+	synchronized int add(int par, String name, boolean directory, long sz, long mt) {
+		dirty = true;
+		return append(par, name.getBytes(StandardCharsets.UTF_8), directory ? FLAG_DIR : 0, sz, mt,
+				NameMatcher.hash(name, 0, name.length()));
+	}
+
+	/** Calea completă a intrării, reconstruită din lanțul de părinți */
+	synchronized Path path(int id) {
+		return pathOf(id);
+	}
+
+	/** Adâncimea intrării față de baseDir (rădăcina are 0) */
+	synchronized int depth(int id) {
+		int d = 0;
+		for (int p = parent[id]; p >= 0; p = parent[p])
+			d++;
+		return d;
+	}
+
+	synchronized long fileSize(int id) {
+		return size[id];
+	}
+
+	synchronized long fileMtime(int id) {
+		return mtime[id];
+	}
+
+	synchronized boolean isDirectory(int id) {
+		return (flags[id] & FLAG_DIR) != 0;
+	}
+
+	/** Adaugă hash-urile tuturor fișierelor vii în sketch */
+	synchronized void addNamesTo(NameSketch sketch) {
+		for (int i = 0; i < count; i++) {
+			if (flags[i] == 0)
+				sketch.add(hash[i]);
+		}
+	}
+
+	/** Numărul de fișiere vii (pentru dimensionarea sketch-ului) */
+	synchronized int liveFiles() {
+		int n = 0;
+		for (int i = 0; i < count; i++) {
+			if (flags[i] == 0)
+				n++;
+		}
+		return n;
+	}
+
+	/** Cel mai mare mtime al unui fișier viu (-1 dacă nu există fișiere) */
+	synchronized long newestFileMtime() {
+		long newest = -1;
+		for (int i = 0; i < count; i++) {
+			if (flags[i] == 0 && mtime[i] > newest)
+				newest = mtime[i];
+		}
+		return newest;
+	}
+
+	/** Cea mai mare dimensiune a unui fișier viu (-1 dacă nu există fișiere) */
+	synchronized long largestFileSize() {
+		long largest = -1;
+		for (int i = 0; i < count; i++) {
+			if (flags[i] == 0 && size[i] > largest)
+				largest = size[i];
+		}
+		return largest;
+	}
+
+	/** Id-urile fișierelor vii (pentru indexul de trigrame) */
+	synchronized int[] liveFileIds() {
+		int[] out = new int[count];
+		int n = 0;
+		for (int i = 0; i < count; i++) {
+			if (flags[i] == 0)
+				out[n++] = i;
+		}
+		return Arrays.copyOf(out, n);
+	}
+
+	/**
+	 * Fișierele vii al căror nume este ținta matcher-ului. Se compară întâi
+	 * hash-ul (scanare pe o coloană long[]), apoi numele propriu-zis.
+	 */
+	synchronized List<Integer> findByName(NameMatcher matcher) {
+		long h = matcher.targetHash();
+		List<Integer> out = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			if (hash[i] == h && flags[i] == 0) {
+				String n = decodeName(i);
+				if (matcher.matches(n, 0, n.length()))
+					out.add(i);
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Rulează o interogare pe atribute peste coloane. Predicatele numerice sunt
+	 * evaluate pe blocuri, fără ramificații (vector de selecție), apoi extensia,
+	 * directorul și glob-ul pe nume doar pentru rândurile rămase. Primele
+	 * q.limit rânduri sunt ținute într-un heap pe cheia de sortare. stats[0] =
+	 * rânduri potrivite, stats[1] = tăiate de filtru.
+	 */
+	synchronized List<MetadataQuery.Row> query(MetadataQuery q, SearchFilter filter, long[] stats) {
+		List<MetadataQuery.Row> out = new ArrayList<>();
+
+		int under = 0;
+		if (q.under != null) {
+			Path abs = baseDir.toAbsolutePath().normalize();
+			if (q.under.startsWith(abs))
+				under = findDirectory(abs.relativize(q.under));
+			else if (!abs.startsWith(q.under))
+				under = -1;
+			if (under < 0)
+				return out;
+		}
+
+		ensureExtColumn();
+		boolean[] extAllowed = null;
+		if (q.extensions != null) {
+			extAllowed = new boolean[extNames.size()];
+			for (String e : q.extensions) {
+				Integer x = extIds.get(e);
+				if (x != null)
+					extAllowed[x] = true;
+			}
+		}
+
+		final long minSize = q.minSize, maxSize = q.maxSize, after = q.after, before = q.before;
+		final boolean sizeKey = q.sort == MetadataQuery.SortKey.SIZE;
+		final long sign = q.descending ? 1 : -1;
+
+		/** Min-heap pe (semn * cheie): vârful e cel mai slab dintre cele păstrate */
+		long[] hk = new long[q.limit];
+		int[] hid = new int[q.limit];
+		int hn = 0;
+
+		int[] sel = new int[BLOCK];
+		for (int start = 0; start < count; start += BLOCK) {
+			int end = Math.min(count, start + BLOCK);
+
+			/** Filtrare pe coloane: fără if-uri în buclă, ca JIT-ul s-o poată vectoriza */
+			int n = 0;
+			for (int i = start; i < end; i++) {
+				long sz = size[i];
+				long mt = mtime[i];
+				boolean ok = flags[i] == 0 & sz >= minSize & sz <= maxSize & mt >= after & mt <= before;
+				sel[n] = i;
+				n += ok ? 1 : 0;
+			}
+
+			for (int j = 0; j < n; j++) {
+				int i = sel[j];
+				if (extAllowed != null && !extAllowed[extId[i]])
+					continue;
+				if (under > 0 && !isUnder(i, under))
+					continue;
+				if (q.name != null && !q.name.matches(Paths.get(decodeName(i))))
+					continue;
+
+				stats[0]++;
+				long key = sign * (sizeKey ? size[i] : mtime[i]);
+				if (hn == hk.length && key <= hk[0])
+					continue;
+				if (filter != null && prunedBy(filter, i)) {
+					stats[1]++;
+					continue;
+				}
+				if (hn < hk.length) {
+					hk[hn] = key;
+					hid[hn] = i;
+					siftUp(hk, hid, hn++);
+				} else {
+					hk[0] = key;
+					hid[0] = i;
+					siftDown(hk, hid, hn);
+				}
+			}
+		}
+
+		for (int j = 0; j < hn; j++)
+			out.add(new MetadataQuery.Row(size[hid[j]], mtime[hid[j]], pathOf(hid[j]).toString()));
+		out.sort(q.order());
+		return out;
+	}
+
+	/**
+	 * Adună în agg contoarele subarborelui indexat, într-o singură trecere
+	 * înainte peste coloane (un părinte are mereu id-ul mai mic decât copiii
+	 * lui). Cheia fiecărei intrări e subarborele de adâncime 1 față de
+	 * searchRoot: dacă baseDir e chiar rădăcina căutării (sau nu e sub ea),
+	 * fiecare director copil e un subarbore, iar fișierele directe sunt numărate
+	 * la baseDir; altfel tot indexul ține de un singur subarbore. Directoarele
+	 * tăiate de filtru sunt sărite cu tot conținutul. Căile se reconstruiesc
+	 * doar pentru cheile subarborilor și pentru fișierele care intră în top.
+	 */
+	synchronized void stats(Path searchRoot, SearchFilter filter, StatsAggregate agg) {
+		ensureExtColumn();
+		Path abs = baseDir.toAbsolutePath().normalize();
+		boolean splitChildren = searchRoot == null || abs.equals(searchRoot) || !abs.startsWith(searchRoot);
+
+		/** Subarborele fiecărei intrări (null = ștearsă sau tăiată) și adâncimea față de baseDir */
+		StatsAggregate.Subtree[] key = new StatsAggregate.Subtree[count];
+		int[] depth = new int[count];
+		key[0] = agg.subtree(splitChildren ? abs.toString()
+				: searchRoot.resolve(searchRoot.relativize(abs).getName(0)).toString());
+		key[0].dirs++;
+
+		/** Pe subarbore: extId -> {fișiere, octeți}, transformate în nume la final */
+		Map<StatsAggregate.Subtree, Map<Integer, long[]>> ext = new HashMap<>();
+
+		/** Min-heap pe dimensiune pentru top, ca în query() */
+		long[] hk = new long[agg.top];
+		int[] hid = new int[agg.top];
+		int hn = 0;
+		long floor = agg.largestThreshold();
+
+		for (int i = 1; i < count; i++) {
+			int p = parent[i];
+			if ((flags[i] & FLAG_DELETED) != 0 || p < 0 || p >= i || key[p] == null)
+				continue;
+
+			if ((flags[i] & FLAG_DIR) != 0) {
+				depth[i] = depth[p] + 1;
+				if (filter != null && filter.pruneDirectory(pathOf(i), depth[i], null))
+					continue;
+				key[i] = splitChildren && p == 0 ? agg.subtree(abs.resolve(decodeName(i)).toString()) : key[p];
+				key[i].dirs++;
+				continue;
+			}
+
+			StatsAggregate.Subtree s = key[p];
+			long sz = size[i];
+			long[] e = ext.computeIfAbsent(s, k -> new HashMap<>()).computeIfAbsent(extId[i], k -> new long[2]);
+			e[0]++;
+			e[1] += sz;
+
+			if (sz <= floor || (hn == hk.length && sz <= hk[0]))
+				continue;
+			if (hn < hk.length) {
+				hk[hn] = sz;
+				hid[hn] = i;
+				siftUp(hk, hid, hn++);
+			} else {
+				hk[0] = sz;
+				hid[0] = i;
+				siftDown(hk, hid, hn);
+			}
+		}
+
+		for (Map.Entry<StatsAggregate.Subtree, Map<Integer, long[]>> s : ext.entrySet()) {
+			for (Map.Entry<Integer, long[]> e : s.getValue().entrySet())
+				s.getKey().addFiles(extNames.get(e.getKey()), e.getValue()[0], e.getValue()[1]);
+		}
+		for (int j = 0; j < hn; j++)
+			agg.offerLargest(new MetadataQuery.Row(size[hid[j]], mtime[hid[j]], pathOf(hid[j]).toString()));
+	}
+
+	private static void siftUp(long[] k, int[] v, int i) {
+		while (i > 0) {
+			int p = (i - 1) >>> 1;
+			if (k[p] <= k[i])
+				break;
+			swap(k, v, i, p);
+			i = p;
+		}
+	}
+
+	private static void siftDown(long[] k, int[] v, int n) {
+		int i = 0;
+		while (true) {
+			int l = 2 * i + 1;
+			if (l >= n)
+				break;
+			int m = l + 1 < n && k[l + 1] < k[l] ? l + 1 : l;
+			if (k[i] <= k[m])
+				break;
+			swap(k, v, i, m);
+			i = m;
+		}
+	}
+
+	private static void swap(long[] k, int[] v, int a, int b) {
+		long tk = k[a];
+		k[a] = k[b];
+		k[b] = tk;
+		int tv = v[a];
+		v[a] = v[b];
+		v[b] = tv;
+	}
+
+	/** true dacă dir este strămoș al intrării id */
+	private boolean isUnder(int id, int dir) {
+		for (int p = parent[id]; p >= 0; p = parent[p]) {
+			if (p == dir)
+				return true;
+		}
+		return false;
+	}
+
+	/** Id-ul directorului de la calea relativă dată (față de baseDir); -1 dacă lipsește */
+	private int findDirectory(Path rel) {
+		int cur = 0;
+		for (Path part : rel) {
+			String name = part.toString();
+			if (name.isEmpty())
+				continue;
+			int next = -1;
+			for (int c = firstChild[cur]; c >= 0; c = nextSibling[c]) {
+				if (flags[c] == FLAG_DIR && name.equals(decodeName(c))) {
+					next = c;
+					break;
+				}
+			}
+			if (next < 0)
+				return -1;
+			cur = next;
+		}
+		return cur;
+	}
+
+	/** Calculează coloana de extensii pentru toate intrările (o singură dată) */
+	private void ensureExtColumn() {
+		if (extId != null)
+			return;
+		extId = new int[parent.length];
+		for (int i = 0; i < count; i++)
+			extId[i] = computeExtId(i);
+	}
+
+	/**
+	 * Extensia din octeții UTF-8 ai numelui (după ultimul '.', litere mici), ca
+	 * în SearchFilter. Octetul '.' nu apare în secvențele multi-octet UTF-8.
+	 */
+	private int computeExtId(int id) {
+		int len = nameLen[id];
+		byte[] name = new byte[len];
+		readName(nameOff[id], name, len);
+
+		int dot = -1;
+		for (int i = len - 1; i >= 0; i--) {
+			if (name[i] == '.') {
+				dot = i;
+				break;
+			}
+		}
+		if (dot < 0)
+			return 0;
+		String ext = new String(name, dot + 1, len - dot - 1, StandardCharsets.UTF_8).toLowerCase(Locale.ROOT);
+		Integer x = extIds.get(ext);
+		if (x == null) {
+			x = extNames.size();
+			extNames.add(ext);
+			extIds.put(ext, x);
+		}
+		return x;
+	}
+
+	/**
+	 * true dacă intrarea se află sub un director pe care filtrul l-ar tăia (aceeași
+	 * regulă ca în preVisitDirectory, aplicată pe lanțul de părinți).
+	 */
+	synchronized boolean prunedBy(SearchFilter filter, int id) {
+		int[] chain = new int[64];
+		int n = 0;
+		for (int p = parent[id]; p > 0; p = parent[p]) {
+			if (n == chain.length)
+				chain = Arrays.copyOf(chain, n * 2);
+			chain[n++] = p;
+		}
+		/** chain[n-1] este copilul direct al rădăcinii (adâncime 1) */
+		for (int i = n - 1, depth = 1; i >= 0; i--, depth++) {
+			if (filter.pruneDirectory(pathOf(chain[i]), depth, null))
+				return true;
+		}
+		return false;
+	}
+
+	// --------------------------------------------------------- reconciliere
+
+	/**
+	 * Aduce indexul la zi cu disc-ul. Pentru fiecare director se citește doar
+	 * mtime-ul; directoarele neschimbate nu sunt relistate. Întoarce numărul de
+	 * directoare relistate. Se oprește (parțial) dacă cancel devine true.
+	 */
+	int reconcile(BooleanSupplier cancel) {
+		int relisted = 0;
+		int[] stack = new int[256];
+		int sp = 0;
+		stack[sp++] = 0;
+
+		while (sp > 0) {
+			if (cancel.getAsBoolean())
+				break;
+
+			int d = stack[--sp];
+			Path dir;
+			long known;
+			synchronized (this) {
+				if ((flags[d] & FLAG_DELETED) != 0)
+					continue;
+				dir = pathOf(d);
+				known = mtime[d];
+			}
+
+			BasicFileAttributes attrs;
+			try {
+				attrs = Files.readAttributes(dir, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+			} catch (IOException e) {
+				synchronized (this) {
+					if (d != 0)
+						markDeleted(d);
+				}
+				continue;
+			}
+
+			if (!attrs.isDirectory()) {
+				synchronized (this) {
+					if (d != 0)
+						markDeleted(d);
+				}
+				continue;
+			}
+
+			long now = attrs.lastModifiedTime().toMillis();
+			if (now != known) {
+				relist(d, dir, now);
+				relisted++;
+			}
+
+			synchronized (this) {
+				for (int c = firstChild[d]; c >= 0; c = nextSibling[c]) {
+					if (flags[c] == FLAG_DIR) {
+						if (sp == stack.length)
+							stack = Arrays.copyOf(stack, sp * 2);
+						stack[sp++] = c;
+					}
+				}
+			}
+		}
+		return relisted;
+	}
+
+	/** Relistează un director și aplică diferențele față de index */
+	private void relist(int d, Path dir, long dirMtime) {
+		/** I/O în afara lacătului */
+		List<Path> entries = new ArrayList<>();
+		List<BasicFileAttributes> attrs = new ArrayList<>();
+		try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+			for (Path p : ds) {
+				try {
+					attrs.add(Files.readAttributes(p, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS));
+					entries.add(p);
+				} catch (IOException ignored) {
+				}
+			}
+		} catch (IOException | DirectoryIteratorException e) {
+			/** O listare incompletă ar marca intrările lipsă ca șterse: indexul rămâne cum era */
+			return;
+		}
+
+		synchronized (this) {
+			Map<String, Integer> existing = new HashMap<>();
+			for (int c = firstChild[d]; c >= 0; c = nextSibling[c]) {
+				if ((flags[c] & FLAG_DELETED) == 0)
+					existing.put(decodeName(c), c);
+			}
+
+			for (int i = 0; i < entries.size(); i++) {
+				Path p = entries.get(i);
+				BasicFileAttributes a = attrs.get(i);
+				String name = p.getFileName().toString();
+				byte f = a.isDirectory() ? FLAG_DIR : 0;
+
+				Integer old = existing.remove(name);
+				if (old != null && (flags[old] & FLAG_DIR) == f) {
+					if (f == 0) {
+						size[old] = a.size();
+						mtime[old] = a.lastModifiedTime().toMillis();
+					}
+					continue;
+				}
+				if (old != null)
+					markDeleted(old);
+
+				/** Directoarele noi primesc mtime necunoscut, ca să fie listate la rândul lor */
+				long m = f == FLAG_DIR ? Long.MIN_VALUE : a.lastModifiedTime().toMillis();
+				append(d, name.getBytes(StandardCharsets.UTF_8), f, f == 0 ? a.size() : 0, m,
+						NameMatcher.hash(name, 0, name.length()));
+			}
+
+			for (int gone : existing.values())
+				markDeleted(gone);
+
+			mtime[d] = dirMtime;
+			dirty = true;
+		}
+	}
+
+	/** Marchează intrarea și tot subarborele ei ca șterse */
+	private void markDeleted(int id) {
+		if ((flags[id] & FLAG_DELETED) != 0)
+			return;
+		flags[id] |= FLAG_DELETED;
+		deleted++;
+		dirty = true;
+		for (int c = firstChild[id]; c >= 0; c = nextSibling[c])
+			markDeleted(c);
+	}
+
+	private int append(int par, byte[] utf8, byte f, long sz, long mt, long h) {
+		ensureCapacity(count + 1);
+		int id = count++;
+		parent[id] = par;
+		flags[id] = f;
+		size[id] = sz;
+		mtime[id] = mt;
+		hash[id] = h;
+		long off = extraNamesLen;
+		int pos = (int) (off & NAME_SEGMENT_MASK);
+		if (pos + utf8.length > NAME_SEGMENT) {
+			off = ((off >>> NAME_SEGMENT_SHIFT) + 1) << NAME_SEGMENT_SHIFT;
+			pos = 0;
+		}
+		ByteBuffer seg = nameSegment((int) (off >>> NAME_SEGMENT_SHIFT), pos + utf8.length);
+		seg.put(pos, utf8);
+		nameOff[id] = baseNamesLen + off;
+		nameLen[id] = utf8.length;
+		extraNamesLen = off + utf8.length;
+		if (extId != null)
+			extId[id] = computeExtId(id);
+
+		firstChild[id] = -1;
+		nextSibling[id] = -1;
+		if (par >= 0) {
+			nextSibling[id] = firstChild[par];
+			firstChild[par] = id;
+		}
+		return id;
+	}
+
+	private void ensureCapacity(int needed) {
+		if (needed <= parent.length)
+			return;
+		if (needed > MAX_ENTRIES || needed < 0)
+			throw new IllegalStateException("Indexul " + baseDir + " a depășit " + MAX_ENTRIES + " intrări");
+		int cap = (int) Math.min(MAX_ENTRIES, Math.max(needed, parent.length * 2L));
+		parent = Arrays.copyOf(parent, cap);
+		flags = Arrays.copyOf(flags, cap);
+		size = Arrays.copyOf(size, cap);
+		mtime = Arrays.copyOf(mtime, cap);
+		hash = Arrays.copyOf(hash, cap);
+		nameOff = Arrays.copyOf(nameOff, cap);
+		nameLen = Arrays.copyOf(nameLen, cap);
+		firstChild = Arrays.copyOf(firstChild, cap);
+		nextSibling = Arrays.copyOf(nextSibling, cap);
+		if (extId != null)
+			extId = Arrays.copyOf(extId, cap);
+	}
+
+	/**
+	 * Segmentul index al numelor adăugate, cu cel puțin needed octeți: ultimul
+	 * segment crește prin dublare (ca la coloane) până la NAME_SEGMENT.
+	 */
+	private ByteBuffer nameSegment(int index, int needed) {
+		if (needed > NAME_SEGMENT)
+			throw new IllegalStateException("Nume de " + needed + " octeți în indexul " + baseDir);
+		if (index == extraNames.size())
+			extraNames.add(ByteBuffer.allocateDirect(Math.max(4096, needed)));
+		ByteBuffer seg = extraNames.get(index);
+		if (needed > seg.capacity()) {
+			ByteBuffer bigger = ByteBuffer.allocateDirect((int) Math.min(NAME_SEGMENT,
+					Math.max(seg.capacity() * 2L, needed)));
+			bigger.put(0, seg, 0, seg.capacity());
+			extraNames.set(index, bigger);
+			seg = bigger;
+		}
+		return seg;
+	}
+
+	/** Copiază octeții unui nume (din snapshot sau din partea adăugată) în dst */
+	private void readName(long off, byte[] dst, int len) {
+		if (off < baseNamesLen) {
+			baseNames[(int) (off >>> NAME_SEGMENT_SHIFT)].get((int) (off & NAME_SEGMENT_MASK), dst, 0, len);
+		} else {
+			long e = off - baseNamesLen;
+			extraNames.get((int) (e >>> NAME_SEGMENT_SHIFT)).get((int) (e & NAME_SEGMENT_MASK), dst, 0, len);
+		}
+	}
+
+	private String decodeName(int id) {
+		int len = nameLen[id];
+		byte[] tmp = new byte[len];
+		readName(nameOff[id], tmp, len);
+		return new String(tmp, StandardCharsets.UTF_8);
+	}
+
+	private Path pathOf(int id) {
+		if (id == 0)
+			return baseDir;
+		int n = 0;
+		String[] parts = new String[16];
+		for (int p = id; p > 0; p = parent[p]) {
+			if (n == parts.length)
+				parts = Arrays.copyOf(parts, n * 2);
+			parts[n++] = decodeName(p);
+		}
+		Path out = baseDir;
+		for (int i = n - 1; i >= 0; i--)
+			out = out.resolve(parts[i]);
+		return out;
+	}
+
+	// -------------------------------------------------------------- snapshot
+
+	synchronized boolean isDirty() {
+		return dirty;
+	}
+
+	/**
+	 * Scrie snapshot-ul (compactat, fără intrările șterse) atomic: fișier
+	 * temporar + move, în slotul care nu este mapat. Format v2, big-endian:
+	 * magic, versiune, generație, baseDir, n, lungimea blob-ului de nume (long),
+	 * apoi coloanele parent/flags/size/mtime/hash/nameOff (long)/nameLen și
+	 * blob-ul.
+	 */
+	synchronized void save() throws IOException {
+		Path file = snapshotFile(baseDir, mappedSlot == 0 ? 1 : 0);
+		generation++;
+
+		int[] remap = new int[count];
+		int n = 0;
+		long blob = 0;
+		for (int i = 0; i < count; i++) {
+			if ((flags[i] & FLAG_DELETED) != 0) {
+				remap[i] = -1;
+			} else {
+				remap[i] = n++;
+				blob += nameLen[i];
+			}
+		}
+
+		Files.createDirectories(file.getParent());
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (OutputStream os = Files.newOutputStream(tmp);
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 1 << 16))) {
+			byte[] base = baseDir.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8);
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeLong(generation);
+			out.writeInt(base.length);
+			out.write(base);
+			out.writeInt(n);
+			out.writeLong(blob);
+
+			for (int i = 0; i < count; i++)
+				if (remap[i] >= 0)
+					out.writeInt(parent[i] < 0 ? -1 : remap[parent[i]]);
+			for (int i = 0; i < count; i++)
+				if (remap[i] >= 0)
+					out.writeByte(flags[i]);
+			for (int i = 0; i < count; i++)
+				if (remap[i] >= 0)
+					out.writeLong(size[i]);
+			for (int i = 0; i < count; i++)
+				if (remap[i] >= 0)
+					out.writeLong(mtime[i]);
+			for (int i = 0; i < count; i++)
+				if (remap[i] >= 0)
+					out.writeLong(hash[i]);
+			long off = 0;
+			for (int i = 0; i < count; i++) {
+				if (remap[i] >= 0) {
+					out.writeLong(off);
+					off += nameLen[i];
+				}
+			}
+			for (int i = 0; i < count; i++)
+				if (remap[i] >= 0)
+					out.writeInt(nameLen[i]);
+
+			byte[] tmpName = new byte[256];
+			for (int i = 0; i < count; i++) {
+				if (remap[i] < 0)
+					continue;
+				int len = nameLen[i];
+				if (tmpName.length < len)
+					tmpName = new byte[len];
+				readName(nameOff[i], tmpName, len);
+				out.write(tmpName, 0, len);
+			}
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		dirty = false;
+	}
+
+	/**
+	 * Deschide cel mai nou snapshot valid pentru baseDir (din cele două sloturi)
+	 * sau întoarce null dacă nu există.
+	 */
+	static FinderIndex load(Path baseDir) {
+		FinderIndex best = null;
+		for (int slot = 0; slot < 2; slot++) {
+			FinderIndex idx = load(snapshotFile(baseDir, slot), baseDir);
+			if (idx != null && (best == null || idx.generation > best.generation)) {
+				idx.mappedSlot = slot;
+				best = idx;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Deschide un snapshot prin mmap. Coloanele numerice sunt copiate în
+	 * array-uri (memcpy), blob-ul de nume rămâne mapat în segmente de
+	 * NAME_SEGMENT, fiecare cu încă un segment după el. Întoarce null dacă
+	 * fișierul lipsește, are altă versiune sau aparține altui baseDir.
+	 */
+	private static FinderIndex load(Path file, Path baseDir) {
+		if (!Files.isRegularFile(file))
+			return null;
+
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			long fileSize = ch.size();
+			MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(fileSize, HEADER_MAX));
+			if (buf.getInt() != MAGIC || buf.getInt() != FORMAT_VERSION)
+				return null;
+			long gen = buf.getLong();
+
+			byte[] base = new byte[buf.getInt()];
+			buf.get(base);
+			String expected = baseDir.toAbsolutePath().normalize().toString();
+			if (!expected.equals(new String(base, StandardCharsets.UTF_8)))
+				return null;
+
+			int n = buf.getInt();
+			long blob = buf.getLong();
+
+			if (n < 0 || n > MAX_ENTRIES || blob < 0)
+				return null;
+
+			FinderIndex idx = new FinderIndex(baseDir, (int) Math.min(MAX_ENTRIES, n + n / 4L));
+			long pos = buf.position();
+			if (pos + (long) n * COLUMN_BYTES + blob > fileSize)
+				return null;
+			pos = readColumn(ch, pos, n, 4, (b, off, len) -> b.asIntBuffer().get(idx.parent, off, len));
+			pos = readColumn(ch, pos, n, 1, (b, off, len) -> b.get(idx.flags, off, len));
+			pos = readColumn(ch, pos, n, 8, (b, off, len) -> b.asLongBuffer().get(idx.size, off, len));
+			pos = readColumn(ch, pos, n, 8, (b, off, len) -> b.asLongBuffer().get(idx.mtime, off, len));
+			pos = readColumn(ch, pos, n, 8, (b, off, len) -> b.asLongBuffer().get(idx.hash, off, len));
+			pos = readColumn(ch, pos, n, 8, (b, off, len) -> b.asLongBuffer().get(idx.nameOff, off, len));
+			pos = readColumn(ch, pos, n, 4, (b, off, len) -> b.asIntBuffer().get(idx.nameLen, off, len));
+
+			idx.baseNames = new ByteBuffer[(int) ((blob + NAME_SEGMENT - 1) >>> NAME_SEGMENT_SHIFT)];
+			for (int i = 0; i < idx.baseNames.length; i++) {
+				long start = (long) i << NAME_SEGMENT_SHIFT;
+				idx.baseNames[i] = ch.map(FileChannel.MapMode.READ_ONLY, pos + start,
+						Math.min(blob - start, 2L * NAME_SEGMENT));
+			}
+			idx.baseNamesLen = blob;
+			idx.count = n;
+			idx.generation = gen;
+
+			Arrays.fill(idx.firstChild, 0, n, -1);
+			Arrays.fill(idx.nextSibling, 0, n, -1);
+			for (int i = n - 1; i > 0; i--) {
+				int p = idx.parent[i];
+				idx.nextSibling[i] = idx.firstChild[p];
+				idx.firstChild[p] = i;
+			}
+			return idx;
+		} catch (IOException | RuntimeException e) {
+			System.out.println("Snapshot invalid (" + file + "): " + e.getMessage());
+			return null;
+		}
+	}
+
+	/** Copiază len valori dintr-o bucată mapată a unei coloane în array, de la off */
+	private interface ColumnChunk {
+		void copy(ByteBuffer chunk, int off, int len);
+	}
+
+	/**
+	 * Citește o coloană de n valori a câte width octeți care începe la pos, în
+	 * bucăți mapate de cel mult NAME_SEGMENT octeți (o singură mapare e
+	 * limitată la 2 GiB). Întoarce poziția de după coloană.
+	 */
+	private static long readColumn(FileChannel ch, long pos, int n, int width, ColumnChunk dst) throws IOException {
+		int perChunk = NAME_SEGMENT / width;
+		for (int done = 0; done < n;) {
+			int len = Math.min(n - done, perChunk);
+			dst.copy(ch.map(FileChannel.MapMode.READ_ONLY, pos + (long) done * width, (long) len * width), done, len);
+			done += len;
+		}
+		return pos + (long) n * width;
+	}
+}
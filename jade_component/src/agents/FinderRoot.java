@@ -0,0 +1,82 @@
+package agents;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Un director gestionat de un FinderAgent, cu starea lui: indexul, indexul de
+ * trigrame, istoricul de hit-uri și dispozitivul din IoScheduler. Un finder
+ * are de obicei o singură rădăcină; în modul consolidat (ControllerAgent,
+ * -Dfinder.consolidate) are mai multe și le servește pe rând, fără câte un
+ * agent (thread, mailbox, înregistrare DF) pentru fiecare director.
+ */
+final class FinderRoot {
+
+	final Path dir;
+
+	/** Dispozitivul lui dir în planificatorul de I/O comun */
+	final IoScheduler.Device device;
+
+	/** Directoarele care au produs hit-uri; sunt parcurse primele */
+	final HitHistory hitHistory;
+
+	/** Indexul subarborelui (null până la încărcare/prima construire) */
+	volatile FinderIndex index = null;
+
+	/** true după prima reconciliere completă: un nume lipsă din index chiar lipsește */
+	volatile boolean indexFresh = false;
+
+	/** Indexul de trigrame peste numele din index (null până la prima construire) */
+	volatile TrigramIndex trigrams = null;
+
+	/** Serializează reconcilierile (periodică și cea cerută de o căutare) */
+	private final ReentrantLock reconcileLock = new ReentrantLock();
+
+	/** Momentul (System.nanoTime) ultimei reconcilieri terminate, 0 = niciuna */
+	private volatile long reconciledAt = 0;
+
+	FinderRoot(Path dir) {
+		this.dir = dir;
+		this.device = IoScheduler.get().device(dir);
+		this.hitHistory = HitHistory.load(HitHistory.historyFile(dir), dir);
+	}
+
+	/** true dacă indexul e încărcat și reconciliat (poate răspunde fără parcurgere) */
+	boolean ready() {
+		return index != null && indexFresh;
+	}
+
+	/** Reconciliază indexul cu disc-ul (o singură reconciliere odată) */
+	int reconcile(BooleanSupplier cancel) {
+		reconcileLock.lock();
+		try {
+			int r = index.reconcile(cancel);
+			if (!cancel.getAsBoolean())
+				reconciledAt = System.nanoTime();
+			return r;
+		} finally {
+			reconcileLock.unlock();
+		}
+	}
+
+	/** true dacă ultima reconciliere s-a terminat acum cel mult ms milisecunde */
+	boolean reconciledWithin(long ms) {
+		long at = reconciledAt;
+		return at != 0 && System.nanoTime() - at < ms * 1_000_000L;
+	}
+
+	/** Adâncimea lui dir sub rădăcina căutării (0 dacă root e null sau nu îl conține) */
+	int depthUnder(String root) {
+		if (root == null)
+			return 0;
+		Path r = Paths.get(root);
+		return dir.startsWith(r) ? r.relativize(dir).getNameCount() : 0;
+	}
+
+	@Override
+	public String toString() {
+		return dir.toString();
+	}
+}
@@ -0,0 +1,148 @@
+package agents;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Istoricul directoarelor în care un Finder a găsit fișiere. Fiecare hit
+ * adaugă 1 la scorul directorului în care a fost găsit fișierul (strămoșii
+ * nu primesc nimic). OrderedTreeWalker vizitează întâi directoarele cu
+ * scorul cel mai mare, apoi parcurge restul arborelui în ordinea numelor.
+ * Scorurile scad exponențial în timp (timp de înjumătățire configurabil),
+ * așa că directoarele folosite recent sunt vizitate primele.
+ */
+final class HitHistory {
+
+	/** Timpul de înjumătățire al scorului (implicit 7 zile) */
+	static final long HALF_LIFE_MS = Long.getLong("finder.hitHalfLifeMs", 7L * 24 * 3_600_000L);
+
+	/** Numărul maxim de directoare reținute (cele cu scor mic se elimină) */
+	private static final int MAX_ENTRIES = 10_000;
+
+	private static final class Entry {
+		double score;
+		long updated;
+	}
+
+	private final Path baseDir;
+	private final Map<String, Entry> scores = new HashMap<>();
+	private boolean dirty = false;
+
+	HitHistory(Path baseDir) {
+		this.baseDir = baseDir;
+	}
+
+	/** Fișierul de istoric, lângă snapshot-ul indexului */
+	static Path historyFile(Path baseDir) {
+		Path snap = FinderIndex.snapshotFile(baseDir, 0);
+		String name = snap.getFileName().toString();
+		return snap.resolveSibling(name.substring(0, name.indexOf('.')) + ".hits");
+	}
+
+	/** Înregistrează un hit în directorul dat */
+	synchronized void recordHit(Path dir) {
+		if (dir == null || !dir.startsWith(baseDir))
+			return;
+		long now = System.currentTimeMillis();
+		Entry e = scores.computeIfAbsent(dir.toString(), k -> new Entry());
+		e.score = decayed(e, now) + 1.0;
+		e.updated = now;
+		dirty = true;
+		if (scores.size() > MAX_ENTRIES)
+			trim(now);
+	}
+
+	/** Directoarele cu hit-uri, în ordinea descrescătoare a scorului */
+	synchronized List<Path> hotDirectories(int limit) {
+		long now = System.currentTimeMillis();
+		List<Map.Entry<String, Entry>> hot = new ArrayList<>(scores.entrySet());
+		hot.sort((a, b) -> Double.compare(decayed(b.getValue(), now), decayed(a.getValue(), now)));
+
+		List<Path> out = new ArrayList<>();
+		for (int i = 0; i < hot.size() && i < limit; i++)
+			out.add(Paths.get(hot.get(i).getKey()));
+		return out;
+	}
+
+	synchronized boolean isEmpty() {
+		return scores.isEmpty();
+	}
+
+	private static double decayed(Entry e, long now) {
+		if (e.updated == 0)
+			return e.score;
+		return e.score * Math.pow(0.5, (double) (now - e.updated) / HALF_LIFE_MS);
+	}
+
+	/** Păstrează jumătatea cu scorurile cele mai mari */
+	private void trim(long now) {
+		double[] all = new double[scores.size()];
+		int i = 0;
+		for (Entry e : scores.values())
+			all[i++] = decayed(e, now);
+		Arrays.sort(all);
+		double cut = all[all.length / 2];
+		scores.values().removeIf(e -> decayed(e, now) < cut);
+	}
+
+	// -------------------------------------------------------------- persistență
+
+	synchronized boolean isDirty() {
+		return dirty;
+	}
+
+	/** Salvează ca text: scor, ultima actualizare, cale (separate prin tab) */
+	synchronized void save(Path file) throws IOException {
+		Files.createDirectories(file.getParent());
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+			for (Map.Entry<String, Entry> e : scores.entrySet()) {
+				w.write(e.getValue().score + "\t" + e.getValue().updated + "\t" + e.getKey());
+				w.newLine();
+			}
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		dirty = false;
+	}
+
+	/**
+	 * Încarcă istoricul salvat (lipsă sau corupt = istoric gol). Formatul vechi
+	 * avea și coloana hit direct (0/1) înaintea căii; strămoșii (0) sunt săriți.
+	 */
+	static HitHistory load(Path file, Path baseDir) {
+		HitHistory h = new HitHistory(baseDir);
+		if (!Files.isRegularFile(file))
+			return h;
+		try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = r.readLine()) != null) {
+				String[] parts = line.split("\t", 3);
+				if (parts.length != 3)
+					continue;
+				String path = parts[2];
+				if (path.startsWith("0\t"))
+					continue;
+				if (path.startsWith("1\t"))
+					path = path.substring(2);
+				Entry e = new Entry();
+				e.score = Double.parseDouble(parts[0]);
+				e.updated = Long.parseLong(parts[1]);
+				h.scores.put(path, e);
+			}
+		} catch (IOException | RuntimeException e) {
+			System.out.println("Istoric invalid (" + file + "): " + e.getMessage());
+		}
+		return h;
+	}
+}
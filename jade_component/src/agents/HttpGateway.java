@@ -0,0 +1,317 @@
+package agents;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gateway HTTP local (JDK HttpServer) în fața lui SearcherAgent, pentru
+ * serviciile care nu folosesc fereastra Swing. Fiecare cerere devine o
+ * SearchCommand pusă în coada O2A, iar răspunsul vine din SearchCommand.result.
+ * Pornește doar cu -Dgateway.port (implicit ascultă pe 127.0.0.1).
+ *
+ * <pre>
+ * GET /search?name=a.txt[&amp;filter=...][&amp;timeoutMs=...]   un obiect JSON
+ * GET /analyze?name=a.txt                               ca /search, cu analiză AI
+ * GET /fuzzy?name=..., /ranked?name=..., /query?q=...   NDJSON (chunked)
+ * GET /metrics                                          contoarele Metrics, JSON
+ * </pre>
+ *
+ * Răspunsurile cu mai multe rânduri sunt trimise chunked, ca NDJSON: o linie
+ * de antet (status, convId, count, message), apoi câte o linie pe rând, fără
+ * să construiască tot documentul în memorie. Scrierea începe abia după
+ * SearchCommand.result: rândurile sunt îmbinate și ordonate peste toți
+ * finderii, deci nu pot fi trimise pe măsură ce răspunde fiecare finder.
+ *
+ * SearcherAgent rulează o singură căutare odată, iar o căutare nouă o
+ * înlocuiește pe cea în curs; de aceea gateway-ul trimite căutările pe rând
+ * (în ordinea sosirii), iar cererile în plus așteaptă cel mult timeout-ul lor.
+ * Peste -Dgateway.maxInFlight cereri simultane răspunde imediat 503.
+ */
+final class HttpGateway {
+
+	/** Cereri acceptate simultan (în așteptare + în execuție) */
+	private static final int MAX_IN_FLIGHT = Integer.getInteger("gateway.maxInFlight", 64);
+
+	/** Timeout-ul implicit și maxim al unei cereri (ms) */
+	private static final long DEFAULT_TIMEOUT_MS = Long.getLong("gateway.timeoutMs", 30_000L);
+	private static final long MAX_TIMEOUT_MS = 300_000L;
+
+	/** Câte rânduri NDJSON între două flush-uri */
+	private static final int FLUSH_EVERY = 64;
+
+	private final SearcherAgent agent;
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	private final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+
+	/** O singură căutare trimisă agentului odată (fair = ordinea sosirii) */
+	private final Semaphore searchSlot = new Semaphore(1, true);
+
+	private HttpGateway(SearcherAgent agent, HttpServer server, ExecutorService executor) {
+		this.agent = agent;
+		this.server = server;
+		this.executor = executor;
+	}
+
+	/** Pornește gateway-ul pe host:port */
+	static HttpGateway start(SearcherAgent agent, String host, int port) throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress(host, port), 0);
+		ExecutorService executor = newExecutor();
+		HttpGateway g = new HttpGateway(agent, server, executor);
+		server.createContext("/search", ex -> g.handle(ex, Endpoint.SEARCH));
+		server.createContext("/analyze", ex -> g.handle(ex, Endpoint.ANALYZE));
+		server.createContext("/fuzzy", ex -> g.handle(ex, Endpoint.FUZZY));
+		server.createContext("/ranked", ex -> g.handle(ex, Endpoint.RANKED));
+		server.createContext("/query", ex -> g.handle(ex, Endpoint.QUERY));
+		server.createContext("/metrics", ex -> g.handle(ex, Endpoint.METRICS));
+		server.setExecutor(executor);
+		server.start();
+		return g;
+	}
+
+	/** Oprește serverul (cererile în curs primesc cel mult o secundă) */
+	void stop() {
+		server.stop(1);
+		executor.shutdownNow();
+	}
+
+	private enum Endpoint {
+		SEARCH, ANALYZE, FUZZY, RANKED, QUERY, METRICS
+	}
+
+	/**
+	 * Thread-uri virtuale dacă JVM-ul le are (Java 21+); altfel un pool de
+	 * thread-uri daemon cât MAX_IN_FLIGHT (handler-ele doar așteaptă rezultatul).
+	 */
+	private static ExecutorService newExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			AtomicInteger n = new AtomicInteger();
+			return Executors.newFixedThreadPool(MAX_IN_FLIGHT + 2, r -> {
+				Thread t = new Thread(r, "gateway-" + n.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+		}
+	}
+
+	private void handle(HttpExchange ex, Endpoint endpoint) throws IOException {
+		try {
+			if (!"GET".equals(ex.getRequestMethod())) {
+				sendJson(ex, 405, "{\"error\":\"doar GET\"}");
+				return;
+			}
+			if (!inFlight.tryAcquire()) {
+				Metrics.inc("gateway.rejected");
+				ex.getResponseHeaders().set("Retry-After", "1");
+				sendJson(ex, 503, "{\"error\":\"prea multe cereri\"}");
+				return;
+			}
+			try {
+				Metrics.inc("gateway.requests");
+				Map<String, String> params;
+				try {
+					params = parseQuery(ex.getRequestURI().getRawQuery());
+				} catch (IllegalArgumentException e) {
+					sendJson(ex, 400, "{\"error\":\"query string invalid\"}");
+					return;
+				}
+				serve(ex, endpoint, params);
+			} finally {
+				inFlight.release();
+			}
+		} finally {
+			ex.close();
+		}
+	}
+
+	private void serve(HttpExchange ex, Endpoint endpoint, Map<String, String> params) throws IOException {
+		if (endpoint == Endpoint.METRICS) {
+			StringBuilder sb = new StringBuilder("{");
+			for (Map.Entry<String, Long> e : Metrics.snapshot().entrySet()) {
+				if (sb.length() > 1)
+					sb.append(',');
+				quote(sb, e.getKey()).append(':').append(e.getValue());
+			}
+			sendJson(ex, 200, sb.append('}').toString());
+			return;
+		}
+
+		String name = params.getOrDefault("name", "");
+		String filter = params.get("filter");
+		SearchCommand cmd;
+		switch (endpoint) {
+		case SEARCH:
+			cmd = SearchCommand.search(name, false, "1".equals(params.get("ai")), filter);
+			break;
+		case ANALYZE:
+			cmd = SearchCommand.search(name, false, true, filter);
+			break;
+		case FUZZY:
+			cmd = SearchCommand.fuzzySearch(name, false, filter);
+			break;
+		case RANKED:
+			cmd = SearchCommand.rankedSearch(name, false, filter);
+			break;
+		default:
+			cmd = SearchCommand.query(params.getOrDefault("q", ""), false, filter);
+			break;
+		}
+
+		long timeoutMs = DEFAULT_TIMEOUT_MS;
+		try {
+			if (params.containsKey("timeoutMs"))
+				timeoutMs = Math.max(1, Math.min(MAX_TIMEOUT_MS, Long.parseLong(params.get("timeoutMs"))));
+		} catch (NumberFormatException e) {
+			sendJson(ex, 400, "{\"error\":\"timeoutMs invalid\"}");
+			return;
+		}
+
+		long t0 = System.nanoTime();
+		SearchResult r;
+		try {
+			r = run(cmd, timeoutMs);
+		} catch (TimeoutException e) {
+			Metrics.inc("gateway.timeouts");
+			sendJson(ex, 504, "{\"error\":\"timeout după " + timeoutMs + " ms\"}");
+			return;
+		}
+		Metrics.add("gateway.micros", (System.nanoTime() - t0) / 1_000);
+
+		int code = r.status == SearchResult.Status.ERROR ? 400
+				: r.status == SearchResult.Status.SUPERSEDED ? 409 : 200;
+		if (endpoint == Endpoint.SEARCH || endpoint == Endpoint.ANALYZE) {
+			StringBuilder sb = header(r);
+			sb.setLength(sb.length() - 1);
+			sb.append(",\"rows\":[");
+			for (int i = 0; i < r.rows.size(); i++) {
+				if (i > 0)
+					sb.append(',');
+				row(sb, r.rows.get(i));
+			}
+			sendJson(ex, code, sb.append("]}").toString());
+		} else {
+			streamRows(ex, code, r);
+		}
+	}
+
+	/**
+	 * Trimite comanda agentului după ce căutarea anterioară a gateway-ului s-a
+	 * terminat; tot timpul de așteptare intră în timeout.
+	 */
+	private SearchResult run(SearchCommand cmd, long timeoutMs) throws TimeoutException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+		try {
+			if (!searchSlot.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS))
+				throw new TimeoutException();
+			try {
+				agent.submit(cmd);
+				return cmd.result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+			} finally {
+				searchSlot.release();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return SearchResult.error("Întrerupt");
+		} catch (ExecutionException e) {
+			return SearchResult.error(String.valueOf(e.getCause()));
+		}
+	}
+
+	/** NDJSON chunked: linia de antet, apoi un rând pe linie (după rezultatul complet) */
+	private static void streamRows(HttpExchange ex, int code, SearchResult r) throws IOException {
+		ex.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+		ex.sendResponseHeaders(code, 0);
+		try (Writer w = new OutputStreamWriter(ex.getResponseBody(), StandardCharsets.UTF_8)) {
+			w.write(header(r).append('\n').toString());
+			w.flush();
+			StringBuilder sb = new StringBuilder();
+			int n = 0;
+			for (MetadataQuery.Row row : r.rows) {
+				sb.setLength(0);
+				w.write(row(sb, row).append('\n').toString());
+				if (++n % FLUSH_EVERY == 0)
+					w.flush();
+			}
+		}
+	}
+
+	private static StringBuilder header(SearchResult r) {
+		StringBuilder sb = new StringBuilder("{\"status\":");
+		quote(sb, r.status.name()).append(",\"convId\":");
+		if (r.convId == null)
+			sb.append("null");
+		else
+			quote(sb, r.convId);
+		sb.append(",\"count\":").append(r.rows.size()).append(",\"message\":");
+		if (r.message == null)
+			sb.append("null");
+		else
+			quote(sb, r.message);
+		return sb.append('}');
+	}
+
+	private static StringBuilder row(StringBuilder sb, MetadataQuery.Row r) {
+		sb.append("{\"size\":").append(r.size).append(",\"mtime\":").append(r.mtime).append(",\"path\":");
+		return quote(sb, r.path).append('}');
+	}
+
+	/** Șir JSON (ghilimele, backslash și caracterele de control escapate) */
+	private static StringBuilder quote(StringBuilder sb, String s) {
+		sb.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\')
+				sb.append('\\').append(c);
+			else if (c == '\n')
+				sb.append("\\n");
+			else if (c < 0x20)
+				sb.append(String.format("\\u%04x", (int) c));
+			else
+				sb.append(c);
+		}
+		return sb.append('"');
+	}
+
+	private static void sendJson(HttpExchange ex, int code, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		ex.sendResponseHeaders(code, bytes.length);
+		try (OutputStream os = ex.getResponseBody()) {
+			os.write(bytes);
+		}
+	}
+
+	/** Parametrii din query string; IllegalArgumentException la o secvență %xx invalidă */
+	private static Map<String, String> parseQuery(String raw) {
+		Map<String, String> out = new HashMap<>();
+		if (raw == null || raw.isEmpty())
+			return out;
+		for (String kv : raw.split("&")) {
+			int eq = kv.indexOf('=');
+			String k = eq < 0 ? kv : kv.substring(0, eq);
+			String v = eq < 0 ? "" : kv.substring(eq + 1);
+			out.put(URLDecoder.decode(k, StandardCharsets.UTF_8), URLDecoder.decode(v, StandardCharsets.UTF_8));
+		}
+		return out;
+	}
+}
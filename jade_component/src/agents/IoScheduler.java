@@ -0,0 +1,192 @@
+package agents;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Planificatorul de I/O al containerului: toate parcurgerile și reconcilierile
+ * finderilor din același JVM rulează pe un singur pool mărginit, iar pentru
+ * fiecare dispozitiv (FileStore-ul lui baseDir) doar un număr limitat rulează
+ * simultan; restul așteaptă într-o coadă a dispozitivului. Limita se adaptează
+ * după latența observată a operațiilor de director (AIMD): crește cât timp
+ * latența rămâne aproape de minimul văzut și coada e plină, scade când
+ * latența urcă peste TOLERANCE × minim (discul e suprasolicitat).
+ *
+ * Proprietăți: -Dio.threads (pool-ul comun), -Dio.maxPerDevice (plafonul
+ * limitei), -Dio.initialPerDevice (limita de pornire).
+ */
+final class IoScheduler {
+
+	/** Pool-ul comun: nu un thread pe căutare, ci atâtea câte are sens */
+	private static final int THREADS = Integer.getInteger("io.threads",
+			Math.max(4, 2 * Runtime.getRuntime().availableProcessors()));
+
+	private static final int MAX_PER_DEVICE = Integer.getInteger("io.maxPerDevice", 16);
+	private static final int INITIAL_PER_DEVICE = Integer.getInteger("io.initialPerDevice", 4);
+
+	/** Latența medie peste TOLERANCE × minim înseamnă suprasolicitare */
+	private static final double TOLERANCE = 2.0;
+
+	/** Sub acest prag (ns) operațiile vin din cache-ul de pagini; nu spun nimic despre disc */
+	private static final long CACHED_NANOS = 20_000;
+
+	/** Câte eșantioane între două ajustări ale limitei */
+	private static final int ADJUST_EVERY = 32;
+
+	/** Minimul e relaxat periodic, ca un minim vechi (cache cald) să nu blocheze limita jos */
+	private static final int MIN_DECAY_EVERY = 4096;
+
+	private static final IoScheduler INSTANCE = new IoScheduler();
+
+	/** Un dispozitiv (FileStore) cu limita, coada și statisticile lui */
+	static final class Device {
+		final String name;
+		private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+		private int limit = Math.min(INITIAL_PER_DEVICE, MAX_PER_DEVICE);
+		private int running = 0;
+
+		/** Latența pe operație (ns): medie exponențială și minimul observat */
+		private double ewma = 0;
+		private double min = 0;
+		private long samples = 0;
+
+		private Device(String name) {
+			this.name = name;
+		}
+
+		/** Latența medie a unei operații de director (listare + lstat), în ns */
+		synchronized void record(long nanos) {
+			if (nanos <= 0)
+				return;
+			ewma = ewma == 0 ? nanos : ewma * 0.9 + nanos * 0.1;
+			if (min == 0 || nanos < min)
+				min = nanos;
+			samples++;
+			if (samples % MIN_DECAY_EVERY == 0)
+				min *= 1.5;
+			if (samples % ADJUST_EVERY == 0)
+				adjust();
+		}
+
+		/** AIMD pe limita de parcurgeri simultane; apelat sub lacătul dispozitivului */
+		private void adjust() {
+			int before = limit;
+			if (ewma > Math.max(TOLERANCE * min, CACHED_NANOS) && limit > 1)
+				limit = Math.max(1, (int) (limit * 0.75));
+			else if (running >= limit && !queue.isEmpty() && limit < MAX_PER_DEVICE)
+				limit++;
+			if (limit != before) {
+				Metrics.inc(limit < before ? "io.limit.decreases" : "io.limit.increases");
+				drain();
+			}
+		}
+
+		synchronized int limit() {
+			return limit;
+		}
+
+		@Override
+		public synchronized String toString() {
+			return String.format("%s [limită %d, rulează %d, în coadă %d, latență %.0f µs (min %.0f µs)]", name, limit,
+					running, queue.size(), ewma / 1000, min / 1000);
+		}
+
+		private void enqueue(Runnable task, boolean urgent) {
+			synchronized (this) {
+				if (urgent)
+					queue.addFirst(task);
+				else
+					queue.addLast(task);
+				Metrics.max("io.queue.maxDepth", queue.size());
+				drain();
+			}
+		}
+
+		/** Pornește din coadă cât permite limita; apelat sub lacătul dispozitivului */
+		private void drain() {
+			while (running < limit && !queue.isEmpty()) {
+				Runnable task = queue.pollFirst();
+				running++;
+				INSTANCE.pool.execute(() -> {
+					try {
+						task.run();
+					} catch (RuntimeException e) {
+						e.printStackTrace();
+					} finally {
+						/** Un interrupt de anulare nu trebuie să ajungă la următorul task */
+						Thread.interrupted();
+						synchronized (this) {
+							running--;
+							drain();
+						}
+					}
+				});
+			}
+		}
+	}
+
+	private final ExecutorService pool;
+
+	/** baseDir -> dispozitiv și numele FileStore-ului -> dispozitiv */
+	private final Map<Path, Device> byDir = new ConcurrentHashMap<>();
+	private final Map<String, Device> byStore = new ConcurrentHashMap<>();
+
+	private IoScheduler() {
+		AtomicInteger n = new AtomicInteger();
+		ThreadPoolExecutor p = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), r -> {
+					Thread t = new Thread(r, "io-" + n.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+		p.allowCoreThreadTimeOut(true);
+		pool = p;
+	}
+
+	static IoScheduler get() {
+		return INSTANCE;
+	}
+
+	/** Dispozitivul pe care se află dir (FileStore-ul lui; "?" dacă nu poate fi aflat) */
+	Device device(Path dir) {
+		return byDir.computeIfAbsent(dir.toAbsolutePath().normalize(), d -> {
+			String key;
+			try {
+				FileStore fs = Files.getFileStore(d);
+				key = fs.name() + " (" + fs.type() + ")";
+			} catch (IOException e) {
+				key = "?";
+			}
+			return byStore.computeIfAbsent(key, k -> {
+				System.out.println("[io] dispozitiv nou: " + k);
+				return new Device(k);
+			});
+		});
+	}
+
+	/**
+	 * Rulează task pe pool-ul comun când dispozitivul lui baseDir are loc.
+	 * urgent = pus în fața cozii (căutări scurte, servite din index).
+	 */
+	void submit(Path baseDir, Runnable task, boolean urgent) {
+		device(baseDir).enqueue(task, urgent);
+	}
+
+	/** Starea tuturor dispozitivelor, pentru log */
+	String describe() {
+		StringBuilder sb = new StringBuilder();
+		for (Device d : byStore.values())
+			sb.append(sb.length() == 0 ? "" : "; ").append(d);
+		return sb.toString();
+	}
+}
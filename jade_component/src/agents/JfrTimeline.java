@@ -0,0 +1,97 @@
+package agents;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Transformă o înregistrare JFR într-o cronologie pe căutare: evenimentele
+ * agents.Stage și agents.Delivery (vezi Trace) sunt grupate după convId și
+ * afișate în ordinea începerii, cu offset-ul față de primul eveniment al
+ * căutării, durata, agentul și etapa.
+ *
+ * Rulare: java -cp bin agents.JfrTimeline &lt;recording.jfr&gt; [convId]
+ */
+public final class JfrTimeline {
+
+	private JfrTimeline() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Utilizare: JfrTimeline <recording.jfr> [convId]");
+			return;
+		}
+		Path file = Paths.get(args[0]);
+		String only = args.length > 1 ? args[1] : null;
+
+		/** convId -> evenimente, în ordinea primei apariții */
+		Map<String, List<RecordedEvent>> byConv = new LinkedHashMap<>();
+		for (RecordedEvent e : RecordingFile.readAllEvents(file)) {
+			String type = e.getEventType().getName();
+			if (!type.equals("agents.Stage") && !type.equals("agents.Delivery"))
+				continue;
+			String conv = e.getString("convId");
+			if (conv == null || "-".equals(conv) || (only != null && !only.equals(conv)))
+				continue;
+			byConv.computeIfAbsent(conv, k -> new ArrayList<>()).add(e);
+		}
+
+		if (byConv.isEmpty()) {
+			System.out.println("Niciun eveniment agents.* cu convId în " + file);
+			return;
+		}
+
+		for (Map.Entry<String, List<RecordedEvent>> conv : byConv.entrySet())
+			print(conv.getKey(), conv.getValue());
+	}
+
+	private static void print(String convId, List<RecordedEvent> events) {
+		events.sort((a, b) -> startOf(a).compareTo(startOf(b)));
+		Instant t0 = startOf(events.get(0));
+		Instant tEnd = t0;
+		for (RecordedEvent e : events) {
+			if (e.getEndTime().isAfter(tEnd))
+				tEnd = e.getEndTime();
+		}
+
+		System.out.printf("=== %s  (%.1f ms) ===%n", convId, ms(Duration.between(t0, tEnd)));
+		System.out.printf("%10s %10s  %-22s %-18s %s%n", "start ms", "durată ms", "agent", "etapă", "detalii");
+		for (RecordedEvent e : events) {
+			double start = ms(Duration.between(t0, startOf(e)));
+			if (e.getEventType().getName().equals("agents.Delivery")) {
+				long delay = e.getLong("delayMillis");
+				System.out.printf("%10.1f %10s  %-22s %-18s %s <- %s%n", start, delay < 0 ? "?" : Long.toString(delay),
+						e.getString("receiver"), "deliver", e.getString("command"), e.getString("sender"));
+			} else {
+				String detail = e.getString("detail");
+				System.out.printf("%10.1f %10.1f  %-22s %-18s %s%n", start, ms(e.getDuration()), e.getString("agent"),
+						e.getString("stage"), detail == null ? "" : detail);
+			}
+		}
+		System.out.println();
+	}
+
+	/** Livrările sunt instantanee la preluare; le plasăm la momentul trimiterii */
+	private static Instant startOf(RecordedEvent e) {
+		if (e.getEventType().getName().equals("agents.Delivery")) {
+			long delay = e.getLong("delayMillis");
+			if (delay > 0)
+				return e.getStartTime().minusMillis(delay);
+		}
+		return e.getStartTime();
+	}
+
+	private static double ms(Duration d) {
+		return d.toNanos() / 1_000_000.0;
+	}
+}
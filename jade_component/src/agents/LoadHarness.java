@@ -0,0 +1,686 @@
+package agents;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import jade.core.Agent;
+import jade.core.Profile;
+import jade.core.ProfileImpl;
+import jade.domain.DFService;
+import jade.domain.FIPAException;
+import jade.domain.FIPAAgentManagement.DFAgentDescription;
+import jade.domain.FIPAAgentManagement.SearchConstraints;
+import jade.domain.FIPAAgentManagement.ServiceDescription;
+import jade.wrapper.AgentController;
+import jade.wrapper.ContainerController;
+
+/**
+ * Test de încărcare cap-coadă: generează (o singură dată) un arbore sintetic,
+ * pornește o platformă JADE în proces, fără GUI, cu SearcherAgent în modul
+ * "headless", pornește finderii și trimite un amestec configurabil de comenzi
+ * prin canalul O2A, exact ca interfața grafică. La final afișează p50/p99/p999
+ * pe tip de comandă, comenzi/s și timpul CPU consumat de fiecare grup de
+ * agenți, și adaugă o linie într-un CSV ca versiunile să poată fi comparate.
+ *
+ * Latența se măsoară de la momentul planificat al comenzii (ritmul --rate),
+ * nu de la trimiterea efectivă: dacă o comandă întârzie, cele care așteaptă
+ * după ea își văd și ele întârzierea.
+ *
+ * Rulare:
+ *
+ * <pre>
+ * java -cp "bin;.\jade.jar" agents.LoadHarness --tree C:\tmp\load --queries 500 --rate 20
+ *      --mix hit=70,miss=20,fuzzy=5,query=5[,ranked=10][,prefix=20][,stats=1] [--ai] [--out load.csv] [--label v2]
+ *      [--consolidate 8] [--background 3 --bg-quota 2 --weight 4] [--fail-finder kill|suspend [--fail-after 50]]
+ * </pre>
+ *
+ * Cu --consolidate N, subdirectoarele sunt servite de cel mult N finderi cu
+ * mai multe rădăcini (-Dfinder.consolidate); pornirea raportează timpul până
+ * la STARTED și până când toți finderii au indexul reconciliat, heap-ul folosit
+ * (după GC) și numărul de thread-uri, ca cele două moduri să poată fi comparate.
+ *
+ * Cu --background N, alți N clienți fără GUI (ponderea 1, plafonul
+ * --bg-quota, implicit fără plafon) trimit căutări în buclă închisă cât timp
+ * se măsoară clientul principal (ponderea --weight, implicit 4), ca un job
+ * batch lângă fereastră; la final sunt afișate metricile fiecărui client
+ * (căutări/s, așteptarea medie în cozile finderilor, timpul de rulare).
+ *
+ * Cu --fail-finder, finderul rădăcinii e oprit (kill) sau suspendat
+ * (suspend) la --fail-after ms după o căutare MISS, imediat după pornire:
+ * indexurile sunt construite de la zero (-Dfinder.indexDir temporar), deci
+ * căutarea parcurge arborele. Se afișează răspunsul căutării (reluată de alt
+ * finder din cursorul ultimului heartbeat) și metricile recovery.* ale
+ * Controller-ului și ale finderului care a reluat-o.
+ *
+ * Cu --ai, căutările găsite trec și prin PythonBridgeAgent; serviciul din
+ * python_service trebuie pornit cu modelul de test (USE_OLLAMA nesetat), ca
+ * timpii să nu depindă de un LLM.
+ */
+public final class LoadHarness {
+
+	/** Tipurile de comenzi din amestec */
+	enum Kind {
+		/** Nume exact existent în arbore */
+		HIT,
+		/** Nume care nu există (toți finderii răspund NOT_FOUND) */
+		MISS,
+		/** Nume existent cu o greșeală de scriere */
+		FUZZY,
+		/** Interogare pe atribute (extensie, dimensiune, glob pe nume) */
+		QUERY,
+		/** Nume existent, toate potrivirile ordonate după scor */
+		RANKED,
+		/** Începutul unui nume existent (sugestiile cât se tastează) */
+		PREFIX,
+		/** Agregate de spațiu pe tot arborele (extensii, cele mai mari fișiere) */
+		STATS
+	}
+
+	/** Cât așteptăm o singură comandă înainte să o considerăm pierdută */
+	private static final long COMMAND_TIMEOUT_MS = 60_000;
+
+	/** Intervalul de eșantionare a timpului CPU pe thread-uri */
+	private static final long CPU_SAMPLE_MS = 250;
+
+	private static final String[] QUERY_EXT = { "log", "txt", "java", "json", "csv" };
+
+	private LoadHarness() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> opt = parseArgs(args);
+		Path tree = Paths.get(opt.getOrDefault("tree", System.getProperty("java.io.tmpdir") + "/jade-load-tree"))
+				.toAbsolutePath().normalize();
+		int queries = Integer.parseInt(opt.getOrDefault("queries", "500"));
+		double rate = Double.parseDouble(opt.getOrDefault("rate", "20"));
+		int warmup = Integer.parseInt(opt.getOrDefault("warmup", "50"));
+		int port = Integer.parseInt(opt.getOrDefault("port", "1199"));
+		boolean ai = opt.containsKey("ai");
+		int background = Integer.parseInt(opt.getOrDefault("background", "0"));
+		int bgQuota = Integer.parseInt(opt.getOrDefault("bg-quota", "0"));
+		int weight = Integer.parseInt(opt.getOrDefault("weight", "4"));
+		String label = opt.getOrDefault("label", "-");
+		String mixSpec = opt.getOrDefault("mix", "hit=70,miss=20,fuzzy=5,query=5");
+		Map<Kind, Integer> mix = parseMix(mixSpec);
+
+		/** Arborele: refolosit dacă există, ca rulările să fie comparabile */
+		List<Path> sample = Files.isDirectory(tree) ? sampleFiles(tree, 2_000)
+				: BenchTreeGenerator.generate(tree, 4, 8, 20, 42L);
+		if (sample.isEmpty()) {
+			System.out.println("Arborele " + tree + " nu conține fișiere.");
+			return;
+		}
+
+		/** Fără log pe fiecare mesaj: consola ar domina timpii */
+		System.setProperty("searcher.quiet", "true");
+		if (opt.containsKey("consolidate"))
+			System.setProperty("finder.consolidate", opt.get("consolidate"));
+		String failMode = opt.get("fail-finder");
+		if (failMode != null)
+			System.setProperty("finder.indexDir", Files.createTempDirectory("jade-load-index").toString());
+
+		jade.core.Runtime rt = jade.core.Runtime.instance();
+		rt.setCloseVM(false);
+		Profile p = new ProfileImpl();
+		p.setParameter(Profile.GUI, "false");
+		p.setParameter(Profile.LOCAL_PORT, Integer.toString(port));
+		p.setParameter("jade_domain_df_maxresult", "10000");
+		ContainerController main = rt.createMainContainer(p);
+		if (main == null) {
+			System.out.println("Nu am putut porni platforma JADE pe portul " + port);
+			return;
+		}
+
+		CpuSampler cpu = new CpuSampler();
+		try {
+			CompletableFuture<Void> ready = new CompletableFuture<>();
+			AgentController searcher = main.createNewAgent("searcher", "agents.SearcherAgent",
+					new Object[] { "headless", ready, weight, 0 });
+			searcher.start();
+			ready.get(COMMAND_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+			long readyBefore = Metrics.get("finder.ready");
+			long s0 = System.nanoTime();
+			SearchResult started = run(searcher, SearchCommand.startFinders(tree.toString()));
+			long startedMs = (System.nanoTime() - s0) / 1_000_000;
+			System.out.println("Start finderi: " + started);
+			if (started.status != SearchResult.Status.STARTED)
+				return;
+			int finders = Integer.parseInt(started.message);
+			if (failMode != null && failFinder(main, searcher, failMode,
+					Integer.parseInt(opt.getOrDefault("fail-after", "50")), sample, new Random(7)))
+				finders--;
+			reportStartup(finders, readyBefore, s0, startedMs);
+
+			/** Clienții batch se alătură acelorași finderi și rulează în fundal */
+			AtomicBoolean stopBackground = new AtomicBoolean(false);
+			List<Thread> batch = new ArrayList<>();
+			for (int b = 0; b < background; b++) {
+				CompletableFuture<Void> bgReady = new CompletableFuture<>();
+				AgentController client = main.createNewAgent("batch" + b, "agents.SearcherAgent",
+						new Object[] { "headless", bgReady, 1, bgQuota });
+				client.start();
+				bgReady.get(COMMAND_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+				SearchResult joined = run(client, SearchCommand.startFinders(tree.toString()));
+				System.out.println("Client batch" + b + ": " + joined);
+				Random bgRnd = new Random(100 + b);
+				Thread t = new Thread(() -> {
+					try {
+						while (!stopBackground.get())
+							run(client, command(Kind.HIT, sample, bgRnd, false));
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
+				}, "load-batch" + b);
+				t.setDaemon(true);
+				t.start();
+				batch.add(t);
+			}
+
+			Random rnd = new Random(11);
+			List<Kind> plan = plan(mix, warmup + queries, rnd);
+
+			/** Încălzire: JIT, cache-ul de pagini, indexurile finderilor */
+			for (int i = 0; i < warmup; i++)
+				run(searcher, command(plan.get(i), sample, rnd, ai));
+
+			cpu.start();
+			Map<Kind, long[]> lat = new EnumMap<>(Kind.class);
+			Map<Kind, Integer> counts = new EnumMap<>(Kind.class);
+			Map<SearchResult.Status, Integer> outcomes = new EnumMap<>(SearchResult.Status.class);
+			for (Kind k : Kind.values()) {
+				lat.put(k, new long[queries]);
+				counts.put(k, 0);
+			}
+
+			long intervalNs = rate > 0 ? (long) (1_000_000_000L / rate) : 0;
+			long t0 = System.nanoTime();
+			for (int i = 0; i < queries; i++) {
+				Kind kind = plan.get(warmup + i);
+				SearchCommand cmd = command(kind, sample, rnd, ai);
+
+				/** --rate 0: buclă închisă, fără ritm (latența = timpul de serviciu) */
+				long scheduled = intervalNs > 0 ? t0 + i * intervalNs : System.nanoTime();
+				long wait = scheduled - System.nanoTime();
+				if (wait > 0)
+					TimeUnit.NANOSECONDS.sleep(wait);
+
+				SearchResult r = run(searcher, cmd);
+				long us = (System.nanoTime() - scheduled) / 1_000;
+
+				int n = counts.get(kind);
+				lat.get(kind)[n] = us;
+				counts.put(kind, n + 1);
+				outcomes.merge(r.status, 1, Integer::sum);
+			}
+			double seconds = (System.nanoTime() - t0) / 1e9;
+			Map<String, Long> cpuByAgent = cpu.stop();
+			stopBackground.set(true);
+			for (Thread t : batch)
+				t.join(COMMAND_TIMEOUT_MS);
+
+			report(queries, seconds, lat, counts, outcomes, cpuByAgent);
+			if (background > 0)
+				reportClients(seconds);
+			if (opt.containsKey("out"))
+				appendCsv(Paths.get(opt.get("out")), label, mixSpec, rate, ai, queries, seconds,
+						lat, counts);
+
+			run(searcher, SearchCommand.shutdownFinders());
+		} finally {
+			cpu.stop();
+			try {
+				main.kill();
+			} catch (Exception ignored) {
+			}
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * Așteaptă ca toți finderii să-și fi reconciliat indexul (finder.ready) și
+	 * afișează costul pornirii: timpii, heap-ul folosit după GC și thread-urile.
+	 */
+	private static void reportStartup(int finders, long readyBefore, long s0, long startedMs)
+			throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(COMMAND_TIMEOUT_MS);
+		while (Metrics.get("finder.ready") - readyBefore < finders && System.nanoTime() < deadline)
+			Thread.sleep(10);
+		long readyMs = (System.nanoTime() - s0) / 1_000_000;
+		long ready = Metrics.get("finder.ready") - readyBefore;
+
+		System.gc();
+		Runtime rt = Runtime.getRuntime();
+		long heapMb = (rt.totalMemory() - rt.freeMemory()) >> 20;
+		System.out.printf(Locale.ROOT,
+				"Pornire (%s): %d finderi, STARTED în %d ms, %d/%d gata în %d ms, heap %d MB, %d thread-uri%n",
+				System.getProperty("finder.consolidate", "0").equals("0") ? "un finder pe director"
+						: "consolidat " + System.getProperty("finder.consolidate"),
+				finders, startedMs, ready, finders, readyMs, heapMb, ManagementFactory.getThreadMXBean().getThreadCount());
+	}
+
+	/**
+	 * Oprește (kill) sau suspendă finderul rădăcinii în timpul unei căutări MISS
+	 * și afișează cum a fost recuperată. Întoarce true dacă finderul a căzut.
+	 */
+	private static boolean failFinder(ContainerController main, AgentController searcher, String mode, int afterMs,
+			List<Path> sample, Random rnd) throws Exception {
+		String victim = null;
+		for (int attempt = 0; victim == null && attempt < 50; attempt++) {
+			FinderProbe probe = new FinderProbe();
+			main.acceptNewAgent("probe" + attempt, probe).start();
+			for (String name : probe.names.get(COMMAND_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+				if (name.startsWith("finder_root_"))
+					victim = name;
+			}
+			if (victim == null)
+				Thread.sleep(100);
+		}
+		if (victim == null) {
+			System.out.println("Cădere: finderul rădăcinii nu apare în DF");
+			return false;
+		}
+
+		long failuresBefore = Metrics.get("recovery.failures");
+		SearchCommand miss = command(Kind.MISS, sample, rnd, false);
+		long t0 = System.nanoTime();
+		searcher.putO2AObject(miss, AgentController.ASYNC);
+		Thread.sleep(afterMs);
+		AgentController finder = main.getAgent(victim);
+		if ("suspend".equals(mode))
+			finder.suspend();
+		else
+			finder.kill();
+		long failedMs = (System.nanoTime() - t0) / 1_000_000;
+
+		SearchResult r;
+		try {
+			r = miss.result.get(COMMAND_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			r = SearchResult.error("timeout");
+		}
+		long answeredMs = (System.nanoTime() - t0) / 1_000_000;
+
+		/** Suspendarea e observată abia după controller.deadMs fără heartbeat */
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(COMMAND_TIMEOUT_MS);
+		while (Metrics.get("recovery.failures") == failuresBefore && System.nanoTime() < deadline)
+			Thread.sleep(10);
+		/** Finderul care a reluat căutarea își scrie metricile după ce a răspuns */
+		while (Metrics.get("recovery.resumed") < Metrics.get("recovery.reassigned") && System.nanoTime() < deadline)
+			Thread.sleep(10);
+
+		System.out.printf(Locale.ROOT, "Cădere (%s) %s la %d ms: căutarea MISS a răspuns în %d ms (%s)%n", mode,
+				victim, failedMs, answeredMs, r);
+		long resumed = Metrics.get("recovery.resumed");
+		System.out.printf(Locale.ROOT,
+				"Recuperare: detectare %d ms, %d căutări reluate (%d intrări parcurse), recuperare totală %s, %d rădăcini preluate%n",
+				Metrics.get("recovery.detect.maxMs"), resumed, Metrics.get("recovery.resume.entries"),
+				resumed == 0 ? "-" : Metrics.get("recovery.total.maxMs") + " ms", Metrics.get("finder.adopted"));
+		return Metrics.get("recovery.failures") > failuresBefore;
+	}
+
+	/** Agent de o clipă: citește din DF numele locale ale finderilor și se oprește */
+	public static final class FinderProbe extends Agent {
+		private static final long serialVersionUID = 1L;
+
+		final CompletableFuture<List<String>> names = new CompletableFuture<>();
+
+		@Override
+		protected void setup() {
+			DFAgentDescription template = new DFAgentDescription();
+			ServiceDescription sd = new ServiceDescription();
+			sd.setType("file-search");
+			template.addServices(sd);
+			SearchConstraints all = new SearchConstraints();
+			all.setMaxResults(10_000L);
+			try {
+				List<String> out = new ArrayList<>();
+				for (DFAgentDescription d : DFService.search(this, template, all))
+					out.add(d.getName().getLocalName());
+				names.complete(out);
+			} catch (FIPAException e) {
+				names.completeExceptionally(e);
+			}
+			doDelete();
+		}
+	}
+
+	/** Trimite comanda prin O2A și așteaptă rezultatul (ca un client fără GUI) */
+	private static SearchResult run(AgentController searcher, SearchCommand cmd) throws Exception {
+		searcher.putO2AObject(cmd, AgentController.ASYNC);
+		try {
+			return cmd.result.get(COMMAND_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			return SearchResult.error("timeout");
+		} catch (ExecutionException e) {
+			return SearchResult.error(String.valueOf(e.getCause()));
+		}
+	}
+
+	/** Construiește comanda pentru un tip din amestec */
+	private static SearchCommand command(Kind kind, List<Path> sample, Random rnd, boolean ai) {
+		String name = sample.get(rnd.nextInt(sample.size())).getFileName().toString();
+		switch (kind) {
+		case HIT:
+			return SearchCommand.search(name, false, ai, null);
+		case MISS:
+			return SearchCommand.search("lipsa_" + Integer.toHexString(rnd.nextInt()) + ".bin", false, false, null);
+		case FUZZY:
+			return SearchCommand.fuzzySearch(typo(name, rnd), false, null);
+		case RANKED:
+			return SearchCommand.rankedSearch(name, false, null);
+		case PREFIX:
+			return SearchCommand.prefix(name.substring(0, Math.min(name.length(), 2 + rnd.nextInt(3))), null);
+		case STATS:
+			return SearchCommand.stats(null, null);
+		default:
+			/** Jumătate pe extensie și dimensiune, jumătate glob pe nume */
+			if (rnd.nextBoolean())
+				return SearchCommand.query("ext=" + QUERY_EXT[rnd.nextInt(QUERY_EXT.length)] + " size>1K limit=50",
+						false, null);
+			return SearchCommand.query("name=*" + name.substring(0, Math.min(4, name.length())) + "* limit=50", false,
+					null);
+		}
+	}
+
+	/** O greșeală de scriere: înlocuiește, șterge sau inversează un caracter */
+	private static String typo(String name, Random rnd) {
+		if (name.length() < 3)
+			return name;
+		char[] c = name.toCharArray();
+		int i = 1 + rnd.nextInt(c.length - 2);
+		switch (rnd.nextInt(3)) {
+		case 0:
+			c[i] = (char) ('a' + rnd.nextInt(26));
+			return new String(c);
+		case 1:
+			return name.substring(0, i) + name.substring(i + 1);
+		default:
+			char t = c[i];
+			c[i] = c[i - 1];
+			c[i - 1] = t;
+			return new String(c);
+		}
+	}
+
+	/** Secvența de tipuri, amestecată, cu proporțiile cerute */
+	private static List<Kind> plan(Map<Kind, Integer> mix, int total, Random rnd) {
+		int sum = mix.values().stream().mapToInt(Integer::intValue).sum();
+		List<Kind> out = new ArrayList<>(total);
+		for (int i = 0; i < total; i++) {
+			int x = rnd.nextInt(sum);
+			for (Map.Entry<Kind, Integer> e : mix.entrySet()) {
+				x -= e.getValue();
+				if (x < 0) {
+					out.add(e.getKey());
+					break;
+				}
+			}
+		}
+		return out;
+	}
+
+	private static void report(int queries, double seconds, Map<Kind, long[]> lat, Map<Kind, Integer> counts,
+			Map<SearchResult.Status, Integer> outcomes, Map<String, Long> cpuByAgent) {
+		System.out.printf(Locale.ROOT, "%n%d comenzi în %.1f s = %.1f comenzi/s%n", queries, seconds,
+				queries / seconds);
+		System.out.println("Rezultate: " + outcomes);
+		System.out.printf("%-6s %7s %10s %10s %10s %10s%n", "tip", "n", "p50 ms", "p99 ms", "p999 ms", "max ms");
+		for (Kind k : Kind.values()) {
+			int n = counts.get(k);
+			if (n == 0)
+				continue;
+			long[] v = Arrays.copyOf(lat.get(k), n);
+			Arrays.sort(v);
+			System.out.printf(Locale.ROOT, "%-6s %7d %10.2f %10.2f %10.2f %10.2f%n", k.name().toLowerCase(Locale.ROOT),
+					n, pct(v, 50) / 1e3, pct(v, 99) / 1e3, pct(v, 99.9) / 1e3, v[n - 1] / 1e3);
+		}
+
+		/** Metricile agenților (același JVM): anulări, refuzuri, adâncimea cozilor, dispozitivele */
+		System.out.println("\nMetrici:");
+		for (Map.Entry<String, Long> e : Metrics.snapshot().entrySet()) {
+			String k = e.getKey();
+			if (k.startsWith("cancel.") || k.startsWith("search.busy") || k.startsWith("search.rejected")
+					|| k.endsWith("maxDepth") || k.endsWith(".coalesced") || k.startsWith("io.") || k.startsWith("rank.")
+					|| k.startsWith("prefix."))
+				System.out.printf("  %-26s %d%n", k, e.getValue());
+		}
+		System.out.println("  I/O: " + IoScheduler.get().describe());
+
+		System.out.println("\nCPU pe agenți (ms):");
+		for (Map.Entry<String, Long> e : cpuByAgent.entrySet())
+			System.out.printf(Locale.ROOT, "  %-22s %10.1f%n", e.getKey(), e.getValue() / 1e6);
+	}
+
+	/**
+	 * Metricile fiecărui client la finderi (ClientQuotas): căutări/s pe durata
+	 * măsurătorii (include încălzirea clientului principal), așteptarea medie în
+	 * coadă, rularea medie, cea mai lungă așteptare, amânări și BUSY.
+	 */
+	private static void reportClients(double seconds) {
+		Map<String, Long> m = Metrics.snapshot();
+		System.out.println("\nClienți la finderi:");
+		System.out.printf("%-10s %9s %9s %12s %12s %12s %9s %6s%n", "client", "căutări", "pe s", "coadă µs",
+				"rulare µs", "max coadă µs", "amânate", "busy");
+		for (Map.Entry<String, Long> e : m.entrySet()) {
+			String k = e.getKey();
+			if (!k.startsWith("client.") || !k.endsWith(".searches"))
+				continue;
+			String name = k.substring("client.".length(), k.length() - ".searches".length());
+			long n = Math.max(1, e.getValue());
+			System.out.printf(Locale.ROOT, "%-10s %9d %9.1f %12.0f %12.0f %12d %9d %6d%n", name, e.getValue(),
+					e.getValue() / seconds, m.getOrDefault("client." + name + ".queue.micros", 0L) / (double) n,
+					m.getOrDefault("client." + name + ".service.micros", 0L) / (double) n,
+					m.getOrDefault("client." + name + ".queue.maxMicros", 0L),
+					m.getOrDefault("client." + name + ".throttled", 0L), m.getOrDefault("client." + name + ".busy", 0L));
+		}
+	}
+
+	/** O linie pe rulare: label, parametri, comenzi/s, p50/p99/p999 (ms) pe tip */
+	private static void appendCsv(Path out, String label, String mix, double rate, boolean ai, int queries,
+			double seconds, Map<Kind, long[]> lat, Map<Kind, Integer> counts) throws IOException {
+		boolean header = !Files.exists(out);
+		try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(out, StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+			if (header) {
+				StringBuilder h = new StringBuilder("timestamp,label,mix,rate,ai,queries,qps");
+				for (Kind k : Kind.values()) {
+					String n = k.name().toLowerCase(Locale.ROOT);
+					h.append(',').append(n).append("_p50,").append(n).append("_p99,").append(n).append("_p999");
+				}
+				w.println(h);
+			}
+			StringBuilder row = new StringBuilder();
+			row.append(System.currentTimeMillis()).append(',').append(label).append(",\"").append(mix).append("\",")
+					.append(rate).append(',').append(ai).append(',').append(queries).append(',')
+					.append(String.format(Locale.ROOT, "%.2f", queries / seconds));
+			for (Kind k : Kind.values()) {
+				int n = counts.get(k);
+				long[] v = Arrays.copyOf(lat.get(k), n);
+				Arrays.sort(v);
+				for (double q : new double[] { 50, 99, 99.9 })
+					row.append(',').append(n == 0 ? "" : String.format(Locale.ROOT, "%.3f", pct(v, q) / 1e3));
+			}
+			w.println(row);
+		}
+		System.out.println("\nAdăugat în " + out);
+	}
+
+	/** Percentila (nearest-rank) dintr-un vector sortat */
+	private static long pct(long[] sorted, double p) {
+		int idx = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, idx))];
+	}
+
+	/** Un eșantion de fișiere dintr-un arbore existent (ținte pentru HIT/FUZZY) */
+	private static List<Path> sampleFiles(Path root, int max) throws IOException {
+		try (Stream<Path> s = Files.walk(root)) {
+			List<Path> all = s.filter(Files::isRegularFile).collect(Collectors.toList());
+			System.out.println("Folosesc arborele existent " + root + ": " + all.size() + " fișiere");
+			if (all.size() <= max)
+				return all;
+			List<Path> out = new ArrayList<>(max);
+			Random rnd = new Random(42);
+			for (int i = 0; i < max; i++)
+				out.add(all.get(rnd.nextInt(all.size())));
+			return out;
+		}
+	}
+
+	/** --cheie valoare / --flag */
+	private static Map<String, String> parseArgs(String[] args) {
+		Map<String, String> opt = new HashMap<>();
+		for (int i = 0; i < args.length; i++) {
+			if (!args[i].startsWith("--"))
+				throw new IllegalArgumentException("Argument neașteptat: " + args[i]);
+			String key = args[i].substring(2);
+			if (i + 1 < args.length && !args[i + 1].startsWith("--"))
+				opt.put(key, args[++i]);
+			else
+				opt.put(key, "");
+		}
+		return opt;
+	}
+
+	/** hit=70,miss=20,fuzzy=5,query=5 */
+	private static Map<Kind, Integer> parseMix(String spec) {
+		Map<Kind, Integer> mix = new LinkedHashMap<>();
+		for (String part : spec.split(",")) {
+			String[] kv = part.trim().split("=");
+			if (kv.length != 2)
+				throw new IllegalArgumentException("Amestec invalid: " + part);
+			int w = Integer.parseInt(kv[1].trim());
+			if (w > 0)
+				mix.put(Kind.valueOf(kv[0].trim().toUpperCase(Locale.ROOT)), w);
+		}
+		if (mix.isEmpty())
+			throw new IllegalArgumentException("Amestec gol");
+		return mix;
+	}
+
+	/**
+	 * Timpul CPU pe thread, eșantionat periodic: thread-urile care se termină în
+	 * timpul testului (behaviour-uri threaded) își păstrează ultima valoare văzută.
+	 * Thread-urile agenților JADE poartă numele local al agentului; pool-ul
+	 * IoScheduler (io-N) rulează doar sarcinile finderilor (parcurgeri,
+	 * reconcilieri, RANK), iar arhivele și gateway-ul sunt ale lui SearcherAgent.
+	 */
+	private static final class CpuSampler {
+		private final ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+		private final Map<Long, long[]> perThread = new HashMap<>();
+		private final Map<Long, String> names = new HashMap<>();
+		private Thread sampler;
+		private volatile boolean running;
+
+		void start() {
+			if (!mx.isThreadCpuTimeSupported())
+				return;
+			if (!mx.isThreadCpuTimeEnabled())
+				mx.setThreadCpuTimeEnabled(true);
+			sample(true);
+			running = true;
+			sampler = new Thread(() -> {
+				while (running) {
+					sample(false);
+					try {
+						Thread.sleep(CPU_SAMPLE_MS);
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+			}, "load-cpu-sampler");
+			sampler.setDaemon(true);
+			sampler.start();
+		}
+
+		/** Oprește eșantionarea și întoarce CPU (ns) consumat pe grup de agenți */
+		Map<String, Long> stop() {
+			if (sampler == null)
+				return new TreeMap<>();
+			running = false;
+			sampler.interrupt();
+			try {
+				sampler.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			sampler = null;
+			sample(false);
+
+			Map<String, Long> out = new TreeMap<>();
+			synchronized (perThread) {
+				for (Map.Entry<Long, long[]> e : perThread.entrySet()) {
+					long used = e.getValue()[1] - e.getValue()[0];
+					if (used > 0)
+						out.merge(group(names.get(e.getKey())), used, Long::sum);
+				}
+			}
+			return out;
+		}
+
+		/** [0] = CPU la primul eșantion, [1] = ultimul; thread-urile noi pornesc de la 0 */
+		private void sample(boolean baseline) {
+			synchronized (perThread) {
+				for (ThreadInfo ti : mx.getThreadInfo(mx.getAllThreadIds())) {
+					if (ti == null)
+						continue;
+					long t = mx.getThreadCpuTime(ti.getThreadId());
+					if (t < 0)
+						continue;
+					long[] v = perThread.get(ti.getThreadId());
+					if (v == null) {
+						v = new long[] { baseline ? t : 0, t };
+						perThread.put(ti.getThreadId(), v);
+						names.put(ti.getThreadId(), ti.getThreadName());
+					}
+					v[1] = t;
+				}
+			}
+		}
+
+		private static String group(String thread) {
+			if (thread == null)
+				return "altele";
+			if (thread.startsWith("finder") || thread.startsWith("io-"))
+				return "finder*";
+			if (thread.startsWith("zip-") || thread.equals("archive-export"))
+				return "searcher (zip)";
+			if (thread.startsWith("gateway-"))
+				return "searcher (gateway)";
+			for (String agent : new String[] { "searcher", "controller", "python-bridge" }) {
+				if (thread.startsWith(agent))
+					return agent;
+			}
+			if (thread.startsWith("HttpClient"))
+				return "python-bridge (http)";
+			if (thread.equals("main") || thread.startsWith("load-"))
+				return "harness";
+			return "altele";
+		}
+	}
+}
@@ -2,19 +2,71 @@ package agents;
 
 import com.formdev.flatlaf.FlatLightLaf;
 
+import jade.core.Profile;
+import jade.core.ProfileImpl;
+import jade.core.Runtime;
+import jade.wrapper.ContainerController;
+
 /**
  * Clasa principală a aplicației. Pornește interfața grafică și platforma JADE
  * cu agentul SearcherAgent.
+ *
+ * Cu -Dstartup.fast=true pornirea e rapidă: fără RMA (interfața JADE), iar
+ * tema FlatLaf se încarcă în paralel cu platforma. Fazele pornirii sunt
+ * afișate în consolă cu prefixul [startup] (vezi StartupTimeline).
  */
 public class Main {
+
+	/** Pornire rapidă: fără RMA, FlatLaf în paralel cu platforma */
+	private static final boolean FAST = Boolean.getBoolean("startup.fast");
+
 	/**
 	 * Punctul de intrare în aplicație.
 	 */
-	public static void main(String[] args) {
+	public static void main(String[] args) throws Exception {
+		StartupTimeline.mark("main");
+		if (FAST) {
+			startFast();
+			return;
+		}
+
 		/** Inițializează tema grafică FlatLaf pentru Swing */
+		long t = System.nanoTime();
 		FlatLightLaf.setup();
+		StartupTimeline.phase("flatlaf", t);
+
+		/**
+		 * Pornește platforma JADE și agentul principal. DF-ul întoarce implicit
+		 * cel mult 100 de agenți la o căutare; cu un finder pe director sunt mai mulți.
+		 */
+		t = System.nanoTime();
+		jade.Boot.main(new String[] { "-gui", "-jade_domain_df_maxresult", "10000", "-agents",
+				"searcher:agents.SearcherAgent" });
+		StartupTimeline.phase("jade.boot", t);
+	}
+
+	/**
+	 * Containerul principal fără RMA; FlatLaf se încarcă pe alt thread în timpul
+	 * pornirii platformei, iar SearcherAgent (care creează fereastra) pornește
+	 * după ce amândouă sunt gata.
+	 */
+	private static void startFast() throws Exception {
+		Thread laf = new Thread(() -> {
+			long t = System.nanoTime();
+			FlatLightLaf.setup();
+			StartupTimeline.phase("flatlaf", t);
+		}, "flatlaf-setup");
+		laf.start();
+
+		long t = System.nanoTime();
+		Runtime rt = Runtime.instance();
+		rt.setCloseVM(true);
+		Profile p = new ProfileImpl();
+		p.setParameter("jade_domain_df_maxresult", "10000");
+		ContainerController main = rt.createMainContainer(p);
+		StartupTimeline.phase("platform", t);
 
-		/** Pornește platforma JADE și agentul principal */
-		jade.Boot.main(new String[] { "-gui", "-agents", "searcher:agents.SearcherAgent" });
+		laf.join();
+		main.createNewAgent("searcher", SearcherAgent.class.getName(), null).start();
 	}
 }
@@ -0,0 +1,76 @@
+package agents;
+
+import java.text.Normalizer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scorul unui fișier găsit în modul Ranked, același la finder (top-k local)
+ * și la SearcherAgent (limita superioară a unui finder care nu a răspuns încă).
+ * Scorul e o sumă ponderată de termeni în [0, 1]:
+ *
+ * - potrivirea numelui: exact 1, doar fără diferența de litere mari/mici 0.5;
+ * - adâncimea față de rădăcina căutării: 1 / adâncime (fișierul direct în
+ * rădăcină are adâncimea 1);
+ * - vechimea: 1 / (1 + zile / RECENCY_DAYS), față de momentul cererii;
+ * - dimensiunea: log10(1 + octeți) / 10, plafonat la 1 (~10 GB).
+ *
+ * Fiecare termen e descrescător în adâncime și vechime, deci un finder nu
+ * poate depăși upperBound(adâncimea minimă, cel mai nou mtime și cea mai
+ * mare dimensiune din indexul lui).
+ */
+final class MatchRanker {
+
+	static final double W_MATCH = 4.0;
+	static final double W_DEPTH = 2.0;
+	static final double W_RECENCY = 2.0;
+	static final double W_SIZE = 1.0;
+
+	/** Vechimea (zile) la care termenul de vechime scade la jumătate */
+	private static final double RECENCY_DAYS = 30.0;
+
+	/** Ținta în NFC (potrivirea exactă e comparată cu ea) */
+	private final String target;
+
+	/** Momentul cererii (ms), același pentru toți finderii */
+	private final long now;
+
+	MatchRanker(String target, long now) {
+		this.target = Normalizer.normalize(target, Normalizer.Form.NFC);
+		this.now = now;
+	}
+
+	/** true dacă name e ținta exact (nu doar fără diferența de litere mari/mici) */
+	boolean isExact(String name) {
+		return target.equals(name) || target.equals(Normalizer.normalize(name, Normalizer.Form.NFC));
+	}
+
+	/** Scorul unui fișier care se potrivește (cel puțin fără diferența de litere) */
+	double score(boolean exact, int depth, long mtime, long size) {
+		return W_MATCH * (exact ? 1.0 : 0.5) + W_DEPTH * depthTerm(depth) + W_RECENCY * recencyTerm(mtime, now)
+				+ W_SIZE * sizeTerm(size);
+	}
+
+	/**
+	 * Cel mai mare scor pe care îl poate avea un fișier aflat la cel puțin
+	 * minDepth sub rădăcină, cu mtime cel mult newestMtime și dimensiunea cel
+	 * mult largestSize (negativ = necunoscut).
+	 */
+	static double upperBound(int minDepth, long newestMtime, long largestSize, long now) {
+		double recency = newestMtime < 0 ? 1.0 : recencyTerm(newestMtime, now);
+		double size = largestSize < 0 ? 1.0 : sizeTerm(largestSize);
+		return W_MATCH + W_DEPTH * depthTerm(minDepth) + W_RECENCY * recency + W_SIZE * size;
+	}
+
+	private static double depthTerm(int depth) {
+		return 1.0 / Math.max(1, depth);
+	}
+
+	private static double recencyTerm(long mtime, long now) {
+		double days = Math.max(0, now - mtime) / (double) TimeUnit.DAYS.toMillis(1);
+		return 1.0 / (1.0 + days / RECENCY_DAYS);
+	}
+
+	private static double sizeTerm(long size) {
+		return size <= 0 ? 0 : Math.min(1.0, Math.log10(1.0 + size) / 10.0);
+	}
+}
@@ -0,0 +1,271 @@
+package agents;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Interogare pe atributele din FinderIndex (dimensiune, mtime, extensie),
+ * fără parcurgerea disc-ului. Termenii sunt separați prin spații, de exemplu:
+ *
+ * <pre>
+ * size>1G mtime>-24h under=/date/proiect
+ * ext=log sort=-mtime limit=50
+ * name=*raport* size<=10M sort=size
+ * </pre>
+ *
+ * Dimensiunile acceptă sufixele K/M/G/T, timpii sunt epoch ms sau relativi
+ * (-30m, -24h, -7d), ca în SearchFilter. Sortarea implicită este -mtime (cele
+ * mai noi primele), limita implicită 100. Valorile cu spații se pun între
+ * ghilimele: under="C:/Date mele".
+ */
+final class MetadataQuery {
+
+	/** Un rând de rezultat (la finder și la îmbinarea din SearcherAgent) */
+	static final class Row {
+		final long size;
+		final long mtime;
+		final String path;
+
+		Row(long size, long mtime, String path) {
+			this.size = size;
+			this.mtime = mtime;
+			this.path = path;
+		}
+	}
+
+	static final int DEFAULT_LIMIT = 100;
+	static final int MAX_LIMIT = 10_000;
+
+	/** Coloanele după care se poate sorta */
+	enum SortKey {
+		SIZE, MTIME
+	}
+
+	/** Intervale închise; valorile implicite nu taie nimic */
+	long minSize = 0;
+	long maxSize = Long.MAX_VALUE;
+	long after = Long.MIN_VALUE;
+	long before = Long.MAX_VALUE;
+
+	/** Extensii acceptate (fără punct, litere mici); null = oricare */
+	Set<String> extensions = null;
+
+	/** Glob pe nume (opțional) și textul lui */
+	PathMatcher name = null;
+	String nameGlob = null;
+
+	/** Doar fișierele de sub acest director (absolut); null = oriunde */
+	Path under = null;
+
+	SortKey sort = SortKey.MTIME;
+	boolean descending = true;
+	int limit = DEFAULT_LIMIT;
+
+	private MetadataQuery() {
+	}
+
+	/**
+	 * Parsează interogarea; timpii relativi sunt transformați în absoluți, ca toți
+	 * finderii să folosească același "acum". Aruncă IllegalArgumentException.
+	 */
+	static MetadataQuery parse(String text) {
+		if (text == null || text.trim().isEmpty())
+			throw new IllegalArgumentException("Interogare goală");
+
+		MetadataQuery q = new MetadataQuery();
+		long now = System.currentTimeMillis();
+
+		for (String term : tokens(text)) {
+			int op = firstOperator(term);
+			if (op <= 0)
+				throw new IllegalArgumentException("Termen invalid: " + term);
+
+			String key = term.substring(0, op).toLowerCase(Locale.ROOT);
+			String rest = term.substring(op);
+			String cmp = rest.startsWith(">=") || rest.startsWith("<=") ? rest.substring(0, 2) : rest.substring(0, 1);
+			String value = rest.substring(cmp.length());
+			if (value.isEmpty())
+				throw new IllegalArgumentException("Valoare lipsă: " + term);
+
+			switch (key) {
+			case "size": {
+				long v = SearchFilter.parseSize(value);
+				q.applyRange(cmp, v, true);
+				break;
+			}
+			case "mtime": {
+				long v = SearchFilter.parseTime(value, now);
+				q.applyRange(cmp, v, false);
+				break;
+			}
+			case "ext":
+				requireEquals(cmp, term);
+				q.extensions = new LinkedHashSet<>();
+				for (String e : value.split(",")) {
+					String ext = e.trim().toLowerCase(Locale.ROOT);
+					if (ext.startsWith("."))
+						ext = ext.substring(1);
+					q.extensions.add(ext);
+				}
+				break;
+			case "name":
+				requireEquals(cmp, term);
+				q.setName(value);
+				break;
+			case "under":
+				requireEquals(cmp, term);
+				q.under = Paths.get(value).toAbsolutePath().normalize();
+				break;
+			case "sort":
+				requireEquals(cmp, term);
+				q.descending = value.startsWith("-");
+				String col = value.replaceFirst("^[-+]", "").toLowerCase(Locale.ROOT);
+				if ("size".equals(col))
+					q.sort = SortKey.SIZE;
+				else if ("mtime".equals(col))
+					q.sort = SortKey.MTIME;
+				else
+					throw new IllegalArgumentException("Sortare necunoscută: " + value);
+				break;
+			case "limit":
+				requireEquals(cmp, term);
+				q.limit = Integer.parseInt(value);
+				if (q.limit < 1 || q.limit > MAX_LIMIT)
+					throw new IllegalArgumentException("limit trebuie să fie între 1 și " + MAX_LIMIT);
+				break;
+			default:
+				throw new IllegalArgumentException("Cheie necunoscută: " + key);
+			}
+		}
+		return q;
+	}
+
+	/** Împarte textul după spații, cu ghilimelele ținând un termen întreg */
+	private static List<String> tokens(String text) {
+		List<String> out = new ArrayList<>();
+		StringBuilder cur = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"') {
+				quoted = !quoted;
+			} else if (Character.isWhitespace(c) && !quoted) {
+				if (cur.length() > 0) {
+					out.add(cur.toString());
+					cur.setLength(0);
+				}
+			} else {
+				cur.append(c);
+			}
+		}
+		if (quoted)
+			throw new IllegalArgumentException("Ghilimele neînchise");
+		if (cur.length() > 0)
+			out.add(cur.toString());
+		return out;
+	}
+
+	private static int firstOperator(String term) {
+		for (int i = 0; i < term.length(); i++) {
+			char c = term.charAt(i);
+			if (c == '=' || c == '<' || c == '>')
+				return i;
+		}
+		return -1;
+	}
+
+	private static void requireEquals(String cmp, String term) {
+		if (!"=".equals(cmp))
+			throw new IllegalArgumentException("Se acceptă doar '=': " + term);
+	}
+
+	private void applyRange(String cmp, long v, boolean isSize) {
+		long lo = isSize ? minSize : after;
+		long hi = isSize ? maxSize : before;
+		switch (cmp) {
+		case ">":
+			lo = Math.max(lo, v + 1);
+			break;
+		case ">=":
+			lo = Math.max(lo, v);
+			break;
+		case "<":
+			hi = Math.min(hi, v - 1);
+			break;
+		case "<=":
+			hi = Math.min(hi, v);
+			break;
+		default:
+			lo = Math.max(lo, v);
+			hi = Math.min(hi, v);
+		}
+		if (isSize) {
+			minSize = lo;
+			maxSize = hi;
+		} else {
+			after = lo;
+			before = hi;
+		}
+	}
+
+	/** "*.log" devine predicat pe coloana de extensii; restul rămâne glob pe nume */
+	private void setName(String glob) {
+		String ext = glob.startsWith("*.") ? glob.substring(2) : null;
+		if (ext != null && !ext.isEmpty() && ext.indexOf('*') < 0 && ext.indexOf('?') < 0 && ext.indexOf('.') < 0
+				&& ext.indexOf('[') < 0 && ext.indexOf('{') < 0) {
+			extensions = new LinkedHashSet<>();
+			extensions.add(ext.toLowerCase(Locale.ROOT));
+			return;
+		}
+		nameGlob = glob;
+		name = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+	}
+
+	/** Cheia de sortare a unui rând (dimensiune sau mtime) */
+	long key(long size, long mtime) {
+		return sort == SortKey.SIZE ? size : mtime;
+	}
+
+	/** Ordinea rezultatelor: primul element e cel mai bun */
+	Comparator<Row> order() {
+		Comparator<Row> c = Comparator.comparingLong(r -> key(r.size, r.mtime));
+		if (descending)
+			c = c.reversed();
+		return c.thenComparing(r -> r.path);
+	}
+
+	/** Forma canonică (timpi absoluți), trimisă finderilor */
+	String toSpec() {
+		List<String> t = new ArrayList<>();
+		if (minSize > 0)
+			t.add("size>=" + minSize);
+		if (maxSize != Long.MAX_VALUE)
+			t.add("size<=" + maxSize);
+		if (after != Long.MIN_VALUE)
+			t.add("mtime>=" + after);
+		if (before != Long.MAX_VALUE)
+			t.add("mtime<=" + before);
+		if (extensions != null)
+			t.add("ext=" + String.join(",", extensions));
+		if (nameGlob != null)
+			t.add("name=\"" + nameGlob + "\"");
+		if (under != null)
+			t.add("under=\"" + under + "\"");
+		t.add("sort=" + (descending ? "-" : "") + sort.name().toLowerCase(Locale.ROOT));
+		t.add("limit=" + limit);
+		return String.join(" ", t);
+	}
+
+	@Override
+	public String toString() {
+		return toSpec();
+	}
+}
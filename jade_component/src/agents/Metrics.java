@@ -0,0 +1,67 @@
+package agents;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contoare simple, la nivel de JVM (container), pentru metricile sistemului:
+ * rutare, anulări, cozi etc. Orice agent poate incrementa din orice thread;
+ * snapshot() întoarce valorile sortate după nume, pentru log sau export.
+ */
+final class Metrics {
+
+	private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+
+	/** Valori maxime observate (ex. adâncimea cozilor de mesaje) */
+	private static final Map<String, AtomicLong> MAXIMA = new ConcurrentHashMap<>();
+
+	private Metrics() {
+	}
+
+	/** Adună delta la contorul cu numele dat */
+	static void add(String name, long delta) {
+		COUNTERS.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+	}
+
+	/** Incrementează contorul cu numele dat */
+	static void inc(String name) {
+		add(name, 1);
+	}
+
+	/** Reține valoarea dacă depășește maximul observat până acum */
+	static void max(String name, long value) {
+		AtomicLong m = MAXIMA.get(name);
+		if (m == null)
+			m = MAXIMA.computeIfAbsent(name, k -> new AtomicLong(Long.MIN_VALUE));
+		long cur;
+		while (value > (cur = m.get()) && !m.compareAndSet(cur, value)) {
+		}
+	}
+
+	/** Valoarea curentă a contorului sau a maximului (0 dacă nu există) */
+	static long get(String name) {
+		LongAdder a = COUNTERS.get(name);
+		if (a != null)
+			return a.sum();
+		AtomicLong m = MAXIMA.get(name);
+		return m == null ? 0 : m.get();
+	}
+
+	/** Copie sortată a tuturor contoarelor */
+	static Map<String, Long> snapshot() {
+		Map<String, Long> out = new TreeMap<>();
+		for (Map.Entry<String, LongAdder> e : COUNTERS.entrySet())
+			out.put(e.getKey(), e.getValue().sum());
+		for (Map.Entry<String, AtomicLong> e : MAXIMA.entrySet())
+			out.put(e.getKey(), e.getValue().get());
+		return out;
+	}
+
+	/** Procent a/b formatat (0 dacă b = 0) */
+	static String percent(long a, long b) {
+		return b == 0 ? "0%" : String.format("%.1f%%", 100.0 * a / b);
+	}
+}
@@ -0,0 +1,153 @@
+package agents;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.text.Normalizer;
+
+/**
+ * Compară numele fișierelor cu numele căutat fără a crea obiecte noi în bucla
+ * de parcurgere. Ținta este normalizată (NFC) și "împăturită" (case folding) o
+ * singură dată; pentru fiecare fișier se compară direct caracterele din
+ * Path.toString(), după ultimul separator, respingând întâi pe lungime și pe
+ * primul caracter. Numele non-ASCII care pot fi scrise în NFD trec printr-o
+ * cale lentă, cu normalizare, doar dacă lungimea lor o permite.
+ */
+final class NameMatcher {
+
+	/** Ținta în NFC */
+	private final String target;
+
+	/** Ținta în NFC, împăturită caracter cu caracter */
+	private final char[] folded;
+
+	/** Variantele mari/mici ale fiecărui caracter din țintă (verificare rapidă) */
+	private final char[] upper;
+	private final char[] lower;
+
+	/** true dacă ținta are doar caractere ASCII */
+	private final boolean asciiTarget;
+
+	NameMatcher(String name) {
+		this.target = Normalizer.normalize(name, Normalizer.Form.NFC);
+		int n = target.length();
+		folded = new char[n];
+		upper = new char[n];
+		lower = new char[n];
+		boolean ascii = true;
+		for (int i = 0; i < n; i++) {
+			char c = target.charAt(i);
+			folded[i] = fold(c);
+			upper[i] = Character.toUpperCase(c);
+			lower[i] = Character.toLowerCase(c);
+			if (c >= 0x80)
+				ascii = false;
+		}
+		this.asciiTarget = ascii;
+	}
+
+	/** Case folding pe un caracter, cu aceeași semantică ca equalsIgnoreCase */
+	static char fold(char c) {
+		if (c < 0x80) {
+			return (c >= 'A' && c <= 'Z') ? (char) (c + 32) : c;
+		}
+		return Character.toLowerCase(Character.toUpperCase(c));
+	}
+
+	/** Ținta normalizată (NFC) */
+	String target() {
+		return target;
+	}
+
+	/** true dacă numele fișierului (ultimul element din cale) este ținta */
+	boolean matches(Path file) {
+		String s = file.toString();
+		int start = lastSeparator(s) + 1;
+		return matches(s, start, s.length() - start);
+	}
+
+	/** true dacă regiunea [off, off+len) din s este ținta */
+	boolean matches(CharSequence s, int off, int len) {
+		int n = folded.length;
+
+		if (len == n && n > 0) {
+			/** Respingere rapidă pe primul caracter */
+			char c0 = s.charAt(off);
+			if (c0 == upper[0] || c0 == lower[0] || fold(c0) == folded[0]) {
+				if (regionEquals(s, off))
+					return true;
+			} else if (c0 < 0x80 && asciiTarget) {
+				return false;
+			}
+		}
+
+		/** Cale lentă: nume non-ASCII, posibil în altă formă de normalizare */
+		if (len >= n && len <= 3 * n && !isAscii(s, off, len))
+			return slowMatch(s, off, len);
+
+		return false;
+	}
+
+	private boolean regionEquals(CharSequence s, int off) {
+		for (int i = 1; i < folded.length; i++) {
+			char c = s.charAt(off + i);
+			if (c != upper[i] && c != lower[i] && fold(c) != folded[i])
+				return false;
+		}
+		return true;
+	}
+
+	private boolean slowMatch(CharSequence s, int off, int len) {
+		String nfc = Normalizer.normalize(s.subSequence(off, off + len), Normalizer.Form.NFC);
+		if (nfc.length() != folded.length)
+			return false;
+		for (int i = 0; i < folded.length; i++) {
+			if (fold(nfc.charAt(i)) != folded[i])
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean isAscii(CharSequence s, int off, int len) {
+		for (int i = off, end = off + len; i < end; i++) {
+			if (s.charAt(i) >= 0x80)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Hash pe 64 de biți (FNV-1a) al formei NFC împăturite a regiunii. Două nume
+	 * egale pentru matches() au același hash; folosit de NameSketch.
+	 */
+	static long hash(CharSequence s, int off, int len) {
+		CharSequence src = s;
+		int from = off;
+		int n = len;
+		if (!isAscii(s, off, len)) {
+			src = Normalizer.normalize(s.subSequence(off, off + len), Normalizer.Form.NFC);
+			from = 0;
+			n = src.length();
+		}
+		long h = 0xcbf29ce484222325L;
+		for (int i = from, end = from + n; i < end; i++) {
+			h ^= fold(src.charAt(i));
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+
+	/** Hash-ul țintei (vezi hash) */
+	long targetHash() {
+		return hash(target, 0, target.length());
+	}
+
+	/** Poziția ultimului separator ('/' sau separatorul platformei) sau -1 */
+	static int lastSeparator(CharSequence s) {
+		for (int i = s.length() - 1; i >= 0; i--) {
+			char c = s.charAt(i);
+			if (c == '/' || c == File.separatorChar)
+				return i;
+		}
+		return -1;
+	}
+}
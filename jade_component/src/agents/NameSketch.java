@@ -0,0 +1,115 @@
+package agents;
+
+import java.util.Base64;
+
+/**
+ * Filtru Bloom peste numele (NFC, împăturite) din subarborele unui Finder.
+ * Răspunde "poate conține" / "sigur nu conține" pentru un nume exact, ca
+ * SearcherAgent să trimită SEARCH doar finderilor relevanți. Se serializează
+ * ca text pentru mesajele ACL: m|k|count|base64(bits).
+ */
+final class NameSketch {
+
+	/** Rata de fals pozitive pentru care este dimensionat filtrul */
+	static final double TARGET_FPP = 0.01;
+
+	private final long[] bits;
+	private final int m;
+	private final int k;
+
+	/** Numărul de nume inserate care au modificat filtrul (aproximativ distincte) */
+	private long count;
+
+	private NameSketch(long[] bits, int m, int k, long count) {
+		this.bits = bits;
+		this.m = m;
+		this.k = k;
+		this.count = count;
+	}
+
+	/** Filtru gol dimensionat pentru n nume la TARGET_FPP */
+	static NameSketch forCapacity(long n) {
+		long expected = Math.max(n, 1_000);
+		double ln2 = Math.log(2);
+		long mBits = (long) Math.ceil(-expected * Math.log(TARGET_FPP) / (ln2 * ln2));
+		mBits = Math.min(Math.max(mBits, 1024), Integer.MAX_VALUE - 63);
+		int kk = (int) Math.round((double) mBits / expected * ln2);
+		kk = Math.max(1, Math.min(kk, 16));
+		int words = (int) ((mBits + 63) / 64);
+		return new NameSketch(new long[words], words * 64, kk, 0);
+	}
+
+	/** Inserează un hash (NameMatcher.hash); true dacă filtrul s-a modificat */
+	synchronized boolean add(long hash) {
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		boolean changed = false;
+		for (int i = 0; i < k; i++) {
+			int idx = Math.floorMod(h1 + i * h2, m);
+			long mask = 1L << (idx & 63);
+			if ((bits[idx >>> 6] & mask) == 0) {
+				bits[idx >>> 6] |= mask;
+				changed = true;
+			}
+		}
+		if (changed)
+			count++;
+		return changed;
+	}
+
+	/** false = numele sigur nu există; true = poate exista */
+	synchronized boolean mightContain(long hash) {
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 0; i < k; i++) {
+			int idx = Math.floorMod(h1 + i * h2, m);
+			if ((bits[idx >>> 6] & (1L << (idx & 63))) == 0)
+				return false;
+		}
+		return true;
+	}
+
+	/** Rata estimată de fals pozitive, după gradul de umplere */
+	synchronized double estimatedFpp() {
+		long set = 0;
+		for (long w : bits)
+			set += Long.bitCount(w);
+		return Math.pow((double) set / m, k);
+	}
+
+	synchronized long count() {
+		return count;
+	}
+
+	/** Serializare pentru ACL: m|k|count|base64 */
+	synchronized String encode() {
+		byte[] raw = new byte[bits.length * 8];
+		for (int i = 0; i < bits.length; i++) {
+			long w = bits[i];
+			for (int b = 0; b < 8; b++)
+				raw[i * 8 + b] = (byte) (w >>> (8 * b));
+		}
+		return m + "|" + k + "|" + count + "|" + Base64.getEncoder().encodeToString(raw);
+	}
+
+	/** Inversul lui encode(); aruncă IllegalArgumentException dacă e corupt */
+	static NameSketch decode(String s) {
+		String[] parts = s.split("\\|", 4);
+		if (parts.length != 4)
+			throw new IllegalArgumentException("Sketch invalid");
+		int m = Integer.parseInt(parts[0]);
+		int k = Integer.parseInt(parts[1]);
+		long count = Long.parseLong(parts[2]);
+		byte[] raw = Base64.getDecoder().decode(parts[3]);
+		if (raw.length * 8L != m)
+			throw new IllegalArgumentException("Sketch invalid: lungime");
+		long[] bits = new long[m / 64];
+		for (int i = 0; i < bits.length; i++) {
+			long w = 0;
+			for (int b = 0; b < 8; b++)
+				w |= (raw[i * 8 + b] & 0xFFL) << (8 * b);
+			bits[i] = w;
+		}
+		return new NameSketch(bits, m, k, count);
+	}
+}
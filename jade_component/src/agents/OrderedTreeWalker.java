@@ -0,0 +1,349 @@
+package agents;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.FileVisitor;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Parcurgere în adâncime cu aceeași semantică de FileVisitor ca
+ * Files.walkFileTree (fără a urmări link-urile simbolice), dar cu ordinea
+ * aleasă de noi. Întâi sunt vizitate fișierele din directoarele "fierbinți"
+ * (hit-uri directe în HitHistory), trecând prin preVisitDirectory pentru tot
+ * lanțul de strămoși, ca filtrele să se aplice la fel. Apoi urmează
+ * parcurgerea completă, în preordine, cu subdirectoarele în ordinea numelor.
+ * Ordinea e deterministă (nu depinde de listare sau de istoricul finderului),
+ * ca un cursor - ultimul director ale cărui fișiere au fost vizitate - să poată
+ * fi reluat de alt finder: cu resumeAfter, parcurgerea sare tot ce precede
+ * cursorul în această ordine. Parcurgerea rămâne completă; fișierele din
+ * directoarele fierbinți pot fi vizitate de două ori.
+ *
+ * Un thread întrerupt oprește parcurgerea ca un TERMINATE, verificat între
+ * intrările unei listări, așa că anularea nu așteaptă terminarea unui
+ * director mare (apelul readdir în sine nu poate fi întrerupt).
+ *
+ * Opțional, după fiecare director listat în faza 2 raportează latența medie a
+ * unei operații de I/O (deschidere, citire intrare, lstat), fără timpul
+ * petrecut în visitor; IoScheduler își adaptează limita după ea.
+ */
+final class OrderedTreeWalker {
+
+	/** Un director deschis: subdirectoarele lui rămase de vizitat */
+	private static final class Frame {
+		final Path dir;
+		final List<Path> subdirs;
+		final List<BasicFileAttributes> attrs;
+		int next = 0;
+
+		Frame(Path dir, List<Path> subdirs, List<BasicFileAttributes> attrs) {
+			this.dir = dir;
+			this.subdirs = subdirs;
+			this.attrs = attrs;
+		}
+	}
+
+	/** Câte directoare fierbinți sunt vizitate înaintea parcurgerii complete */
+	static final int HOT_DIRS = 16;
+
+	private OrderedTreeWalker() {
+	}
+
+	/** Parcurge start; history poate fi null (fără faza 1) */
+	static void walk(Path start, HitHistory history, FileVisitor<Path> visitor) throws IOException {
+		walk(start, history, visitor, null);
+	}
+
+	/** Ca walk, raportând latența I/O pe operație (ns) pentru fiecare director; latency poate fi null */
+	static void walk(Path start, HitHistory history, FileVisitor<Path> visitor, LongConsumer latency)
+			throws IOException {
+		walk(start, history, visitor, latency, null, null);
+	}
+
+	/**
+	 * Ca walk, reluată după cursorul resumeAfter (null = de la început; faza 1 e
+	 * sărită la reluare). completed primește, în ordine, fiecare director ale
+	 * cărui fișiere au fost vizitate (cursorul de salvat); poate fi null.
+	 */
+	static void walk(Path start, HitHistory history, FileVisitor<Path> visitor, LongConsumer latency,
+			Path resumeAfter, Consumer<Path> completed) throws IOException {
+		BasicFileAttributes rootAttrs;
+		try {
+			rootAttrs = Files.readAttributes(start, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+		} catch (IOException e) {
+			visitor.visitFileFailed(start, e);
+			return;
+		}
+
+		/** Faza 1: directoarele fierbinți */
+		if (resumeAfter == null && history != null && !history.isEmpty()) {
+			for (Path hot : history.hotDirectories(HOT_DIRS)) {
+				if (!hot.startsWith(start) || hot.equals(start))
+					continue;
+				if (!visitHot(start, rootAttrs, hot, visitor))
+					return;
+			}
+		}
+
+		/** Faza 2: parcurgerea completă, ordonată */
+		FileVisitResult r = visitor.preVisitDirectory(start, rootAttrs);
+		if (r != FileVisitResult.CONTINUE)
+			return;
+
+		Deque<Frame> stack = new ArrayDeque<>();
+		open(start, visitor, stack, latency, resumeAfter, completed);
+
+		while (!stack.isEmpty()) {
+			if (Thread.currentThread().isInterrupted())
+				return;
+			Frame top = stack.peek();
+			if (top.next == top.subdirs.size()) {
+				stack.pop();
+				if (visitor.postVisitDirectory(top.dir, null) == FileVisitResult.TERMINATE)
+					return;
+				continue;
+			}
+
+			int i = top.next++;
+			Path dir = top.subdirs.get(i);
+
+			/** Subarbore terminat înainte de cursor: nu e redeschis */
+			if (resumeAfter != null && compareOrder(dir, resumeAfter) < 0 && !resumeAfter.startsWith(dir))
+				continue;
+
+			r = visitor.preVisitDirectory(dir, top.attrs.get(i));
+			if (r == FileVisitResult.TERMINATE)
+				return;
+			if (r == FileVisitResult.SKIP_SUBTREE)
+				continue;
+			if (r == FileVisitResult.SKIP_SIBLINGS) {
+				top.next = top.subdirs.size();
+				continue;
+			}
+
+			open(dir, visitor, stack, latency, resumeAfter, completed);
+		}
+	}
+
+	/**
+	 * Ordinea parcurgerii (preordine, numele comparate pe fiecare nivel): negativ
+	 * dacă a e vizitat înaintea lui b. Un strămoș precede descendenții lui.
+	 */
+	static int compareOrder(Path a, Path b) {
+		int n = Math.min(a.getNameCount(), b.getNameCount());
+		for (int i = 0; i < n; i++) {
+			int c = a.getName(i).toString().compareTo(b.getName(i).toString());
+			if (c != 0)
+				return c;
+		}
+		return Integer.compare(a.getNameCount(), b.getNameCount());
+	}
+
+	/**
+	 * Vizitează doar fișierele din hot, intrând prin preVisitDirectory pe tot
+	 * lanțul start..hot și ieșind prin postVisitDirectory. false = TERMINATE.
+	 */
+	private static boolean visitHot(Path start, BasicFileAttributes rootAttrs, Path hot, FileVisitor<Path> visitor)
+			throws IOException {
+		Path rel = start.relativize(hot);
+		List<Path> entered = new ArrayList<>();
+
+		Path cur = start;
+		for (int i = -1; i < rel.getNameCount(); i++) {
+			BasicFileAttributes a = rootAttrs;
+			if (i >= 0) {
+				cur = cur.resolve(rel.getName(i));
+				try {
+					a = Files.readAttributes(cur, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+				} catch (IOException e) {
+					/** Directorul a dispărut: îl găsește (sau nu) faza 2 */
+					return leave(entered, visitor);
+				}
+				if (!a.isDirectory())
+					return leave(entered, visitor);
+			}
+			FileVisitResult r = visitor.preVisitDirectory(cur, a);
+			if (r == FileVisitResult.TERMINATE) {
+				leave(entered, visitor);
+				return false;
+			}
+			if (r != FileVisitResult.CONTINUE)
+				return leave(entered, visitor);
+			entered.add(cur);
+		}
+
+		try (DirectoryStream<Path> ds = Files.newDirectoryStream(hot)) {
+			for (Path p : ds) {
+				if (Thread.currentThread().isInterrupted()) {
+					leave(entered, visitor);
+					return false;
+				}
+				BasicFileAttributes a;
+				try {
+					a = Files.readAttributes(p, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+				} catch (IOException e) {
+					continue;
+				}
+				if (a.isDirectory())
+					continue;
+				if (visitor.visitFile(p, a) == FileVisitResult.TERMINATE) {
+					leave(entered, visitor);
+					return false;
+				}
+			}
+		} catch (IOException | DirectoryIteratorException ignored) {
+			/** Faza 1 e doar o scurtătură: parcurgerea completă revine la acest director */
+		}
+		return leave(entered, visitor);
+	}
+
+	/** Iese din lanțul de directoare (postVisit în ordine inversă); false = TERMINATE */
+	private static boolean leave(List<Path> entered, FileVisitor<Path> visitor) throws IOException {
+		boolean keepGoing = true;
+		for (int i = entered.size() - 1; i >= 0; i--) {
+			if (visitor.postVisitDirectory(entered.get(i), null) == FileVisitResult.TERMINATE)
+				keepGoing = false;
+		}
+		return keepGoing;
+	}
+
+	/**
+	 * Listează dir, vizitează fișierele și pune pe stivă subdirectoarele
+	 * ordonate după nume. Fișierele unui director care nu e după cursor (un
+	 * strămoș al cursorului sau cursorul însuși) au fost deja vizitate și sunt
+	 * sărite. null dacă parcurgerea trebuie oprită (TERMINATE); stiva poate fi
+	 * golită în acest caz.
+	 */
+	private static Frame open(Path dir, FileVisitor<Path> visitor, Deque<Frame> stack, LongConsumer latency,
+			Path resumeAfter, Consumer<Path> completed) throws IOException {
+		List<Path> subdirs = new ArrayList<>();
+		List<BasicFileAttributes> subAttrs = new ArrayList<>();
+		boolean filesDone = resumeAfter != null && resumeAfter.startsWith(dir);
+
+		/** Timpul petrecut în apeluri de sistem și numărul lor */
+		long ioNanos = 0;
+		int ops = 1;
+		long t = latency != null ? System.nanoTime() : 0;
+
+		try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+			Iterator<Path> it = ds.iterator();
+			while (true) {
+				boolean more = it.hasNext();
+				Path p = more ? it.next() : null;
+				if (latency != null) {
+					long now = System.nanoTime();
+					ioNanos += now - t;
+					t = now;
+				}
+				if (!more)
+					break;
+				if (Thread.currentThread().isInterrupted()) {
+					stack.clear();
+					return null;
+				}
+				BasicFileAttributes a;
+				try {
+					a = Files.readAttributes(p, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+				} catch (IOException e) {
+					if (visitor.visitFileFailed(p, e) == FileVisitResult.TERMINATE) {
+						stack.clear();
+						return null;
+					}
+					continue;
+				} finally {
+					if (latency != null) {
+						long now = System.nanoTime();
+						ioNanos += now - t;
+						t = now;
+						ops += 2;
+					}
+				}
+
+				if (a.isDirectory()) {
+					subdirs.add(p);
+					subAttrs.add(a);
+					if (latency != null)
+						t = System.nanoTime();
+					continue;
+				}
+
+				if (filesDone)
+					continue;
+				FileVisitResult r = visitor.visitFile(p, a);
+				if (r == FileVisitResult.TERMINATE) {
+					stack.clear();
+					return null;
+				}
+				if (r == FileVisitResult.SKIP_SIBLINGS)
+					break;
+				if (latency != null)
+					t = System.nanoTime();
+			}
+		} catch (IOException e) {
+			/** Ca în walkFileTree: directorul care nu poate fi deschis merge la postVisit */
+			return listingFailed(dir, visitor, stack, filesDone ? null : completed, e);
+		} catch (DirectoryIteratorException e) {
+			/** Listarea a eșuat la jumătate (director șters, eroare NFS): la fel */
+			return listingFailed(dir, visitor, stack, filesDone ? null : completed, e.getCause());
+		}
+
+		if (latency != null)
+			latency.accept(ioNanos / ops);
+		/** Un strămoș redeschis al cursorului nu îl mută înapoi */
+		if (completed != null && !filesDone)
+			completed.accept(dir);
+
+		if (subdirs.size() > 1)
+			sortByName(subdirs, subAttrs);
+
+		Frame f = new Frame(dir, subdirs, subAttrs);
+		stack.push(f);
+		return f;
+	}
+
+	/**
+	 * Directorul nu a putut fi listat (complet): subdirectoarele lui nu sunt
+	 * deschise, iar eroarea ajunge la postVisitDirectory. Întoarce null.
+	 */
+	private static Frame listingFailed(Path dir, FileVisitor<Path> visitor, Deque<Frame> stack,
+			Consumer<Path> completed, IOException e) throws IOException {
+		if (completed != null)
+			completed.accept(dir);
+		if (visitor.postVisitDirectory(dir, e) == FileVisitResult.TERMINATE)
+			stack.clear();
+		return null;
+	}
+
+	/** Sortează subdirectoarele (și atributele lor) după nume */
+	private static void sortByName(List<Path> dirs, List<BasicFileAttributes> attrs) {
+		int n = dirs.size();
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++)
+			order[i] = i;
+		Arrays.sort(order, (a, b) -> dirs.get(a).getFileName().toString()
+				.compareTo(dirs.get(b).getFileName().toString()));
+
+		List<Path> d2 = new ArrayList<>(n);
+		List<BasicFileAttributes> a2 = new ArrayList<>(n);
+		for (int i : order) {
+			d2.add(dirs.get(i));
+			a2.add(attrs.get(i));
+		}
+		dirs.clear();
+		dirs.addAll(d2);
+		attrs.clear();
+		attrs.addAll(a2);
+	}
+}
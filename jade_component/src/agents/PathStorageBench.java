@@ -0,0 +1,178 @@
+package agents;
+
+import java.lang.ref.Reference;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Benchmark pentru ce ține un Finder în memorie despre subarborele lui:
+ * compară FinderIndex (coloane primitive, nume UTF-8 în afara heap-ului, căi
+ * reconstruite la cerere) cu o listă simplă de java.nio.file.Path. Arborele e
+ * sintetic (fără disc), ca să poată avea milioane de intrări.
+ *
+ * Pentru fiecare variantă afișează octeții pe intrare (heap și off-heap),
+ * durata unui GC complet cu structura vie și timpul de GC al unei încărcări
+ * care alocă obiecte de scurtă durată (cu o mică parte promovată), cum face
+ * un agent care servește cereri. Ultimele coloane: costul reconstruirii unei
+ * căi (ce plătește FinderIndex doar pentru rezultate) și lungimea ei medie.
+ *
+ * Rulare: java -Xmx4g -cp bin agents.PathStorageBench [intrări] [fanout]
+ */
+public final class PathStorageBench {
+
+	/** Fișiere în fiecare director generat */
+	private static final int FILES_PER_DIR = 20;
+
+	private static final String[] EXT = { "txt", "log", "java", "json", "png", "dat", "md", "csv" };
+
+	/** Cât alocă încărcarea de fond (MB) și câte obiecte din ea rămân vii */
+	private static final int CHURN_MB = 2_048;
+	private static final int CHURN_RETAINED = 200_000;
+
+	/** Câte căi sunt reconstruite pentru a măsura costul unui rezultat */
+	private static final int REBUILT = 100_000;
+
+	/** Primește intrările arborelui sintetic și întoarce id-ul fiecăreia */
+	private interface Sink {
+		int add(int parent, String name, boolean directory);
+	}
+
+	private PathStorageBench() {
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		int entries = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+		int fanout = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+		Path base = Paths.get(System.getProperty("java.io.tmpdir"), "path-storage-bench").toAbsolutePath();
+
+		System.out.printf(Locale.ROOT, "%d intrări, %d subdirectoare și %d fișiere pe director%n%n", entries, fanout,
+				FILES_PER_DIR);
+		System.out.printf("%-12s %9s %12s %12s %12s %12s %12s %10s%n", "stocare", "build ms", "heap B/int",
+				"off-heap B/int", "GC complet ms", "GC fond ms", "cale µs", "cale car.");
+
+		/** Variantele rulează pe rând; fiecare pornește de la un heap curățat */
+		{
+			long[] before = usage();
+			long t0 = System.nanoTime();
+			FinderIndex idx = FinderIndex.empty(base);
+			generate(entries, fanout, (parent, name, dir) -> idx.add(parent, name, dir, dir ? 0 : name.length(), 0));
+			long buildMs = (System.nanoTime() - t0) / 1_000_000;
+			long[] after = usage();
+
+			Random rnd = new Random(3);
+			long r0 = System.nanoTime();
+			long chars = 0;
+			for (int i = 0; i < REBUILT; i++)
+				chars += idx.path(1 + rnd.nextInt(idx.size() - 1)).toString().length();
+			double pathMicros = (System.nanoTime() - r0) / 1e3 / REBUILT;
+
+			report("FinderIndex", entries, buildMs, before, after, pathMicros, (double) chars / REBUILT);
+			Reference.reachabilityFence(idx);
+		}
+		{
+			long[] before = usage();
+			long t0 = System.nanoTime();
+			List<Path> paths = new ArrayList<>();
+			paths.add(base);
+			generate(entries, fanout, (parent, name, dir) -> {
+				paths.add(paths.get(parent).resolve(name));
+				return paths.size() - 1;
+			});
+			long buildMs = (System.nanoTime() - t0) / 1_000_000;
+			long[] after = usage();
+
+			Random rnd = new Random(3);
+			long r0 = System.nanoTime();
+			long chars = 0;
+			for (int i = 0; i < REBUILT; i++)
+				chars += paths.get(1 + rnd.nextInt(paths.size() - 1)).toString().length();
+			double pathMicros = (System.nanoTime() - r0) / 1e3 / REBUILT;
+
+			report("List<Path>", entries, buildMs, before, after, pathMicros, (double) chars / REBUILT);
+			Reference.reachabilityFence(paths);
+		}
+	}
+
+	/**
+	 * Arborele sintetic, în lățime: fiecare director primește FILES_PER_DIR
+	 * fișiere și fanout subdirectoare, până la numărul cerut de intrări
+	 * (rădăcina, id 0, e deja în sink).
+	 */
+	private static void generate(int entries, int fanout, Sink sink) {
+		Random rnd = new Random(42);
+		int[] queue = new int[entries + 1];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = 0;
+		int n = 1;
+		while (n < entries && head < tail) {
+			int dir = queue[head++];
+			for (int f = 0; f < FILES_PER_DIR && n < entries; f++, n++)
+				sink.add(dir, "file_" + Integer.toString(rnd.nextInt(1 << 30), 36) + "." + EXT[rnd.nextInt(EXT.length)],
+						false);
+			for (int d = 0; d < fanout && n < entries; d++, n++)
+				queue[tail++] = sink.add(dir, "dir_" + n, true);
+		}
+	}
+
+	/**
+	 * Măsoară cu structura vie: octeții pe intrare, un GC complet și timpul de
+	 * GC al încărcării de fond.
+	 */
+	private static void report(String label, int entries, long buildMs, long[] before, long[] after,
+			double pathMicros, double pathChars) {
+		long t0 = System.nanoTime();
+		System.gc();
+		double fullGcMs = (System.nanoTime() - t0) / 1e6;
+
+		long gcBefore = gcMillis();
+		churn();
+		long churnGcMs = gcMillis() - gcBefore;
+
+		System.out.printf(Locale.ROOT, "%-12s %9d %12.1f %12.1f %12.1f %12d %12.2f %10.1f%n", label, buildMs,
+				(double) (after[0] - before[0]) / entries, (double) (after[1] - before[1]) / entries, fullGcMs,
+				churnGcMs, pathMicros, pathChars);
+	}
+
+	/** Alocă CHURN_MB în obiecte mici; o parte rămâne vie (inel), ca să fie promovată */
+	private static void churn() {
+		Object[] retained = new Object[CHURN_RETAINED];
+		long allocated = 0;
+		int i = 0;
+		while (allocated < (long) CHURN_MB << 20) {
+			byte[] b = new byte[64 + (i & 127)];
+			if ((i & 63) == 0)
+				retained[(i >>> 6) % retained.length] = b;
+			allocated += b.length + 16;
+			i++;
+		}
+	}
+
+	/** Timpul total petrecut de colectoare (ms), de la pornirea JVM-ului */
+	private static long gcMillis() {
+		long total = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			total += Math.max(0, gc.getCollectionTime());
+		return total;
+	}
+
+	/** Heap-ul folosit și memoria din buffer-ele directe/mapate, după GC */
+	private static long[] usage() throws InterruptedException {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+		long offHeap = 0;
+		for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class))
+			offHeap += pool.getMemoryUsed();
+		return new long[] { heap, offHeap };
+	}
+}
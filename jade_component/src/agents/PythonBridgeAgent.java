@@ -2,6 +2,7 @@ package agents;
 
 import jade.core.Agent;
 import jade.core.behaviours.CyclicBehaviour;
+import jade.core.behaviours.TickerBehaviour;
 import jade.domain.DFService;
 import jade.domain.FIPAAgentManagement.DFAgentDescription;
 import jade.domain.FIPAAgentManagement.ServiceDescription;
@@ -14,24 +15,53 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * Agent "bridge" între JADE și un serviciu AI local (FastAPI). Primește cereri
  * de tip REQUEST pe ontologia AI_ANALYSIS și întoarce răspunsul API-ului ca
- * INFORM.
+ * INFORM. Cererile sunt distribuite pe un pool de backend-uri (argumentele
+ * agentului sau proprietatea "ai.backends"), verificate periodic prin /health.
  */
 public class PythonBridgeAgent extends Agent {
 
 	/** Ontologia folosită pentru mesajele de analiză AI */
 	public static final String ONT_AI = "AI_ANALYSIS";
 
+	/** Endpoint-ul implicit dacă nu este configurat altceva */
+	public static final String DEFAULT_BACKENDS = "http://127.0.0.1:8000";
+
+	/** Header HTTP cu convId-ul căutării (apare în log-urile serviciului Python) */
+	static final String HEADER_CONV_ID = "X-Conv-Id";
+
+	/** Intervalul dintre două verificări /health */
+	private static final long HEALTH_PERIOD_MS = 5_000;
+
+	/** Timeout pentru verificarea /health */
+	private static final Duration HEALTH_TIMEOUT = Duration.ofSeconds(2);
+
+	/** Timeout pentru o analiză (modelul local poate fi lent) */
+	private static final Duration SOLVE_TIMEOUT = Duration.ofSeconds(60);
+
 	/** Client HTTP folosit pentru apelul către FastAPI (localhost) */
-	private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+	private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+			.connectTimeout(HEALTH_TIMEOUT).build();
+
+	/** Backend-urile disponibile (least-in-flight + circuit breaker) */
+	private AiBackendPool pool;
 
 	@Override
 	protected void setup() {
+		/** Lista de backend-uri: argumente agent > -Dai.backends > implicit */
+		Object[] args = getArguments();
+		String spec = (args != null && args.length > 0 && args[0] != null) ? String.valueOf(args[0])
+				: System.getProperty("ai.backends", DEFAULT_BACKENDS);
+		pool = AiBackendPool.fromSpec(spec);
+		if (pool.all().isEmpty())
+			pool = AiBackendPool.fromSpec(DEFAULT_BACKENDS);
+
 		/** Înregistrare în DF ca serviciu "python-bridge" */
 		DFAgentDescription dfd = new DFAgentDescription();
 		dfd.setName(getAID());
@@ -47,7 +77,16 @@ public class PythonBridgeAgent extends Agent {
 			e.printStackTrace();
 		}
 
-		System.out.println(getLocalName() + " (PythonBridgeAgent) pornit.");
+		System.out.println(getLocalName() + " (PythonBridgeAgent) pornit. Backend-uri: " + pool);
+
+		/** Health check periodic: închide/deschide circuitele fără să aștepte cereri */
+		probeHealth();
+		addBehaviour(new TickerBehaviour(this, HEALTH_PERIOD_MS) {
+			@Override
+			protected void onTick() {
+				probeHealth();
+			}
+		});
 
 		/** Primește doar REQUEST cu ontologia AI_ANALYSIS */
 		MessageTemplate mt = MessageTemplate.and(MessageTemplate.MatchPerformative(ACLMessage.REQUEST),
@@ -63,53 +102,95 @@ public class PythonBridgeAgent extends Agent {
 					return;
 				}
 
-				try {
-					String content = msg.getContent() == null ? "" : msg.getContent();
-					String filePath = extractFilePath(content);
-
-					/** Construiește JSON-ul pentru serviciul FastAPI */
-					String payload = String.format(
-							"{\"instruction\":\"Analyze file type and likely role based only on the filepath string.\",\"filepath\":\"%s\"}",
-							escapeJson(filePath));
-
-					System.out.println("=== SENDING ===");
-					System.out.println(payload);
-					System.out.println("===============");
-
-					/** Request către endpoint-ul local */
-					HttpRequest req = HttpRequest.newBuilder().uri(URI.create("http://127.0.0.1:8000/agent/solve"))
-							.header("Content-Type", "application/json")
-							.POST(BodyPublishers.ofString(payload, StandardCharsets.UTF_8)).build();
-
-					HttpResponse<String> resp = http.send(req,
-							HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
-
-					System.out.println("=== RESPONSE ===");
-					System.out.println("Status: " + resp.statusCode());
-					System.out.println(resp.body());
-					System.out.println("================");
-
-					/** Răspuns către Searcher: INFORM + aceeași ontologie */
-					ACLMessage reply = msg.createReply();
-					reply.setPerformative(ACLMessage.INFORM);
-					reply.setOntology(ONT_AI);
-					reply.setContent(resp.body());
-
-					myAgent.send(reply);
-
-				} catch (Exception e) {
-					/** Dacă API-ul pică / e eroare de rețea: FAILURE */
-					e.printStackTrace();
-					ACLMessage failure = msg.createReply();
-					failure.setPerformative(ACLMessage.FAILURE);
-					failure.setOntology(ONT_AI);
-					failure.setContent("ERROR: " + e.getMessage());
-					myAgent.send(failure);
+				String content = msg.getContent() == null ? "" : msg.getContent();
+				String filePath = extractFilePath(content);
+				String convId = msg.getConversationId();
+				Trace.delivered(myAgent, msg, convId);
+
+				/** Construiește JSON-ul pentru serviciul FastAPI */
+				String payload = String.format(
+						"{\"instruction\":\"Analyze file type and likely role based only on the filepath string.\",\"filepath\":\"%s\"}",
+						escapeJson(filePath));
+
+				/** Toate circuitele deschise: răspunde imediat, fără să aștepte socket-uri moarte */
+				AiBackendPool.Backend backend = pool.acquire();
+				if (backend == null) {
+					replyFailure(msg, "AI indisponibil (niciun backend activ: " + pool + ")");
+					return;
 				}
+
+				System.out.println("=== SENDING -> " + backend.base + " ===");
+				System.out.println(payload);
+				System.out.println("===============");
+
+				/** Request asincron către backend-ul ales; răspunsul se trimite din callback */
+				HttpRequest.Builder rb = HttpRequest.newBuilder().uri(backend.solveUri()).timeout(SOLVE_TIMEOUT)
+						.header("Content-Type", "application/json");
+				if (convId != null)
+					rb.header(HEADER_CONV_ID, convId);
+				HttpRequest req = rb.POST(BodyPublishers.ofString(payload, StandardCharsets.UTF_8)).build();
+
+				Trace.Stage span = Trace.begin(convId, myAgent, "ai.http");
+				http.sendAsync(req, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+						.whenComplete((resp, err) -> {
+							Trace.end(span, backend.base + (err != null ? " eroare"
+									: " HTTP " + resp.statusCode() + " "
+											+ resp.headers().firstValue("Server-Timing").orElse("")));
+							if (err != null) {
+								/** Dacă API-ul pică / e eroare de rețea: FAILURE */
+								pool.release(backend, false);
+								System.out.println("[AI] " + backend.base + ": " + err);
+								replyFailure(msg, err.getMessage());
+								return;
+							}
+
+							System.out.println("=== RESPONSE ===");
+							System.out.println("Status: " + resp.statusCode());
+							System.out.println(resp.body());
+							System.out.println("================");
+
+							/** 5xx înseamnă backend nesănătos; 4xx e o problemă a cererii */
+							pool.release(backend, resp.statusCode() < 500);
+
+							if (resp.statusCode() >= 400) {
+								replyFailure(msg, "HTTP " + resp.statusCode() + " " + resp.body());
+								return;
+							}
+
+							/** Răspuns către Searcher: INFORM + aceeași ontologie */
+							ACLMessage reply = msg.createReply();
+							reply.setPerformative(ACLMessage.INFORM);
+							reply.setOntology(ONT_AI);
+							reply.setContent(resp.body());
+
+							myAgent.send(reply);
+						});
 			}
 		});
 	}
 
+	/** Trimite FAILURE către agentul apelant */
+	private void replyFailure(ACLMessage msg, String error) {
+		ACLMessage failure = msg.createReply();
+		failure.setPerformative(ACLMessage.FAILURE);
+		failure.setOntology(ONT_AI);
+		failure.setContent("ERROR: " + error);
+		send(failure);
+	}
+
+	/** Verifică asincron /health pe fiecare backend și actualizează circuitele */
+	private void probeHealth() {
+		for (AiBackendPool.Backend b : pool.all()) {
+			HttpRequest req = HttpRequest.newBuilder().uri(b.healthUri()).timeout(HEALTH_TIMEOUT).GET().build();
+			http.sendAsync(req, HttpResponse.BodyHandlers.discarding()).whenComplete((resp, err) -> {
+				if (err == null && resp.statusCode() == 200)
+					pool.recordSuccess(b);
+				else
+					pool.recordFailure(b);
+			});
+		}
+	}
+
 	/** Escapare minimă pentru a insera filepath în JSON fără să strice formatul */
 	private String escapeJson(String s) {
 		if (s == null)
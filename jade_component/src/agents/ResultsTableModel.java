@@ -0,0 +1,89 @@
+package agents;
+
+import java.util.Arrays;
+
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Model de tabel pentru rezultatele căutării. Datele sunt ținute pe coloane, în
+ * array-uri primitive, ca un milion de rânduri să nu însemne un milion de
+ * obiecte; JTable cere doar celulele vizibile. Se modifică numai pe EDT.
+ */
+class ResultsTableModel extends AbstractTableModel {
+	private static final long serialVersionUID = 1L;
+
+	/** Indicii coloanelor */
+	static final int COL_PATH = 0;
+	static final int COL_SIZE = 1;
+	static final int COL_MTIME = 2;
+
+	private static final String[] NAMES = { "Cale", "Dimensiune (B)", "Modificat" };
+
+	private String[] paths = new String[256];
+	private long[] sizes = new long[256];
+	private long[] mtimes = new long[256];
+	private int rows = 0;
+
+	/** Adaugă un lot de rânduri și anunță tabelul o singură dată */
+	void addRows(String[] p, long[] s, long[] m, int n) {
+		if (n == 0)
+			return;
+		ensureCapacity(rows + n);
+		System.arraycopy(p, 0, paths, rows, n);
+		System.arraycopy(s, 0, sizes, rows, n);
+		System.arraycopy(m, 0, mtimes, rows, n);
+		int first = rows;
+		rows += n;
+		fireTableRowsInserted(first, rows - 1);
+	}
+
+	/** Golește modelul */
+	void clear() {
+		if (rows == 0)
+			return;
+		Arrays.fill(paths, 0, rows, null);
+		rows = 0;
+		fireTableDataChanged();
+	}
+
+	private void ensureCapacity(int needed) {
+		if (needed <= paths.length)
+			return;
+		int cap = Math.max(needed, paths.length * 2);
+		paths = Arrays.copyOf(paths, cap);
+		sizes = Arrays.copyOf(sizes, cap);
+		mtimes = Arrays.copyOf(mtimes, cap);
+	}
+
+	@Override
+	public int getRowCount() {
+		return rows;
+	}
+
+	@Override
+	public int getColumnCount() {
+		return NAMES.length;
+	}
+
+	@Override
+	public String getColumnName(int column) {
+		return NAMES[column];
+	}
+
+	@Override
+	public Class<?> getColumnClass(int columnIndex) {
+		return columnIndex == COL_PATH ? String.class : Long.class;
+	}
+
+	@Override
+	public Object getValueAt(int rowIndex, int columnIndex) {
+		switch (columnIndex) {
+		case COL_PATH:
+			return paths[rowIndex];
+		case COL_SIZE:
+			return sizes[rowIndex];
+		default:
+			return mtimes[rowIndex];
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package agents;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Comandă trimisă din interfața grafică către SearcherAgent prin canalul O2A
+ * (putO2AObject). Toate valorile citite din Swing sunt capturate pe EDT, în
+ * momentul apăsării butonului, ca agentul să nu mai atingă componentele UI.
+ */
+final class SearchCommand {
+
+	/** Tipurile de comenzi acceptate de SearcherAgent */
+	enum Type {
+		START_FINDERS, SHUTDOWN_FINDERS, SEARCH, FUZZY_SEARCH, RANKED_SEARCH, QUERY, STATS, PREFIX, SET_EXTRACT_FOLDER,
+		SHUTDOWN_PLATFORM
+	}
+
+	final Type type;
+
+	/** Argumentul principal: folder, nume de fișier sau interogare */
+	final String arg;
+
+	/**
+	 * Starea checkbox-urilor în momentul comenzii; extract înseamnă copie pentru
+	 * SEARCH și arhivă zip pentru FUZZY_SEARCH / RANKED_SEARCH / QUERY
+	 */
+	final boolean extract;
+	final boolean ai;
+
+	/** Regulile de pruning/filtrare (specificație SearchFilter, doar pentru SEARCH) */
+	final String filter;
+
+	/**
+	 * Completat de agent când comanda s-a terminat (căutare încheiată, finderi
+	 * porniți sau eroare). Nu se completează niciodată pe EDT.
+	 */
+	final CompletableFuture<SearchResult> result = new CompletableFuture<>();
+
+	private SearchCommand(Type type, String arg, boolean extract, boolean ai) {
+		this(type, arg, extract, ai, null);
+	}
+
+	private SearchCommand(Type type, String arg, boolean extract, boolean ai, String filter) {
+		this.type = type;
+		this.arg = arg;
+		this.extract = extract;
+		this.ai = ai;
+		this.filter = filter;
+	}
+
+	static SearchCommand startFinders(String folder) {
+		return new SearchCommand(Type.START_FINDERS, folder, false, false);
+	}
+
+	static SearchCommand shutdownFinders() {
+		return new SearchCommand(Type.SHUTDOWN_FINDERS, null, false, false);
+	}
+
+	static SearchCommand search(String fileName, boolean extract, boolean ai, String filter) {
+		return new SearchCommand(Type.SEARCH, fileName, extract, ai, filter);
+	}
+
+	/**
+	 * Căutare tolerantă la greșeli de scriere (cele mai apropiate nume); archive =
+	 * rezultatele sunt puse într-un zip în folderul de extragere
+	 */
+	static SearchCommand fuzzySearch(String fileName, boolean archive, String filter) {
+		return new SearchCommand(Type.FUZZY_SEARCH, fileName, archive, false, filter);
+	}
+
+	/**
+	 * Toate fișierele cu numele dat, ordonate după scor (vezi MatchRanker);
+	 * archive ca la fuzzySearch
+	 */
+	static SearchCommand rankedSearch(String fileName, boolean archive, String filter) {
+		return new SearchCommand(Type.RANKED_SEARCH, fileName, archive, false, filter);
+	}
+
+	/** Interogare pe atribute (vezi MetadataQuery); archive ca la fuzzySearch */
+	static SearchCommand query(String query, boolean archive, String filter) {
+		return new SearchCommand(Type.QUERY, query, archive, false, filter);
+	}
+
+	/**
+	 * Agregate de spațiu pentru folderul finderilor: octeți pe extensie și pe
+	 * subdirector, cele mai mari top fișiere (număr; gol = implicit)
+	 */
+	static SearchCommand stats(String top, String filter) {
+		return new SearchCommand(Type.STATS, top, false, false, filter);
+	}
+
+	/**
+	 * Sugestii pentru numele tastat (nume care încep cu prefix). Nu înlocuiește
+	 * căutarea în curs, doar cererea de sugestii anterioară.
+	 */
+	static SearchCommand prefix(String prefix, String filter) {
+		return new SearchCommand(Type.PREFIX, prefix, false, false, filter);
+	}
+
+	static SearchCommand setExtractFolder(String folder) {
+		return new SearchCommand(Type.SET_EXTRACT_FOLDER, folder, false, false);
+	}
+
+	static SearchCommand shutdownPlatform() {
+		return new SearchCommand(Type.SHUTDOWN_PLATFORM, null, false, false);
+	}
+
+	/** Comandă de căutare (o căutare nouă o înlocuiește pe cea în curs) */
+	boolean isSearch() {
+		return type == Type.SEARCH || type == Type.FUZZY_SEARCH || type == Type.RANKED_SEARCH || type == Type.QUERY
+				|| type == Type.STATS;
+	}
+
+	@Override
+	public String toString() {
+		return type + (arg != null ? "|" + arg : "");
+	}
+}
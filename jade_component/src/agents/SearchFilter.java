@@ -0,0 +1,243 @@
+package agents;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Reguli de pruning și filtre pe atribute care călătoresc împreună cu cererea
+ * de căutare (parametrul "filter" al mesajului SEARCH). Formatul este o listă
+ * de perechi cheie=valoare separate prin ';', de exemplu:
+ *
+ * <pre>
+ * exclude=.git,node_modules,target;hidden=skip;maxDepth=20;minSize=1M;after=-24h;ext=log,txt
+ * </pre>
+ *
+ * Directoarele sunt tăiate în preVisitDirectory (SKIP_SUBTREE); fișierele sunt
+ * filtrate după dimensiune, dată și extensie.
+ */
+final class SearchFilter {
+
+	/** Filtrul propus de butonul din UI: directoare de build/cache + ascunse (câmpul pornește gol) */
+	static final String DEFAULT_SPEC = "exclude=.git,node_modules,target,build,.gradle,__pycache__,.cache;hidden=skip";
+
+	/** Filtru gol: nu taie nimic (comportamentul vechi) */
+	static final SearchFilter NONE = new SearchFilter();
+
+	private final List<PathMatcher> excludes = new ArrayList<>();
+	private final List<String> excludeGlobs = new ArrayList<>();
+	private int maxDepth = Integer.MAX_VALUE;
+	private boolean skipHidden = false;
+	private long minSize = 0;
+	private long maxSize = Long.MAX_VALUE;
+	private long after = Long.MIN_VALUE;
+	private long before = Long.MAX_VALUE;
+	private Set<String> extensions = null;
+
+	private SearchFilter() {
+	}
+
+	/**
+	 * Parsează specificația; null/gol înseamnă fără filtre. Aruncă
+	 * IllegalArgumentException pentru chei sau valori invalide.
+	 */
+	static SearchFilter parse(String spec) {
+		if (spec == null || spec.trim().isEmpty())
+			return NONE;
+
+		SearchFilter f = new SearchFilter();
+		long now = System.currentTimeMillis();
+
+		for (String part : spec.split(";")) {
+			String p = part.trim();
+			if (p.isEmpty())
+				continue;
+
+			int eq = p.indexOf('=');
+			if (eq <= 0)
+				throw new IllegalArgumentException("Regulă invalidă: " + p);
+
+			String key = p.substring(0, eq).trim();
+			String value = p.substring(eq + 1).trim();
+
+			switch (key) {
+			case "exclude":
+				for (String g : value.split(",")) {
+					String glob = g.trim();
+					if (glob.isEmpty())
+						continue;
+					f.excludeGlobs.add(glob);
+					f.excludes.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+				}
+				break;
+			case "maxDepth":
+				f.maxDepth = Integer.parseInt(value);
+				break;
+			case "hidden":
+				if (!"skip".equals(value) && !"include".equals(value))
+					throw new IllegalArgumentException("hidden trebuie să fie skip sau include");
+				f.skipHidden = "skip".equals(value);
+				break;
+			case "minSize":
+				f.minSize = parseSize(value);
+				break;
+			case "maxSize":
+				f.maxSize = parseSize(value);
+				break;
+			case "after":
+				f.after = parseTime(value, now);
+				break;
+			case "before":
+				f.before = parseTime(value, now);
+				break;
+			case "ext":
+				f.extensions = new HashSet<>();
+				for (String e : value.split(",")) {
+					String ext = e.trim().toLowerCase(Locale.ROOT);
+					if (ext.startsWith("."))
+						ext = ext.substring(1);
+					if (!ext.isEmpty())
+						f.extensions.add(ext);
+				}
+				break;
+			default:
+				throw new IllegalArgumentException("Cheie necunoscută: " + key);
+			}
+		}
+		return f;
+	}
+
+	/** Dimensiune cu sufix opțional K/M/G/T (puteri ale lui 1024) */
+	static long parseSize(String v) {
+		String s = v.trim().toUpperCase(Locale.ROOT);
+		long mult = 1;
+		if (s.endsWith("B"))
+			s = s.substring(0, s.length() - 1);
+		if (s.endsWith("K")) {
+			mult = 1L << 10;
+		} else if (s.endsWith("M")) {
+			mult = 1L << 20;
+		} else if (s.endsWith("G")) {
+			mult = 1L << 30;
+		} else if (s.endsWith("T")) {
+			mult = 1L << 40;
+		}
+		if (mult != 1)
+			s = s.substring(0, s.length() - 1);
+		return Long.parseLong(s.trim()) * mult;
+	}
+
+	/** Timp absolut (epoch ms) sau relativ față de acum: -30m, -24h, -7d */
+	static long parseTime(String v, long now) {
+		String s = v.trim();
+		if (s.startsWith("-")) {
+			if (s.length() < 3)
+				throw new IllegalArgumentException("Timp relativ invalid: " + v);
+			char unit = s.charAt(s.length() - 1);
+			long n = Long.parseLong(s.substring(1, s.length() - 1));
+			switch (unit) {
+			case 's':
+				return now - n * 1_000L;
+			case 'm':
+				return now - n * 60_000L;
+			case 'h':
+				return now - n * 3_600_000L;
+			case 'd':
+				return now - n * 86_400_000L;
+			default:
+				throw new IllegalArgumentException("Unitate de timp necunoscută: " + unit);
+			}
+		}
+		return Long.parseLong(s);
+	}
+
+	/** true dacă există filtre pe fișiere (altfel nu mai verificăm atributele) */
+	boolean hasFileCriteria() {
+		return minSize > 0 || maxSize != Long.MAX_VALUE || after != Long.MIN_VALUE || before != Long.MAX_VALUE
+				|| extensions != null;
+	}
+
+	/**
+	 * true dacă subarborele trebuie sărit. depth = adâncimea directorului față de
+	 * baseDir (baseDir are adâncimea 0 și nu este tăiat niciodată).
+	 */
+	boolean pruneDirectory(Path dir, int depth, BasicFileAttributes attrs) {
+		if (depth == 0)
+			return false;
+		if (depth > maxDepth)
+			return true;
+
+		Path name = dir.getFileName();
+		if (name == null)
+			return false;
+
+		if (skipHidden && isHidden(name, attrs))
+			return true;
+
+		for (PathMatcher m : excludes) {
+			if (m.matches(name))
+				return true;
+		}
+		return false;
+	}
+
+	/** true dacă fișierul trece de filtrele pe dimensiune, dată și extensie */
+	boolean acceptFile(Path file, BasicFileAttributes attrs) {
+		long size = attrs.size();
+		if (size < minSize || size > maxSize)
+			return false;
+
+		long mtime = attrs.lastModifiedTime().toMillis();
+		if (mtime < after || mtime > before)
+			return false;
+
+		if (extensions != null) {
+			String name = file.getFileName().toString();
+			int dot = name.lastIndexOf('.');
+			String ext = dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+			if (!extensions.contains(ext))
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean isHidden(Path name, BasicFileAttributes attrs) {
+		if (name.toString().startsWith("."))
+			return true;
+		return attrs instanceof DosFileAttributes && ((DosFileAttributes) attrs).isHidden();
+	}
+
+	/** Reconstruiește specificația (pentru log / retransmitere) */
+	String toSpec() {
+		StringBuilder sb = new StringBuilder();
+		if (!excludeGlobs.isEmpty())
+			sb.append("exclude=").append(String.join(",", excludeGlobs)).append(';');
+		if (skipHidden)
+			sb.append("hidden=skip;");
+		if (maxDepth != Integer.MAX_VALUE)
+			sb.append("maxDepth=").append(maxDepth).append(';');
+		if (minSize > 0)
+			sb.append("minSize=").append(minSize).append(';');
+		if (maxSize != Long.MAX_VALUE)
+			sb.append("maxSize=").append(maxSize).append(';');
+		if (after != Long.MIN_VALUE)
+			sb.append("after=").append(after).append(';');
+		if (before != Long.MAX_VALUE)
+			sb.append("before=").append(before).append(';');
+		if (extensions != null)
+			sb.append("ext=").append(String.join(",", extensions)).append(';');
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return toSpec();
+	}
+}
@@ -0,0 +1,55 @@
+package agents;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Rezultatul unei comenzi procesate de SearcherAgent, întors prin
+ * SearchCommand.result. Interfața grafică nu îl folosește; îl folosesc
+ * clienții fără GUI (harness-ul de încărcare, gateway-ul HTTP).
+ */
+final class SearchResult {
+
+	enum Status {
+		/** Fișierul a fost găsit (rows are un singur rând) */
+		FOUND,
+		/** Niciun finder nu are fișierul */
+		NOT_FOUND,
+		/** Rezultate fuzzy / de interogare, deja îmbinate și ordonate */
+		RESULTS,
+		/** Finderii au pornit (message = numărul lor) */
+		STARTED,
+		/** Comanda nu a putut fi executată (message = motivul) */
+		ERROR,
+		/** O comandă mai nouă a înlocuit-o înainte să se termine */
+		SUPERSEDED,
+		/** Comandă fără rezultat propriu-zis (oprire finderi, folder de extragere) */
+		DONE
+	}
+
+	final Status status;
+
+	/** convId-ul căutării (null pentru comenzile care nu au ajuns la finderi) */
+	final String convId;
+
+	final List<MetadataQuery.Row> rows;
+
+	/** Text suplimentar: eroarea, răspunsul AI, numărul de finderi */
+	final String message;
+
+	SearchResult(Status status, String convId, List<MetadataQuery.Row> rows, String message) {
+		this.status = status;
+		this.convId = convId;
+		this.rows = rows == null ? Collections.emptyList() : rows;
+		this.message = message;
+	}
+
+	static SearchResult error(String message) {
+		return new SearchResult(Status.ERROR, null, null, message);
+	}
+
+	@Override
+	public String toString() {
+		return status + (convId != null ? "|" + convId : "") + "|" + rows.size() + (message != null ? "|" + message : "");
+	}
+}
@@ -1,38 +1,96 @@
 package agents;
 
+import java.awt.Dimension;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.swing.AbstractAction;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JMenuItem;
 import javax.swing.JPanel;
+import javax.swing.JPopupMenu;
 import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
+import javax.swing.JTable;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.KeyStroke;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.TableRowSorter;
+import javax.swing.text.BadLocationException;
 
 /**
  * Interfața Swing pentru aplicația de căutare distribuită. Permite: alegerea
  * folderului, pornirea/oprirea agenților Finder, căutarea unui fișier, setarea
- * folderului de extragere și afișarea log-ului.
+ * folderului de extragere și afișarea log-ului. Log-ul și rezultatele sunt
+ * acumulate din orice thread și scrise pe EDT în loturi, cel mult o dată pe
+ * cadru.
  */
 class SearchWindow extends JFrame {
 	private static final long serialVersionUID = 1L;
 
+	/** Numărul maxim de linii păstrate în log (cele vechi se elimină) */
+	private static final int MAX_LOG_LINES = 5_000;
+
+	/** Intervalul minim dintre două scrieri pe EDT (~un cadru la 60 Hz) */
+	private static final int FLUSH_MS = 16;
+
 	/** Zonă de log (cu scroll vertical), folosită pentru mesaje din aplicație */
 	private final JTextArea log = new JTextArea(15, 55);
 
+	/** Buffer circular cu liniile care încă nu au ajuns în JTextArea */
+	private final String[] pendingLog = new String[MAX_LOG_LINES];
+	private int pendingHead = 0;
+	private int pendingCount = 0;
+	private boolean pendingClear = false;
+
+	/** Rezultate care încă nu au ajuns în tabel (coloane paralele) */
+	private String[] pendingPaths = new String[64];
+	private long[] pendingSizes = new long[64];
+	private long[] pendingMtimes = new long[64];
+	private int pendingResults = 0;
+	private boolean pendingResultsClear = false;
+
+	/** Lacăt pentru bufferele de mai sus (scrise din thread-urile agentului) */
+	private final Object pendingLock = new Object();
+
+	/** true cât timp o scriere pe EDT este deja programată */
+	private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+	/** Timer single-shot care golește bufferele pe EDT */
+	private final Timer flushTimer = new Timer(FLUSH_MS, e -> flush());
+
+	/** Tabelul de rezultate (virtualizat: se desenează doar rândurile vizibile) */
+	private final ResultsTableModel results = new ResultsTableModel();
+	private final JTable resultsTable = new JTable(results);
+
 	/** Input: numele fișierului de căutat */
 	private final JTextField fileField = new JTextField(18);
 
 	/** Afișează folderul selectat pentru căutare (read-only) */
 	private final JTextField folderField = new JTextField(28);
 
+	/** Reguli de pruning/filtrare trimise cu fiecare căutare (vezi SearchFilter) */
+	private final JTextField filterField = new JTextField(45);
+
+	/** Buton: completează filtrul cu excluderile uzuale (SearchFilter.DEFAULT_SPEC) */
+	private final JButton presetFilterBtn = new JButton("Exclude build/ascunse");
+
 	/** Afișează folderul selectat pentru extragere (read-only) */
 	private final JTextField extractField = new JTextField(28);
 
@@ -54,11 +112,42 @@ class SearchWindow extends JFrame {
 	/** Opțiune: dacă fișierul găsit se copiază în folderul de extragere */
 	private final JCheckBox cbExtract = new JCheckBox("Extragere fișier", true);
 
+	/**
+	 * Modul căutării: nume exact, fuzzy (toleranță la greșeli de scriere),
+	 * ordonat (toate potrivirile, cele mai relevante întâi) sau interogare pe
+	 * atribute (ex. "size>1G mtime>-24h", "ext=log sort=-mtime limit=50"); Stats
+	 * calculează spațiul pe extensie și subdirector, iar câmpul de nume e
+	 * numărul de fișiere mari afișate (gol = implicit)
+	 */
+	private final JComboBox<String> modeBox = new JComboBox<>(
+			new String[] { "Exact", "Fuzzy", "Query", "Ranked", "Stats" });
+
+	/** Totalurile STATS de până acum, actualizate la fiecare răspuns de finder */
+	private final JLabel statsLabel = new JLabel(" ");
+
 	/** Opțiune: trimite fișierul către AI pentru analiză */
 	private final JCheckBox cbAI = new JCheckBox("Analiză AI", true);
 
+	/** Pauza de tastare după care se cer sugestii (ms) și lungimea minimă a prefixului */
+	private static final int SUGGEST_DELAY_MS = 120;
+	private static final int SUGGEST_MIN_CHARS = 2;
+
+	/** Sugestiile pentru numele tastat, sub fileField (nu ia focusul) */
+	private final JPopupMenu suggestions = new JPopupMenu();
+
+	/** Timer single-shot repornit la fiecare tastă (debounce) */
+	private final Timer suggestTimer;
+
+	/** Ultima cerere de sugestii; rezultatele celor mai vechi sunt ignorate */
+	private SearchCommand pendingSuggest = null;
+
+	/** true cât fileField e completat dintr-o sugestie (nu cere sugestii noi) */
+	private boolean applyingSuggestion = false;
+
 	/**
-	 * Construiește UI-ul și leagă acțiunile de metodele agentului Searcher.
+	 * Construiește UI-ul și leagă acțiunile de agentul Searcher. Butoanele doar
+	 * pun comenzi în coada O2A a agentului; nu se face nicio operație de agent pe
+	 * EDT.
 	 */
 	public SearchWindow(SearcherAgent agent) {
 		setTitle("Distributed File Search");
@@ -92,13 +181,13 @@ class SearchWindow extends JFrame {
 		startBtn.addActionListener(e -> {
 			setSearchEnabled(false);
 			setStartEnabled(false);
-			agent.startFinders(folderField.getText());
+			agent.submit(SearchCommand.startFinders(folderField.getText()));
 		});
 		row1.add(startBtn);
 
 		shutdownBtn.addActionListener(e -> {
 			setSearchEnabled(false);
-			agent.shutdownFinders();
+			agent.submit(SearchCommand.shutdownFinders());
 		});
 		row1.add(shutdownBtn);
 
@@ -114,7 +203,7 @@ class SearchWindow extends JFrame {
 			if (res == JFileChooser.APPROVE_OPTION) {
 				File dir = fc.getSelectedFile();
 				extractField.setText(dir.getAbsolutePath());
-				agent.setExtractFolder(dir.getAbsolutePath());
+				agent.submit(SearchCommand.setExtractFolder(dir.getAbsolutePath()));
 				appendLog("Folder extragere setat.");
 			}
 		});
@@ -126,19 +215,98 @@ class SearchWindow extends JFrame {
 		row2.add(new JLabel("Nume fișier:"));
 		row2.add(fileField);
 
+		/** Sugestii cât se tastează: cererea pleacă după o pauză, cea veche e înlocuită */
+		suggestions.setFocusable(false);
+		suggestTimer = new Timer(SUGGEST_DELAY_MS, e -> requestSuggestions(agent));
+		suggestTimer.setRepeats(false);
+		fileField.getDocument().addDocumentListener(new DocumentListener() {
+			@Override
+			public void insertUpdate(DocumentEvent e) {
+				fileTyped();
+			}
+
+			@Override
+			public void removeUpdate(DocumentEvent e) {
+				fileTyped();
+			}
+
+			@Override
+			public void changedUpdate(DocumentEvent e) {
+			}
+		});
+		fileField.getInputMap().put(KeyStroke.getKeyStroke("ESCAPE"), "hideSuggestions");
+		fileField.getActionMap().put("hideSuggestions", new AbstractAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void actionPerformed(java.awt.event.ActionEvent e) {
+				hideSuggestions();
+			}
+		});
+
 		searchBtn.setEnabled(false);
-		searchBtn.addActionListener(e -> agent.searchFile(fileField.getText()));
+		searchBtn.addActionListener(e -> {
+			hideSuggestions();
+			if (modeBox.getSelectedIndex() == 1)
+				agent.submit(SearchCommand.fuzzySearch(fileField.getText(), cbExtract.isSelected(), filterField.getText()));
+			else if (modeBox.getSelectedIndex() == 2)
+				agent.submit(SearchCommand.query(fileField.getText(), cbExtract.isSelected(), filterField.getText()));
+			else if (modeBox.getSelectedIndex() == 3)
+				agent.submit(SearchCommand.rankedSearch(fileField.getText(), cbExtract.isSelected(), filterField.getText()));
+			else if (modeBox.getSelectedIndex() == 4)
+				agent.submit(SearchCommand.stats(fileField.getText(), filterField.getText()));
+			else
+				agent.submit(SearchCommand.search(fileField.getText(), cbExtract.isSelected(), cbAI.isSelected(),
+						filterField.getText()));
+		});
+		row2.add(modeBox);
 		row2.add(searchBtn);
 		row2.add(cbAI);
 
+		/** Rândul 3: filtre (excluderi, adâncime, ascunse, dimensiune, dată, extensie) */
+		JPanel rowFilter = new JPanel();
+		rowFilter.add(new JLabel("Filtre:"));
+		filterField.setToolTipText(
+				"exclude=glob,...;hidden=skip|include;maxDepth=N;minSize=1M;maxSize=1G;after=-24h;before=...;ext=log,txt");
+		rowFilter.add(filterField);
+		presetFilterBtn.setToolTipText(SearchFilter.DEFAULT_SPEC);
+		presetFilterBtn.addActionListener(e -> filterField.setText(SearchFilter.DEFAULT_SPEC));
+		rowFilter.add(presetFilterBtn);
+
+		/** Rândul 4: totalurile STATS */
+		JPanel rowStats = new JPanel();
+		rowStats.add(statsLabel);
+
 		add(row1);
 		add(rowExtract);
 		add(row2);
+		add(rowFilter);
+		add(rowStats);
+
+		/** Tabel de rezultate sortabil după cale, dimensiune și dată */
+		TableRowSorter<ResultsTableModel> sorter = new TableRowSorter<>(results);
+		resultsTable.setRowSorter(sorter);
+		resultsTable.setFillsViewportHeight(true);
+		resultsTable.getColumnModel().getColumn(ResultsTableModel.COL_PATH).setPreferredWidth(420);
+		resultsTable.getColumnModel().getColumn(ResultsTableModel.COL_MTIME)
+				.setCellRenderer(new DefaultTableCellRenderer() {
+					private static final long serialVersionUID = 1L;
+					private final SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+					@Override
+					protected void setValue(Object value) {
+						setText(value instanceof Long ? fmt.format(new Date((Long) value)) : "");
+					}
+				});
+		JScrollPane resultsScroll = new JScrollPane(resultsTable);
+		resultsScroll.setPreferredSize(new Dimension(600, 160));
 
 		/** Scroll doar pe verticală (fără bară orizontală) */
 		JScrollPane scroll = new JScrollPane(log, JScrollPane.VERTICAL_SCROLLBAR_ALWAYS,
 				JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
-		add(scroll);
+		add(new JSplitPane(JSplitPane.VERTICAL_SPLIT, resultsScroll, scroll));
+
+		flushTimer.setRepeats(false);
 
 		/** În loc de scroll orizontal, face wrap pe linii */
 		log.setLineWrap(true);
@@ -152,11 +320,71 @@ class SearchWindow extends JFrame {
 		addWindowListener(new WindowAdapter() {
 			@Override
 			public void windowClosing(WindowEvent e) {
-				agent.shutdownPlatform();
+				agent.submit(SearchCommand.shutdownPlatform());
 			}
 		});
 	}
 
+	/** fileField s-a schimbat: repornește debounce-ul (sau ascunde lista) */
+	private void fileTyped() {
+		if (applyingSuggestion)
+			return;
+		pendingSuggest = null;
+		/** Query și Stats nu caută nume */
+		int mode = modeBox.getSelectedIndex();
+		if (fileField.getText().trim().length() < SUGGEST_MIN_CHARS || mode == 2 || mode == 4) {
+			suggestTimer.stop();
+			hideSuggestions();
+			return;
+		}
+		suggestTimer.restart();
+	}
+
+	/** Cere sugestii pentru textul curent; doar răspunsul ultimei cereri e afișat */
+	private void requestSuggestions(SearcherAgent agent) {
+		SearchCommand cmd = SearchCommand.prefix(fileField.getText(), filterField.getText());
+		pendingSuggest = cmd;
+		agent.submit(cmd);
+		cmd.result.thenAccept(r -> SwingUtilities.invokeLater(() -> showSuggestions(cmd, r)));
+	}
+
+	private void showSuggestions(SearchCommand cmd, SearchResult r) {
+		if (cmd != pendingSuggest || r.status != SearchResult.Status.RESULTS)
+			return;
+		pendingSuggest = null;
+		suggestions.removeAll();
+		for (MetadataQuery.Row row : r.rows) {
+			String name = new File(row.path).getName();
+			JMenuItem item = new JMenuItem(name);
+			item.setToolTipText(row.path);
+			item.addActionListener(e -> applySuggestion(name));
+			suggestions.add(item);
+		}
+		if (r.rows.isEmpty() || !fileField.isShowing()) {
+			hideSuggestions();
+			return;
+		}
+		suggestions.pack();
+		suggestions.show(fileField, 0, fileField.getHeight());
+		fileField.requestFocusInWindow();
+	}
+
+	private void applySuggestion(String name) {
+		applyingSuggestion = true;
+		try {
+			fileField.setText(name);
+		} finally {
+			applyingSuggestion = false;
+		}
+		hideSuggestions();
+		fileField.requestFocusInWindow();
+	}
+
+	private void hideSuggestions() {
+		pendingSuggest = null;
+		suggestions.setVisible(false);
+	}
+
 	/** Activează/dezactivează butonul Start */
 	public void setStartEnabled(boolean enabled) {
 		SwingUtilities.invokeLater(() -> startBtn.setEnabled(enabled));
@@ -167,6 +395,11 @@ class SearchWindow extends JFrame {
 		SwingUtilities.invokeLater(() -> searchBtn.setEnabled(ready));
 	}
 
+	/** Afișează totalurile STATS (din orice thread) */
+	public void showStats(String summary) {
+		SwingUtilities.invokeLater(() -> statsLabel.setText(summary));
+	}
+
 	/** Returnează dacă extragerea este activată */
 	public boolean isExtractEnabled() {
 		return cbExtract.isSelected();
@@ -177,16 +410,117 @@ class SearchWindow extends JFrame {
 		return cbAI.isSelected();
 	}
 
-	/** Adaugă o linie în log */
+	/** Adaugă o linie în log (din orice thread; scrierea pe EDT e grupată) */
 	public void appendLog(String s) {
-		SwingUtilities.invokeLater(() -> {
-			log.append(s + "\n");
-			log.setCaretPosition(log.getDocument().getLength());
-		});
+		synchronized (pendingLock) {
+			if (pendingCount == MAX_LOG_LINES) {
+				/** Bufferul e plin: se pierde cea mai veche linie */
+				pendingHead = (pendingHead + 1) % MAX_LOG_LINES;
+				pendingCount--;
+			}
+			pendingLog[(pendingHead + pendingCount) % MAX_LOG_LINES] = s;
+			pendingCount++;
+		}
+		scheduleFlush();
 	}
 
 	/** Curăță log-ul */
 	public void clearLog() {
-		SwingUtilities.invokeLater(() -> log.setText(""));
+		synchronized (pendingLock) {
+			pendingHead = 0;
+			pendingCount = 0;
+			pendingClear = true;
+		}
+		scheduleFlush();
+	}
+
+	/** Adaugă un rezultat în tabel (din orice thread) */
+	public void addResult(String path, long size, long mtime) {
+		synchronized (pendingLock) {
+			if (pendingResults == pendingPaths.length) {
+				int cap = pendingPaths.length * 2;
+				pendingPaths = Arrays.copyOf(pendingPaths, cap);
+				pendingSizes = Arrays.copyOf(pendingSizes, cap);
+				pendingMtimes = Arrays.copyOf(pendingMtimes, cap);
+			}
+			pendingPaths[pendingResults] = path;
+			pendingSizes[pendingResults] = size;
+			pendingMtimes[pendingResults] = mtime;
+			pendingResults++;
+		}
+		scheduleFlush();
+	}
+
+	/** Golește tabelul de rezultate */
+	public void clearResults() {
+		synchronized (pendingLock) {
+			pendingResults = 0;
+			pendingResultsClear = true;
+		}
+		scheduleFlush();
+	}
+
+	/** Programează o singură scriere pe EDT pentru toate modificările din cadrul curent */
+	private void scheduleFlush() {
+		if (flushScheduled.compareAndSet(false, true))
+			SwingUtilities.invokeLater(flushTimer::restart);
+	}
+
+	/** Rulează pe EDT: mută bufferele în JTextArea și în tabel */
+	private void flush() {
+		StringBuilder sb = new StringBuilder();
+		boolean clear;
+		boolean clearResultsNow;
+		String[] paths;
+		long[] sizes;
+		long[] mtimes;
+		int n;
+
+		synchronized (pendingLock) {
+			flushScheduled.set(false);
+
+			clear = pendingClear;
+			pendingClear = false;
+			for (int i = 0; i < pendingCount; i++) {
+				int idx = (pendingHead + i) % MAX_LOG_LINES;
+				sb.append(pendingLog[idx]).append('\n');
+				pendingLog[idx] = null;
+			}
+			pendingHead = 0;
+			pendingCount = 0;
+
+			clearResultsNow = pendingResultsClear;
+			pendingResultsClear = false;
+			paths = pendingPaths;
+			sizes = pendingSizes;
+			mtimes = pendingMtimes;
+			n = pendingResults;
+			if (n > 0) {
+				pendingPaths = new String[64];
+				pendingSizes = new long[64];
+				pendingMtimes = new long[64];
+				pendingResults = 0;
+			}
+		}
+
+		if (clear)
+			log.setText("");
+		if (sb.length() > 0) {
+			log.append(sb.toString());
+
+			/** Păstrează doar ultimele MAX_LOG_LINES linii în document */
+			int excess = log.getLineCount() - MAX_LOG_LINES;
+			if (excess > 0) {
+				try {
+					log.replaceRange("", 0, log.getLineEndOffset(excess - 1));
+				} catch (BadLocationException ignored) {
+				}
+			}
+			log.setCaretPosition(log.getDocument().getLength());
+		}
+
+		if (clearResultsNow)
+			results.clear();
+		results.addRows(paths, sizes, mtimes, n);
 	}
 }
@@ -5,8 +5,10 @@ import jade.core.AID;
 import jade.core.behaviours.CyclicBehaviour;
 import jade.core.behaviours.OneShotBehaviour;
 import jade.core.behaviours.TickerBehaviour;
+import jade.core.behaviours.WakerBehaviour;
 import jade.domain.DFService;
 import jade.domain.FIPAAgentManagement.DFAgentDescription;
+import jade.domain.FIPAAgentManagement.SearchConstraints;
 import jade.domain.FIPAAgentManagement.ServiceDescription;
 
 import jade.lang.acl.ACLMessage;
@@ -23,9 +25,21 @@ import jade.wrapper.AgentController;
 import jade.wrapper.ContainerController;
 
 import javax.swing.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.UUID;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Agentul principal (client) care: - pornește automat Controller +
@@ -42,6 +56,19 @@ public class SearcherAgent extends Agent {
 	/** Lista Finderilor detectați în DF (cache) */
 	private final List<AID> cachedFinders = new ArrayList<>();
 
+	/** Sketch-urile de nume publicate de finderi (doar thread-ul agentului) */
+	private final Map<AID, NameSketch> sketches = new HashMap<>();
+
+	/** Finderii la care căutarea curentă a fost trimisă pe baza sketch-ului */
+	private final Set<AID> sketchRouted = new HashSet<>();
+
+	/**
+	 * Finderii săriți de sketch la căutarea exactă curentă. Sketch-ul e vechi de
+	 * până la un REFRESH_MS (un fișier nou nu apare în el), deci dacă primul val
+	 * nu găsește fișierul, căutarea e trimisă și lor (al doilea val).
+	 */
+	private final List<AID> sketchSkipped = new ArrayList<>();
+
 	/** Interfața grafică */
 	private SearchWindow gui;
 
@@ -65,28 +92,245 @@ public class SearcherAgent extends Agent {
 	private volatile int expectedResponses = 0;
 	private volatile int receivedResponses = 0;
 
+	/** Regulile de filtrare ale căutării curente (specificație SearchFilter) */
+	private volatile String searchFilter = "";
+
+	/** Total intrări tăiate de filtre, raportat de finderi */
+	private volatile long prunedEntries = 0;
+
+	/** Finderii care au refuzat căutarea curentă (BUSY/REJECTED) sau au căzut: rezultatul e incomplet */
+	private int refusedResponses = 0;
+
+	/**
+	 * Finderii (nume locale) cărora le-a fost trimisă cererea curentă și cei
+	 * care au răspuns deja; un răspuns trimis în locul altui finder (RESUME)
+	 * contează pentru acela (parametrul "for"), deci răspunsul întârziat al unui
+	 * finder blocat nu mai e numărat a doua oară
+	 */
+	private final Set<String> awaiting = new HashSet<>();
+	private final Set<String> answered = new HashSet<>();
+
+	/** Finderii cărora le-a fost trimisă căutarea exactă curentă (destinatarii lui STOP) */
+	private final List<AID> searchTargets = new ArrayList<>();
+
+	/** Numărul de rezultate păstrate la căutarea fuzzy (per finder și după îmbinare) */
+	private static final int FUZZY_TOP_K = 20;
+
+	/** Un rezultat fuzzy primit de la un finder */
+	private static final class FuzzyHit {
+		final double score;
+		final int distance;
+		final long size;
+		final long mtime;
+		final String path;
+
+		FuzzyHit(double score, int distance, long size, long mtime, String path) {
+			this.score = score;
+			this.distance = distance;
+			this.size = size;
+			this.mtime = mtime;
+			this.path = path;
+		}
+	}
+
+	/** Ordinea rezultatelor fuzzy: distanță crescătoare, apoi scor descrescător */
+	private static int compareFuzzy(FuzzyHit a, FuzzyHit b) {
+		if (a.distance != b.distance)
+			return Integer.compare(a.distance, b.distance);
+		int c = Double.compare(b.score, a.score);
+		return c != 0 ? c : a.path.compareTo(b.path);
+	}
+
+	/** true dacă cererea curentă e fuzzy (răspunsurile se îmbină, nu se oprește la primul) */
+	private volatile boolean fuzzyMode = false;
+
+	/** Cele mai bune FUZZY_TOP_K rezultate de până acum (vârful = cel mai slab) */
+	private final PriorityQueue<FuzzyHit> fuzzyTop = new PriorityQueue<>((a, b) -> compareFuzzy(b, a));
+
+	/** Numărul de rezultate păstrate la căutarea ordonată (per finder și după îmbinare) */
+	private static final int RANK_TOP_K = 20;
+
+	/** Un rezultat al căutării ordonate (scor MatchRanker) */
+	private static final class RankHit {
+		final double score;
+		final boolean exact;
+		final long size;
+		final long mtime;
+		final String path;
+
+		RankHit(double score, boolean exact, long size, long mtime, String path) {
+			this.score = score;
+			this.exact = exact;
+			this.size = size;
+			this.mtime = mtime;
+			this.path = path;
+		}
+	}
+
+	/** Ordinea rezultatelor ordonate: scor descrescător, apoi cale */
+	private static int compareRank(RankHit a, RankHit b) {
+		int c = Double.compare(b.score, a.score);
+		return c != 0 ? c : a.path.compareTo(b.path);
+	}
+
+	/** true dacă cererea curentă e o căutare ordonată (RANK) */
+	private boolean rankMode = false;
+
+	/** Cele mai bune RANK_TOP_K rezultate de până acum (vârful = cel mai slab) */
+	private final PriorityQueue<RankHit> rankTop = new PriorityQueue<>((a, b) -> compareRank(b, a));
+
+	/** Căile din rankTop (finderii cu subarbori suprapuși pot trimite același fișier) */
+	private final Set<String> rankPaths = new HashSet<>();
+
+	/** Finderii care nu au răspuns încă la RANK -> scorul maxim pe care îl pot trimite */
+	private final Map<AID, Double> rankBounds = new HashMap<>();
+
+	/**
+	 * Directorul fiecărui finder și {versiunea, cel mai nou mtime, cea mai mare
+	 * dimensiune} din indexul lui, republicate cu sketch-ul la fiecare schimbare
+	 */
+	private final Map<AID, String> finderBaseDirs = new HashMap<>();
+	private final Map<AID, long[]> finderStats = new HashMap<>();
+
+	/** Momentul căutării ordonate curente (trimis finderilor în RANK) */
+	private long rankNow;
+
+	/** Câte sugestii întoarce o cerere PREFIX (per finder și după îmbinare) */
+	private static final int PREFIX_TOP_K = 10;
+
+	/**
+	 * Cât așteaptă sugestiile după finderii lenți (ms); apoi răspunde cu ce a
+	 * primit, ca lista să apară cât utilizatorul tastează
+	 */
+	private static final long PREFIX_DEADLINE_MS = Long.getLong("prefix.deadlineMs", 150L);
+
+	/** Câte extensii apar în rândul de totaluri și câte linii are fiecare tabel din raportul STATS */
+	private static final int STATS_SUMMARY_EXTS = 4;
+	private static final int STATS_REPORT_LINES = 15;
+
+	/**
+	 * Cererea de sugestii curentă, separată de căutarea curentă: tastarea nu
+	 * înlocuiește o căutare pornită cu Search, doar sugestiile anterioare
+	 */
+	private String prefixConvId = null;
+	private CompletableFuture<SearchResult> pendingPrefix = null;
+	private int prefixExpected = 0;
+	private int prefixReceived = 0;
+	private long prefixStartNanos = 0;
+
+	/** Numele împăturit -> primul fișier primit cu acel nume, în ordine alfabetică */
+	private final TreeMap<String, MetadataQuery.Row> prefixRows = new TreeMap<>();
+
+	/** Interogarea pe atribute curentă (null dacă cererea nu e QUERY) */
+	private MetadataQuery activeQuery = null;
+
+	/** Primele activeQuery.limit rânduri de până acum (vârful = cel mai slab) */
+	private PriorityQueue<MetadataQuery.Row> queryTop = null;
+
+	/** Total fișiere potrivite, raportat de finderi (înainte de limit) */
+	private long queryMatched = 0;
+
+	/** Agregatele STATS reduse până acum (null dacă cererea nu e STATS) */
+	private StatsAggregate activeStats = null;
+
+	/** Finderii care nu au putut răspunde la STATS (index nepregătit, eroare) */
+	private int statsFailed = 0;
+
+	/** Etapele JFR deschise: căutarea curentă și analiza AI (vezi Trace) */
+	private Trace.Stage searchSpan = null;
+	private Trace.Stage aiSpan = null;
+
+	/** Momentul trimiterii cererii curente (pentru timpul de răspuns) */
+	private volatile long searchStartNanos = 0;
+
 	/** Numele fișierului căutat (doar pentru log) */
 	private volatile String searchTarget = "";
 
 	/** Folderul de extragere selectat de user */
 	private volatile String extractFolder = null; // ales de user
 
+	/** Folderul pentru care au fost porniți finderii (numele intrărilor din arhive sunt relative la el) */
+	private volatile String searchRoot = null;
+
+	/** Rezultatele căutării fuzzy / interogării curente se arhivează într-un zip */
+	private boolean archiveResults = false;
+
+	/** Thread-urile de compresie ale unui export */
+	private static final int ARCHIVE_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
 	/** Codec + ontology necesare pentru shutdown platform via AMS */
 	private final SLCodec codec = new SLCodec();
 
+	/** Numărul maxim de comenzi din UI care pot aștepta în coada O2A */
+	private static final int O2A_QUEUE_SIZE = 100;
+
+	/** Cât așteaptă START/SHUTDOWN după controller-ul încă în curs de creare (ms) */
+	private static final long CONTROLLER_WAIT_MS = 5_000;
+
+	/** -Dsearcher.quiet=true oprește log-ul fiecărui mesaj în consolă (ex. la teste de încărcare) */
+	private static final boolean LOG_MESSAGES = !Boolean.getBoolean("searcher.quiet");
+
+	/** Rezultatul așteptat de cel care a trimis comanda de căutare curentă */
+	private CompletableFuture<SearchResult> pendingSearch = null;
+
+	/** Rezultatul așteptat pentru START_FINDERS (completat la finalul polling-ului DF) */
+	private CompletableFuture<SearchResult> pendingStart = null;
+
+	/** Fișierul găsit de căutarea curentă (raportat după răspunsul AI, dacă e cerut) */
+	private MetadataQuery.Row foundRow = null;
+
+	/** Gateway-ul HTTP (null dacă -Dgateway.port nu e setat) */
+	private HttpGateway gateway = null;
+
+	/** Controller-ul creat în paralel cu setup(); AID-ul lui, sau null dacă nu a putut fi creat */
+	private CompletableFuture<AID> controllerStarting = CompletableFuture.completedFuture(null);
+
+	/** Controller-ul folosit (creat de noi sau găsit o dată în DF) */
+	private AID controllerAid = null;
+
+	/** PythonBridgeAgent, creat la prima cerere AI (null până atunci) */
+	private AID bridgeAid = null;
+
+	/** Ponderea implicită a ferestrei (interactiv) față de un client fără GUI (1) */
+	private static final int INTERACTIVE_WEIGHT = 4;
+
+	/**
+	 * Ponderea acestui client în cozile finderilor și plafonul lui de căutări
+	 * simultane (0 = fără plafon), trimise pe fiecare SEARCH (vezi FairQueue,
+	 * ClientQuotas). Vin din argumentele 3 și 4 ale agentului, altfel din
+	 * -Dclient.weight / -Dclient.quota.
+	 */
+	private int clientWeight = 1;
+	private int clientQuota = 0;
+
 	@Override
 	protected void setup() {
+		long setupStart = System.nanoTime();
+		// Comenzile din UI vin prin O2A și sunt procesate pe thread-ul agentului
+		setEnabledO2ACommunication(true, O2A_QUEUE_SIZE);
+		setQueueSize(FinderAgent.MAILBOX_LIMIT);
+
 		// Necesare pentru request de shutdown către AMS
 		getContentManager().registerLanguage(codec);
 		getContentManager().registerOntology(JADEManagementOntology.getInstance());
 
-		// UI
-		gui = new SearchWindow(this);
-		gui.setVisible(true);
-
-		// Pornește automat agenții necesari
-		ensureControllerRunning();
-		ensurePythonBridgeRunning();
+		// UI (argumentul "headless" pornește agentul fără fereastră, comandat doar prin O2A;
+		// al doilea argument, opțional, e un CompletableFuture completat la finalul setup();
+		// al treilea și al patrulea, opționale, sunt ponderea și plafonul clientului)
+		Object[] args = getArguments();
+		boolean headless = args != null && args.length > 0 && "headless".equals(args[0]);
+		clientWeight = intArg(args, 2, Integer.getInteger("client.weight", headless ? 1 : INTERACTIVE_WEIGHT));
+		clientQuota = intArg(args, 3, Integer.getInteger("client.quota", 0));
+		// Controller-ul e creat pe alt thread, în timp ce se construiește fereastra;
+		// PythonBridgeAgent abia la prima cerere AI (sendToAI)
+		controllerStarting = CompletableFuture.supplyAsync(this::ensureControllerRunning);
+
+		if (!headless) {
+			long t = System.nanoTime();
+			gui = new SearchWindow(this);
+			gui.setVisible(true);
+			StartupTimeline.phase("searcher.window", t);
+		}
 
 		// Primește: CONTROL (controller), FILE_SEARCH (finder), AI_ANALYSIS
 		// (python-bridge)
@@ -97,6 +341,7 @@ public class SearcherAgent extends Agent {
 		addBehaviour(new CyclicBehaviour() {
 			@Override
 			public void action() {
+				Metrics.max("searcher.mailbox.maxDepth", getCurQueueSize());
 				ACLMessage msg = receive(mt);
 				if (msg == null) {
 					block();
@@ -108,7 +353,8 @@ public class SearcherAgent extends Agent {
 				String perf = ACLMessage.getPerformative(msg.getPerformative());
 				String ont = msg.getOntology();
 				String content = msg.getContent();
-				System.out.println("[" + sender + "] " + perf + " (" + ont + "): " + content);
+				if (LOG_MESSAGES)
+					System.out.println("[" + sender + "] " + perf + " (" + ont + "): " + content);
 
 				if (ControllerAgent.ONT_CONTROL.equals(ont)) {
 					handleControllerMessage(msg);
@@ -120,11 +366,175 @@ public class SearcherAgent extends Agent {
 			}
 		});
 
+		// Procesează comenzile venite din UI (O2A): se golește toată coada, iar dintre
+		// căutările adunate doar ultima rulează (celelalte ar fi înlocuite imediat)
+		CyclicBehaviour o2a = new CyclicBehaviour() {
+			@Override
+			public void action() {
+				List<SearchCommand> batch = new ArrayList<>();
+				for (Object o = getO2AObject(); o != null; o = getO2AObject()) {
+					if (o instanceof SearchCommand)
+						batch.add((SearchCommand) o);
+				}
+				if (batch.isEmpty()) {
+					block();
+					return;
+				}
+				Metrics.max("searcher.o2a.maxDepth", batch.size());
+
+				int lastSearch = -1;
+				int lastPrefix = -1;
+				for (int i = 0; i < batch.size(); i++) {
+					if (batch.get(i).isSearch())
+						lastSearch = i;
+					else if (batch.get(i).type == SearchCommand.Type.PREFIX)
+						lastPrefix = i;
+				}
+				for (int i = 0; i < batch.size(); i++) {
+					SearchCommand cmd = batch.get(i);
+					if ((cmd.isSearch() && i < lastSearch) || (cmd.type == SearchCommand.Type.PREFIX && i < lastPrefix)) {
+						Metrics.inc("searcher.o2a.coalesced");
+						cmd.result.complete(new SearchResult(SearchResult.Status.SUPERSEDED, null, null, null));
+						continue;
+					}
+					handleCommand(cmd);
+				}
+			}
+		};
+		addBehaviour(o2a);
+		setO2AManager(o2a);
+
 		ui("Selectează un folder și apasă Start agenți Finder.");
 		if (gui != null) {
 			gui.setSearchEnabled(false);
 			gui.setStartEnabled(true);
 		}
+
+		// Gateway HTTP opțional (-Dgateway.port), pentru servicii fără GUI
+		int port = Integer.getInteger("gateway.port", 0);
+		if (port > 0) {
+			String host = System.getProperty("gateway.host", "127.0.0.1");
+			try {
+				gateway = HttpGateway.start(this, host, port);
+				ui("Gateway HTTP: http://" + host + ":" + port + "/");
+			} catch (java.io.IOException e) {
+				ui("Gateway HTTP nu a pornit pe portul " + port + ": " + e.getMessage());
+			}
+		}
+
+		StartupTimeline.phase("searcher.setup", setupStart);
+		StartupTimeline.mark("interactive");
+
+		// Clienții fără GUI pot aștepta aici: comenzile O2A puse înainte de setup() se pierd
+		if (args != null && args.length > 1 && args[1] instanceof CompletableFuture)
+			((CompletableFuture<?>) args[1]).complete(null);
+	}
+
+	/** Argumentul întreg i al agentului, sau def dacă lipsește */
+	private static int intArg(Object[] args, int i, int def) {
+		if (args == null || args.length <= i || args[i] == null)
+			return def;
+		return Integer.parseInt(String.valueOf(args[i]).trim());
+	}
+
+	/** Ponderea și plafonul clientului, pe fiecare cerere către finderi și Controller */
+	private void addClientParams(ACLMessage msg) {
+		msg.addUserDefinedParameter(FinderAgent.PARAM_WEIGHT, Integer.toString(clientWeight));
+		msg.addUserDefinedParameter(FinderAgent.PARAM_QUOTA, Integer.toString(clientQuota));
+	}
+
+	/**
+	 * Pune o comandă în coada O2A a agentului. Apelat din EDT; nu blochează și nu
+	 * modifică starea agentului.
+	 */
+	public void submit(SearchCommand cmd) {
+		try {
+			putO2AObject(cmd, AgentController.ASYNC);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Execută o comandă din UI pe thread-ul agentului. O căutare nouă o înlocuiește
+	 * pe cea în curs (al cărei rezultat devine SUPERSEDED).
+	 */
+	private void handleCommand(SearchCommand cmd) {
+		switch (cmd.type) {
+		case START_FINDERS:
+			if (pendingStart != null)
+				pendingStart.complete(new SearchResult(SearchResult.Status.SUPERSEDED, null, null, null));
+			pendingStart = cmd.result;
+			startFinders(cmd.arg);
+			break;
+		case SHUTDOWN_FINDERS:
+			shutdownFinders();
+			cmd.result.complete(new SearchResult(SearchResult.Status.DONE, null, null, null));
+			break;
+		case SEARCH:
+			beginCommand(cmd);
+			searchFile(cmd.arg, cmd.extract, cmd.ai, cmd.filter);
+			break;
+		case FUZZY_SEARCH:
+			beginCommand(cmd);
+			fuzzySearch(cmd.arg, cmd.extract, cmd.filter);
+			break;
+		case RANKED_SEARCH:
+			beginCommand(cmd);
+			rankedSearch(cmd.arg, cmd.extract, cmd.filter);
+			break;
+		case QUERY:
+			beginCommand(cmd);
+			querySearch(cmd.arg, cmd.extract, cmd.filter);
+			break;
+		case STATS:
+			beginCommand(cmd);
+			statsSearch(cmd.arg, cmd.filter);
+			break;
+		case PREFIX:
+			prefixSearch(cmd);
+			break;
+		case SET_EXTRACT_FOLDER:
+			setExtractFolder(cmd.arg);
+			cmd.result.complete(new SearchResult(SearchResult.Status.DONE, null, null, null));
+			break;
+		case SHUTDOWN_PLATFORM:
+			shutdownPlatform();
+			cmd.result.complete(new SearchResult(SearchResult.Status.DONE, null, null, null));
+			break;
+		}
+	}
+
+	/** Leagă rezultatul comenzii de căutarea care începe */
+	private void beginCommand(SearchCommand cmd) {
+		/** Căutarea înlocuită se oprește imediat la finderii locali */
+		if (pendingSearch != null)
+			CancellationRegistry.cancel(currentConvId);
+		finish(SearchResult.Status.SUPERSEDED, null, null);
+		pendingSearch = cmd.result;
+		foundRow = null;
+	}
+
+	/** Completează rezultatul căutării curente (o singură dată) */
+	private void finish(SearchResult.Status status, List<MetadataQuery.Row> rows, String message) {
+		if (pendingSearch == null)
+			return;
+		pendingSearch.complete(new SearchResult(status, currentConvId, rows, message));
+		pendingSearch = null;
+	}
+
+	/** Refuză comanda curentă: mesaj în UI + rezultat ERROR */
+	private void reject(String message) {
+		ui(message);
+		finish(SearchResult.Status.ERROR, null, message);
+	}
+
+	/** Rezultatul unui FOUND (după analiza AI, dacă a fost cerută) */
+	private void finishFound(String aiText) {
+		List<MetadataQuery.Row> rows = new ArrayList<>();
+		if (foundRow != null)
+			rows.add(foundRow);
+		finish(SearchResult.Status.FOUND, rows, aiText);
 	}
 
 	/** Adaugă mesaj în log-ul UI */
@@ -152,9 +562,11 @@ public class SearcherAgent extends Agent {
 		sd.setType("controller-service");
 		template.addServices(sd);
 
+		Trace.Stage df = Trace.begin(null, this, "df.controller");
 		try {
 			/** Căutăm agenții care oferă acest serviciu */
 			DFAgentDescription[] results = DFService.search(this, template);
+			Trace.end(df, results == null ? "0" : Integer.toString(results.length));
 
 			/** Dacă există cel puțin un Controller, îl returnăm pe primul */
 			if (results != null && results.length > 0) {
@@ -167,37 +579,88 @@ public class SearcherAgent extends Agent {
 		return null;
 	}
 
-	/** Creează ControllerAgent dacă nu există deja */
-	private void ensureControllerRunning() {
+	/**
+	 * Creează ControllerAgent dacă nu există deja. Rulează în afara thread-ului
+	 * agentului (din setup); întoarce AID-ul controller-ului creat, sau null dacă
+	 * numele era deja folosit (atunci controller-ul e căutat în DF).
+	 */
+	private AID ensureControllerRunning() {
+		long t = System.nanoTime();
 		try {
 			ContainerController cc = getContainerController();
 			AgentController ctrl = cc.createNewAgent("controller", "agents.ControllerAgent", null);
 			ctrl.start();
+			StartupTimeline.phase("controller", t);
 			System.out.println("Controller creat automat.");
+			return new AID(ctrl.getName(), AID.ISGUID);
 		} catch (Exception e) {
 			System.out.println("Controller deja rulează.");
+			return null;
+		}
+	}
+
+	/**
+	 * Controller-ul pentru START/SHUTDOWN: cel creat în setup() (așteptat cel
+	 * mult CONTROLLER_WAIT_MS, dacă utilizatorul e mai rapid decât crearea lui),
+	 * altfel cel găsit în DF. Căutarea în DF se face o singură dată.
+	 */
+	private AID controller() {
+		if (controllerAid != null)
+			return controllerAid;
+		try {
+			controllerAid = controllerStarting.get(CONTROLLER_WAIT_MS, TimeUnit.MILLISECONDS);
+		} catch (Exception e) {
+			controllerAid = null;
 		}
+		if (controllerAid == null)
+			controllerAid = findControllerInDF();
+		return controllerAid;
 	}
 
-	/** Creează PythonBridgeAgent dacă nu există deja */
-	private void ensurePythonBridgeRunning() {
+	/**
+	 * Creează PythonBridgeAgent dacă nu există deja (la prima cerere AI) și
+	 * întoarce AID-ul lui; dacă numele e deja folosit, îl caută în DF.
+	 */
+	private AID ensurePythonBridgeRunning(String convId) {
+		long t = System.nanoTime();
 		try {
 			ContainerController cc = getContainerController();
 			AgentController ai = cc.createNewAgent("python-bridge", // nume fix (simplu)
 					"agents.PythonBridgeAgent", // clasa completă
 					null);
 			ai.start();
+			StartupTimeline.phase("python-bridge", t);
 			ui("AI Assistant (PythonBridge) pornit automat.");
+			return new AID(ai.getName(), AID.ISGUID);
 		} catch (Exception e) {
 			// cel mai des: name already in use -> există deja, e OK
-			ui("AI Assistant (PythonBridge) deja rulează.");
 			System.out.println("[DBG] PythonBridge create/start: " + e.getMessage());
+			return findBridgeInDF(convId);
+		}
+	}
+
+	/** Caută PythonBridgeAgent în DF (null dacă nu e înregistrat) */
+	private AID findBridgeInDF(String convId) {
+		DFAgentDescription template = new DFAgentDescription();
+		ServiceDescription sd = new ServiceDescription();
+		sd.setType("python-bridge");
+		template.addServices(sd);
+
+		Trace.Stage df = Trace.begin(convId, this, "df.ai");
+		try {
+			DFAgentDescription[] results = DFService.search(this, template);
+			Trace.end(df, Integer.toString(results.length));
+			return results.length == 0 ? null : results[0].getName();
+		} catch (Exception e) {
+			ui("Eroare DF (python-bridge): " + e.getMessage());
+			return null;
 		}
 	}
 
 	/** Procesează mesajele venite de la Controller (STARTED/SHUTDOWN_OK) */
 	private void handleControllerMessage(ACLMessage msg) {
 		String c = msg.getContent() == null ? "" : msg.getContent().trim();
+		Trace.delivered(this, msg, msg.getConversationId());
 
 		if (msg.getPerformative() == ACLMessage.INFORM && c.startsWith("STARTED|")) {
 			int expected = 0;
@@ -214,6 +677,21 @@ public class SearcherAgent extends Agent {
 			return;
 		}
 
+		// Finderii servesc alt folder pentru alți clienți: IN_USE|folder|clienți
+		if (msg.getPerformative() == ACLMessage.REFUSE && c.startsWith(ControllerAgent.MSG_IN_USE + "|")) {
+			String[] p = c.split("\\|", 3);
+			String folder = p.length > 1 ? p[1] : "?";
+			ui("Finderii sunt folosiți de alți clienți pentru " + folder + "; alege același folder sau așteaptă.");
+			completeStart(SearchResult.error("Finderii servesc alt folder: " + folder));
+			endSearchUiState();
+			return;
+		}
+
+		if (c.startsWith(ControllerAgent.MSG_FINDER_FAILED + "|")) {
+			onFinderFailed(c);
+			return;
+		}
+
 		if (msg.getPerformative() == ACLMessage.INFORM && "SHUTDOWN_OK".equals(c)) {
 			ui("Finderii au fost opriți.");
 			if (shuttingDown) {
@@ -223,33 +701,173 @@ public class SearcherAgent extends Agent {
 		}
 	}
 
+	/**
+	 * FINDER_FAILED|nume|dead/hung|convId reluat: un finder căzut iese din
+	 * listă. Dacă cererea curentă îl aștepta și nu i-a reluat nimeni căutarea,
+	 * răspunsul lui e înlocuit cu o eroare, ca cererea să nu aștepte la nesfârșit.
+	 */
+	private void onFinderFailed(String c) {
+		String[] p = c.split("\\|", 4);
+		if (p.length < 3)
+			return;
+		String name = p[1];
+		String resumed = p.length == 4 ? p[3] : "";
+		AID finder = new AID(name, AID.ISLOCALNAME);
+		Metrics.inc("searcher.finderFailed");
+
+		if ("dead".equals(p[2])) {
+			cachedFinders.remove(finder);
+			sketches.remove(finder);
+			finderBaseDirs.remove(finder);
+			finderStats.remove(finder);
+			ui("Finder căzut: " + name + (resumed.isEmpty() ? "" : "; căutarea lui a fost reluată de alt finder"));
+		} else {
+			ui("Finder blocat: " + name + (resumed.isEmpty() ? "" : "; căutarea lui a fost reluată de alt finder"));
+		}
+
+		String conv = currentConvId;
+		if (conv == null || conv.equals(resumed) || !awaiting.contains(name) || answered.contains(name))
+			return;
+		refusedResponses++;
+		ACLMessage lost = new ACLMessage(ACLMessage.FAILURE);
+		lost.setSender(finder);
+		lost.setOntology(FinderAgent.ONT_SEARCH);
+		lost.setContent("ERROR|" + conv + "|finderul " + name + " a căzut");
+		handleFinderMessage(lost);
+	}
+
+	/** Reține destinatarii cererii curente (finderii de la care se așteaptă răspuns) */
+	private void awaitFrom(ACLMessage req) {
+		for (Iterator<?> it = req.getAllReceiver(); it.hasNext();)
+			awaiting.add(((AID) it.next()).getLocalName());
+	}
+
 	/** Procesează răspunsurile Finderilor (FOUND/NOT_FOUND/CANCELLED etc.) */
 	private void handleFinderMessage(ACLMessage msg) {
 		String c = msg.getContent();
-		if (c == null || currentConvId == null)
+		if (c == null)
+			return;
+
+		// SKETCH|version|sketch: actualizează filtrul Bloom al finderului
+		if (c.startsWith(FinderAgent.MSG_SKETCH + "|")) {
+			handleSketch(msg, c);
+			return;
+		}
+
+		// Sugestiile au conversația lor, independentă de căutarea curentă
+		if (prefixConvId != null && (c.startsWith(FinderAgent.MSG_PREFIX + "|" + prefixConvId + "|")
+				|| c.startsWith("ERROR|" + prefixConvId + "|"))) {
+			handlePrefixResult(c);
+			return;
+		}
+
+		// Confirmările de anulare contează la metrici chiar dacă între timp a început altă căutare
+		if (c.startsWith("CANCELLED|"))
+			recordCancelAck(msg, c);
+
+		if (currentConvId == null)
 			return;
 
 		// Acceptăm doar mesaje din conversația curentă
 		if (!c.contains("|" + currentConvId + "|"))
 			return;
 
+		Trace.delivered(this, msg, currentConvId);
+
 		// Dacă am găsit deja, ignorăm restul
 		if (foundAlready)
 			return;
 
+		// Câte un răspuns de la fiecare finder (sau de la cel care i-a reluat căutarea)
+		String from = msg.getUserDefinedParameter(FinderAgent.PARAM_FOR);
+		if (!answered.add(from != null ? from : msg.getSender().getLocalName()))
+			return;
+
 		receivedResponses++;
 
+		String pr = msg.getUserDefinedParameter(FinderAgent.PARAM_PRUNED);
+		if (pr != null) {
+			try {
+				prunedEntries += Long.parseLong(pr);
+			} catch (NumberFormatException ignored) {
+			}
+		}
+
+		// Căutare ordonată: îmbină top-k, răspunde când restul finderilor nu mai pot schimba top-k
+		if (rankMode) {
+			rankBounds.remove(msg.getSender());
+			if (msg.getPerformative() == ACLMessage.INFORM && c.startsWith(FinderAgent.MSG_RANK + "|"))
+				mergeRanked(c);
+			else if (c.startsWith("ERROR|"))
+				ui(msg.getSender().getLocalName() + ": " + c.substring(c.indexOf('|', 6) + 1));
+			if (receivedResponses >= expectedResponses)
+				reportRanked();
+			else if (rankSettled())
+				reportRanked();
+			return;
+		}
+
+		// Căutare fuzzy: îmbină top-k de la fiecare finder, răspunde când au venit toți
+		if (fuzzyMode) {
+			if (msg.getPerformative() == ACLMessage.INFORM && c.startsWith(FinderAgent.MSG_FUZZY + "|"))
+				mergeFuzzy(c);
+			else if (c.startsWith("ERROR|"))
+				ui(msg.getSender().getLocalName() + ": " + c.substring(c.indexOf('|', 6) + 1));
+			if (receivedResponses >= expectedResponses)
+				reportFuzzy();
+			return;
+		}
+
+		// Agregate de spațiu: reduce fiecare parțial pe măsură ce sosește
+		if (activeStats != null) {
+			if (msg.getPerformative() == ACLMessage.INFORM && c.startsWith(FinderAgent.MSG_STATS + "|"))
+				mergeStats(c);
+			else {
+				statsFailed++;
+				if (c.startsWith("ERROR|"))
+					ui(msg.getSender().getLocalName() + ": " + c.substring(c.indexOf('|', 6) + 1));
+			}
+			if (receivedResponses >= expectedResponses)
+				reportStats();
+			return;
+		}
+
+		// Interogare pe atribute: îmbină top-N de la fiecare finder
+		if (activeQuery != null) {
+			if (msg.getPerformative() == ACLMessage.INFORM && c.startsWith(FinderAgent.MSG_QUERY + "|"))
+				mergeQuery(c);
+			else if (c.startsWith("ERROR|"))
+				ui(msg.getSender().getLocalName() + ": " + c.substring(c.indexOf('|', 6) + 1));
+			if (receivedResponses >= expectedResponses)
+				reportQuery();
+			return;
+		}
+
 		// Primul FOUND câștigă
 		if (msg.getPerformative() == ACLMessage.INFORM && c.startsWith("FOUND|")) {
 			foundAlready = true;
 
-			// FOUND|convId|original|extracted
-			String[] parts = c.split("\\|", 4);
+			// FOUND|convId|original|extracted|size|mtime
+			String[] parts = c.split("\\|", 6);
 			String originalPath = (parts.length >= 3) ? parts[2] : "(necunoscut)";
-			String extractedPath = (parts.length == 4) ? parts[3] : "";
+			String extractedPath = (parts.length >= 4) ? parts[3] : "";
 
+			if (parts.length == 6) {
+				try {
+					foundRow = new MetadataQuery.Row(Long.parseLong(parts[4]), Long.parseLong(parts[5]), originalPath);
+					if (gui != null)
+						gui.addResult(originalPath, foundRow.size, foundRow.mtime);
+				} catch (NumberFormatException ignored) {
+				}
+			}
+			if (foundRow == null)
+				foundRow = new MetadataQuery.Row(-1, -1, originalPath);
+
+			endSearchSpan("FOUND " + msg.getSender().getLocalName());
 			ui("GĂSIT!");
 			ui("Original: " + originalPath);
+			ui("Intrări tăiate de filtre (până acum): " + prunedEntries);
+			logRoutingMetrics();
 
 			String pathForAi;
 			if (extractEnabled && extractedPath != null && !extractedPath.isEmpty()
@@ -262,14 +880,7 @@ public class SearcherAgent extends Agent {
 				pathForAi = originalPath; // fallback
 			}
 
-			// Trimite STOP către ceilalți finderi (pentru convId curent)
-			for (AID finder : cachedFinders) {
-				ACLMessage stop = new ACLMessage(ACLMessage.REQUEST);
-				stop.setOntology(FinderAgent.ONT_SEARCH);
-				stop.addReceiver(finder);
-				stop.setContent(FinderAgent.CMD_STOP + "|" + currentConvId);
-				send(stop);
-			}
+			stopOthers(msg.getSender());
 
 			// Opțional: trimite către AI
 			if (aiEnabled) {
@@ -280,21 +891,509 @@ public class SearcherAgent extends Agent {
 				// nu endSearchUiState() aici
 			} else {
 				ui("Analiza AI dezactivată.");
+				finishFound(null);
 				endSearchUiState();
 			}
 			return;
 		}
 
+		// Finder supraîncărcat sau cerere abandonată: contează ca răspuns, dar fără rezultat
+		if (msg.getPerformative() == ACLMessage.REFUSE) {
+			refusedResponses++;
+			Metrics.inc(c.startsWith(FinderAgent.MSG_BUSY + "|") ? "search.busy" : "search.rejected");
+		}
+
+		// Sketch-ul a spus "poate", dar finderul nu avea fișierul: fals pozitiv
+		if (c.startsWith("NOT_FOUND|") && sketchRouted.contains(msg.getSender()))
+			Metrics.inc("sketch.falsePositives");
+
 		// Dacă au răspuns toți și nimeni nu a găsit
 		if (receivedResponses >= expectedResponses) {
+			if (!sketchSkipped.isEmpty()) {
+				sendSketchSkipped();
+				return;
+			}
+			endSearchSpan("NOT_FOUND");
+			String incomplete = refusedResponses > 0
+					? refusedResponses + " finder(i) ocupați sau căzuți, rezultat incomplet"
+					: null;
+			finish(SearchResult.Status.NOT_FOUND, null, incomplete);
 			ui("Nu s-a găsit: " + searchTarget);
+			if (incomplete != null)
+				ui("Atenție: " + incomplete + ".");
+			ui("Intrări tăiate de filtre: " + prunedEntries);
+			logRoutingMetrics();
 			endSearchUiState();
 		}
 	}
 
+	/**
+	 * Oprește căutarea curentă la ceilalți finderi: direct, prin
+	 * CancellationRegistry, pentru cei din acest JVM și printr-un singur STOP cu
+	 * toți destinatarii pentru restul.
+	 */
+	private void stopOthers(AID winner) {
+		CancellationRegistry.cancel(currentConvId);
+
+		ACLMessage stop = new ACLMessage(ACLMessage.REQUEST);
+		stop.setOntology(FinderAgent.ONT_SEARCH);
+		stop.setConversationId(currentConvId);
+		stop.setContent(FinderAgent.CMD_STOP + "|" + currentConvId);
+		int receivers = 0;
+		for (AID finder : searchTargets) {
+			if (!finder.equals(winner)) {
+				stop.addReceiver(finder);
+				receivers++;
+			}
+		}
+		if (receivers > 0) {
+			send(stop);
+			Metrics.add("cancel.stopsSent", receivers);
+		}
+	}
+
+	/**
+	 * CANCELLED|convId|baseDir|ms|intrări: cât a durat oprirea și câte intrări a
+	 * vizitat degeaba finderul. Vine după FOUND, deci și după o căutare nouă.
+	 */
+	private void recordCancelAck(ACLMessage msg, String c) {
+		String[] parts = c.split("\\|");
+		if (parts.length < 5)
+			return;
+		try {
+			double ms = Double.parseDouble(parts[3]);
+			long entries = Long.parseLong(parts[4]);
+			Metrics.inc("cancel.acks");
+			Metrics.add("cancel.idleMicros", (long) (ms * 1000));
+			Metrics.max("cancel.idleMicros.max", (long) (ms * 1000));
+			Metrics.add("cancel.wastedEntries", entries);
+			if (LOG_MESSAGES)
+				System.out.println("[cancel] " + msg.getSender().getLocalName() + " oprit în " + parts[3] + " ms după "
+						+ entries + " intrări");
+		} catch (NumberFormatException ignored) {
+		}
+	}
+
+	/** Deschide etapa JFR a căutării curente (închide una rămasă deschisă) */
+	private void beginSearchSpan(String stage) {
+		endSearchSpan("ABANDONED");
+		searchSpan = Trace.begin(currentConvId, this, stage);
+	}
+
+	/** Închide etapa JFR a căutării curente cu rezultatul ei */
+	private void endSearchSpan(String detail) {
+		Trace.end(searchSpan, detail);
+		searchSpan = null;
+	}
+
+	/** Adaugă liniile unui RANK_RESULT în top-k (score|exact|size|mtime|path) */
+	private void mergeRanked(String content) {
+		String[] lines = content.split("\n");
+		for (int i = 1; i < lines.length; i++) {
+			String[] f = lines[i].split("\\|", 5);
+			if (f.length != 5 || rankPaths.contains(f[4]))
+				continue;
+			try {
+				RankHit hit = new RankHit(Double.parseDouble(f[0]), "1".equals(f[1]), Long.parseLong(f[2]),
+						Long.parseLong(f[3]), f[4]);
+				/** Liniile vin descrescător: prima care nu intră în top-k le oprește pe toate */
+				if (rankTop.size() == RANK_TOP_K && compareRank(hit, rankTop.peek()) >= 0)
+					break;
+				rankTop.add(hit);
+				rankPaths.add(hit.path);
+				if (rankTop.size() > RANK_TOP_K)
+					rankPaths.remove(rankTop.poll().path);
+			} catch (NumberFormatException ignored) {
+			}
+		}
+	}
+
+	/**
+	 * Scorul maxim pe care îl poate trimite finder la căutarea ordonată curentă:
+	 * adâncimea minimă (baseDir sub rădăcina căutării) și statisticile publicate
+	 * ale indexului lui. Un finder care reconciliază înainte de RANK își
+	 * republică statisticile înaintea răspunsului, deci limita crește la timp;
+	 * scapă doar fișierele schimbate pe disc după ce îmbinarea s-a oprit.
+	 */
+	private double rankBound(AID finder) {
+		int minDepth = 1;
+		String dir = finderBaseDirs.get(finder);
+		if (searchRoot != null && dir != null) {
+			Path root = Paths.get(searchRoot);
+			Path d = Paths.get(dir);
+			if (d.startsWith(root))
+				minDepth += root.relativize(d).getNameCount();
+		}
+		long[] stats = finderStats.get(finder);
+		return stats == null ? MatchRanker.upperBound(minDepth, -1, -1, rankNow)
+				: MatchRanker.upperBound(minDepth, stats[1], stats[2], rankNow);
+	}
+
+	/**
+	 * true dacă top-k e plin și niciun finder care nu a răspuns nu poate trimite
+	 * un scor mai mare decât cel mai slab rezultat păstrat
+	 */
+	private boolean rankSettled() {
+		if (rankTop.size() < RANK_TOP_K)
+			return false;
+		double weakest = rankTop.peek().score;
+		for (double bound : rankBounds.values()) {
+			if (bound > weakest)
+				return false;
+		}
+		return true;
+	}
+
+	/** Afișează rezultatele ordonate; finderii care nu au răspuns încă sunt ignorați */
+	private void reportRanked() {
+		List<RankHit> hits = new ArrayList<>(rankTop);
+		hits.sort(SearcherAgent::compareRank);
+		int skipped = expectedResponses - receivedResponses;
+
+		long ms = (System.nanoTime() - searchStartNanos) / 1_000_000;
+		if (hits.isEmpty()) {
+			ui("Nu s-a găsit: " + searchTarget + " (" + ms + " ms)");
+		} else {
+			ui(hits.size() + " potriviri pentru '" + searchTarget + "', cele mai relevante întâi (" + ms + " ms"
+					+ (skipped > 0 ? ", fără să mai aștept " + skipped + " finder(i)" : "") + "):");
+			for (RankHit h : hits) {
+				ui(String.format(java.util.Locale.ROOT, "  %.3f  %s  %s", h.score, h.exact ? "exact" : "~", h.path));
+				if (gui != null)
+					gui.addResult(h.path, h.size, h.mtime);
+			}
+		}
+		if (skipped > 0) {
+			/** Răspunsurile întârziate nu mai contează; căutările locale se opresc */
+			CancellationRegistry.cancel(currentConvId);
+			Metrics.inc("rank.earlyFinish");
+			Metrics.add("rank.skippedFinders", skipped);
+		}
+		endSearchSpan("RANK " + hits.size() + (skipped > 0 ? " (early)" : ""));
+		List<MetadataQuery.Row> rows = new ArrayList<>();
+		for (RankHit h : hits)
+			rows.add(new MetadataQuery.Row(h.size, h.mtime, h.path));
+		finish(hits.isEmpty() ? SearchResult.Status.NOT_FOUND : SearchResult.Status.RESULTS, rows, null);
+		exportArchive(rows);
+		Metrics.inc("search.ranked");
+		rankMode = false;
+		rankTop.clear();
+		rankPaths.clear();
+		rankBounds.clear();
+		currentConvId = null;
+		endSearchUiState();
+	}
+
+	/** Adaugă liniile unui FUZZY_RESULT în top-k (score|distance|size|mtime|path) */
+	private void mergeFuzzy(String content) {
+		String[] lines = content.split("\n");
+		for (int i = 1; i < lines.length; i++) {
+			String[] f = lines[i].split("\\|", 5);
+			if (f.length != 5)
+				continue;
+			try {
+				FuzzyHit hit = new FuzzyHit(Double.parseDouble(f[0]), Integer.parseInt(f[1]), Long.parseLong(f[2]),
+						Long.parseLong(f[3]), f[4]);
+				fuzzyTop.add(hit);
+				if (fuzzyTop.size() > FUZZY_TOP_K)
+					fuzzyTop.poll();
+			} catch (NumberFormatException ignored) {
+			}
+		}
+	}
+
+	/** Afișează rezultatele fuzzy îmbinate, de la cel mai apropiat */
+	private void reportFuzzy() {
+		List<FuzzyHit> hits = new ArrayList<>(fuzzyTop);
+		fuzzyTop.clear();
+		hits.sort(SearcherAgent::compareFuzzy);
+
+		long ms = (System.nanoTime() - searchStartNanos) / 1_000_000;
+		if (hits.isEmpty()) {
+			ui("Niciun nume apropiat de: " + searchTarget + " (" + ms + " ms)");
+		} else {
+			ui(hits.size() + " nume apropiate de '" + searchTarget + "' (" + ms + " ms):");
+			for (FuzzyHit h : hits) {
+				ui(String.format(java.util.Locale.ROOT, "  %.3f  (d=%d)  %s", h.score, h.distance, h.path));
+				if (gui != null)
+					gui.addResult(h.path, h.size, h.mtime);
+			}
+		}
+		endSearchSpan("FUZZY " + hits.size());
+		List<MetadataQuery.Row> rows = new ArrayList<>();
+		for (FuzzyHit h : hits)
+			rows.add(new MetadataQuery.Row(h.size, h.mtime, h.path));
+		finish(SearchResult.Status.RESULTS, rows, null);
+		exportArchive(rows);
+		Metrics.inc("search.fuzzy");
+		fuzzyMode = false;
+		currentConvId = null;
+		endSearchUiState();
+	}
+
+	/**
+	 * Adaugă rândurile unui QUERY_RESULT|convId|baseDir|n|potriviri (urmat de
+	 * linii size|mtime|path) în top-N
+	 */
+	private void mergeQuery(String content) {
+		String[] lines = content.split("\n");
+		String[] head = lines[0].split("\\|");
+		if (head.length >= 5) {
+			try {
+				queryMatched += Long.parseLong(head[head.length - 1]);
+			} catch (NumberFormatException ignored) {
+			}
+		}
+		for (int i = 1; i < lines.length; i++) {
+			String[] f = lines[i].split("\\|", 3);
+			if (f.length != 3)
+				continue;
+			try {
+				queryTop.add(new MetadataQuery.Row(Long.parseLong(f[0]), Long.parseLong(f[1]), f[2]));
+				if (queryTop.size() > activeQuery.limit)
+					queryTop.poll();
+			} catch (NumberFormatException ignored) {
+			}
+		}
+	}
+
+	/** Afișează rezultatele interogării îmbinate, în ordinea cerută */
+	private void reportQuery() {
+		List<MetadataQuery.Row> rows = new ArrayList<>(queryTop);
+		rows.sort(activeQuery.order());
+
+		long ms = (System.nanoTime() - searchStartNanos) / 1_000_000;
+		ui(rows.size() + " rânduri afișate din " + queryMatched + " potriviri (" + ms + " ms)");
+		ui("Intrări tăiate de filtre: " + prunedEntries);
+		if (gui != null) {
+			for (MetadataQuery.Row r : rows)
+				gui.addResult(r.path, r.size, r.mtime);
+		}
+		endSearchSpan("QUERY " + rows.size() + "/" + queryMatched);
+		finish(SearchResult.Status.RESULTS, rows, Long.toString(queryMatched));
+		exportArchive(rows);
+		Metrics.inc("search.query");
+		activeQuery = null;
+		queryTop = null;
+		currentConvId = null;
+		endSearchUiState();
+	}
+
+	/**
+	 * Reduce un STATS_RESULT în agregatul curent și afișează totalurile de până
+	 * acum (rândul de totaluri din fereastră și cele mai mari fișiere în tabel)
+	 */
+	private void mergeStats(String content) {
+		activeStats.merge(StatsAggregate.parse(content, activeStats.top));
+		if (gui != null) {
+			gui.showStats(statsSummary());
+			gui.clearResults();
+			for (MetadataQuery.Row r : activeStats.largest())
+				gui.addResult(r.path, r.size, r.mtime);
+		}
+	}
+
+	/** Totalurile de până acum, pe un rând: fișiere, octeți, extensiile principale */
+	private String statsSummary() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(receivedResponses).append('/').append(expectedResponses).append(" finderi: ")
+				.append(activeStats.files()).append(" fișiere, ")
+				.append(StatsAggregate.formatBytes(activeStats.bytes())).append(", ").append(activeStats.dirs())
+				.append(" directoare");
+		List<Map.Entry<String, long[]>> ext = activeStats.byExtension();
+		for (int i = 0; i < Math.min(STATS_SUMMARY_EXTS, ext.size()); i++) {
+			Map.Entry<String, long[]> e = ext.get(i);
+			sb.append(i == 0 ? " | " : ", ").append(e.getKey().isEmpty() ? "(fără)" : e.getKey()).append(' ')
+					.append(StatsAggregate.formatBytes(e.getValue()[1]));
+		}
+		return sb.toString();
+	}
+
+	/** Raportul final STATS: totaluri, extensii și subdirectoare, în log */
+	private void reportStats() {
+		StatsAggregate agg = activeStats;
+		List<MetadataQuery.Row> rows = agg.largest();
+
+		long ms = (System.nanoTime() - searchStartNanos) / 1_000_000;
+		String summary = statsSummary();
+		ui("Total: " + agg.files() + " fișiere, " + StatsAggregate.formatBytes(agg.bytes()) + " în " + agg.dirs()
+				+ " directoare (" + ms + " ms)");
+		ui("Pe extensie:");
+		List<Map.Entry<String, long[]>> ext = agg.byExtension();
+		for (int i = 0; i < Math.min(STATS_REPORT_LINES, ext.size()); i++) {
+			Map.Entry<String, long[]> e = ext.get(i);
+			ui(String.format(Locale.ROOT, "  %-12s %10d fișiere %12s", e.getKey().isEmpty() ? "(fără)" : e.getKey(),
+					e.getValue()[0], StatsAggregate.formatBytes(e.getValue()[1])));
+		}
+		ui("Pe subdirector:");
+		List<StatsAggregate.Subtree> subtrees = agg.subtrees();
+		for (int i = 0; i < Math.min(STATS_REPORT_LINES, subtrees.size()); i++) {
+			StatsAggregate.Subtree t = subtrees.get(i);
+			ui(String.format(Locale.ROOT, "  %12s %10d fișiere  %s", StatsAggregate.formatBytes(t.bytes), t.files,
+					t.path));
+		}
+		if (statsFailed > 0)
+			ui("Atenție: " + statsFailed + " finder(i) fără răspuns, totaluri posibil incomplete.");
+		if (gui != null)
+			gui.showStats(summary);
+
+		Metrics.inc("search.stats");
+		Metrics.add("stats.duplicateSubtrees", agg.duplicates());
+		endSearchSpan("STATS " + agg.files() + "/" + agg.subtreeCount());
+		finish(SearchResult.Status.RESULTS, rows, summary);
+		activeStats = null;
+		currentConvId = null;
+		endSearchUiState();
+	}
+
+	/**
+	 * Trimite PREFIX tuturor finderilor (sketch-urile Bloom nu pot răspunde la
+	 * prefixe). O cerere nouă o înlocuiește pe cea în curs (SUPERSEDED), iar
+	 * răspunsurile întârziate ale celei vechi sunt ignorate după convId. După
+	 * PREFIX_DEADLINE_MS răspunde cu sugestiile primite până atunci.
+	 */
+	private void prefixSearch(SearchCommand cmd) {
+		finishPrefix(SearchResult.Status.SUPERSEDED);
+
+		String prefix = cmd.arg == null ? "" : cmd.arg.trim();
+		if (shuttingDown || prefix.isEmpty() || cachedFinders.isEmpty()) {
+			cmd.result.complete(new SearchResult(SearchResult.Status.RESULTS, null, null, null));
+			return;
+		}
+		String spec;
+		try {
+			spec = SearchFilter.parse(cmd.filter).toSpec();
+		} catch (IllegalArgumentException e) {
+			cmd.result.complete(SearchResult.error("Filtre invalide: " + e.getMessage()));
+			return;
+		}
+
+		String convId = "p" + UUID.randomUUID().toString().substring(0, 8);
+		prefixConvId = convId;
+		pendingPrefix = cmd.result;
+		prefixExpected = cachedFinders.size();
+		prefixReceived = 0;
+		prefixRows.clear();
+		prefixStartNanos = System.nanoTime();
+
+		ACLMessage req = new ACLMessage(ACLMessage.REQUEST);
+		req.setOntology(FinderAgent.ONT_SEARCH);
+		for (AID finder : cachedFinders)
+			req.addReceiver(finder);
+		req.setConversationId(convId);
+		req.setContent(FinderAgent.CMD_PREFIX + "|" + convId + "|" + PREFIX_TOP_K + "|" + prefix);
+		if (!spec.isEmpty())
+			req.addUserDefinedParameter(FinderAgent.PARAM_FILTER, spec);
+		addClientParams(req);
+		send(req);
+
+		addBehaviour(new WakerBehaviour(this, PREFIX_DEADLINE_MS) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void onWake() {
+				if (convId.equals(prefixConvId)) {
+					Metrics.inc("prefix.partial");
+					finishPrefix(SearchResult.Status.RESULTS);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Îmbină un PREFIX_RESULT|convId|baseDir|n (urmat de linii size|mtime|path)
+	 * sau un ERROR al cererii de sugestii curente
+	 */
+	private void handlePrefixResult(String content) {
+		prefixReceived++;
+		String[] lines = content.split("\n");
+		for (int i = 1; i < lines.length; i++) {
+			String[] f = lines[i].split("\\|", 3);
+			if (f.length != 3)
+				continue;
+			try {
+				MetadataQuery.Row row = new MetadataQuery.Row(Long.parseLong(f[0]), Long.parseLong(f[1]), f[2]);
+				Path name = Paths.get(f[2]).getFileName();
+				if (name != null)
+					prefixRows.putIfAbsent(TrigramIndex.fold(name.toString()), row);
+			} catch (RuntimeException ignored) {
+			}
+		}
+		if (prefixReceived >= prefixExpected)
+			finishPrefix(SearchResult.Status.RESULTS);
+	}
+
+	/**
+	 * Completează cererea de sugestii curentă: primele PREFIX_TOP_K nume în
+	 * ordine alfabetică (message = finderi care au răspuns / finderi întrebați)
+	 */
+	private void finishPrefix(SearchResult.Status status) {
+		if (pendingPrefix == null)
+			return;
+		List<MetadataQuery.Row> rows = null;
+		if (status == SearchResult.Status.RESULTS) {
+			rows = new ArrayList<>();
+			for (MetadataQuery.Row r : prefixRows.values()) {
+				if (rows.size() == PREFIX_TOP_K)
+					break;
+				rows.add(r);
+			}
+			Metrics.inc("search.prefix");
+			Metrics.add("prefix.micros", (System.nanoTime() - prefixStartNanos) / 1_000);
+		} else {
+			Metrics.inc("prefix.superseded");
+		}
+		pendingPrefix.complete(
+				new SearchResult(status, prefixConvId, rows, prefixReceived + "/" + prefixExpected));
+		pendingPrefix = null;
+		prefixConvId = null;
+		prefixRows.clear();
+	}
+
+	/**
+	 * Stochează sketch-ul primit de la un finder (SKETCH|version|m|k|count|b64),
+	 * împreună cu directorul, cel mai nou mtime și cea mai mare dimensiune ale
+	 * lui (parametri ACL). Dacă finderul nu a răspuns încă la căutarea ordonată
+	 * curentă, limita lui e recalculată.
+	 */
+	private void handleSketch(ACLMessage msg, String content) {
+		AID finder = msg.getSender();
+		if (!cachedFinders.contains(finder))
+			return;
+		try {
+			String[] parts = content.split("\\|", 3);
+			long version = Long.parseLong(parts[1]);
+			long[] known = finderStats.get(finder);
+			if (known != null && version < known[0])
+				return;
+			NameSketch sk = NameSketch.decode(parts[2]);
+			sketches.put(finder, sk);
+			String dir = msg.getUserDefinedParameter(FinderAgent.PARAM_BASEDIR);
+			String newest = msg.getUserDefinedParameter(FinderAgent.PARAM_NEWEST);
+			String largest = msg.getUserDefinedParameter(FinderAgent.PARAM_LARGEST);
+			if (dir != null)
+				finderBaseDirs.put(finder, dir);
+			finderStats.put(finder, new long[] { version, newest == null ? -1 : Long.parseLong(newest),
+					largest == null ? -1 : Long.parseLong(largest) });
+			if (rankMode && rankBounds.containsKey(finder))
+				rankBounds.put(finder, rankBound(finder));
+			Metrics.inc("sketch.updates");
+			System.out.println("[sketch] " + finder.getLocalName() + " v" + parts[1] + ": " + sk.count() + " nume");
+		} catch (Exception e) {
+			System.out.println("[sketch] ignorat de la " + finder.getLocalName() + ": " + e.getMessage());
+		}
+	}
+
 	/** Procesează răspunsul venit de la PythonBridgeAgent */
 	private void handleAiMessage(ACLMessage msg) {
 		waitingAi = false; // am primit răspuns (INFORM sau FAILURE)
+		Trace.delivered(this, msg, msg.getConversationId());
+		Trace.end(aiSpan, ACLMessage.getPerformative(msg.getPerformative()));
+		aiSpan = null;
+
+		/** Un răspuns întârziat al unei căutări înlocuite nu completează căutarea nouă */
+		String conv = msg.getConversationId();
+		if (conv == null || conv.equals(currentConvId))
+			finishFound(msg.getPerformative() == ACLMessage.FAILURE ? msg.getContent() : extractAnswer(msg.getContent()));
 
 		if (msg.getPerformative() == ACLMessage.FAILURE) {
 			ui("\n--- Analiză AI (eroare) ---");
@@ -338,8 +1437,63 @@ public class SearcherAgent extends Agent {
 		}
 	}
 
+	/** Arhivarea rezultatelor cere un folder de extragere; reține opțiunea pentru căutarea curentă */
+	private boolean checkArchiveFolder(boolean archive) {
+		if (archive && (extractFolder == null || extractFolder.trim().isEmpty())) {
+			reject("Alege un folder de extragere (Browse Extract) pentru arhiva cu rezultate.");
+			return false;
+		}
+		archiveResults = archive;
+		return true;
+	}
+
+	/**
+	 * Scrie rezultatele într-un singur zip în folderul de extragere, pe un thread
+	 * separat (agentul nu așteaptă I/O-ul). Compresia fișierelor pornește pe măsură
+	 * ce sunt adăugate, iar intrările sunt scrise în ordinea rezultatelor.
+	 */
+	private void exportArchive(List<MetadataQuery.Row> rows) {
+		if (!archiveResults || rows.isEmpty())
+			return;
+		archiveResults = false;
+
+		Path zip = Paths.get(extractFolder).resolve("rezultate-" + currentConvId + ".zip");
+		Path root = searchRoot != null ? Paths.get(searchRoot).toAbsolutePath().normalize() : null;
+		/** Finderii cu subarbori suprapuși pot întoarce aceeași cale de două ori */
+		List<MetadataQuery.Row> snapshot = new ArrayList<>();
+		Set<String> seen = new HashSet<>();
+		for (MetadataQuery.Row r : rows) {
+			if (seen.add(r.path))
+				snapshot.add(r);
+		}
+		ui("Arhivez " + snapshot.size() + " fișiere în " + zip + " ...");
+
+		Thread t = new Thread(() -> {
+			ZipExporter exporter = new ZipExporter(zip, ARCHIVE_THREADS);
+			try {
+				for (MetadataQuery.Row r : snapshot)
+					exporter.add(Paths.get(r.path), entryName(root, Paths.get(r.path)), r.size, r.mtime);
+				ui("Arhivă creată: " + exporter.finish().get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (Exception e) {
+				ui("Eroare la arhivare: " + (e.getCause() != null ? e.getCause().getMessage() : e.getMessage()));
+			}
+		}, "archive-export");
+		t.setDaemon(true);
+		t.start();
+	}
+
+	/** Numele intrării: calea relativă la folderul căutat, cu '/' (altfel calea fără rădăcină) */
+	private static String entryName(Path root, Path file) {
+		Path p = file.toAbsolutePath().normalize();
+		Path rel = root != null && p.startsWith(root) && !p.equals(root) ? root.relativize(p)
+				: p.getRoot() != null ? p.getRoot().relativize(p) : p;
+		return rel.toString().replace('\\', '/');
+	}
+
 	/** Setează folderul unde Finderii vor copia fișierul găsit */
-	public void setExtractFolder(String path) {
+	private void setExtractFolder(String path) {
 		this.extractFolder = path;
 		ui("Folder extragere: " + path);
 	}
@@ -354,12 +1508,15 @@ public class SearcherAgent extends Agent {
 	}
 
 	/** Cere Controller-ului să pornească Finderii pentru folderul selectat */
-	public void startFinders(String folder) {
-		if (shuttingDown)
+	private void startFinders(String folder) {
+		if (shuttingDown) {
+			completeStart(SearchResult.error("Aplicația se închide."));
 			return;
+		}
 
 		if (folder == null || folder.trim().isEmpty()) {
 			ui("Alege mai întâi un folder (Browse).");
+			completeStart(SearchResult.error("Folder lipsă"));
 			return;
 		}
 
@@ -367,13 +1524,17 @@ public class SearcherAgent extends Agent {
 			gui.setSearchEnabled(false);
 			gui.setStartEnabled(false);
 		}
+		searchRoot = folder.trim();
 
 		ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
 		msg.setOntology(ControllerAgent.ONT_CONTROL);
 		msg.setContent(ControllerAgent.CMD_START + "|" + folder);
-		AID ctrl = findControllerInDF();
+		addClientParams(msg);
+		msg.setConversationId("start-" + UUID.randomUUID().toString().substring(0, 8));
+		AID ctrl = controller();
 		if (ctrl == null) {
 			ui("Controller nu este disponibil în DF.");
+			completeStart(SearchResult.error("Controller indisponibil"));
 			endSearchUiState();
 			return;
 		}
@@ -384,8 +1545,16 @@ public class SearcherAgent extends Agent {
 		ui("Pornesc Finderii pentru folderul selectat...");
 	}
 
+	/** Completează rezultatul comenzii START_FINDERS în curs */
+	private void completeStart(SearchResult r) {
+		if (pendingStart != null) {
+			pendingStart.complete(r);
+			pendingStart = null;
+		}
+	}
+
 	/** Cere Controller-ului să oprească toți Finderii (prin TERMINATE) */
-	public void shutdownFinders() {
+	private void shutdownFinders() {
 		if (shuttingDown)
 			return;
 
@@ -393,7 +1562,7 @@ public class SearcherAgent extends Agent {
 		ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
 		msg.setOntology(ControllerAgent.ONT_CONTROL);
 		msg.setContent(ControllerAgent.CMD_SHUTDOWN);
-		AID ctrl = findControllerInDF();
+		AID ctrl = controller();
 		if (ctrl == null) {
 			ui("Controller nu este disponibil în DF.");
 			endSearchUiState();
@@ -404,30 +1573,43 @@ public class SearcherAgent extends Agent {
 		send(msg);
 
 		cachedFinders.clear();
+		sketches.clear();
+		finderBaseDirs.clear();
+		finderStats.clear();
 		endSearchUiState();
 		ui("Cerere de shutdown trimisă.");
 	}
 
 	/** Trimite cererea de căutare către toți Finderii din cache */
-	public void searchFile(String fileName) {
-		if (shuttingDown)
+	private void searchFile(String fileName, boolean extract, boolean ai, String filter) {
+		if (shuttingDown) {
+			reject("Aplicația se închide.");
 			return;
+		}
 
-		extractEnabled = gui.isExtractEnabled();
-		aiEnabled = gui.isAiEnabled();
+		extractEnabled = extract;
+		aiEnabled = ai;
 
 		if (fileName == null || fileName.trim().isEmpty()) {
-			ui("Introduceți un nume de fișier!");
+			reject("Introduceți un nume de fișier!");
 			return;
 		}
 
 		if (extractEnabled && (extractFolder == null || extractFolder.trim().isEmpty())) {
-			ui("Alege un folder de extragere (Browse Extract) înainte de Search.");
+			reject("Alege un folder de extragere (Browse Extract) înainte de Search.");
+			return;
+		}
+
+		/** Validează filtrele înainte să trimitem cererea la toți finderii */
+		try {
+			searchFilter = SearchFilter.parse(filter).toSpec();
+		} catch (IllegalArgumentException e) {
+			reject("Filtre invalide: " + e.getMessage());
 			return;
 		}
 
 		if (cachedFinders.isEmpty()) {
-			ui("Nu există finderi activi. Apasă Start agenți Finder.");
+			reject("Nu există finderi activi. Apasă Start agenți Finder.");
 			if (gui != null) {
 				gui.setSearchEnabled(false);
 				gui.setStartEnabled(true);
@@ -436,14 +1618,49 @@ public class SearcherAgent extends Agent {
 		}
 
 		foundAlready = false;
+		fuzzyMode = false;
+		rankMode = false;
+		activeQuery = null;
+		activeStats = null;
 		currentConvId = UUID.randomUUID().toString().substring(0, 8);
 		searchTarget = fileName.trim();
+		beginSearchSpan("search");
+
+		/**
+		 * Rutare: întâi finderii al căror sketch poate conține numele (sau fără
+		 * sketch); ceilalți primesc cererea doar dacă primul val nu găsește nimic
+		 */
+		long h = new NameMatcher(searchTarget).targetHash();
+		List<AID> targets = new ArrayList<>();
+		sketchRouted.clear();
+		sketchSkipped.clear();
+		for (AID finder : cachedFinders) {
+			NameSketch sk = sketches.get(finder);
+			if (sk == null) {
+				targets.add(finder);
+			} else if (sk.mightContain(h)) {
+				targets.add(finder);
+				sketchRouted.add(finder);
+			} else {
+				sketchSkipped.add(finder);
+			}
+		}
+		Metrics.inc("search.exact");
+		Metrics.add("search.fanout.available", cachedFinders.size());
+		Metrics.add("search.fanout.sent", targets.size());
+		Metrics.add("sketch.routed", sketchRouted.size());
 
-		expectedResponses = cachedFinders.size();
+		searchTargets.clear();
+		expectedResponses = 0;
 		receivedResponses = 0;
+		prunedEntries = 0;
+		refusedResponses = 0;
+		awaiting.clear();
+		answered.clear();
 
 		if (gui != null) {
 			gui.clearLog();
+			gui.clearResults();
 			gui.setSearchEnabled(false);
 			gui.setStartEnabled(false);
 		}
@@ -451,19 +1668,356 @@ public class SearcherAgent extends Agent {
 		System.out.println("================");
 		System.out.println("Caut: " + searchTarget + " ...");
 		ui("Caut: " + searchTarget + " ...");
+		ui("Rutare: " + targets.size() + "/" + cachedFinders.size() + " finderi (fan-out redus cu "
+				+ Metrics.percent(cachedFinders.size() - targets.size(), cachedFinders.size()) + ")");
+
+		/** Niciun sketch nu conține numele: poate fi un fișier nou, întreabă-i pe toți */
+		if (targets.isEmpty())
+			sendSketchSkipped();
+		else
+			sendSearch(targets);
+	}
 
-		for (AID finder : cachedFinders) {
+	/** Al doilea val al căutării exacte: finderii săriți de sketch */
+	private void sendSketchSkipped() {
+		List<AID> rest = new ArrayList<>(sketchSkipped);
+		sketchSkipped.clear();
+		Metrics.inc("sketch.secondWave");
+		Metrics.add("search.fanout.sent", rest.size());
+		ui("Niciun rezultat de la finderii aleși după sketch; întreb și ceilalți " + rest.size() + ".");
+		sendSearch(rest);
+	}
+
+	/** Trimite căutarea exactă curentă acestor finderi (câte un mesaj fiecăruia) */
+	private void sendSearch(List<AID> targets) {
+		searchTargets.addAll(targets);
+		expectedResponses += targets.size();
+		for (AID finder : targets) {
 			ACLMessage req = new ACLMessage(ACLMessage.REQUEST);
 			req.setOntology(FinderAgent.ONT_SEARCH);
+			req.setConversationId(currentConvId);
 			req.addReceiver(finder);
 			if (extractEnabled)
 				req.setContent(FinderAgent.CMD_REQ + "|" + currentConvId + "|" + searchTarget + "|" + extractFolder);
 			else
 				req.setContent(FinderAgent.CMD_REQ + "|" + currentConvId + "|" + searchTarget);
+			if (!searchFilter.isEmpty())
+				req.addUserDefinedParameter(FinderAgent.PARAM_FILTER, searchFilter);
+			addClientParams(req);
+			awaitFrom(req);
 			send(req);
 		}
 	}
 
+	/**
+	 * Căutare fuzzy: trimite FUZZY tuturor finderilor (sketch-urile nu ajută, numele
+	 * exact nu e cunoscut). Fiecare răspunde din indexul de trigrame cu cele mai
+	 * apropiate FUZZY_TOP_K nume; rezultatele sunt îmbinate în handleFinderMessage.
+	 */
+	private void fuzzySearch(String fileName, boolean archive, String filter) {
+		if (shuttingDown) {
+			reject("Aplicația se închide.");
+			return;
+		}
+
+		if (fileName == null || fileName.trim().isEmpty()) {
+			reject("Introduceți un nume de fișier!");
+			return;
+		}
+
+		if (!checkArchiveFolder(archive))
+			return;
+
+		try {
+			searchFilter = SearchFilter.parse(filter).toSpec();
+		} catch (IllegalArgumentException e) {
+			reject("Filtre invalide: " + e.getMessage());
+			return;
+		}
+
+		if (cachedFinders.isEmpty()) {
+			reject("Nu există finderi activi. Apasă Start agenți Finder.");
+			return;
+		}
+
+		foundAlready = false;
+		fuzzyMode = true;
+		rankMode = false;
+		activeQuery = null;
+		activeStats = null;
+		fuzzyTop.clear();
+		sketchRouted.clear();
+		currentConvId = UUID.randomUUID().toString().substring(0, 8);
+		searchTarget = fileName.trim();
+		beginSearchSpan("search.fuzzy");
+		expectedResponses = cachedFinders.size();
+		receivedResponses = 0;
+		prunedEntries = 0;
+		refusedResponses = 0;
+		awaiting.clear();
+		answered.clear();
+		searchStartNanos = System.nanoTime();
+
+		if (gui != null) {
+			gui.clearLog();
+			gui.clearResults();
+			gui.setSearchEnabled(false);
+			gui.setStartEnabled(false);
+		}
+		ui("Caut (fuzzy): " + searchTarget + " ...");
+
+		/** Un singur mesaj cu toți finderii ca destinatari */
+		ACLMessage req = new ACLMessage(ACLMessage.REQUEST);
+		req.setOntology(FinderAgent.ONT_SEARCH);
+		for (AID finder : cachedFinders)
+			req.addReceiver(finder);
+		req.setConversationId(currentConvId);
+		req.setContent(FinderAgent.CMD_FUZZY + "|" + currentConvId + "|" + FUZZY_TOP_K + "|" + searchTarget);
+		if (!searchFilter.isEmpty())
+			req.addUserDefinedParameter(FinderAgent.PARAM_FILTER, searchFilter);
+		addClientParams(req);
+		awaitFrom(req);
+		send(req);
+	}
+
+	/**
+	 * Căutare ordonată: toate fișierele cu numele dat (și fără diferența de litere
+	 * mari/mici), ordonate după MatchRanker. Cererea pleacă la toți finderii (un
+	 * sketch vechi nu știe de fișierele noi); pentru fiecare se calculează scorul
+	 * maxim posibil (adâncimea lui baseDir sub rădăcină, cel mai nou mtime și
+	 * cea mai mare dimensiune din indexul lui), ca îmbinarea să se poată opri
+	 * înainte să răspundă toți. Fiecare finder trimite top-k-ul lui local.
+	 */
+	private void rankedSearch(String fileName, boolean archive, String filter) {
+		if (shuttingDown) {
+			reject("Aplicația se închide.");
+			return;
+		}
+
+		if (fileName == null || fileName.trim().isEmpty()) {
+			reject("Introduceți un nume de fișier!");
+			return;
+		}
+
+		if (!checkArchiveFolder(archive))
+			return;
+
+		try {
+			searchFilter = SearchFilter.parse(filter).toSpec();
+		} catch (IllegalArgumentException e) {
+			reject("Filtre invalide: " + e.getMessage());
+			return;
+		}
+
+		if (cachedFinders.isEmpty()) {
+			reject("Nu există finderi activi. Apasă Start agenți Finder.");
+			return;
+		}
+
+		foundAlready = false;
+		fuzzyMode = false;
+		rankMode = true;
+		activeQuery = null;
+		activeStats = null;
+		rankTop.clear();
+		rankPaths.clear();
+		rankBounds.clear();
+		currentConvId = UUID.randomUUID().toString().substring(0, 8);
+		searchTarget = fileName.trim();
+		beginSearchSpan("search.ranked");
+		long now = System.currentTimeMillis();
+		rankNow = now;
+
+		/**
+		 * Limita superioară a scorului fiecărui finder. Toți finderii primesc
+		 * cererea: un sketch vechi nu știe de fișierele noi, iar aici nu există
+		 * un al doilea val ca la căutarea exactă.
+		 */
+		sketchRouted.clear();
+		for (AID finder : cachedFinders)
+			rankBounds.put(finder, rankBound(finder));
+		List<AID> targets = new ArrayList<>(rankBounds.keySet());
+		Metrics.add("search.fanout.available", cachedFinders.size());
+		Metrics.add("search.fanout.sent", targets.size());
+
+		searchTargets.clear();
+		searchTargets.addAll(targets);
+		expectedResponses = targets.size();
+		receivedResponses = 0;
+		prunedEntries = 0;
+		refusedResponses = 0;
+		awaiting.clear();
+		answered.clear();
+		searchStartNanos = System.nanoTime();
+
+		if (gui != null) {
+			gui.clearLog();
+			gui.clearResults();
+			gui.setSearchEnabled(false);
+			gui.setStartEnabled(false);
+		}
+		ui("Caut (ordonat): " + searchTarget + " ...");
+
+		if (targets.isEmpty()) {
+			reportRanked();
+			return;
+		}
+
+		/** Un singur mesaj cu toți finderii ca destinatari */
+		ACLMessage req = new ACLMessage(ACLMessage.REQUEST);
+		req.setOntology(FinderAgent.ONT_SEARCH);
+		for (AID finder : targets)
+			req.addReceiver(finder);
+		req.setConversationId(currentConvId);
+		req.setContent(FinderAgent.CMD_RANK + "|" + currentConvId + "|" + RANK_TOP_K + "|" + now + "|" + searchTarget);
+		if (searchRoot != null)
+			req.addUserDefinedParameter(FinderAgent.PARAM_ROOT, searchRoot);
+		if (!searchFilter.isEmpty())
+			req.addUserDefinedParameter(FinderAgent.PARAM_FILTER, searchFilter);
+		addClientParams(req);
+		awaitFrom(req);
+		send(req);
+	}
+
+	/**
+	 * Interogare pe atribute: validează textul, fixează timpii relativi și trimite
+	 * QUERY tuturor finderilor într-un singur mesaj. Fiecare răspunde din index cu
+	 * primele limit rânduri; aici se păstrează doar primele limit din total.
+	 */
+	private void querySearch(String text, boolean archive, String filter) {
+		if (shuttingDown) {
+			reject("Aplicația se închide.");
+			return;
+		}
+
+		if (!checkArchiveFolder(archive))
+			return;
+
+		final MetadataQuery q;
+		try {
+			q = MetadataQuery.parse(text);
+			searchFilter = SearchFilter.parse(filter).toSpec();
+		} catch (IllegalArgumentException e) {
+			reject("Interogare invalidă: " + e.getMessage());
+			return;
+		}
+
+		if (cachedFinders.isEmpty()) {
+			reject("Nu există finderi activi. Apasă Start agenți Finder.");
+			return;
+		}
+
+		foundAlready = false;
+		fuzzyMode = false;
+		rankMode = false;
+		activeQuery = q;
+		activeStats = null;
+		queryTop = new PriorityQueue<>(q.order().reversed());
+		queryMatched = 0;
+		sketchRouted.clear();
+		currentConvId = UUID.randomUUID().toString().substring(0, 8);
+		searchTarget = q.toSpec();
+		beginSearchSpan("search.query");
+		expectedResponses = cachedFinders.size();
+		receivedResponses = 0;
+		prunedEntries = 0;
+		refusedResponses = 0;
+		awaiting.clear();
+		answered.clear();
+		searchStartNanos = System.nanoTime();
+
+		if (gui != null) {
+			gui.clearLog();
+			gui.clearResults();
+			gui.setSearchEnabled(false);
+			gui.setStartEnabled(false);
+		}
+		ui("Interogare: " + searchTarget);
+
+		ACLMessage req = new ACLMessage(ACLMessage.REQUEST);
+		req.setOntology(FinderAgent.ONT_SEARCH);
+		for (AID finder : cachedFinders)
+			req.addReceiver(finder);
+		req.setConversationId(currentConvId);
+		req.setContent(FinderAgent.CMD_QUERY + "|" + currentConvId);
+		req.addUserDefinedParameter(FinderAgent.PARAM_QUERY, searchTarget);
+		if (!searchFilter.isEmpty())
+			req.addUserDefinedParameter(FinderAgent.PARAM_FILTER, searchFilter);
+		addClientParams(req);
+		awaitFrom(req);
+		send(req);
+	}
+
+	/**
+	 * Trimite STATS tuturor finderilor. Fiecare calculează din index agregatul
+	 * parțial al subarborilor lui; răspunsurile sunt reduse pe măsură ce sosesc
+	 * (vezi mergeStats), iar totalurile parțiale apar imediat în fereastră.
+	 */
+	private void statsSearch(String text, String filter) {
+		if (shuttingDown) {
+			reject("Aplicația se închide.");
+			return;
+		}
+
+		int top = StatsAggregate.DEFAULT_TOP;
+		try {
+			if (text != null && !text.trim().isEmpty())
+				top = Integer.parseInt(text.trim());
+			searchFilter = SearchFilter.parse(filter).toSpec();
+		} catch (IllegalArgumentException e) {
+			reject("Cerere STATS invalidă (se așteaptă numărul de fișiere din top): " + e.getMessage());
+			return;
+		}
+
+		if (cachedFinders.isEmpty()) {
+			reject("Nu există finderi activi. Apasă Start agenți Finder.");
+			return;
+		}
+
+		foundAlready = false;
+		fuzzyMode = false;
+		rankMode = false;
+		activeQuery = null;
+		activeStats = new StatsAggregate(top);
+		statsFailed = 0;
+		sketchRouted.clear();
+		currentConvId = UUID.randomUUID().toString().substring(0, 8);
+		searchTarget = "STATS top=" + activeStats.top;
+		beginSearchSpan("search.stats");
+		expectedResponses = cachedFinders.size();
+		receivedResponses = 0;
+		prunedEntries = 0;
+		refusedResponses = 0;
+		awaiting.clear();
+		answered.clear();
+		searchStartNanos = System.nanoTime();
+
+		if (gui != null) {
+			gui.clearLog();
+			gui.clearResults();
+			gui.showStats("Se calculează...");
+			gui.setSearchEnabled(false);
+			gui.setStartEnabled(false);
+		}
+		ui("Statistici: " + (searchRoot != null ? searchRoot : "folderul finderilor") + ", top "
+				+ activeStats.top + " fișiere");
+
+		ACLMessage req = new ACLMessage(ACLMessage.REQUEST);
+		req.setOntology(FinderAgent.ONT_SEARCH);
+		for (AID finder : cachedFinders)
+			req.addReceiver(finder);
+		req.setConversationId(currentConvId);
+		req.setContent(FinderAgent.CMD_STATS + "|" + currentConvId + "|" + activeStats.top);
+		if (searchRoot != null)
+			req.addUserDefinedParameter(FinderAgent.PARAM_ROOT,
+					Paths.get(searchRoot).toAbsolutePath().normalize().toString());
+		if (!searchFilter.isEmpty())
+			req.addUserDefinedParameter(FinderAgent.PARAM_FILTER, searchFilter);
+		addClientParams(req);
+		awaitFrom(req);
+		send(req);
+	}
+
 	/**
 	 * Polling scurt în DF ca să prindem Finderii după START (fără thread manual)
 	 */
@@ -501,6 +2055,8 @@ public class SearcherAgent extends Agent {
 			private void stopAndReport() {
 				stop(); // oprește ticker-ul
 
+				subscribeToSketches();
+
 				ui("Finders disponibili: " + cachedFinders.size());
 
 				boolean ready = !cachedFinders.isEmpty();
@@ -508,10 +2064,54 @@ public class SearcherAgent extends Agent {
 					ui("Gata. Poți căuta acum.");
 				else
 					ui("Nu am găsit finderi în DF. Încearcă Start din nou.");
+				completeStart(ready
+						? new SearchResult(SearchResult.Status.STARTED, null, null, Integer.toString(cachedFinders.size()))
+						: SearchResult.error("Niciun finder în DF"));
 			}
 		});
 	}
 
+	/** Afișează metricile cumulate de rutare (fan-out și fals pozitive) */
+	private void logRoutingMetrics() {
+		long available = Metrics.get("search.fanout.available");
+		long sent = Metrics.get("search.fanout.sent");
+		long routed = Metrics.get("sketch.routed");
+		long fp = Metrics.get("sketch.falsePositives");
+		ui("Rutare cumulată: " + sent + "/" + available + " cereri trimise (reducere "
+				+ Metrics.percent(available - sent, available) + "), fals pozitive sketch: " + fp + "/" + routed + " ("
+				+ Metrics.percent(fp, routed) + ")");
+		long acks = Metrics.get("cancel.acks");
+		if (acks > 0) {
+			double avgMs = Metrics.get("cancel.idleMicros") / 1000.0 / acks;
+			double maxMs = Metrics.get("cancel.idleMicros.max") / 1000.0;
+			ui(String.format("Anulări: %d confirmate, până la oprire medie %.2f ms (max %.2f ms), %d intrări vizitate de finderii opriți",
+					acks, avgMs, maxMs, Metrics.get("cancel.wastedEntries")));
+		}
+		ui("Cozi: mailbox max searcher " + Metrics.get("searcher.mailbox.maxDepth") + ", finder "
+				+ Metrics.get("finder.mailbox.maxDepth") + "; refuzuri BUSY " + Metrics.get("search.busy")
+				+ ", comenzi comasate " + Metrics.get("searcher.o2a.coalesced"));
+		/** Doar finderii din acest container apar aici */
+		String io = IoScheduler.get().describe();
+		if (!io.isEmpty())
+			ui("I/O: " + io);
+	}
+
+	/** Cere sketch-urile de nume tuturor finderilor (un singur mesaj) */
+	private void subscribeToSketches() {
+		sketches.keySet().retainAll(cachedFinders);
+		finderBaseDirs.keySet().retainAll(cachedFinders);
+		finderStats.keySet().retainAll(cachedFinders);
+		if (cachedFinders.isEmpty())
+			return;
+
+		ACLMessage sub = new ACLMessage(ACLMessage.SUBSCRIBE);
+		sub.setOntology(FinderAgent.ONT_SEARCH);
+		sub.setContent(FinderAgent.CMD_SKETCH_SUB);
+		for (AID finder : cachedFinders)
+			sub.addReceiver(finder);
+		send(sub);
+	}
+
 	/** Reîncarcă lista Finderilor din DF (type=file-search) */
 	private void refreshFindersFromDF() {
 		cachedFinders.clear();
@@ -521,8 +2121,14 @@ public class SearcherAgent extends Agent {
 		sd.setType("file-search");
 		template.addServices(sd);
 
+		/** Implicit DF-ul întoarce cel mult 100 de rezultate; vrem toți finderii (vezi Main) */
+		SearchConstraints all = new SearchConstraints();
+		all.setMaxResults(10_000L);
+
+		Trace.Stage df = Trace.begin(null, this, "df.finders");
 		try {
-			DFAgentDescription[] results = DFService.search(this, template);
+			DFAgentDescription[] results = DFService.search(this, template, all);
+			Trace.end(df, Integer.toString(results.length));
 			for (DFAgentDescription dfd : results)
 				cachedFinders.add(dfd.getName());
 
@@ -540,40 +2146,40 @@ public class SearcherAgent extends Agent {
 	private void sendToAI(String filePath, String convId) {
 		if (shuttingDown)
 			return;
-		// găsim python-bridge în DF
-		DFAgentDescription template = new DFAgentDescription();
-		ServiceDescription sd = new ServiceDescription();
-		sd.setType("python-bridge");
-		template.addServices(sd);
+		// PythonBridgeAgent e creat la prima cerere, apoi AID-ul lui e refolosit
+		if (bridgeAid == null)
+			bridgeAid = ensurePythonBridgeRunning(convId);
 
 		try {
-			DFAgentDescription[] results = DFService.search(this, template);
-			if (results.length == 0) {
+			if (bridgeAid == null) {
 				ui("Agentul AI nu a fost găsit în DF.");
 				waitingAi = false;
+				finishFound("Agentul AI nu a fost găsit în DF.");
 				endSearchUiState();
 				return;
 			}
 
-			AID aiAgent = results[0].getName();
+			AID aiAgent = bridgeAid;
 			ACLMessage req = new ACLMessage(ACLMessage.REQUEST);
 			req.addReceiver(aiAgent);
 			req.setOntology(ONT_AI);
 			req.setConversationId(convId);
 			req.setContent("ANALYZE|" + filePath);
 
+			aiSpan = Trace.begin(convId, this, "ai.analysis");
 			send(req);
 
 		} catch (Exception e) {
 			ui("Eroare la trimiterea către AI: " + e.getMessage());
 			waitingAi = false;
+			finishFound("Eroare la trimiterea către AI: " + e.getMessage());
 			endSearchUiState();
 		}
 
 	}
 
 	/** Închidere aplicație: oprește finderi + cere shutdown platform */
-	public void shutdownPlatform() {
+	private void shutdownPlatform() {
 		if (shuttingDown)
 			return;
 		shuttingDown = true;
@@ -587,6 +2193,7 @@ public class SearcherAgent extends Agent {
 
 	/** Request de shutdown către AMS (ShutdownPlatform) */
 	private void requestPlatformShutdown() {
+		FinderAgent.platformClosing();
 		addBehaviour(new OneShotBehaviour() {
 			@Override
 			public void action() {
@@ -613,6 +2220,8 @@ public class SearcherAgent extends Agent {
 
 	@Override
 	protected void takeDown() {
+		if (gateway != null)
+			gateway.stop();
 		if (gui != null)
 			SwingUtilities.invokeLater(() -> gui.dispose());
 	}
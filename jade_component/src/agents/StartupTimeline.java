@@ -0,0 +1,41 @@
+package agents;
+
+import java.time.Instant;
+import java.util.Locale;
+
+/**
+ * Fazele pornirii aplicației (time-to-interactive): fiecare fază e afișată în
+ * consolă cu durata ei și momentul terminării, față de pornirea JVM-ului, și
+ * e păstrată în Metrics ca startup.&lt;fază&gt;.ms (durata) și
+ * startup.&lt;fază&gt;.atMs (momentul).
+ */
+final class StartupTimeline {
+
+	/** Momentul pornirii procesului (ms); fără java.management, care e lent de încărcat */
+	private static final long JVM_START_MS = ProcessHandle.current().info().startInstant().map(Instant::toEpochMilli)
+			.orElse(System.currentTimeMillis());
+
+	private StartupTimeline() {
+	}
+
+	/** Milisecunde de la pornirea JVM-ului */
+	static long sinceJvmStart() {
+		return System.currentTimeMillis() - JVM_START_MS;
+	}
+
+	/** O fază terminată acum, începută la startNanos (System.nanoTime) */
+	static void phase(String name, long startNanos) {
+		long ms = (System.nanoTime() - startNanos) / 1_000_000;
+		long at = sinceJvmStart();
+		Metrics.max("startup." + name + ".ms", ms);
+		Metrics.max("startup." + name + ".atMs", at);
+		System.out.printf(Locale.ROOT, "[startup] %-16s %6d ms  (la %d ms)%n", name, ms, at);
+	}
+
+	/** Un moment fără durată proprie (ex. fereastra e utilizabilă) */
+	static void mark(String name) {
+		long at = sinceJvmStart();
+		Metrics.max("startup." + name + ".atMs", at);
+		System.out.printf(Locale.ROOT, "[startup] %-16s %6s     (la %d ms)%n", name, "", at);
+	}
+}
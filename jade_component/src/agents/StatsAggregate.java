@@ -0,0 +1,240 @@
+package agents;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Agregatele unei cereri STATS (spațiu ocupat pe extensie, cele mai mari
+ * fișiere), în forma parțială calculată de un finder și în cea redusă de
+ * SearcherAgent. Contoarele sunt ținute pe subarbori de adâncime 1 față de
+ * rădăcina căutării: finder_root acoperă tot arborele, deci aceiași subarbori
+ * sosesc de la doi finderi, iar la reducere primul venit câștigă (ceilalți
+ * sunt numărați ca duplicate). Top-ul celor mai mari fișiere e mărginit și
+ * fără căi repetate, deci reducerea în orice ordine dă același rezultat.
+ *
+ * Format (după antetul STATS_RESULT): linii T|files|bytes|dirs|cale pentru
+ * fiecare subarbore, urmate de E|files|bytes|extensie pentru extensiile lui,
+ * apoi L|size|mtime|cale pentru top. Câmpul liber e mereu ultimul.
+ */
+final class StatsAggregate {
+
+	static final int DEFAULT_TOP = 20;
+	static final int MAX_TOP = 1_000;
+
+	/** Contoarele unui subarbore, pe total și pe extensie */
+	static final class Subtree {
+		final String path;
+		long files;
+		long bytes;
+		long dirs;
+
+		/** extensie ("" = fără) -> {fișiere, octeți} */
+		final Map<String, long[]> byExt = new HashMap<>();
+
+		Subtree(String path) {
+			this.path = path;
+		}
+
+		void addFiles(String ext, long n, long sz) {
+			long[] e = byExt.computeIfAbsent(ext, k -> new long[2]);
+			e[0] += n;
+			e[1] += sz;
+			files += n;
+			bytes += sz;
+		}
+	}
+
+	private static final Comparator<MetadataQuery.Row> BY_SIZE = Comparator
+			.comparingLong((MetadataQuery.Row r) -> r.size).thenComparing(r -> r.path);
+
+	final int top;
+
+	private final Map<String, Subtree> subtrees = new LinkedHashMap<>();
+
+	/** Cele mai mari fișiere (min-heap: vârful e cel mai mic păstrat) și căile lor */
+	private final PriorityQueue<MetadataQuery.Row> largest = new PriorityQueue<>(BY_SIZE);
+	private final Set<String> largestPaths = new HashSet<>();
+
+	/** Subarbori primiți de la mai mulți finderi (ignorați după primul) */
+	private long duplicates;
+
+	StatsAggregate(int top) {
+		this.top = Math.max(1, Math.min(top, MAX_TOP));
+	}
+
+	/** Subarborele cu această cale (creat gol dacă lipsește) */
+	Subtree subtree(String path) {
+		return subtrees.computeIfAbsent(path, Subtree::new);
+	}
+
+	/**
+	 * Dimensiunea sub care un fișier nu mai intră în top (-1 cât top-ul nu e
+	 * plin); finderul reconstruiește calea doar pentru fișierele peste ea
+	 */
+	long largestThreshold() {
+		return largest.size() < top ? -1 : largest.peek().size;
+	}
+
+	/** Propune un fișier pentru top; false dacă nu intră sau calea e deja acolo */
+	boolean offerLargest(MetadataQuery.Row r) {
+		if (largestPaths.contains(r.path))
+			return false;
+		if (largest.size() == top) {
+			if (BY_SIZE.compare(r, largest.peek()) <= 0)
+				return false;
+			largestPaths.remove(largest.poll().path);
+		}
+		largest.add(r);
+		largestPaths.add(r.path);
+		return true;
+	}
+
+	/**
+	 * Reduce un agregat parțial în acesta. Un subarbore deja primit nu se mai
+	 * adună (doi finderi l-au numărat întreg). Întoarce câți subarbori noi au
+	 * intrat.
+	 */
+	int merge(StatsAggregate part) {
+		int added = 0;
+		for (Subtree s : part.subtrees.values()) {
+			if (subtrees.containsKey(s.path)) {
+				duplicates++;
+				continue;
+			}
+			subtrees.put(s.path, s);
+			added++;
+		}
+		for (MetadataQuery.Row r : part.largest)
+			offerLargest(r);
+		return added;
+	}
+
+	long files() {
+		long n = 0;
+		for (Subtree s : subtrees.values())
+			n += s.files;
+		return n;
+	}
+
+	long bytes() {
+		long n = 0;
+		for (Subtree s : subtrees.values())
+			n += s.bytes;
+		return n;
+	}
+
+	long dirs() {
+		long n = 0;
+		for (Subtree s : subtrees.values())
+			n += s.dirs;
+		return n;
+	}
+
+	int subtreeCount() {
+		return subtrees.size();
+	}
+
+	long duplicates() {
+		return duplicates;
+	}
+
+	/** Totalurile pe extensie ({fișiere, octeți}), descrescător după octeți */
+	List<Map.Entry<String, long[]>> byExtension() {
+		Map<String, long[]> sum = new HashMap<>();
+		for (Subtree s : subtrees.values()) {
+			for (Map.Entry<String, long[]> e : s.byExt.entrySet()) {
+				long[] t = sum.computeIfAbsent(e.getKey(), k -> new long[2]);
+				t[0] += e.getValue()[0];
+				t[1] += e.getValue()[1];
+			}
+		}
+		List<Map.Entry<String, long[]>> out = new ArrayList<>(sum.entrySet());
+		out.sort((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]));
+		return out;
+	}
+
+	/** Subarborii, descrescător după octeți */
+	List<Subtree> subtrees() {
+		List<Subtree> out = new ArrayList<>(subtrees.values());
+		out.sort((a, b) -> Long.compare(b.bytes, a.bytes));
+		return out;
+	}
+
+	/** Cele mai mari fișiere, descrescător */
+	List<MetadataQuery.Row> largest() {
+		List<MetadataQuery.Row> out = new ArrayList<>(largest);
+		out.sort(BY_SIZE.reversed());
+		return out;
+	}
+
+	/** Liniile de după antet (fiecare precedată de '\n') */
+	String encode() {
+		StringBuilder sb = new StringBuilder();
+		for (Subtree s : subtrees.values()) {
+			sb.append("\nT|").append(s.files).append('|').append(s.bytes).append('|').append(s.dirs).append('|')
+					.append(s.path);
+			for (Map.Entry<String, long[]> e : s.byExt.entrySet())
+				sb.append("\nE|").append(e.getValue()[0]).append('|').append(e.getValue()[1]).append('|')
+						.append(e.getKey());
+		}
+		for (MetadataQuery.Row r : largest)
+			sb.append("\nL|").append(r.size).append('|').append(r.mtime).append('|').append(r.path);
+		return sb.toString();
+	}
+
+	/**
+	 * Agregatul parțial dintr-un STATS_RESULT (prima linie e antetul). Liniile
+	 * stricate sunt sărite.
+	 */
+	static StatsAggregate parse(String content, int top) {
+		StatsAggregate agg = new StatsAggregate(top);
+		String[] lines = content.split("\n");
+		Subtree cur = null;
+		for (int i = 1; i < lines.length; i++) {
+			String line = lines[i];
+			try {
+				if (line.startsWith("T|")) {
+					String[] f = line.split("\\|", 5);
+					if (f.length != 5)
+						continue;
+					cur = agg.subtree(f[4]);
+					cur.files = Long.parseLong(f[1]);
+					cur.bytes = Long.parseLong(f[2]);
+					cur.dirs = Long.parseLong(f[3]);
+				} else if (line.startsWith("E|") && cur != null) {
+					String[] f = line.split("\\|", 4);
+					if (f.length == 4)
+						cur.byExt.put(f[3], new long[] { Long.parseLong(f[1]), Long.parseLong(f[2]) });
+				} else if (line.startsWith("L|")) {
+					String[] f = line.split("\\|", 4);
+					if (f.length == 4)
+						agg.offerLargest(new MetadataQuery.Row(Long.parseLong(f[1]), Long.parseLong(f[2]), f[3]));
+				}
+			} catch (NumberFormatException ignored) {
+			}
+		}
+		return agg;
+	}
+
+	/** Dimensiune lizibilă (1023 B, 4.2 MB, 1.1 GB) */
+	static String formatBytes(long n) {
+		if (n < 1024)
+			return n + " B";
+		String units = "KMGTPE";
+		int u = -1;
+		double v = n;
+		while (v >= 1024 && u < units.length() - 1) {
+			v /= 1024;
+			u++;
+		}
+		return String.format(Locale.ROOT, "%.1f %cB", v, units.charAt(u));
+	}
+}
@@ -0,0 +1,129 @@
+package agents;
+
+import jade.core.Agent;
+import jade.lang.acl.ACLMessage;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evenimente JFR pentru urmărirea unei căutări prin toți agenții, etichetate
+ * cu convId. Costă aproape nimic când nu rulează o înregistrare JFR (isEnabled
+ * e false și nu se completează nimic). Pornire, de exemplu:
+ *
+ * <pre>
+ * java -XX:StartFlightRecording=filename=search.jfr,settings=profile ... agents.Main
+ * java -cp bin agents.JfrTimeline search.jfr [convId]
+ * </pre>
+ */
+final class Trace {
+
+	/** O etapă cu durată (DF, parcurgere, extragere, apel AI etc.) */
+	@Name("agents.Stage")
+	@Label("Search Stage")
+	@Category({ "JADE File Search" })
+	@StackTrace(false)
+	static final class Stage extends Event {
+		@Label("Conversation")
+		String convId;
+
+		@Label("Agent")
+		String agent;
+
+		@Label("Stage")
+		String stage;
+
+		@Label("Detail")
+		String detail;
+	}
+
+	/** Livrarea unui mesaj ACL: cât a stat între send() și preluarea din coadă */
+	@Name("agents.Delivery")
+	@Label("Message Delivery")
+	@Category({ "JADE File Search" })
+	@StackTrace(false)
+	static final class Delivery extends Event {
+		@Label("Conversation")
+		String convId;
+
+		@Label("Sender")
+		String sender;
+
+		@Label("Receiver")
+		String receiver;
+
+		@Label("Command")
+		String command;
+
+		@Label("Delay (ms)")
+		@Description("Timpul de la postarea mesajului până la preluarea lui de agent; -1 dacă nu se știe")
+		long delayMillis;
+	}
+
+	private Trace() {
+	}
+
+	/** Începe o etapă; se încheie cu end(). convId poate fi null ("-") */
+	static Stage begin(String convId, Agent agent, String stage) {
+		Stage e = new Stage();
+		if (e.isEnabled()) {
+			e.convId = convId == null ? "-" : convId;
+			e.agent = agent.getLocalName();
+			e.stage = stage;
+			e.begin();
+		}
+		return e;
+	}
+
+	/** Încheie și înregistrează etapa (dacă JFR o cere) */
+	static void end(Stage e, String detail) {
+		if (e != null && e.isEnabled()) {
+			e.end();
+			e.detail = detail;
+			e.commit();
+		}
+	}
+
+	/** Înregistrează livrarea unui mesaj primit de agent */
+	static void delivered(Agent receiver, ACLMessage msg, String convId) {
+		Delivery e = new Delivery();
+		if (!e.isEnabled())
+			return;
+		e.convId = convId == null ? "-" : convId;
+		e.sender = msg.getSender() != null ? msg.getSender().getLocalName() : "?";
+		e.receiver = receiver.getLocalName();
+		e.command = command(msg.getContent());
+		long posted = msg.getPostTimeStamp();
+		e.delayMillis = posted > 0 ? Math.max(0, System.currentTimeMillis() - posted) : -1;
+		e.commit();
+	}
+
+	/** Primul câmp din conținutul pipe-delimitat (SEARCH, FOUND, ...) */
+	static String command(String content) {
+		if (content == null)
+			return "";
+		int bar = content.indexOf('|');
+		String c = bar < 0 ? content : content.substring(0, bar);
+		return c.length() > 40 ? c.substring(0, 40) : c;
+	}
+
+	/** convId-ul din conținutul CMD|convId|... (sau conversationId-ul mesajului) */
+	static String convId(ACLMessage msg) {
+		if (msg.getConversationId() != null)
+			return msg.getConversationId();
+		String c = msg.getContent();
+		if (c == null)
+			return null;
+		int a = c.indexOf('|');
+		if (a < 0)
+			return null;
+		int b = c.indexOf('|', a + 1);
+		int nl = c.indexOf('\n', a + 1);
+		if (b < 0 || (nl >= 0 && nl < b))
+			b = nl;
+		return b < 0 ? c.substring(a + 1) : c.substring(a + 1, b);
+	}
+}
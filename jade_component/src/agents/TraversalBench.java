@@ -0,0 +1,87 @@
+package agents;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark pentru ordinea de parcurgere ghidată de istoric (HitHistory): pe
+ * un arbore generat cu BenchTreeGenerator rulează o încărcare de tip "repeat"
+ * (90% din interogări pe un set mic de fișiere fierbinți) și compară timpul
+ * până la primul match fără istoric și cu istoric.
+ *
+ * Rulare: java -cp bin agents.TraversalBench [root] [queries] [hot]
+ */
+public final class TraversalBench {
+
+	private TraversalBench() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		Path root = args.length > 0 ? Paths.get(args[0]) : Files.createTempDirectory("traversal-bench");
+		int queries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		int hot = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+		List<Path> sample = BenchTreeGenerator.generate(root, 4, 8, 20, 42L);
+
+		/** Încărcarea: 90% fișiere fierbinți, 10% oarecare */
+		Random rnd = new Random(7);
+		List<Path> hotSet = new ArrayList<>(sample.subList(0, Math.min(hot, sample.size())));
+		List<Path> workload = new ArrayList<>();
+		for (int i = 0; i < queries; i++) {
+			boolean isHot = rnd.nextDouble() < 0.9;
+			workload.add(isHot ? hotSet.get(rnd.nextInt(hotSet.size())) : sample.get(rnd.nextInt(sample.size())));
+		}
+
+		/** Încălzire: cache-ul de pagini al SO să fie la fel pentru ambele rulări */
+		run(root, workload.subList(0, Math.min(10, workload.size())), null);
+
+		long[] plain = run(root, workload, null);
+		long[] guided = run(root, workload, new HitHistory(root));
+
+		report("fără istoric", plain);
+		report("cu istoric", guided);
+	}
+
+	/** Rulează încărcarea și întoarce timpii până la primul match (µs) */
+	private static long[] run(Path root, List<Path> workload, HitHistory history) throws IOException {
+		long[] out = new long[workload.size()];
+		for (int i = 0; i < workload.size(); i++) {
+			Path target = workload.get(i);
+			NameMatcher matcher = new NameMatcher(target.getFileName().toString());
+			Path[] found = { null };
+
+			long t0 = System.nanoTime();
+			OrderedTreeWalker.walk(root, history, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					if (matcher.matches(file)) {
+						found[0] = file;
+						return FileVisitResult.TERMINATE;
+					}
+					return FileVisitResult.CONTINUE;
+				}
+			});
+			out[i] = (System.nanoTime() - t0) / 1_000;
+
+			if (history != null && found[0] != null)
+				history.recordHit(found[0].getParent());
+		}
+		return out;
+	}
+
+	private static void report(String label, long[] micros) {
+		long[] s = micros.clone();
+		Arrays.sort(s);
+		System.out.printf("%-14s median=%d µs  p90=%d µs  max=%d µs%n", label, s[s.length / 2],
+				s[(int) (s.length * 0.9)], s[s.length - 1]);
+	}
+}
@@ -0,0 +1,360 @@
+package agents;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Index de trigrame peste numele fișierelor unui Finder, pentru căutare fuzzy
+ * (toleranță la greșeli de scriere). Numele sunt normalizate (NFC) și
+ * împăturite ca în NameMatcher; trigramele (cu bordare "^^" la început și "$"
+ * la sfârșit) sunt ținute în liste de apariții sortate, pe array-uri
+ * primitive. Candidații care împart destule trigrame cu interogarea sunt
+ * verificați cu distanța Damerau-Levenshtein (varianta OSA).
+ *
+ * Numele împăturite stau concatenate într-un singur char[] (fără câte un
+ * String pe nume); un String e creat doar pentru candidații verificați.
+ * Pozițiile sunt ținute și în ordinea alfabetică a numelor împăturite, pentru
+ * căutarea după prefix (sugestiile din SearchWindow).
+ */
+final class TrigramIndex {
+
+	/** Un rezultat fuzzy: intrarea din FinderIndex și distanța de editare */
+	static final class Match {
+		final int id;
+		final String name;
+		final int distance;
+		final double score;
+
+		Match(int id, String name, int distance, double score) {
+			this.id = id;
+			this.name = name;
+			this.distance = distance;
+			this.score = score;
+		}
+	}
+
+	/** Un nume împăturit și toate intrările din FinderIndex care îl au */
+	static final class NameGroup {
+		final String folded;
+		final int[] ids;
+
+		NameGroup(String folded, int[] ids) {
+			this.folded = folded;
+			this.ids = ids;
+		}
+	}
+
+	/** Cheile trigramelor (sortate, unice) și listele de apariții */
+	private final int[] keys;
+	private final int[] offsets;
+	private final int[] postings;
+
+	/** Id-urile din FinderIndex, pe poziții locale */
+	private final int[] ids;
+
+	/** Numele împăturite: numele local i e chars[start[i] .. start[i + 1]) */
+	private final char[] chars;
+	private final int[] start;
+
+	/** Pozițiile locale în ordinea alfabetică a numelor împăturite */
+	private final int[] sorted;
+
+	/**
+	 * Contorul de trigrame comune pe nume, refolosit între căutări (alocat la
+	 * prima căutare filtrată și readus la zero după fiecare). search e apelat
+	 * doar de pe thread-ul agentului.
+	 */
+	private int[] hits;
+
+	private TrigramIndex(int[] keys, int[] offsets, int[] postings, int[] ids, char[] chars, int[] start) {
+		this.keys = keys;
+		this.offsets = offsets;
+		this.postings = postings;
+		this.ids = ids;
+		this.chars = chars;
+		this.start = start;
+		this.sorted = sortByName();
+	}
+
+	/** Construiește indexul din fișierele vii ale unui FinderIndex */
+	static TrigramIndex build(FinderIndex index) {
+		int[] ids = index.liveFileIds();
+		char[] chars = new char[Math.max(16, ids.length * 12)];
+		int[] start = new int[ids.length + 1];
+		int nc = 0;
+		long[] pairs = new long[Math.max(16, ids.length * 8)];
+		int np = 0;
+
+		for (int local = 0; local < ids.length; local++) {
+			String f = fold(index.name(ids[local]));
+			if (nc + f.length() > chars.length)
+				chars = Arrays.copyOf(chars, Math.max(chars.length * 2, nc + f.length()));
+			f.getChars(0, f.length(), chars, nc);
+			nc += f.length();
+			start[local + 1] = nc;
+			String padded = "^^" + f + "$";
+			for (int i = 0; i + 3 <= padded.length(); i++) {
+				if (np == pairs.length)
+					pairs = Arrays.copyOf(pairs, np * 2);
+				pairs[np++] = ((long) key(padded, i) << 32) | local;
+			}
+		}
+
+		Arrays.sort(pairs, 0, np);
+
+		int[] keys = new int[np];
+		int[] offsets = new int[np + 1];
+		int[] postings = new int[np];
+		int nk = 0;
+		int last = 0;
+		for (int i = 0; i < np; i++) {
+			int k = (int) (pairs[i] >>> 32);
+			int local = (int) pairs[i];
+			if (nk == 0 || k != last) {
+				keys[nk] = k;
+				offsets[nk] = i;
+				nk++;
+				last = k;
+			}
+			postings[i] = local;
+		}
+		offsets[nk] = np;
+
+		return new TrigramIndex(Arrays.copyOf(keys, nk), Arrays.copyOf(offsets, nk + 1), postings, ids,
+				Arrays.copyOf(chars, nc), start);
+	}
+
+	/** Numărul de nume indexate */
+	int size() {
+		return ids.length;
+	}
+
+	/**
+	 * Cele mai apropiate k nume de query (distanță ≤ maxDistance(query)),
+	 * ordonate după distanță, apoi după scor.
+	 */
+	List<Match> search(String query, int k) {
+		String q = fold(query);
+		int maxDist = maxDistance(q);
+		String padded = "^^" + q + "$";
+		int grams = padded.length() - 2;
+
+		/** Trigramele distincte ale interogării */
+		int[] seen = new int[grams];
+		int ns = 0;
+		for (int i = 0; i < grams; i++) {
+			int key = key(padded, i);
+			boolean dup = false;
+			for (int j = 0; j < ns; j++)
+				dup |= seen[j] == key;
+			if (!dup)
+				seen[ns++] = key;
+		}
+
+		/**
+		 * Lema q-gramelor: o inserare, ștergere sau înlocuire strică cel mult 3
+		 * trigrame, o transpoziție de caractere vecine (Damerau) cel mult 4
+		 */
+		int threshold = ns - 4 * maxDist;
+
+		List<Integer> candidates = new ArrayList<>();
+
+		if (threshold <= 0) {
+			/** Interogare prea scurtă pentru filtrare: doar filtrul de lungime */
+			for (int i = 0; i < ids.length; i++) {
+				if (Math.abs(length(i) - q.length()) <= maxDist)
+					candidates.add(i);
+			}
+		} else {
+			if (hits == null)
+				hits = new int[ids.length];
+			for (int i = 0; i < ns; i++) {
+				int pos = Arrays.binarySearch(keys, seen[i]);
+				if (pos < 0)
+					continue;
+				for (int p = offsets[pos]; p < offsets[pos + 1]; p++) {
+					int local = postings[p];
+					if (++hits[local] == threshold)
+						candidates.add(local);
+				}
+			}
+			/** Zero doar pe pozițiile atinse: aceleași liste de apariții */
+			for (int i = 0; i < ns; i++) {
+				int pos = Arrays.binarySearch(keys, seen[i]);
+				if (pos < 0)
+					continue;
+				for (int p = offsets[pos]; p < offsets[pos + 1]; p++)
+					hits[postings[p]] = 0;
+			}
+		}
+
+		PriorityQueue<Match> top = new PriorityQueue<>(
+				(a, b) -> a.distance != b.distance ? Integer.compare(b.distance, a.distance)
+						: Double.compare(a.score, b.score));
+		for (int local : candidates) {
+			if (Math.abs(length(local) - q.length()) > maxDist)
+				continue;
+			String name = new String(chars, start[local], length(local));
+			int d = distance(q, name, maxDist);
+			if (d > maxDist)
+				continue;
+			double score = 1.0 - (double) d / Math.max(q.length(), name.length());
+			top.add(new Match(ids[local], name, d, score));
+			if (top.size() > k)
+				top.poll();
+		}
+
+		List<Match> out = new ArrayList<>(top);
+		out.sort((a, b) -> a.distance != b.distance ? Integer.compare(a.distance, b.distance)
+				: Double.compare(b.score, a.score));
+		return out;
+	}
+
+	/**
+	 * Numele distincte care încep cu prefix (după împăturire), în ordine
+	 * alfabetică, cel mult k
+	 */
+	List<NameGroup> prefix(String prefix, int k) {
+		String p = fold(prefix);
+		List<NameGroup> out = new ArrayList<>();
+
+		/** Prima poziție cu numele >= p (căutare binară pe ordinea alfabetică) */
+		int lo = 0;
+		int hi = sorted.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (compare(sorted[mid], p) < 0)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+
+		for (int i = lo; i < sorted.length && out.size() < k && startsWith(sorted[i], p);) {
+			int j = i + 1;
+			while (j < sorted.length && compare(sorted[i], sorted[j]) == 0)
+				j++;
+			int[] group = new int[j - i];
+			for (int g = i; g < j; g++)
+				group[g - i] = ids[sorted[g]];
+			out.add(new NameGroup(new String(chars, start[sorted[i]], length(sorted[i])), group));
+			i = j;
+		}
+		return out;
+	}
+
+	/** Sortare prin interclasare a pozițiilor locale după nume (fără obiecte pe element) */
+	private int[] sortByName() {
+		int[] a = new int[ids.length];
+		for (int i = 0; i < a.length; i++)
+			a[i] = i;
+		int[] tmp = new int[a.length];
+		for (int width = 1; width < a.length; width *= 2) {
+			for (int lo = 0; lo < a.length - width; lo += 2 * width) {
+				int mid = lo + width;
+				int hi = Math.min(lo + 2 * width, a.length);
+				if (compare(a[mid - 1], a[mid]) <= 0)
+					continue;
+				int i = lo;
+				int j = mid;
+				int o = lo;
+				while (i < mid && j < hi)
+					tmp[o++] = compare(a[i], a[j]) <= 0 ? a[i++] : a[j++];
+				while (i < mid)
+					tmp[o++] = a[i++];
+				while (j < hi)
+					tmp[o++] = a[j++];
+				System.arraycopy(tmp, lo, a, lo, hi - lo);
+			}
+		}
+		return a;
+	}
+
+	/** Compară lexicografic numele de pe pozițiile locale a și b */
+	private int compare(int a, int b) {
+		return Arrays.compare(chars, start[a], start[a + 1], chars, start[b], start[b + 1]);
+	}
+
+	/** Compară numele de pe poziția locală a cu s */
+	private int compare(int a, String s) {
+		int n = Math.min(length(a), s.length());
+		for (int i = 0; i < n; i++) {
+			char c = chars[start[a] + i];
+			if (c != s.charAt(i))
+				return c < s.charAt(i) ? -1 : 1;
+		}
+		return Integer.compare(length(a), s.length());
+	}
+
+	private boolean startsWith(int a, String p) {
+		if (length(a) < p.length())
+			return false;
+		for (int i = 0; i < p.length(); i++) {
+			if (chars[start[a] + i] != p.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	/** Lungimea numelui împăturit de pe poziția locală i */
+	private int length(int i) {
+		return start[i + 1] - start[i];
+	}
+
+	/** Distanța maximă acceptată: ~1 greșeală la 4 caractere, între 1 și 3 */
+	static int maxDistance(String q) {
+		return Math.max(1, Math.min(3, q.length() / 4));
+	}
+
+	/**
+	 * Distanța Damerau-Levenshtein (OSA: inserare, ștergere, substituție,
+	 * transpoziție de vecini). Se oprește devreme când depășește limit.
+	 */
+	static int distance(String a, String b, int limit) {
+		int n = a.length();
+		int m = b.length();
+		int[] prev2 = new int[m + 1];
+		int[] prev = new int[m + 1];
+		int[] cur = new int[m + 1];
+		for (int j = 0; j <= m; j++)
+			prev[j] = j;
+
+		for (int i = 1; i <= n; i++) {
+			cur[0] = i;
+			int rowMin = cur[0];
+			char ca = a.charAt(i - 1);
+			for (int j = 1; j <= m; j++) {
+				char cb = b.charAt(j - 1);
+				int cost = ca == cb ? 0 : 1;
+				int v = Math.min(Math.min(prev[j] + 1, cur[j - 1] + 1), prev[j - 1] + cost);
+				if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb)
+					v = Math.min(v, prev2[j - 2] + 1);
+				cur[j] = v;
+				rowMin = Math.min(rowMin, v);
+			}
+			if (rowMin > limit)
+				return limit + 1;
+			int[] t = prev2;
+			prev2 = prev;
+			prev = cur;
+			cur = t;
+		}
+		return prev[m];
+	}
+
+	/** NFC + case folding, ca în NameMatcher */
+	static String fold(String s) {
+		String n = Normalizer.normalize(s, Normalizer.Form.NFC);
+		char[] c = n.toCharArray();
+		for (int i = 0; i < c.length; i++)
+			c[i] = NameMatcher.fold(c[i]);
+		return new String(c);
+	}
+
+	/** Cheia unei trigrame (hash pe 32 de biți; coliziunile doar adaugă candidați) */
+	private static int key(String s, int i) {
+		return (s.charAt(i) * 31 + s.charAt(i + 1)) * 31 + s.charAt(i + 2);
+	}
+}
@@ -0,0 +1,447 @@
+package agents;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Scrie multe fișiere găsite într-o singură arhivă zip, în loc de câte o
+ * copie pentru fiecare. Fișierele mici sunt comprimate în paralel (câte un
+ * Deflater pe fișier, în memorie), iar un singur thread scrie intrările în
+ * ordinea în care au fost adăugate, pe măsură ce sunt gata: compresia
+ * următoarelor fișiere continuă cât timp se scrie intrarea curentă. Fișierele
+ * mari sunt comprimate direct în arhivă de thread-ul care scrie, cu data
+ * descriptor, ca memoria folosită să rămână mărginită.
+ *
+ * Formatul e zip clasic (fără zip64): cel mult 65535 de intrări, fișiere sub
+ * 4 GB și arhivă sub 4 GB; ce nu încape e sărit și numărat în Stats.skipped.
+ */
+final class ZipExporter {
+
+	/** Fișierele până la această dimensiune sunt comprimate în paralel, în memorie */
+	private static final long IN_MEMORY_MAX = 8L << 20;
+
+	/** Câți octeți necomprimați pot aștepta în pipeline (compresie + coadă de scriere) */
+	private static final int IN_FLIGHT_BYTES = 64 << 20;
+
+	/** Limitele formatului zip fără extensia zip64 */
+	private static final long ZIP32_MAX = 0xFFFFFFFFL;
+	private static final int MAX_ENTRIES = 0xFFFF;
+
+	private static final int LOCAL_SIG = 0x04034b50;
+	private static final int DESCRIPTOR_SIG = 0x08074b50;
+	private static final int CENTRAL_SIG = 0x02014b50;
+	private static final int END_SIG = 0x06054b50;
+
+	/** Bit 3: dimensiunile vin după date; bit 11: nume UTF-8 */
+	private static final int FLAG_DESCRIPTOR = 0x0008;
+	private static final int FLAG_UTF8 = 0x0800;
+
+	/** Rezultatul unui export */
+	static final class Stats {
+		final Path archive;
+		final int entries;
+		final int skipped;
+		final long bytesIn;
+		final long bytesOut;
+		final long nanos;
+
+		Stats(Path archive, int entries, int skipped, long bytesIn, long bytesOut, long nanos) {
+			this.archive = archive;
+			this.entries = entries;
+			this.skipped = skipped;
+			this.bytesIn = bytesIn;
+			this.bytesOut = bytesOut;
+			this.nanos = nanos;
+		}
+
+		/** Dimensiunea arhivei / dimensiunea fișierelor (mai mic = compresie mai bună) */
+		double ratio() {
+			return bytesIn == 0 ? 1.0 : (double) bytesOut / bytesIn;
+		}
+
+		/** Octeți necomprimați citiți pe secundă */
+		double bytesPerSecond() {
+			return nanos == 0 ? 0 : bytesIn * 1e9 / nanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d fișiere (%d sărite), %.1f MB -> %.1f MB (%.0f%%), %.1f MB/s, %d ms", entries,
+					skipped, bytesIn / 1e6, bytesOut / 1e6, 100 * ratio(), bytesPerSecond() / 1e6, nanos / 1_000_000);
+		}
+	}
+
+	/** O intrare pregătită pentru scriere (comprimată în memorie sau de comprimat la scriere) */
+	private static final class Entry {
+		final Path file;
+		final String name;
+		final long mtime;
+		final int permits;
+
+		/** Completate de compresia în paralel; data == null = fișier mare, comprimat la scriere */
+		int method;
+		long crc;
+		long size;
+		byte[] data;
+		int dataLength;
+
+		/** Fișierul nu a putut fi citit (șters între timp etc.) */
+		boolean unreadable;
+
+		/** Completate la scriere */
+		int flags;
+		long compressedSize;
+		long offset;
+
+		Entry(Path file, String name, long mtime, int permits) {
+			this.file = file;
+			this.name = name;
+			this.mtime = mtime;
+			this.permits = permits;
+		}
+	}
+
+	/** Marcaj de sfârșit pentru coada de scriere */
+	private static final Future<Entry> END = CompletableFuture.completedFuture(null);
+
+	private final Path target;
+	private final Path partial;
+	private final ExecutorService compressors;
+	private final BlockingQueue<Future<Entry>> ordered = new ArrayBlockingQueue<>(1024);
+	private final Semaphore inFlight = new Semaphore(IN_FLIGHT_BYTES);
+	private final CompletableFuture<Stats> done = new CompletableFuture<>();
+	private final long start = System.nanoTime();
+	private int added = 0;
+	private final AtomicInteger skipped = new AtomicInteger();
+	private volatile boolean closed = false;
+
+	/**
+	 * Pornește exportul în target (scris întâi ca target.part, redenumit la
+	 * final). threads = numărul de thread-uri de compresie.
+	 */
+	ZipExporter(Path target, int threads) {
+		this.target = target;
+		this.partial = target.resolveSibling(target.getFileName() + ".part");
+		this.compressors = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+			Thread t = new Thread(r, "zip-deflate");
+			t.setDaemon(true);
+			return t;
+		});
+		Thread writer = new Thread(this::writeAll, "zip-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Adaugă un fișier sub numele name (cale relativă, cu '/'). Compresia
+	 * pornește imediat; blochează doar dacă pipeline-ul e plin. Se apelează
+	 * dintr-un singur thread.
+	 */
+	void add(Path file, String name, long size, long mtime) throws InterruptedException {
+		if (closed)
+			throw new IllegalStateException("Export încheiat");
+		if (added >= MAX_ENTRIES || size >= ZIP32_MAX || done.isDone()) {
+			skipped.incrementAndGet();
+			return;
+		}
+		added++;
+
+		int permits = (int) Math.min(size <= IN_MEMORY_MAX ? Math.max(size, 1) : IN_MEMORY_MAX, IN_FLIGHT_BYTES);
+		/** Dacă scrierea a eșuat, nimeni nu mai eliberează loc: nu așteptăm la nesfârșit */
+		while (!inFlight.tryAcquire(permits, 100, TimeUnit.MILLISECONDS)) {
+			if (done.isDone()) {
+				skipped.incrementAndGet();
+				return;
+			}
+		}
+		Entry e = new Entry(file, name, mtime, permits);
+		enqueue(size <= IN_MEMORY_MAX ? compressors.submit(() -> compress(e)) : CompletableFuture.completedFuture(e));
+	}
+
+	private void enqueue(Future<Entry> f) throws InterruptedException {
+		while (!ordered.offer(f, 100, TimeUnit.MILLISECONDS)) {
+			if (done.isDone())
+				return;
+		}
+	}
+
+	/** Nu se mai adaugă nimic; rezultatul vine când arhiva e completă */
+	CompletableFuture<Stats> finish() throws InterruptedException {
+		if (!closed) {
+			closed = true;
+			enqueue(END);
+		}
+		return done;
+	}
+
+	/** Compresie în memorie; păstrează varianta necomprimată dacă deflate nu câștigă nimic */
+	private static Entry compress(Entry e) {
+		byte[] raw;
+		try {
+			raw = Files.readAllBytes(e.file);
+		} catch (IOException ex) {
+			e.unreadable = true;
+			return e;
+		}
+		CRC32 crc = new CRC32();
+		crc.update(raw);
+		e.crc = crc.getValue();
+		e.size = raw.length;
+
+		Deflater d = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			d.setInput(raw);
+			d.finish();
+			byte[] out = new byte[raw.length + raw.length / 1000 + 64];
+			int n = 0;
+			while (!d.finished() && n < out.length)
+				n += d.deflate(out, n, out.length - n);
+			if (d.finished() && n < raw.length) {
+				e.method = Deflater.DEFLATED;
+				e.data = out;
+				e.dataLength = n;
+			} else {
+				e.method = 0;
+				e.data = raw;
+				e.dataLength = raw.length;
+			}
+		} finally {
+			d.end();
+		}
+		return e;
+	}
+
+	/** Thread-ul de scriere: ia intrările în ordine, le scrie, apoi directorul central */
+	private void writeAll() {
+		List<Entry> written = new ArrayList<>();
+		long bytesIn = 0;
+		long archiveSize;
+		try {
+			/** Arhiva e închisă înainte de mutarea în locul final */
+			try (CountingOutputStream out = new CountingOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(partial), 1 << 16))) {
+				while (true) {
+					Future<Entry> f = ordered.take();
+					if (f == END)
+						break;
+					Entry e = f.get();
+					try {
+						/** Fișierul a dispărut sau nu poate fi citit între timp */
+						if (e.unreadable) {
+							skipped.incrementAndGet();
+							continue;
+						}
+						long before = out.count;
+						if (e.data != null)
+							writeBuffered(out, e);
+						else
+							writeStreamed(out, e);
+						if (out.count > ZIP32_MAX)
+							throw new IOException("Arhiva depășește 4 GB (zip64 nu este suportat)");
+						bytesIn += e.size;
+						written.add(e);
+						Metrics.add("archive.bytesOut", out.count - before);
+					} catch (IOException ex) {
+						if (out.count > ZIP32_MAX)
+							throw ex;
+						skipped.incrementAndGet();
+					} finally {
+						e.data = null;
+						inFlight.release(e.permits);
+					}
+				}
+				writeCentralDirectory(out, written);
+				out.flush();
+				archiveSize = out.count;
+			}
+			Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+
+			Metrics.add("archive.bytesIn", bytesIn);
+			Metrics.add("archive.entries", written.size());
+			done.complete(new Stats(target, written.size(), skipped.get(), bytesIn, archiveSize, System.nanoTime() - start));
+		} catch (Exception ex) {
+			done.completeExceptionally(ex);
+			try {
+				Files.deleteIfExists(partial);
+			} catch (IOException ignored) {
+			}
+		} finally {
+			compressors.shutdownNow();
+		}
+	}
+
+	private void writeBuffered(CountingOutputStream out, Entry e) throws IOException {
+		e.offset = out.count;
+		e.flags = FLAG_UTF8;
+		e.compressedSize = e.dataLength;
+		writeLocalHeader(out, e);
+		out.write(e.data, 0, e.dataLength);
+	}
+
+	/** Fișier mare: deflate direct în arhivă, CRC și dimensiunile în data descriptor */
+	private void writeStreamed(CountingOutputStream out, Entry e) throws IOException {
+		CRC32 crc = new CRC32();
+		Deflater d = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		byte[] in = new byte[1 << 16];
+		byte[] buf = new byte[1 << 16];
+		long size = 0;
+		long dataStart;
+		/** Fișierul e deschis înaintea header-ului: unul dispărut nu lasă o intrare goală */
+		try (InputStream is = Files.newInputStream(e.file)) {
+			e.offset = out.count;
+			e.flags = FLAG_UTF8 | FLAG_DESCRIPTOR;
+			e.method = Deflater.DEFLATED;
+			writeLocalHeader(out, e);
+			dataStart = out.count;
+
+			int n;
+			while ((n = is.read(in)) > 0) {
+				crc.update(in, 0, n);
+				size += n;
+				d.setInput(in, 0, n);
+				while (!d.needsInput())
+					out.write(buf, 0, d.deflate(buf));
+			}
+			d.finish();
+			while (!d.finished())
+				out.write(buf, 0, d.deflate(buf));
+		} finally {
+			d.end();
+		}
+		if (size >= ZIP32_MAX)
+			throw new IOException("Fișier prea mare pentru zip fără zip64: " + e.file);
+
+		e.crc = crc.getValue();
+		e.size = size;
+		e.compressedSize = out.count - dataStart;
+		writeInt(out, DESCRIPTOR_SIG);
+		writeInt(out, e.crc);
+		writeInt(out, e.compressedSize);
+		writeInt(out, e.size);
+	}
+
+	private static void writeLocalHeader(OutputStream out, Entry e) throws IOException {
+		byte[] name = e.name.getBytes(StandardCharsets.UTF_8);
+		boolean descriptor = (e.flags & FLAG_DESCRIPTOR) != 0;
+		writeInt(out, LOCAL_SIG);
+		writeShort(out, 20);
+		writeShort(out, e.flags);
+		writeShort(out, e.method);
+		writeInt(out, dosTime(e.mtime));
+		writeInt(out, descriptor ? 0 : e.crc);
+		writeInt(out, descriptor ? 0 : e.compressedSize);
+		writeInt(out, descriptor ? 0 : e.size);
+		writeShort(out, name.length);
+		writeShort(out, 0);
+		out.write(name);
+	}
+
+	private static void writeCentralDirectory(CountingOutputStream out, List<Entry> entries) throws IOException {
+		long cdStart = out.count;
+		for (Entry e : entries) {
+			byte[] name = e.name.getBytes(StandardCharsets.UTF_8);
+			writeInt(out, CENTRAL_SIG);
+			writeShort(out, 20);
+			writeShort(out, 20);
+			writeShort(out, e.flags);
+			writeShort(out, e.method);
+			writeInt(out, dosTime(e.mtime));
+			writeInt(out, e.crc);
+			writeInt(out, e.compressedSize);
+			writeInt(out, e.size);
+			writeShort(out, name.length);
+			writeShort(out, 0);
+			writeShort(out, 0);
+			writeShort(out, 0);
+			writeShort(out, 0);
+			writeInt(out, 0);
+			writeInt(out, e.offset);
+			out.write(name);
+		}
+		long cdSize = out.count - cdStart;
+		if (out.count > ZIP32_MAX)
+			throw new IOException("Arhiva depășește 4 GB (zip64 nu este suportat)");
+
+		writeInt(out, END_SIG);
+		writeShort(out, 0);
+		writeShort(out, 0);
+		writeShort(out, entries.size());
+		writeShort(out, entries.size());
+		writeInt(out, cdSize);
+		writeInt(out, cdStart);
+		writeShort(out, 0);
+	}
+
+	/** Data și ora în formatul MS-DOS folosit de zip (rezoluție 2 s, din 1980) */
+	private static long dosTime(long millis) {
+		LocalDateTime t = LocalDateTime.ofInstant(Instant.ofEpochMilli(Math.max(millis, 0)), ZoneId.systemDefault());
+		if (t.getYear() < 1980)
+			return (1 << 21) | (1 << 16);
+		return ((long) (t.getYear() - 1980) << 25) | ((long) t.getMonthValue() << 21) | ((long) t.getDayOfMonth() << 16)
+				| ((long) t.getHour() << 11) | ((long) t.getMinute() << 5) | (t.getSecond() >> 1);
+	}
+
+	private static void writeShort(OutputStream out, int v) throws IOException {
+		out.write(v & 0xFF);
+		out.write((v >>> 8) & 0xFF);
+	}
+
+	private static void writeInt(OutputStream out, long v) throws IOException {
+		writeShort(out, (int) (v & 0xFFFF));
+		writeShort(out, (int) ((v >>> 16) & 0xFFFF));
+	}
+
+	/** Numără octeții scriși (offset-urile intrărilor) */
+	private static final class CountingOutputStream extends OutputStream {
+		private final OutputStream out;
+		long count = 0;
+
+		CountingOutputStream(OutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+}
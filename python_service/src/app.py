@@ -1,8 +1,8 @@
 # python_service/app.py - Extended Service
 from typing import List, Optional
 from pydantic import BaseModel, Field, ValidationError
-from fastapi import FastAPI, HTTPException
-import json, re, urllib.request, os, sys
+from fastapi import FastAPI, HTTPException, Request
+import json, re, urllib.request, os, sys, time
 
 # Load environment variables
 from pathlib import Path
@@ -151,6 +151,19 @@ agent = Agent(
 # ========== FastAPI App ==========
 app = FastAPI(title="PydanticAI Extended Service")
 
+# ========== Timing ==========
+@app.middleware("http")
+async def timing(request: Request, call_next):
+    """Adds Server-Timing (recorded by PythonBridgeAgent in its JFR events) and logs the convId."""
+    start = time.perf_counter()
+    response = await call_next(request)
+    dur_ms = (time.perf_counter() - start) * 1000.0
+    response.headers["Server-Timing"] = f"app;dur={dur_ms:.1f}"
+    conv_id = request.headers.get("X-Conv-Id")
+    if conv_id:
+        print(f"[TIMING] conv={conv_id} {request.method} {request.url.path} {dur_ms:.1f} ms")
+    return response
+
 # ========== Existing Endpoint ==========
 @app.post("/agent/solve", response_model=Plan)
 async def solve(req: FileAnalysisRequest) -> Plan: